@@ -2,6 +2,7 @@ val groovyVersion: String by project
 val spockVersion: String by project
 val okHttpVersion: String by project
 val apacheLangVersion: String by project
+val hdrHistogramVersion: String by project
 
 plugins {
     groovy
@@ -30,9 +31,30 @@ configurations {
     }
 }
 
+// load generator run by the loadtest task, kept out of the application jar
+sourceSets {
+    create("loadtest") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+configurations {
+    named("loadtestImplementation") {
+        extendsFrom(configurations.implementation.get())
+    }
+    named("loadtestRuntimeOnly") {
+        extendsFrom(configurations.runtimeOnly.get())
+    }
+}
+
 tasks.withType(Test::class.java).all {
-    this.include("**/*Test.*")
-    this.exclude("**/*TestBase.*", "**/*IntegrationTest.*")
+    if (this.name == "benchmark") {
+        this.include("**/*Benchmark.*")
+    } else {
+        this.include("**/*Test.*")
+        this.exclude("**/*TestBase.*", "**/*IntegrationTest.*")
+    }
 }
 
 tasks {
@@ -45,6 +67,52 @@ tasks {
             jvmTarget = "11"
         }
     }
+    register<Test>("benchmark") {
+        description = "Runs the *Benchmark specs, which are left out of the regular test run."
+        group = "verification"
+        testClassesDirs = sourceSets.test.get().output.classesDirs
+        classpath = sourceSets.test.get().runtimeClasspath
+        outputs.upToDateWhen { false }
+        testLogging.showStandardStreams = true
+    }
+    register<JavaExec>("appCdsArchive") {
+        description = "Starts and stops the application once to dump an AppCDS archive of the loaded classes (JDK 13+)."
+        group = "application"
+        dependsOn("classes")
+        classpath = sourceSets.main.get().runtimeClasspath
+        main = "com.altruist.Application"
+        args = listOf("--spring.profiles.active=local,faststart", "--server.port=0")
+        jvmArgs = listOf("-XX:ArchiveClassesAtExit=$buildDir/appcds/application.jsa", "-Dappcds.training-run=true")
+        doFirst { file("$buildDir/appcds").mkdirs() }
+    }
+    named<JavaExec>("bootRun") {
+        doFirst {
+            val archive = file("$buildDir/appcds/application.jsa")
+            if (archive.exists()) {
+                jvmArgs("-XX:SharedArchiveFile=$archive", "-Xshare:auto")
+            }
+        }
+    }
+    register<JavaExec>("loadtest") {
+        description = "Boots the application on embedded Postgres and drives an open-loop load against its REST API. " +
+            "Options go in -PloadtestArgs, e.g. -PloadtestArgs=\"--rate=1000 --duration-seconds=120\"."
+        group = "verification"
+        classpath = sourceSets["loadtest"].runtimeClasspath
+        main = "com.altruist.loadtest.LoadTest"
+        args = (project.findProperty("loadtestArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf()
+        jvmArgs = listOf("-Xms1g", "-Xmx1g")
+        outputs.upToDateWhen { false }
+    }
+    register<JavaExec>("gatewayBenchmark") {
+        description = "Boots the application on embedded Postgres and measures submit and cancel round trips through " +
+            "the binary gateway. Options go in -PgatewayBenchmarkArgs, e.g. -PgatewayBenchmarkArgs=\"--round-trips=50000\"."
+        group = "verification"
+        classpath = sourceSets["loadtest"].runtimeClasspath
+        main = "com.altruist.loadtest.GatewayBenchmark"
+        args = (project.findProperty("gatewayBenchmarkArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf()
+        jvmArgs = listOf("-Xms1g", "-Xmx1g")
+        outputs.upToDateWhen { false }
+    }
     wrapper {
         gradleVersion = "6.4.1"
         distributionType = Wrapper.DistributionType.ALL
@@ -82,4 +150,6 @@ dependencies {
     testImplementation("org.codehaus.groovy:groovy-all:$groovyVersion")
     testImplementation("org.spockframework:spock-core:$spockVersion")
     testImplementation("org.spockframework:spock-spring:$spockVersion")
+
+    "loadtestImplementation"("org.hdrhistogram:HdrHistogram:$hdrHistogramVersion")
 }
@@ -0,0 +1,97 @@
+package com.altruist.loadtest;
+
+import com.altruist.Application;
+import com.altruist.gateway.BinaryGateway;
+import com.altruist.gateway.GatewayAck;
+import com.altruist.gateway.GatewayClient;
+import com.altruist.marketdata.MarketDataService;
+import com.altruist.marketdata.SymbolTable;
+import com.altruist.model.Account;
+import com.altruist.model.TradeSide;
+import com.altruist.service.AccountService;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip latency of the binary gateway: boots the application with the loadtest profile,
+ * then submits a trade and cancels it, one message at a time on one session, and prints the
+ * percentiles of each in microseconds. Options, as {@code --name=value}:
+ * <ul>
+ *     <li>{@code round-trips}: measured submit and cancel pairs (20000)</li>
+ *     <li>{@code warmup}: pairs sent first whose latencies are discarded (20000)</li>
+ *     <li>{@code symbol}: symbol traded, priced at its last price (AAPL)</li>
+ * </ul>
+ */
+public class GatewayBenchmark {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format("Expected --name=value but got [%s]", arg));
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        int roundTrips = Integer.parseInt(options.getOrDefault("round-trips", "20000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "20000"));
+        String symbol = options.getOrDefault("symbol", "AAPL");
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+            .profiles("loadtest")
+            .run("--server.port=0", "--gateway.enabled=true", "--gateway.port=0", "--admission-control.enabled=false");
+        int exitCode = 0;
+        try (GatewayClient client = new GatewayClient("127.0.0.1", context.getBean(BinaryGateway.class).getLocalPort())) {
+            UUID accountUuid = context.getBean(AccountService.class).create(Account.builder()
+                .username("gateway-benchmark")
+                .email("gateway-benchmark@example.com")
+                .build());
+            MarketDataService marketDataService = context.getBean(MarketDataService.class);
+            long price = marketDataService.lastPrice(marketDataService.symbolId(symbol));
+            long encodedSymbol = SymbolTable.encode(symbol);
+            Histogram submits = new Histogram(TimeUnit.SECONDS.toNanos(10), 3);
+            Histogram cancels = new Histogram(TimeUnit.SECONDS.toNanos(10), 3);
+            GatewayAck ack = new GatewayAck();
+            for (int i = 0; i < warmup + roundTrips; i++) {
+                boolean measured = i >= warmup;
+                long start = System.nanoTime();
+                client.newOrder(i, accountUuid, encodedSymbol, TradeSide.BUY, 1, price, null, 0, ack);
+                long submitted = System.nanoTime();
+                if (!ack.isAccepted()) {
+                    throw new IllegalStateException("Trade rejected with reason " + ack.getReason());
+                }
+                client.cancel(i, accountUuid, ack.tradeUuid(), ack);
+                long cancelled = System.nanoTime();
+                if (measured) {
+                    submits.recordValue(submitted - start);
+                    cancels.recordValue(cancelled - submitted);
+                }
+            }
+            System.out.printf("Gateway round trips over one session, in µs, after %d warm up pairs:%n", warmup);
+            print("submit", submits);
+            print("cancel", cancels);
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            SpringApplication.exit(context);
+        }
+        System.exit(exitCode);
+    }
+
+    private static void print(String name, Histogram histogram) {
+        StringBuilder line = new StringBuilder(String.format("%-8s %8d", name, histogram.getTotalCount()));
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(" p%s=%.1f", percentile, histogram.getValueAtPercentile(percentile) / 1_000.0));
+        }
+        line.append(String.format(" max=%.1f", histogram.getMaxValue() / 1_000.0));
+        System.out.println(line);
+    }
+}
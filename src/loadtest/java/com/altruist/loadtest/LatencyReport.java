@@ -0,0 +1,76 @@
+package com.altruist.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes {@code report.txt}, with the throughput and latency percentiles of each operation,
+ * and one HdrHistogram percentile distribution ({@code .hgrm}, in milliseconds) per operation
+ * that can be plotted or compared between runs.
+ */
+class LatencyReport {
+
+    private static final double MICROS_PER_MILLI = 1_000.0;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final LoadTestOptions options;
+    private final OpenLoopDriver driver;
+
+    LatencyReport(LoadTestOptions options, OpenLoopDriver driver) {
+        this.options = options;
+        this.driver = driver;
+    }
+
+    Path write() throws IOException {
+        Path directory = Files.createDirectories(options.getReportDirectory());
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Open-loop load: %d requests/s for %d s after a %d s warm up, mix %s%n",
+            options.getRate(), options.getDurationSeconds(), options.getWarmupSeconds(), options.getMix()));
+        report.append(String.format("Latency from the time each request was due, in ms. Generator max lag %.3f ms, " +
+            "%d requests unfinished.%n%n", driver.getMaximumLagMicros() / MICROS_PER_MILLI, driver.getInFlight()));
+        report.append(String.format("%-15s %9s %7s %10s", "operation", "count", "errors", "req/s"));
+        for (double percentile : PERCENTILES) {
+            report.append(String.format(" %9s", "p" + percentile));
+        }
+        report.append(String.format(" %9s%n", "max"));
+        for (Map.Entry<Operation, Histogram> entry : driver.getLatencies().entrySet()) {
+            Histogram histogram = entry.getValue();
+            LongAdder errors = driver.getErrors().get(entry.getKey());
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            all.add(histogram);
+            allErrors += errors.sum();
+            line(report, entry.getKey().getLabel(), histogram, errors.sum());
+            writeDistribution(directory.resolve(entry.getKey().getLabel() + ".hgrm"), histogram);
+        }
+        line(report, "all", all, allErrors);
+        writeDistribution(directory.resolve("all.hgrm"), all);
+        Path file = directory.resolve("report.txt");
+        Files.writeString(file, report);
+        System.out.print(report);
+        return file;
+    }
+
+    private void line(StringBuilder report, String name, Histogram histogram, long errors) {
+        report.append(String.format("%-15s %9d %7d %10.1f", name, histogram.getTotalCount(), errors,
+            histogram.getTotalCount() / (double) options.getDurationSeconds()));
+        for (double percentile : PERCENTILES) {
+            report.append(String.format(" %9.3f", histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI));
+        }
+        report.append(String.format(" %9.3f%n", histogram.getMaxValue() / MICROS_PER_MILLI));
+    }
+
+    private void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
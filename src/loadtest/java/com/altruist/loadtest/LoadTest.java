@@ -0,0 +1,72 @@
+package com.altruist.loadtest;
+
+import com.altruist.Application;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Boots the application with the loadtest profile, on its own embedded Postgres, creates the
+ * initial accounts and drives the configured mix of requests at a fixed arrival rate, then
+ * writes the latency report. See {@link LoadTestOptions} for the options.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext context = null;
+        URI baseUri;
+        if (options.getBaseUrl() == null) {
+            context = new SpringApplicationBuilder(Application.class)
+                .profiles("loadtest")
+                .run("--server.port=0");
+            baseUri = URI.create("http://localhost:"
+                + ((WebServerApplicationContext) context).getWebServer().getPort() + "/");
+        } else {
+            baseUri = URI.create(options.getBaseUrl().endsWith("/") ? options.getBaseUrl() : options.getBaseUrl() + "/");
+        }
+        int exitCode = 0;
+        try {
+            Workload workload = new Workload(baseUri);
+            createAccounts(workload, options.getAccounts());
+            OpenLoopDriver driver = new OpenLoopDriver(workload, options.getRate(), options.getMix());
+            System.out.printf("Driving %s at %d requests/s for %d s after a %d s warm up.%n",
+                baseUri, options.getRate(), options.getDurationSeconds(), options.getWarmupSeconds());
+            driver.run(options.getWarmupSeconds(), options.getDurationSeconds());
+            Path report = new LatencyReport(options, driver).write();
+            System.out.printf("Report written to %s.%n", report.toAbsolutePath());
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            if (context != null) {
+                SpringApplication.exit(context);
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Creates the accounts the run starts with, a few at a time.
+     */
+    private static void createAccounts(Workload workload, int accounts) {
+        List<CompletableFuture<Integer>> batch = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            batch.add(workload.send(Operation.CREATE_ACCOUNT));
+            if (batch.size() == 20 || i == accounts - 1) {
+                batch.forEach(CompletableFuture::join);
+                batch.clear();
+            }
+        }
+        if (workload.accounts() == 0) {
+            throw new IllegalStateException("No account could be created, is the application up?");
+        }
+        System.out.printf("Created %d accounts.%n", workload.accounts());
+    }
+}
@@ -0,0 +1,100 @@
+package com.altruist.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Command line options, as {@code --name=value}:
+ * <ul>
+ *     <li>{@code rate}: requests started per second, whatever the response times (500)</li>
+ *     <li>{@code duration-seconds}: measured run, after the warm up (60)</li>
+ *     <li>{@code warmup-seconds}: run at the same rate whose latencies are discarded (15)</li>
+ *     <li>{@code accounts}: accounts created before the run (200)</li>
+ *     <li>{@code mix}: weight of each operation, see {@link Operation}</li>
+ *     <li>{@code report-directory}: where the report and histograms go (build/loadtest)</li>
+ *     <li>{@code base-url}: drive a running application instead of booting one</li>
+ * </ul>
+ */
+public class LoadTestOptions {
+
+    static final String DEFAULT_MIX =
+        "create-account:2,get-account:10,get-address:8,submit-trade:50,cancel-trade:15,list-trades:15";
+
+    private final int rate;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int accounts;
+    private final Map<Operation, Integer> mix;
+    private final Path reportDirectory;
+    private final String baseUrl;
+
+    private LoadTestOptions(Map<String, String> options) {
+        this.rate = Integer.parseInt(options.getOrDefault("rate", "500"));
+        this.durationSeconds = Integer.parseInt(options.getOrDefault("duration-seconds", "60"));
+        this.warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-seconds", "15"));
+        this.accounts = Integer.parseInt(options.getOrDefault("accounts", "200"));
+        this.mix = parseMix(options.getOrDefault("mix", DEFAULT_MIX));
+        this.reportDirectory = Paths.get(options.getOrDefault("report-directory", "build/loadtest"));
+        this.baseUrl = options.get("base-url");
+        if (rate <= 0 || durationSeconds <= 0 || warmupSeconds < 0 || accounts <= 0) {
+            throw new IllegalArgumentException("rate, duration-seconds and accounts must be positive");
+        }
+    }
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException(String.format("Expected --name=value but got [%s]", arg));
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadTestOptions(options);
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException(String.format("Negative weight in mix entry [%s]", entry));
+            }
+            weights.put(Operation.ofLabel(parts[0].trim()), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix must have at least one operation with a weight");
+        }
+        return weights;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getAccounts() {
+        return accounts;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    public Path getReportDirectory() {
+        return reportDirectory;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+}
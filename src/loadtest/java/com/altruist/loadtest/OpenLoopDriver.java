@@ -0,0 +1,119 @@
+package com.altruist.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Starts requests at a fixed rate whatever the response times, the i-th request being due at
+ * {@code start + i / rate}. Latency is measured from when a request was due, not from when it
+ * was sent, so a stall of the application or of the generator itself is charged to every
+ * request it delayed instead of being hidden (coordinated omission).
+ */
+class OpenLoopDriver {
+
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final Workload workload;
+    private final int rate;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final AtomicLong inFlight = new AtomicLong();
+    private long maximumLagMicros;
+
+    OpenLoopDriver(Workload workload, int rate, Map<Operation, Integer> mix) {
+        this.workload = workload;
+        this.rate = rate;
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Runs the warm up, whose latencies are discarded, then the measured period, and waits for
+     * the requests still in flight.
+     */
+    void run(int warmupSeconds, int durationSeconds) throws InterruptedException {
+        long start = System.nanoTime();
+        long measuredFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measuredFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        double intervalNanos = 1_000_000_000.0 / rate;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long lag = System.nanoTime() - due;
+            boolean measured = due >= measuredFrom;
+            if (measured) {
+                maximumLagMicros = Math.max(maximumLagMicros, lag / 1_000);
+            }
+            Operation operation = next(random);
+            inFlight.incrementAndGet();
+            workload.send(operation).whenComplete((status, error) -> {
+                if (measured) {
+                    latencies.get(operation).recordValue(Math.max(1, (System.nanoTime() - due) / 1_000));
+                    if (error != null || status >= 400) {
+                        errors.get(operation).increment();
+                    }
+                }
+                inFlight.decrementAndGet();
+            });
+        }
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    Map<Operation, Histogram> getLatencies() {
+        return latencies;
+    }
+
+    Map<Operation, LongAdder> getErrors() {
+        return errors;
+    }
+
+    long getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The most a request was sent after it was due, a large value means the generator itself
+     * could not keep up with the rate.
+     */
+    long getMaximumLagMicros() {
+        return maximumLagMicros;
+    }
+
+    private Operation next(ThreadLocalRandom random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+}
@@ -0,0 +1,35 @@
+package com.altruist.loadtest;
+
+import java.util.*;
+
+/**
+ * Requests the load generator can send, named as in the {@code --mix} option.
+ */
+public enum Operation {
+    CREATE_ACCOUNT("create-account"),
+    GET_ACCOUNT("get-account"),
+    GET_ADDRESS("get-address"),
+    SUBMIT_TRADE("submit-trade"),
+    CANCEL_TRADE("cancel-trade"),
+    LIST_TRADES("list-trades");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public static Operation ofLabel(String label) {
+        for (Operation operation : values()) {
+            if (operation.label.equals(label)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown operation [%s], expected one of %s", label,
+            Arrays.stream(values()).map(Operation::getLabel).reduce((a, b) -> a + ", " + b).orElse("")));
+    }
+}
@@ -0,0 +1,173 @@
+package com.altruist.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Builds and sends the requests of each {@link Operation}. Accounts and submitted trades
+ * created by the responses feed the later requests: trades are cancelled in the order they
+ * were submitted, and a cancel with no trade left to cancel submits one instead.
+ */
+class Workload {
+
+    private static final String SYMBOLS = "marketdata/symbols.csv";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI baseUri;
+    private final List<String> symbols = new ArrayList<>();
+    private final List<BigDecimal> prices = new ArrayList<>();
+    private final List<UUID> accounts = Collections.synchronizedList(new ArrayList<>());
+    private final Queue<UUID[]> submittedTrades = new ConcurrentLinkedQueue<>();
+
+    Workload(URI baseUri) throws IOException {
+        this.baseUri = baseUri;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        loadSymbols();
+    }
+
+    int accounts() {
+        return accounts.size();
+    }
+
+    /**
+     * @return the status of the response
+     */
+    CompletableFuture<Integer> send(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case CREATE_ACCOUNT:
+                return createAccount(random);
+            case GET_ACCOUNT:
+                return get("/accounts/" + anyAccount(random));
+            case GET_ADDRESS:
+                return get("/accounts/" + anyAccount(random) + "/address");
+            case SUBMIT_TRADE:
+                return submitTrade(random);
+            case CANCEL_TRADE:
+                UUID[] trade = submittedTrades.poll();
+                if (trade == null) {
+                    return submitTrade(random);
+                }
+                return send(HttpRequest.newBuilder(uri("/accounts/" + trade[0] + "/trades/" + trade[1])).DELETE())
+                    .thenApply(HttpResponse::statusCode);
+            case LIST_TRADES:
+                return get("/accounts/" + anyAccount(random) + "/trades");
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private CompletableFuture<Integer> createAccount(ThreadLocalRandom random) {
+        String username = "loadtest-" + UUID.randomUUID();
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("name", "Home");
+        address.put("street", random.nextInt(1, 9999) + " Main St");
+        address.put("city", "Austin");
+        address.put("state", "TX");
+        address.put("zipcode", 73301);
+        Map<String, Object> account = new LinkedHashMap<>();
+        account.put("username", username);
+        account.put("email", username + "@loadtest.com");
+        account.put("address", address);
+        return post("/accounts", account).thenApply((response) -> {
+            if (response.statusCode() == 201) {
+                accounts.add(idOf(response));
+            }
+            return response.statusCode();
+        });
+    }
+
+    private CompletableFuture<Integer> submitTrade(ThreadLocalRandom random) {
+        UUID accountUuid = anyAccount(random);
+        int symbol = random.nextInt(symbols.size());
+        Map<String, Object> trade = new LinkedHashMap<>();
+        trade.put("symbol", symbols.get(symbol));
+        trade.put("quantity", random.nextInt(1, 10));
+        trade.put("side", "BUY");
+        trade.put("price", prices.get(symbol));
+        return post("/accounts/" + accountUuid + "/trades", trade).thenApply((response) -> {
+            if (response.statusCode() == 201) {
+                submittedTrades.add(new UUID[] {accountUuid, idOf(response)});
+            }
+            return response.statusCode();
+        });
+    }
+
+    private CompletableFuture<Integer> get(String path) {
+        return send(HttpRequest.newBuilder(uri(path)).GET()).thenApply(HttpResponse::statusCode);
+    }
+
+    private CompletableFuture<HttpResponse<String>> post(String path, Object body) {
+        try {
+            return send(HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest.Builder request) {
+        return httpClient.sendAsync(request
+                .header("Accept", "application/json")
+                .timeout(REQUEST_TIMEOUT)
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+    }
+
+    private UUID idOf(HttpResponse<String> response) {
+        try {
+            JsonNode body = objectMapper.readTree(response.body());
+            return UUID.fromString(body.path("id").asText());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private UUID anyAccount(ThreadLocalRandom random) {
+        synchronized (accounts) {
+            return accounts.get(random.nextInt(accounts.size()));
+        }
+    }
+
+    private URI uri(String path) {
+        return baseUri.resolve(path);
+    }
+
+    private void loadSymbols() throws IOException {
+        InputStream in = Workload.class.getClassLoader().getResourceAsStream(SYMBOLS);
+        if (in == null) {
+            throw new FileNotFoundException(SYMBOLS);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split(",");
+                symbols.add(columns[0].trim());
+                prices.add(new BigDecimal(columns[1].trim()));
+            }
+        }
+    }
+}
@@ -2,10 +2,15 @@ package com.altruist;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class Application {
     public static void main(String[] args) {
-        SpringApplication.run(Application.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(Application.class, args);
+        // the appCdsArchive task only needs the classes loaded by a full start up
+        if (Boolean.getBoolean("appcds.training-run")) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 }
@@ -0,0 +1,57 @@
+package com.altruist.admission;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link TokenBucket} per account. Buckets are created on demand and dropped once they
+ * have been full for the idle timeout, which keeps memory proportional to the active accounts.
+ */
+@Slf4j
+public class AccountRateLimiter {
+
+    private final ConcurrentHashMap<UUID, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final double permitsPerSecond;
+    private final int burst;
+    private final long idleNanos;
+    private final int maximumBuckets;
+
+    public AccountRateLimiter(double permitsPerSecond, int burst, long idleMillis, int maximumBuckets) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.maximumBuckets = maximumBuckets;
+    }
+
+    /**
+     * @return 0 when the request is admitted, otherwise how many nanoseconds to wait before retrying
+     */
+    public long tryAcquire(UUID accountUuid) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(accountUuid);
+        if (bucket == null) {
+            if (buckets.size() >= maximumBuckets) {
+                evict(now, 0);
+            }
+            bucket = buckets.computeIfAbsent(accountUuid, (key) -> new TokenBucket(permitsPerSecond, burst, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    public void evictIdle() {
+        int before = buckets.size();
+        evict(System.nanoTime(), idleNanos);
+        log.debug("Evicted {} idle rate limiter buckets.", before - buckets.size());
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private void evict(long now, long idle) {
+        buckets.values().removeIf((bucket) -> bucket.isIdleSince(now, idle));
+    }
+}
@@ -0,0 +1,56 @@
+package com.altruist.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class AdmissionControlConfiguration implements WebMvcConfigurer {
+
+    private final boolean enabled;
+    private final AccountRateLimiter accountRateLimiter;
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * The concurrency limit defaults to the connection pool size, a request holding a permit
+     * is expected to hold a connection.
+     */
+    public AdmissionControlConfiguration(
+        @Value("${admission-control.enabled:true}") boolean enabled,
+        @Value("${admission-control.account.permits-per-second:50}") double permitsPerSecond,
+        @Value("${admission-control.account.burst:100}") int burst,
+        @Value("${admission-control.account.idle-millis:60000}") long idleMillis,
+        @Value("${admission-control.account.maximum-buckets:100000}") int maximumBuckets,
+        @Value("${admission-control.maximum-concurrency:${spring.datasource.hikari.maximumPoolSize:20}}")
+            int maximumConcurrency) {
+        this.enabled = enabled;
+        this.accountRateLimiter = new AccountRateLimiter(permitsPerSecond, burst, idleMillis, maximumBuckets);
+        this.concurrencyLimiter = new ConcurrencyLimiter(maximumConcurrency);
+    }
+
+    @Bean
+    public AccountRateLimiter accountRateLimiter() {
+        return accountRateLimiter;
+    }
+
+    @Bean
+    public ConcurrencyLimiter concurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    @Scheduled(fixedDelayString = "${admission-control.account.idle-millis:60000}")
+    public void evictIdleBuckets() {
+        accountRateLimiter.evictIdle();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (enabled) {
+            registry.addInterceptor(new AdmissionControlInterceptor(accountRateLimiter, concurrencyLimiter))
+                .addPathPatterns("/accounts/*/trades", "/accounts/*/trades/**");
+        }
+    }
+}
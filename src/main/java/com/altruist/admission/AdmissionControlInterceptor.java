@@ -0,0 +1,81 @@
+package com.altruist.admission;
+
+import com.altruist.exceptions.TooManyRequestsException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits write requests on trades only when the account is within its rate and a database
+ * slot is free. Reads are not limited.
+ */
+@Slf4j
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".PERMIT";
+
+    private final AccountRateLimiter accountRateLimiter;
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    public AdmissionControlInterceptor(AccountRateLimiter accountRateLimiter,
+                                       ConcurrencyLimiter concurrencyLimiter) {
+        this.accountRateLimiter = accountRateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!isWrite(request)) {
+            return true;
+        }
+        UUID accountUuid = accountUuid(request);
+        if (accountUuid != null) {
+            long waitNanos = accountRateLimiter.tryAcquire(accountUuid);
+            if (waitNanos > 0) {
+                log.warn("Rate limit exceeded for account {}.", accountUuid);
+                throw new TooManyRequestsException(
+                    String.format("Too many requests for account [%s]", accountUuid),
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L)));
+            }
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            log.warn("Concurrency limit exceeded, rejecting {} {}.", request.getMethod(), request.getRequestURI());
+            throw new TooManyRequestsException("The server is busy, please retry", 1);
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            concurrencyLimiter.release();
+        }
+    }
+
+    private boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+    }
+
+    @SuppressWarnings("unchecked")
+    private UUID accountUuid(HttpServletRequest request) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(
+            HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables == null || variables.get("accountUuid") == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(variables.get("accountUuid"));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
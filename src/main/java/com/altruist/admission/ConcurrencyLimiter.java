@@ -0,0 +1,28 @@
+package com.altruist.admission;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the requests doing database work at the same time, so requests beyond the pool
+ * capacity are turned away instead of queueing for a connection.
+ */
+public class ConcurrencyLimiter {
+
+    private final Semaphore permits;
+
+    public ConcurrencyLimiter(int maximumConcurrency) {
+        this.permits = new Semaphore(maximumConcurrency);
+    }
+
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int available() {
+        return permits.availablePermits();
+    }
+}
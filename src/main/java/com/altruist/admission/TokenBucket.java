@@ -0,0 +1,45 @@
+package com.altruist.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm: the whole state is
+ * the theoretical arrival time of the next request, updated with a single CAS.
+ * A bucket whose arrival time is in the past is full and therefore identical to a new one.
+ */
+public class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalTime;
+
+    public TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstToleranceNanos = this.emissionIntervalNanos * Math.max(0, burst - 1);
+        this.theoreticalArrivalTime = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes one permit.
+     *
+     * @return 0 when the permit was granted, otherwise how many nanoseconds to wait before retrying
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrivalTime.get();
+            long arrival = Math.max(current, nowNanos);
+            long next = arrival + emissionIntervalNanos;
+            long wait = next - nowNanos - burstToleranceNanos - emissionIntervalNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrivalTime.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public boolean isIdleSince(long nowNanos, long idleNanos) {
+        return theoreticalArrivalTime.get() <= nowNanos - idleNanos;
+    }
+}
@@ -0,0 +1,34 @@
+package com.altruist.analytics;
+
+import java.util.*;
+
+public enum BarResolution {
+    ONE_MINUTE("1m", 60_000L),
+    FIVE_MINUTES("5m", 5 * 60_000L),
+    ONE_HOUR("1h", 60 * 60_000L);
+
+    private final String label;
+    private final long millis;
+
+    BarResolution(String label, long millis) {
+        this.label = label;
+        this.millis = millis;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public static Optional<BarResolution> ofLabel(String label) {
+        for (BarResolution resolution : values()) {
+            if (resolution.label.equals(label)) {
+                return Optional.of(resolution);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,147 @@
+package com.altruist.analytics;
+
+import java.util.*;
+
+/**
+ * Ring buffer of the most recent bars of one symbol at one resolution, held in parallel
+ * primitive arrays indexed by bar number modulo the capacity. A slot is reused by the first
+ * trade of a later bar, so memory is fixed whatever the number of trades.
+ * <p>
+ * Prices and notional are in ticks, times in epoch milliseconds. Not thread safe, see
+ * {@link SymbolAnalytics}.
+ */
+class BarSeries {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long widthMillis;
+    private final int capacity;
+    private final long[] bars;
+    private final long[] firstTradeAt;
+    private final long[] lastTradeAt;
+    private final long[] open;
+    private final long[] high;
+    private final long[] low;
+    private final long[] close;
+    private final long[] volume;
+    private final long[] notional;
+
+    BarSeries(long widthMillis, int capacity) {
+        this.widthMillis = widthMillis;
+        this.capacity = capacity;
+        this.bars = new long[capacity];
+        this.firstTradeAt = new long[capacity];
+        this.lastTradeAt = new long[capacity];
+        this.open = new long[capacity];
+        this.high = new long[capacity];
+        this.low = new long[capacity];
+        this.close = new long[capacity];
+        this.volume = new long[capacity];
+        this.notional = new long[capacity];
+        Arrays.fill(bars, EMPTY);
+    }
+
+    long getWidthMillis() {
+        return widthMillis;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Adds the trades of a span that falls within one bar, a single trade being a span that
+     * opens and closes at the same time and price. Spans older than the bars held are dropped.
+     */
+    void add(long firstMillis, long openTicks, long highTicks, long lowTicks,
+             long lastMillis, long closeTicks, long quantity, long notionalTicks) {
+        long bar = Math.floorDiv(firstMillis, widthMillis);
+        int slot = slotOf(bar);
+        if (bars[slot] > bar) {
+            return;
+        }
+        if (bars[slot] < bar) {
+            bars[slot] = bar;
+            firstTradeAt[slot] = firstMillis;
+            lastTradeAt[slot] = lastMillis;
+            open[slot] = openTicks;
+            high[slot] = highTicks;
+            low[slot] = lowTicks;
+            close[slot] = closeTicks;
+            volume[slot] = quantity;
+            notional[slot] = notionalTicks;
+            return;
+        }
+        if (firstMillis < firstTradeAt[slot]) {
+            firstTradeAt[slot] = firstMillis;
+            open[slot] = openTicks;
+        }
+        if (lastMillis >= lastTradeAt[slot]) {
+            lastTradeAt[slot] = lastMillis;
+            close[slot] = closeTicks;
+        }
+        high[slot] = Math.max(high[slot], highTicks);
+        low[slot] = Math.min(low[slot], lowTicks);
+        volume[slot] += quantity;
+        notional[slot] += notionalTicks;
+    }
+
+    /**
+     * Calls the visitor with the slot of every bar held from the one at {@code fromMillis} to
+     * the one at {@code toMillis}, oldest first. Bars without trades are skipped.
+     */
+    void forEach(long fromMillis, long toMillis, SlotVisitor visitor) {
+        long last = Math.floorDiv(toMillis, widthMillis);
+        long first = Math.max(Math.floorDiv(fromMillis, widthMillis), last - capacity + 1);
+        for (long bar = first; bar <= last; bar++) {
+            int slot = slotOf(bar);
+            if (bars[slot] == bar) {
+                visitor.visit(this, slot);
+            }
+        }
+    }
+
+    long startOf(int slot) {
+        return bars[slot] * widthMillis;
+    }
+
+    long firstTradeAt(int slot) {
+        return firstTradeAt[slot];
+    }
+
+    long lastTradeAt(int slot) {
+        return lastTradeAt[slot];
+    }
+
+    long open(int slot) {
+        return open[slot];
+    }
+
+    long high(int slot) {
+        return high[slot];
+    }
+
+    long low(int slot) {
+        return low[slot];
+    }
+
+    long close(int slot) {
+        return close[slot];
+    }
+
+    long volume(int slot) {
+        return volume[slot];
+    }
+
+    long notional(int slot) {
+        return notional[slot];
+    }
+
+    private int slotOf(long bar) {
+        return (int) Math.floorMod(bar, (long) capacity);
+    }
+
+    interface SlotVisitor {
+        void visit(BarSeries series, int slot);
+    }
+}
@@ -0,0 +1,97 @@
+package com.altruist.analytics;
+
+import com.altruist.marketdata.Prices;
+import com.altruist.model.TradeBar;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * The bars of one symbol at every resolution. Trades are added by the outbox relay and the
+ * backfill while requests read, so every access holds the monitor of the symbol; symbols don't
+ * contend with each other.
+ */
+class SymbolAnalytics {
+
+    static final int VWAP_SCALE = 4;
+
+    private final String symbol;
+    private final BarSeries[] series;
+
+    SymbolAnalytics(String symbol, Map<BarResolution, Integer> capacities) {
+        this.symbol = symbol;
+        this.series = new BarSeries[BarResolution.values().length];
+        for (BarResolution resolution : BarResolution.values()) {
+            series[resolution.ordinal()] = new BarSeries(resolution.getMillis(), capacities.get(resolution));
+        }
+    }
+
+    synchronized void add(long firstMillis, long openTicks, long highTicks, long lowTicks,
+                          long lastMillis, long closeTicks, long quantity, long notionalTicks) {
+        for (BarSeries bars : series) {
+            bars.add(firstMillis, openTicks, highTicks, lowTicks, lastMillis, closeTicks, quantity, notionalTicks);
+        }
+    }
+
+    /**
+     * The bars with trades among the last {@code count} bars up to the one at {@code nowMillis},
+     * oldest first.
+     */
+    synchronized List<TradeBar> bars(BarResolution resolution, int count, long nowMillis) {
+        BarSeries bars = series[resolution.ordinal()];
+        List<TradeBar> result = new ArrayList<>();
+        bars.forEach(nowMillis - (count - 1) * bars.getWidthMillis(), nowMillis, (read, slot) ->
+            result.add(TradeBar.builder()
+                .symbol(symbol)
+                .resolution(resolution.getLabel())
+                .start(toDateTime(read.startOf(slot)))
+                .firstTradeAt(toDateTime(read.firstTradeAt(slot)))
+                .lastTradeAt(toDateTime(read.lastTradeAt(slot)))
+                .open(Prices.fromTicks(read.open(slot)))
+                .high(Prices.fromTicks(read.high(slot)))
+                .low(Prices.fromTicks(read.low(slot)))
+                .close(Prices.fromTicks(read.close(slot)))
+                .volume(read.volume(slot))
+                .notional(Prices.fromTicks(read.notional(slot)))
+                .vwap(vwap(read.notional(slot), read.volume(slot)))
+                .build()));
+        return result;
+    }
+
+    /**
+     * Volume and notional, in ticks, of the bars from the one at {@code fromMillis} to the one
+     * at {@code nowMillis}, read from the finest resolution still holding them.
+     */
+    synchronized long[] totals(long fromMillis, long nowMillis) {
+        BarSeries bars = series[series.length - 1];
+        for (BarSeries candidate : series) {
+            if (candidate.getWidthMillis() * candidate.getCapacity() > nowMillis - fromMillis) {
+                bars = candidate;
+                break;
+            }
+        }
+        long[] totals = new long[2];
+        bars.forEach(fromMillis, nowMillis, (read, slot) -> {
+            totals[0] += read.volume(slot);
+            totals[1] += read.notional(slot);
+        });
+        return totals;
+    }
+
+    static BigDecimal vwap(long notionalTicks, long volume) {
+        return volume == 0 ? null
+            : Prices.fromTicks(notionalTicks).divide(BigDecimal.valueOf(volume), VWAP_SCALE, RoundingMode.HALF_UP);
+    }
+
+    static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
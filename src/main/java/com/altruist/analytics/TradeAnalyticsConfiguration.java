@@ -0,0 +1,42 @@
+package com.altruist.analytics;
+
+import com.altruist.completion.CompletedTradeFeed;
+import com.altruist.marketdata.SymbolTable;
+import com.altruist.repository.TradeAnalyticsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+@Configuration
+public class TradeAnalyticsConfiguration {
+
+    /**
+     * Backfilled while the context starts up to the start of the completed trade feed, which
+     * delivers the trades completed from then on.
+     */
+    @Lazy(false)
+    @Bean
+    public TradeAnalyticsService tradeAnalyticsService(SymbolTable symbolTable,
+                                                       TradeAnalyticsRepository tradeAnalyticsRepository,
+                                                       CompletedTradeFeed completedTradeFeed,
+                                                       @Value("${market-data.capacity:65536}") int capacity,
+                                                       @Value("${analytics.minute-bars:1440}") int minuteBars,
+                                                       @Value("${analytics.five-minute-bars:2016}") int fiveMinuteBars,
+                                                       @Value("${analytics.hour-bars:720}") int hourBars,
+                                                       @Value("${analytics.backfill.partitions:4}") int partitions)
+        throws InterruptedException, ExecutionException {
+        Map<BarResolution, Integer> capacities = new EnumMap<>(BarResolution.class);
+        capacities.put(BarResolution.ONE_MINUTE, minuteBars);
+        capacities.put(BarResolution.FIVE_MINUTES, fiveMinuteBars);
+        capacities.put(BarResolution.ONE_HOUR, hourBars);
+        TradeAnalyticsService service = new TradeAnalyticsService(symbolTable, tradeAnalyticsRepository,
+            Clock.systemUTC(), capacity, capacities, partitions);
+        service.backfill(completedTradeFeed.getSince());
+        return service;
+    }
+}
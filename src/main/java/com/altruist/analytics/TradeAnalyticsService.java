@@ -0,0 +1,173 @@
+package com.altruist.analytics;
+
+import com.altruist.completion.CompletedTradeFeed;
+import com.altruist.completion.CompletedTradeListener;
+import com.altruist.exceptions.EntityNotFoundException;
+import com.altruist.marketdata.Prices;
+import com.altruist.marketdata.SymbolTable;
+import com.altruist.model.SymbolVwap;
+import com.altruist.model.Trade;
+import com.altruist.model.TradeBar;
+import com.altruist.model.TradeCompletion;
+import com.altruist.repository.TradeAnalyticsRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * VWAP, volume and OHLC bars per symbol over the completed trades, kept in memory so reports
+ * don't query the trade table during market hours.
+ * <p>
+ * On start up the bars are backfilled from the trades completed within the longest retention,
+ * scanned by several workers over disjoint hour aligned time ranges, so no bar is split between
+ * two workers, up to the start of the {@link CompletedTradeFeed}. From then on trades are added
+ * as the feed delivers them, on every node. Times are trade.updated_date, taken as UTC.
+ */
+@Slf4j
+public class TradeAnalyticsService implements CompletedTradeListener {
+
+    private final SymbolTable symbolTable;
+    private final TradeAnalyticsRepository repository;
+    private final Clock clock;
+    private final Map<BarResolution, Integer> capacities;
+    private final int partitions;
+    private final AtomicReferenceArray<SymbolAnalytics> symbols;
+
+    public TradeAnalyticsService(SymbolTable symbolTable, TradeAnalyticsRepository repository,
+                                 Clock clock, int capacity, Map<BarResolution, Integer> capacities,
+                                 int partitions) {
+        this.symbolTable = symbolTable;
+        this.repository = repository;
+        this.clock = clock;
+        this.capacities = capacities;
+        this.partitions = partitions;
+        this.symbols = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Loads the bars of the trades completed before completedBefore, within the longest retention.
+     */
+    public void backfill(LocalDateTime completedBefore) throws InterruptedException, ExecutionException {
+        long until = SymbolAnalytics.toEpochMillis(completedBefore);
+        long hour = BarResolution.ONE_HOUR.getMillis();
+        long retention = 0;
+        for (BarResolution resolution : BarResolution.values()) {
+            retention = Math.max(retention, resolution.getMillis() * capacities.get(resolution));
+        }
+        long from = Math.floorDiv(until - retention, hour) * hour;
+        long hours = Math.floorDiv(until - from + hour - 1, hour);
+        int workers = (int) Math.max(1, Math.min(partitions, hours));
+
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers,
+            (runnable) -> new Thread(runnable, "analytics-backfill-" + threads.incrementAndGet()));
+        try {
+            List<Future<Long>> scans = new ArrayList<>();
+            for (int worker = 0; worker < workers; worker++) {
+                long start = from + hours * worker / workers * hour;
+                long end = worker == workers - 1 ? until : from + hours * (worker + 1) / workers * hour;
+                scans.add(executor.submit(() -> scan(start, end)));
+            }
+            long bars = 0;
+            for (Future<Long> scan : scans) {
+                bars += scan.get();
+            }
+            log.info("Backfilled trade analytics from {} minute bars completed since {} by {} workers.",
+                bars, SymbolAnalytics.toDateTime(from), workers);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long scan(long fromMillis, long toMillis) {
+        long[] bars = new long[1];
+        repository.aggregateCompleted(SymbolAnalytics.toDateTime(fromMillis), SymbolAnalytics.toDateTime(toMillis),
+            (bar) -> {
+                SymbolAnalytics analytics = analyticsOf(bar.getSymbol());
+                if (analytics == null) {
+                    return;
+                }
+                analytics.add(SymbolAnalytics.toEpochMillis(bar.getFirstTradeAt()), Prices.toTicks(bar.getOpen()),
+                    Prices.toTicks(bar.getHigh()), Prices.toTicks(bar.getLow()),
+                    SymbolAnalytics.toEpochMillis(bar.getLastTradeAt()), Prices.toTicks(bar.getClose()),
+                    bar.getVolume(), Prices.toTicks(bar.getNotional()));
+                bars[0]++;
+            });
+        return bars[0];
+    }
+
+    /**
+     * Adds the trades completed since the backfill.
+     */
+    @Override
+    public void completed(List<TradeCompletion> completions) {
+        for (TradeCompletion completion : completions) {
+            Trade trade = completion.getTrade();
+            SymbolAnalytics analytics = analyticsOf(trade.getSymbol());
+            if (analytics == null) {
+                log.warn("Trade {} completed on an unknown symbol, left out of the analytics.", trade.getUuid());
+                continue;
+            }
+            long completedAt = SymbolAnalytics.toEpochMillis(completion.getCompletedAt());
+            long price = Prices.toTicks(trade.getPrice());
+            long quantity = trade.getQuantity();
+            analytics.add(completedAt, price, price, price, completedAt, price, quantity, quantity * price);
+        }
+    }
+
+    /**
+     * The bars with trades among the last {@code count} bars of the resolution, oldest first.
+     */
+    public List<TradeBar> bars(String symbol, BarResolution resolution, int count) {
+        SymbolAnalytics analytics = tradedAnalyticsOf(symbol);
+        return analytics == null ? Collections.emptyList() : analytics.bars(resolution, count, clock.millis());
+    }
+
+    public SymbolVwap vwap(String symbol, Duration window) {
+        long now = clock.millis();
+        long from = now - window.toMillis();
+        SymbolAnalytics analytics = tradedAnalyticsOf(symbol);
+        long[] totals = analytics == null ? new long[2] : analytics.totals(from, now);
+        return SymbolVwap.builder()
+            .symbol(symbol)
+            .from(SymbolAnalytics.toDateTime(from))
+            .to(SymbolAnalytics.toDateTime(now))
+            .volume(totals[0])
+            .notional(Prices.fromTicks(totals[1]))
+            .vwap(SymbolAnalytics.vwap(totals[1], totals[0]))
+            .build();
+    }
+
+    /**
+     * @return null when the symbol is listed but has no completed trade yet
+     */
+    private SymbolAnalytics tradedAnalyticsOf(String symbol) {
+        int symbolId = symbolTable.idOf(symbol);
+        if (symbolId == SymbolTable.UNKNOWN) {
+            throw new EntityNotFoundException(String.format("Unknown symbol [%s]", symbol));
+        }
+        return symbols.get(symbolId);
+    }
+
+    private SymbolAnalytics analyticsOf(String symbol) {
+        int symbolId = symbolTable.idOf(symbol);
+        if (symbolId == SymbolTable.UNKNOWN) {
+            return null;
+        }
+        SymbolAnalytics analytics = symbols.get(symbolId);
+        if (analytics == null) {
+            symbols.compareAndSet(symbolId, null, new SymbolAnalytics(symbolTable.symbolOf(symbolId), capacities));
+            analytics = symbols.get(symbolId);
+        }
+        return analytics;
+    }
+}
@@ -0,0 +1,186 @@
+package com.altruist.batching;
+
+import com.altruist.bulkhead.DatabaseCompartment;
+import com.altruist.model.Trade;
+import com.altruist.repository.TradeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inserts trades saved concurrently by different requests together. Writer threads collect the
+ * saves queued within a short window, up to a batch size, and insert them with one statement
+ * in one transaction; each caller waits for its own trade to be committed.
+ * <p>
+ * When the batch insert fails each trade of the batch is inserted on its own, so only the
+ * callers whose trade is at fault get the error. Saves made within a transaction, or when the
+ * queue is full, go straight to the repository, so they stay in the caller's transaction.
+ */
+@Slf4j
+public class CoalescingTradeWriter {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final TradeRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final int writers;
+    private final BlockingQueue<PendingSave> queue;
+    private final List<Thread> threads = new ArrayList<>();
+    /**
+     * Saves check running and queue under the read lock, stop clears it under the write lock, so
+     * no save is queued once stop drains the queue.
+     */
+    private final ReentrantReadWriteLock stopLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+
+    /**
+     * A writer that inserts every trade with its own statement.
+     */
+    public CoalescingTradeWriter(TradeRepository repository) {
+        this(repository, null, 1, 0, 0, 1);
+    }
+
+    public CoalescingTradeWriter(TradeRepository repository, TransactionTemplate transactionTemplate,
+                                 int maxBatchSize, long maxWaitMicros, int writers, int queueCapacity) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.writers = writers;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public synchronized void start() {
+        if (running || writers == 0) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < writers; i++) {
+            Thread thread = new Thread(this::run, "trade-writer-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        log.info("Started {} trade writers, batches of up to {} trades within {} µs.", writers, maxBatchSize,
+            TimeUnit.NANOSECONDS.toMicros(maxWaitNanos));
+    }
+
+    /**
+     * Stops taking new saves, the writers insert the ones already queued before they exit.
+     */
+    public synchronized void stop() throws InterruptedException {
+        stopLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        threads.clear();
+        List<PendingSave> left = new ArrayList<>();
+        queue.drainTo(left);
+        write(left);
+    }
+
+    public Trade save(Trade trade) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return repository.save(trade);
+        }
+        PendingSave pending = new PendingSave(trade);
+        boolean queued;
+        stopLock.readLock().lock();
+        try {
+            queued = running && queue.offer(pending);
+        } finally {
+            stopLock.readLock().unlock();
+        }
+        if (!queued) {
+            return repository.save(trade);
+        }
+        try {
+            return pending.future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private void run() {
+        DatabaseCompartment.enter(DatabaseCompartment.ORDER_ENTRY);
+        List<PendingSave> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingSave first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingSave next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                write(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException ex) {
+                log.error("Trade writer failed, failing its batch of {} trades.", batch.size(), ex);
+                batch.forEach((pending) -> pending.future.completeExceptionally(ex));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void write(List<PendingSave> batch) {
+        if (batch.size() > 1) {
+            List<Trade> trades = new ArrayList<>(batch.size());
+            batch.forEach((pending) -> trades.add(pending.trade));
+            try {
+                transactionTemplate.executeWithoutResult((status) -> repository.saveAll(trades));
+                batch.forEach((pending) -> pending.future.complete(pending.trade));
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Insert of a batch of {} trades failed, inserting them one by one.", batch.size(), ex);
+            }
+        }
+        for (PendingSave pending : batch) {
+            try {
+                pending.future.complete(repository.save(pending.trade));
+            } catch (RuntimeException ex) {
+                pending.future.completeExceptionally(ex);
+            }
+        }
+    }
+
+    static final class PendingSave {
+        private final Trade trade;
+        private final CompletableFuture<Trade> future = new CompletableFuture<>();
+
+        PendingSave(Trade trade) {
+            this.trade = trade;
+        }
+    }
+}
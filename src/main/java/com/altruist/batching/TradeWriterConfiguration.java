@@ -0,0 +1,31 @@
+package com.altruist.batching;
+
+import com.altruist.repository.TradeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+public class TradeWriterConfiguration {
+
+    /**
+     * Every writer holds a connection while it inserts a batch, so they should stay well below
+     * the connection pool size.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public CoalescingTradeWriter coalescingTradeWriter(TradeRepository tradeRepository,
+                                                       PlatformTransactionManager transactionManager,
+                                                       @Value("${trade-writer.coalescing:true}") boolean coalescing,
+                                                       @Value("${trade-writer.max-batch-size:64}") int maxBatchSize,
+                                                       @Value("${trade-writer.max-wait-micros:200}") long maxWaitMicros,
+                                                       @Value("${trade-writer.writers:4}") int writers,
+                                                       @Value("${trade-writer.queue-capacity:4096}") int queueCapacity) {
+        if (!coalescing) {
+            return new CoalescingTradeWriter(tradeRepository);
+        }
+        return new CoalescingTradeWriter(tradeRepository, new TransactionTemplate(transactionManager),
+            maxBatchSize, maxWaitMicros, writers, queueCapacity);
+    }
+}
@@ -0,0 +1,95 @@
+package com.altruist.bulkhead;
+
+import com.altruist.exceptions.ServiceUnavailableException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A compartment of the database calls: at most {@code permits} connections are open at once,
+ * each statement runs within {@code statementTimeoutSeconds}, and a {@link CircuitBreaker} fails
+ * the statements fast while the database keeps timing out or refusing connections. Connections
+ * that can't get a permit within {@code maxWaitMillis} are rejected rather than queued.
+ */
+@Slf4j
+public class Bulkhead {
+
+    private final String name;
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+    @Getter
+    private final int statementTimeoutSeconds;
+    private final CircuitBreaker circuitBreaker;
+
+    public Bulkhead(String name, int permits, long maxWaitMillis, int statementTimeoutSeconds,
+                    CircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.permits = new Semaphore(permits);
+        this.maxWaitMillis = maxWaitMillis;
+        this.statementTimeoutSeconds = statementTimeoutSeconds;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Runs a statement through the circuit breaker, its timeouts and connection failures count
+     * as failures. The permit is taken by the connection the statement runs on.
+     */
+    public <T> T call(Supplier<T> call) {
+        long waitNanos = circuitBreaker.tryAcquire();
+        if (waitNanos > 0) {
+            throw new ServiceUnavailableException(
+                String.format("The %s database calls are failing, please retry", name), retryAfterSeconds(waitNanos));
+        }
+        T result;
+        try {
+            result = call.get();
+        } catch (ServiceUnavailableException ex) {
+            // no permit left for its connection, the database wasn't reached
+            circuitBreaker.abandoned();
+            throw ex;
+        } catch (QueryTimeoutException | DataAccessResourceFailureException ex) {
+            circuitBreaker.failed();
+            log.warn("A {} database call failed.", name, ex);
+            throw new ServiceUnavailableException(
+                String.format("The %s database call did not complete, please retry", name), 1, ex);
+        } catch (RuntimeException | Error ex) {
+            circuitBreaker.succeeded();
+            throw ex;
+        }
+        circuitBreaker.succeeded();
+        return result;
+    }
+
+    public int available() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Takes the permit of a connection about to be opened, to be given back by {@link #release()}
+     * once it is closed.
+     */
+    public void acquire() {
+        try {
+            if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("All the {} database permits are taken, rejecting the call.", name);
+        throw new ServiceUnavailableException(String.format("The %s database calls are saturated, please retry", name), 1);
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+}
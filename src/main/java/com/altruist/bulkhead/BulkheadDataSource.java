@@ -0,0 +1,97 @@
+package com.altruist.bulkhead;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Holds a permit of the {@link Bulkhead} of the thread's {@link DatabaseCompartment} for as long
+ * as each connection is open, so the connections of transactions count against the bulkheads
+ * just like the ones the template opens per statement.
+ */
+public class BulkheadDataSource extends DelegatingDataSource {
+
+    private final DatabaseBulkheads bulkheads;
+
+    public BulkheadDataSource(DataSource dataSource, DatabaseBulkheads bulkheads) {
+        super(dataSource);
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Bulkhead bulkhead = bulkheads.current();
+        bulkhead.acquire();
+        try {
+            return guarded(super.getConnection(), bulkhead);
+        } catch (SQLException | RuntimeException | Error ex) {
+            bulkhead.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Bulkhead bulkhead = bulkheads.current();
+        bulkhead.acquire();
+        try {
+            return guarded(super.getConnection(username, password), bulkhead);
+        } catch (SQLException | RuntimeException | Error ex) {
+            bulkhead.release();
+            throw ex;
+        }
+    }
+
+    private static Connection guarded(Connection connection, Bulkhead bulkhead) {
+        return (Connection) Proxy.newProxyInstance(BulkheadDataSource.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, new PermitReleasingHandler(connection, bulkhead));
+    }
+
+    /**
+     * Gives the permit back the first time the connection is closed.
+     */
+    private static final class PermitReleasingHandler implements InvocationHandler {
+        private final Connection connection;
+        private final Bulkhead bulkhead;
+        private boolean released;
+
+        PermitReleasingHandler(Connection connection, Bulkhead bulkhead) {
+            this.connection = connection;
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    try {
+                        connection.close();
+                    } finally {
+                        synchronized (this) {
+                            if (!released) {
+                                released = true;
+                                bulkhead.release();
+                            }
+                        }
+                    }
+                    return null;
+                default:
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getTargetException();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.altruist.bulkhead;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.*;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+/**
+ * Runs every statement through the circuit breaker of the {@link Bulkhead} of the thread's
+ * {@link DatabaseCompartment}, with the statement timeout of the bulkhead unless the deadline of
+ * the transaction is closer. Every operation of {@link JdbcTemplate} goes through one of the
+ * {@code execute} methods; statements issued from within a callback are counted with the outer
+ * one. The permits are held by the connections, see {@link BulkheadDataSource}.
+ */
+public class BulkheadJdbcTemplate extends JdbcTemplate {
+
+    private static final ThreadLocal<Bulkhead> HELD = new ThreadLocal<>();
+
+    private final DatabaseBulkheads bulkheads;
+
+    public BulkheadJdbcTemplate(DataSource dataSource, DatabaseBulkheads bulkheads) {
+        super(dataSource);
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public <T> T execute(ConnectionCallback<T> action) throws DataAccessException {
+        return guarded(() -> super.execute(action));
+    }
+
+    @Override
+    public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+        return guarded(() -> super.execute(action));
+    }
+
+    @Override
+    public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action)
+        throws DataAccessException {
+        return guarded(() -> super.execute(psc, action));
+    }
+
+    @Override
+    public <T> T execute(CallableStatementCreator csc, CallableStatementCallback<T> action)
+        throws DataAccessException {
+        return guarded(() -> super.execute(csc, action));
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        Bulkhead bulkhead = HELD.get();
+        int timeout = bulkhead == null ? 0 : bulkhead.getStatementTimeoutSeconds();
+        if (timeout > 0 && (stmt.getQueryTimeout() == 0 || stmt.getQueryTimeout() > timeout)) {
+            stmt.setQueryTimeout(timeout);
+        }
+    }
+
+    private <T> T guarded(Supplier<T> call) {
+        if (HELD.get() != null) {
+            return call.get();
+        }
+        Bulkhead bulkhead = bulkheads.current();
+        HELD.set(bulkhead);
+        try {
+            return bulkhead.call(call);
+        } finally {
+            HELD.remove();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.altruist.bulkhead;
+
+/**
+ * Opens after {@code failureThreshold} calls in a row failed and fails the calls fast for
+ * {@code openNanos}. Then a single trial call is let through: the breaker closes when it
+ * succeeds and opens again when it fails.
+ */
+public class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, long openNanos) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    public long tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * @return 0 when the call may go ahead, otherwise the nanoseconds to wait before retrying
+     */
+    synchronized long tryAcquire(long now) {
+        switch (state) {
+            case CLOSED:
+                return 0;
+            case OPEN:
+                long waitNanos = openedAt + openNanos - now;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                state = State.HALF_OPEN;
+                return 0;
+            default:
+                return openNanos;
+        }
+    }
+
+    public synchronized void succeeded() {
+        failures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * For a call let through that never reached the database, so a trial call doesn't keep the
+     * breaker half open: the next call is the trial instead.
+     */
+    public void abandoned() {
+        abandoned(System.nanoTime());
+    }
+
+    synchronized void abandoned(long now) {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedAt = now - openNanos;
+        }
+    }
+
+    public void failed() {
+        failed(System.nanoTime());
+    }
+
+    synchronized void failed(long now) {
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = now;
+            failures = 0;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,67 @@
+package com.altruist.bulkhead;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConditionalOnProperty(name = "database-bulkheads.enabled", havingValue = "true", matchIfMissing = true)
+public class DatabaseBulkheadConfiguration {
+
+    /**
+     * The permits of both bulkheads should add up to at most the connection pool size.
+     */
+    @Bean
+    public DatabaseBulkheads databaseBulkheads(
+        @Value("${database-bulkheads.order-entry.permits:12}") int orderEntryPermits,
+        @Value("${database-bulkheads.order-entry.max-wait-millis:100}") long orderEntryMaxWaitMillis,
+        @Value("${database-bulkheads.order-entry.statement-timeout-seconds:2}") int orderEntryTimeoutSeconds,
+        @Value("${database-bulkheads.general.permits:8}") int generalPermits,
+        @Value("${database-bulkheads.general.max-wait-millis:1000}") long generalMaxWaitMillis,
+        @Value("${database-bulkheads.general.statement-timeout-seconds:30}") int generalTimeoutSeconds,
+        @Value("${database-bulkheads.circuit-breaker.failure-threshold:5}") int failureThreshold,
+        @Value("${database-bulkheads.circuit-breaker.open-millis:5000}") long openMillis) {
+        Map<DatabaseCompartment, Bulkhead> bulkheads = new EnumMap<>(DatabaseCompartment.class);
+        bulkheads.put(DatabaseCompartment.ORDER_ENTRY, new Bulkhead("order entry", orderEntryPermits,
+            orderEntryMaxWaitMillis, orderEntryTimeoutSeconds,
+            new CircuitBreaker(failureThreshold, TimeUnit.MILLISECONDS.toNanos(openMillis))));
+        bulkheads.put(DatabaseCompartment.GENERAL, new Bulkhead("general", generalPermits,
+            generalMaxWaitMillis, generalTimeoutSeconds,
+            new CircuitBreaker(failureThreshold, TimeUnit.MILLISECONDS.toNanos(openMillis))));
+        return new DatabaseBulkheads(bulkheads);
+    }
+
+    /**
+     * Wraps the {@link DataSource} bean, the embedded one or the auto-configured pool, so every
+     * connection holds a permit: the ones of the transaction manager, of Flyway and of the
+     * template alike.
+     */
+    @Bean
+    public static BeanPostProcessor bulkheadDataSourcePostProcessor(ObjectProvider<DatabaseBulkheads> bulkheads) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource && !(bean instanceof BulkheadDataSource)
+                    ? new BulkheadDataSource((DataSource) bean, bulkheads.getObject())
+                    : bean;
+            }
+        };
+    }
+
+    /**
+     * Replaces the auto-configured template, so the repositories and the named parameter
+     * template built on it go through the circuit breakers and statement timeouts.
+     */
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, DatabaseBulkheads bulkheads) {
+        return new BulkheadJdbcTemplate(dataSource, bulkheads);
+    }
+}
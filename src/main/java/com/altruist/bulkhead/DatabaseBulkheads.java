@@ -0,0 +1,23 @@
+package com.altruist.bulkhead;
+
+import java.util.*;
+
+/**
+ * The {@link Bulkhead} of every {@link DatabaseCompartment}, shared by the connections and the
+ * statements.
+ */
+public class DatabaseBulkheads {
+
+    private final Map<DatabaseCompartment, Bulkhead> bulkheads;
+
+    public DatabaseBulkheads(Map<DatabaseCompartment, Bulkhead> bulkheads) {
+        this.bulkheads = new EnumMap<>(bulkheads);
+    }
+
+    /**
+     * The bulkhead of the thread's compartment.
+     */
+    public Bulkhead current() {
+        return bulkheads.get(DatabaseCompartment.current());
+    }
+}
@@ -0,0 +1,27 @@
+package com.altruist.bulkhead;
+
+/**
+ * The {@link Bulkhead} the database calls of a thread go to. Order entry, the trade writes of
+ * the REST API, the trade writers and the binary gateway, has its own so that slow listings,
+ * reports and background jobs, all in {@link #GENERAL}, can't hold it up.
+ */
+public enum DatabaseCompartment {
+
+    ORDER_ENTRY,
+    GENERAL;
+
+    private static final ThreadLocal<DatabaseCompartment> CURRENT = new ThreadLocal<>();
+
+    public static DatabaseCompartment current() {
+        DatabaseCompartment compartment = CURRENT.get();
+        return compartment == null ? GENERAL : compartment;
+    }
+
+    public static void enter(DatabaseCompartment compartment) {
+        CURRENT.set(compartment);
+    }
+
+    public static void leave() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,15 @@
+package com.altruist.bulkhead;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class DatabaseCompartmentWebConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new DatabaseCompartmentInterceptor())
+            .addPathPatterns("/accounts/*/trades", "/accounts/*/trades/**");
+    }
+}
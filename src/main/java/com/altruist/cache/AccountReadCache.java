@@ -0,0 +1,221 @@
+package com.altruist.cache;
+
+import com.altruist.completion.CompletedTradeFeed;
+import com.altruist.completion.CompletedTradeListener;
+import com.altruist.model.Account;
+import com.altruist.model.Address;
+import com.altruist.model.Trade;
+import com.altruist.model.TradeCompletion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Read through cache of the accounts, addresses and trades looked up by id, with single flight
+ * loads: requests asking for the same entry while it is being read share that call. The trade
+ * listings of an account are only shared, not kept.
+ * <p>
+ * Every write to an account or its trades forgets the entries, once more after the commit when
+ * it runs within a transaction. A load only keeps its result when no write to the account was
+ * made while it ran, tracked by a generation per stripe of accounts. Trades completed by other
+ * processes are forgotten when the {@link CompletedTradeFeed} of this node delivers them.
+ * <p>
+ * The entries are shared between the callers and must not be modified.
+ */
+@Component
+public class AccountReadCache implements CompletedTradeListener {
+
+    private static final int STRIPES = 1024;
+
+    private final BoundedCache<UUID, Account> accounts;
+    private final BoundedCache<UUID, Address> addresses;
+    private final BoundedCache<UUID, Trade> trades;
+    private final SingleFlight<UUID, Optional<Account>> accountFlights = new SingleFlight<>();
+    private final SingleFlight<UUID, Optional<Address>> addressFlights = new SingleFlight<>();
+    private final SingleFlight<UUID, Optional<Trade>> tradeFlights = new SingleFlight<>();
+    private final SingleFlight<UUID, List<Trade>> tradeListFlights = new SingleFlight<>();
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    public AccountReadCache(@Value("${read-cache.accounts:100000}") int accountCapacity,
+                            @Value("${read-cache.addresses:100000}") int addressCapacity,
+                            @Value("${read-cache.trades:200000}") int tradeCapacity) {
+        this.accounts = new BoundedCache<>(accountCapacity);
+        this.addresses = new BoundedCache<>(addressCapacity);
+        this.trades = new BoundedCache<>(tradeCapacity);
+    }
+
+    public Optional<Account> account(UUID accountUuid, Supplier<Optional<Account>> loader) {
+        Account cached = accounts.get(accountUuid);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return accountFlights.execute(accountUuid, () -> {
+            long generation = generation(accountUuid);
+            Optional<Account> account = loader.get();
+            account.ifPresent((value) -> keep(accounts, accountUuid, value, accountUuid, generation));
+            return account;
+        });
+    }
+
+    public Optional<Address> address(UUID accountUuid, Supplier<Optional<Address>> loader) {
+        Address cached = addresses.get(accountUuid);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return addressFlights.execute(accountUuid, () -> {
+            long generation = generation(accountUuid);
+            Optional<Address> address = loader.get();
+            address.ifPresent((value) -> keep(addresses, accountUuid, value, accountUuid, generation));
+            return address;
+        });
+    }
+
+    /**
+     * The trade, only when it belongs to the account.
+     */
+    public Optional<Trade> trade(UUID tradeUuid, UUID accountUuid, Supplier<Optional<Trade>> loader) {
+        Trade cached = trades.get(tradeUuid);
+        if (cached != null) {
+            return accountUuid.equals(cached.getAccountUuid()) ? Optional.of(cached) : Optional.empty();
+        }
+        return tradeFlights.execute(tradeUuid, () -> {
+            long generation = generation(accountUuid);
+            Optional<Trade> trade = loader.get();
+            trade.ifPresent((value) -> keep(trades, tradeUuid, value, accountUuid, generation));
+            return trade;
+        });
+    }
+
+    public List<Trade> trades(UUID accountUuid, Supplier<List<Trade>> loader) {
+        return tradeListFlights.execute(accountUuid, loader);
+    }
+
+    /**
+     * Forgets the account and its address.
+     */
+    public void forget(UUID accountUuid) {
+        forgetAccountNow(accountUuid);
+        afterCommit(() -> forgetAccountNow(accountUuid));
+    }
+
+    /**
+     * Forgets the trades informed and the listings of the account.
+     */
+    public void forgetTrades(UUID accountUuid, Collection<UUID> tradeUuids) {
+        forgetTradesNow(accountUuid, tradeUuids);
+        afterCommit(() -> forgetTradesNow(accountUuid, tradeUuids));
+    }
+
+    /**
+     * For address writes that don't know the account they change.
+     */
+    public void forgetAddresses() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            generations.incrementAndGet(stripe);
+        }
+        addresses.clear();
+        addressFlights.forgetAll();
+    }
+
+    /**
+     * Forgets the trades completed by other processes.
+     */
+    @Override
+    public void completed(List<TradeCompletion> completions) {
+        for (TradeCompletion completion : completions) {
+            Trade trade = completion.getTrade();
+            forgetTradesNow(trade.getAccountUuid(), Collections.singletonList(trade.getUuid()));
+        }
+    }
+
+    public long generation(UUID accountUuid) {
+        return generations.get(stripeOf(accountUuid));
+    }
+
+    public void forEachAccount(BiConsumer<UUID, Account> consumer) {
+        accounts.forEach(consumer);
+    }
+
+    public void forEachAddress(BiConsumer<UUID, Address> consumer) {
+        addresses.forEach(consumer);
+    }
+
+    public void forEachTrade(BiConsumer<UUID, Trade> consumer) {
+        trades.forEach(consumer);
+    }
+
+    /**
+     * Adds an account read before, as long as the account wasn't written since the generation
+     * informed and nothing was loaded in the mean time.
+     *
+     * @return whether it was added
+     */
+    public boolean warmAccount(UUID accountUuid, Account account, long generation) {
+        return accounts.get(accountUuid) == null && keep(accounts, accountUuid, account, accountUuid, generation);
+    }
+
+    public boolean warmAddress(UUID accountUuid, Address address, long generation) {
+        return addresses.get(accountUuid) == null && keep(addresses, accountUuid, address, accountUuid, generation);
+    }
+
+    public boolean warmTrade(Trade trade, long generation) {
+        return trades.get(trade.getUuid()) == null
+            && keep(trades, trade.getUuid(), trade, trade.getAccountUuid(), generation);
+    }
+
+    /**
+     * Keeps the value unless the account was written since the generation. A write landing
+     * between the check and the put is caught by checking again after it: writes bump the
+     * generation before they forget the entries.
+     */
+    private <K, V> boolean keep(BoundedCache<K, V> cache, K key, V value, UUID accountUuid, long generation) {
+        if (generation(accountUuid) != generation) {
+            return false;
+        }
+        cache.put(key, value);
+        if (generation(accountUuid) != generation) {
+            cache.invalidate(key);
+            return false;
+        }
+        return true;
+    }
+
+    private void forgetAccountNow(UUID accountUuid) {
+        generations.incrementAndGet(stripeOf(accountUuid));
+        accounts.invalidate(accountUuid);
+        addresses.invalidate(accountUuid);
+        accountFlights.forget(accountUuid);
+        addressFlights.forget(accountUuid);
+    }
+
+    private void forgetTradesNow(UUID accountUuid, Collection<UUID> tradeUuids) {
+        generations.incrementAndGet(stripeOf(accountUuid));
+        for (UUID tradeUuid : tradeUuids) {
+            trades.invalidate(tradeUuid);
+            tradeFlights.forget(tradeUuid);
+        }
+        tradeListFlights.forget(accountUuid);
+    }
+
+    private static void afterCommit(Runnable forget) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    forget.run();
+                }
+            });
+        }
+    }
+
+    private static int stripeOf(UUID accountUuid) {
+        int hash = accountUuid.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
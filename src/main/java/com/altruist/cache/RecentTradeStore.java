@@ -0,0 +1,351 @@
+package com.altruist.cache;
+
+import com.altruist.completion.CompletedTradeFeed;
+import com.altruist.completion.CompletedTradeListener;
+import com.altruist.marketdata.Prices;
+import com.altruist.marketdata.SymbolTable;
+import com.altruist.model.TimeInForce;
+import com.altruist.model.Trade;
+import com.altruist.model.TradeCompletion;
+import com.altruist.model.TradeSide;
+import com.altruist.model.TradeStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Ring of the newest trades of an account, kept off heap so the heap doesn't grow with the
+ * number of accounts. A single direct buffer is split in fixed size slots, two per set of
+ * accounts: a slot is a header with its account and a ring of fixed width trade records.
+ * <pre>
+ * header  0 account uuid (2 longs), 16 last use (long), 24 next record (int), 28 records (int)
+ * record  0 trade uuid (2 longs), 16 symbol id (int), 20 quantity (int), 24 price in ticks (long),
+ *         32 version (int), 36 status (byte), 37 side (byte), 38 time in force, 0 for none (byte),
+ *         40 expiry in epoch micros, Long.MIN_VALUE for none (long)
+ * </pre>
+ * A ring is filled from the database the first time the account is listed, taking the least
+ * recently used slot of its set, and from then on trades are added and updated as they are
+ * written; writes to accounts without a ring are not kept. As with the read cache, a fill only
+ * happens when no trade of the accounts of its stripe was written while it was read, and
+ * trades completed by other processes are updated when the {@link CompletedTradeFeed} of this
+ * node delivers them.
+ */
+@Component
+public class RecentTradeStore implements CompletedTradeListener {
+
+    static final int RECORD_LENGTH = 48;
+
+    private static final int HEADER_LENGTH = 32;
+    private static final int WAYS = 2;
+    private static final int STRIPES = 1024;
+
+    private static final int LAST_USE_OFFSET = 16;
+    private static final int NEXT_OFFSET = 24;
+    private static final int COUNT_OFFSET = 28;
+
+    private static final int SYMBOL_OFFSET = 16;
+    private static final int QUANTITY_OFFSET = 20;
+    private static final int PRICE_OFFSET = 24;
+    private static final int VERSION_OFFSET = 32;
+    private static final int STATUS_OFFSET = 36;
+    private static final int SIDE_OFFSET = 37;
+    private static final int TIME_IN_FORCE_OFFSET = 38;
+    private static final int EXPIRES_AT_OFFSET = 40;
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+
+    private static final TradeSide[] SIDES = TradeSide.values();
+    private static final TradeStatus[] STATUSES = TradeStatus.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private final SymbolTable symbolTable;
+    private final int capacity;
+    private final int sets;
+    private final int slotLength;
+    private final ByteBuffer slots;
+    private final Object[] locks = new Object[STRIPES];
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final AtomicLong clock = new AtomicLong();
+
+    public RecentTradeStore(SymbolTable symbolTable,
+                            @Value("${recent-trades.accounts:4096}") int accounts,
+                            @Value("${recent-trades.per-account:128}") int perAccount) {
+        this.symbolTable = symbolTable;
+        this.capacity = perAccount;
+        this.sets = Integer.highestOneBit(Math.max(1, (accounts + WAYS - 1) / WAYS) * 2 - 1);
+        this.slotLength = HEADER_LENGTH + perAccount * RECORD_LENGTH;
+        long length = (long) sets * WAYS * slotLength;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format(
+                "%d accounts of %d recent trades take %d bytes, more than a buffer holds", accounts, perAccount, length));
+        }
+        this.slots = ByteBuffer.allocateDirect((int) length);
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * The newest trades of the account, from its ring or from the loader, which is asked for
+     * the newest trades up to a number and fills the ring when it can.
+     */
+    public RecentTrades recent(UUID accountUuid, int limit, IntFunction<List<Trade>> loader) {
+        if (limit > capacity) {
+            return RecentTrades.of(loader.apply(limit));
+        }
+        int set = setOf(accountUuid);
+        RecentTrades recent = copy(accountUuid, set, limit);
+        if (recent != null) {
+            return recent;
+        }
+        long generation = generations.get(set & (STRIPES - 1));
+        List<Trade> trades = loader.apply(capacity);
+        fill(accountUuid, set, trades, generation);
+        return RecentTrades.of(trades.subList(0, Math.min(limit, trades.size())));
+    }
+
+    /**
+     * Adds a trade just submitted to the ring of its account, once committed.
+     */
+    public void add(Trade trade) {
+        afterCommit(() -> write(trade, true));
+    }
+
+    /**
+     * Updates the quantity, price, status and version of a trade in the ring of its account,
+     * once committed, unless the ring already has that version or a newer one.
+     */
+    public void update(Trade trade) {
+        afterCommit(() -> write(trade, false));
+    }
+
+    /**
+     * Updates the trades completed by other processes in the rings of their accounts.
+     */
+    @Override
+    public void completed(List<TradeCompletion> completions) {
+        for (TradeCompletion completion : completions) {
+            write(completion.getTrade(), false);
+        }
+    }
+
+    private RecentTrades copy(UUID accountUuid, int set, int limit) {
+        synchronized (locks[set & (STRIPES - 1)]) {
+            int slot = find(accountUuid, set);
+            if (slot < 0) {
+                return null;
+            }
+            slots.putLong(slot + LAST_USE_OFFSET, clock.incrementAndGet());
+            int next = slots.getInt(slot + NEXT_OFFSET);
+            int count = Math.min(limit, slots.getInt(slot + COUNT_OFFSET));
+            ByteBuffer records = ByteBuffer.allocate(count * RECORD_LENGTH);
+            for (int i = 0; i < count; i++) {
+                int record = recordOf(slot, Math.floorMod(next - 1 - i, capacity));
+                for (int offset = 0; offset < RECORD_LENGTH; offset += Long.BYTES) {
+                    records.putLong(slots.getLong(record + offset));
+                }
+            }
+            return new EncodedTrades(accountUuid, records, count);
+        }
+    }
+
+    /**
+     * Fills a slot with the trades, newest first, unless a trade of the stripe was written since
+     * the generation was read.
+     */
+    private void fill(UUID accountUuid, int set, List<Trade> trades, long generation) {
+        int stripe = set & (STRIPES - 1);
+        synchronized (locks[stripe]) {
+            if (generations.get(stripe) != generation) {
+                return;
+            }
+            int slot = victim(accountUuid, set);
+            slots.putLong(slot, accountUuid.getMostSignificantBits());
+            slots.putLong(slot + 8, accountUuid.getLeastSignificantBits());
+            slots.putLong(slot + LAST_USE_OFFSET, clock.incrementAndGet());
+            int count = Math.min(trades.size(), capacity);
+            for (int i = 0; i < count; i++) {
+                if (!encode(trades.get(count - 1 - i), recordOf(slot, i))) {
+                    slots.putLong(slot + LAST_USE_OFFSET, 0);
+                    return;
+                }
+            }
+            slots.putInt(slot + NEXT_OFFSET, count % capacity);
+            slots.putInt(slot + COUNT_OFFSET, count);
+        }
+    }
+
+    private void write(Trade trade, boolean added) {
+        int set = setOf(trade.getAccountUuid());
+        int stripe = set & (STRIPES - 1);
+        synchronized (locks[stripe]) {
+            generations.incrementAndGet(stripe);
+            int slot = find(trade.getAccountUuid(), set);
+            if (slot < 0) {
+                return;
+            }
+            int count = slots.getInt(slot + COUNT_OFFSET);
+            for (int i = 0; i < count; i++) {
+                int record = recordOf(slot, i);
+                if (slots.getLong(record) == trade.getUuid().getMostSignificantBits()
+                    && slots.getLong(record + 8) == trade.getUuid().getLeastSignificantBits()) {
+                    if (trade.getVersion() > slots.getInt(record + VERSION_OFFSET)) {
+                        slots.putInt(record + QUANTITY_OFFSET, trade.getQuantity());
+                        slots.putLong(record + PRICE_OFFSET, Prices.toTicks(trade.getPrice()));
+                        slots.putInt(record + VERSION_OFFSET, trade.getVersion());
+                        slots.put(record + STATUS_OFFSET, (byte) trade.getStatus().ordinal());
+                    }
+                    return;
+                }
+            }
+            if (!added) {
+                // older than the ring
+                return;
+            }
+            int next = slots.getInt(slot + NEXT_OFFSET);
+            if (!encode(trade, recordOf(slot, next))) {
+                slots.putLong(slot + LAST_USE_OFFSET, 0);
+                return;
+            }
+            slots.putInt(slot + NEXT_OFFSET, (next + 1) % capacity);
+            slots.putInt(slot + COUNT_OFFSET, Math.min(count + 1, capacity));
+        }
+    }
+
+    /**
+     * @return false when the trade can't be encoded, its symbol isn't known
+     */
+    private boolean encode(Trade trade, int record) {
+        int symbolId = symbolTable.idOf(trade.getSymbol());
+        if (symbolId == SymbolTable.UNKNOWN) {
+            return false;
+        }
+        slots.putLong(record, trade.getUuid().getMostSignificantBits());
+        slots.putLong(record + 8, trade.getUuid().getLeastSignificantBits());
+        slots.putInt(record + SYMBOL_OFFSET, symbolId);
+        slots.putInt(record + QUANTITY_OFFSET, trade.getQuantity());
+        slots.putLong(record + PRICE_OFFSET, Prices.toTicks(trade.getPrice()));
+        slots.putInt(record + VERSION_OFFSET, trade.getVersion());
+        slots.put(record + STATUS_OFFSET, (byte) trade.getStatus().ordinal());
+        slots.put(record + SIDE_OFFSET, (byte) trade.getSide().ordinal());
+        slots.put(record + TIME_IN_FORCE_OFFSET,
+            (byte) (trade.getTimeInForce() == null ? 0 : trade.getTimeInForce().ordinal() + 1));
+        slots.putLong(record + EXPIRES_AT_OFFSET, trade.getExpiresAt() == null
+            ? NO_EXPIRY
+            : ChronoUnit.MICROS.between(Instant.EPOCH, trade.getExpiresAt().toInstant()));
+        return true;
+    }
+
+    /**
+     * @return where the slot of the account starts, -1 when it has none
+     */
+    private int find(UUID accountUuid, int set) {
+        for (int way = 0; way < WAYS; way++) {
+            int slot = (set * WAYS + way) * slotLength;
+            if (slots.getLong(slot + LAST_USE_OFFSET) != 0
+                && slots.getLong(slot) == accountUuid.getMostSignificantBits()
+                && slots.getLong(slot + 8) == accountUuid.getLeastSignificantBits()) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The slot of the account, a free one or else the least recently used one of the set.
+     */
+    private int victim(UUID accountUuid, int set) {
+        int slot = find(accountUuid, set);
+        if (slot >= 0) {
+            return slot;
+        }
+        int oldest = set * WAYS * slotLength;
+        for (int way = 1; way < WAYS; way++) {
+            int candidate = (set * WAYS + way) * slotLength;
+            if (slots.getLong(candidate + LAST_USE_OFFSET) < slots.getLong(oldest + LAST_USE_OFFSET)) {
+                oldest = candidate;
+            }
+        }
+        return oldest;
+    }
+
+    private int recordOf(int slot, int index) {
+        return slot + HEADER_LENGTH + index * RECORD_LENGTH;
+    }
+
+    private int setOf(UUID accountUuid) {
+        long hash = (accountUuid.getMostSignificantBits() ^ accountUuid.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (sets - 1);
+    }
+
+    private static void afterCommit(Runnable write) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    write.run();
+                }
+            });
+        } else {
+            write.run();
+        }
+    }
+
+    /**
+     * Records copied out of a ring, newest first, decoded into one reused trade as they are visited.
+     */
+    private class EncodedTrades implements RecentTrades {
+        private final UUID accountUuid;
+        private final ByteBuffer records;
+        private final int count;
+
+        EncodedTrades(UUID accountUuid, ByteBuffer records, int count) {
+            this.accountUuid = accountUuid;
+            this.records = records;
+            this.count = count;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public void forEach(Consumer<Trade> consumer) {
+            Trade trade = new Trade();
+            trade.setAccountUuid(accountUuid);
+            for (int i = 0; i < count; i++) {
+                int record = i * RECORD_LENGTH;
+                BigDecimal price = Prices.fromTicks(records.getLong(record + PRICE_OFFSET));
+                int quantity = records.getInt(record + QUANTITY_OFFSET);
+                byte timeInForce = records.get(record + TIME_IN_FORCE_OFFSET);
+                long expiresAt = records.getLong(record + EXPIRES_AT_OFFSET);
+                trade.setUuid(new UUID(records.getLong(record), records.getLong(record + 8)));
+                trade.setSymbol(symbolTable.symbolOf(records.getInt(record + SYMBOL_OFFSET)));
+                trade.setQuantity(quantity);
+                trade.setSide(SIDES[records.get(record + SIDE_OFFSET)]);
+                trade.setPrice(price);
+                trade.setStatus(STATUSES[records.get(record + STATUS_OFFSET)]);
+                trade.setTotalAmount(price.multiply(BigDecimal.valueOf(quantity)));
+                trade.setVersion(records.getInt(record + VERSION_OFFSET));
+                trade.setTimeInForce(timeInForce == 0 ? null : TIMES_IN_FORCE[timeInForce - 1]);
+                trade.setExpiresAt(expiresAt == NO_EXPIRY
+                    ? null
+                    : OffsetDateTime.ofInstant(Instant.EPOCH.plus(expiresAt, ChronoUnit.MICROS), ZoneOffset.UTC));
+                consumer.accept(trade);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.altruist.cache;
+
+import com.altruist.model.Trade;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The trades of a recent listing, newest first. When read from the {@link RecentTradeStore}
+ * they stay encoded until they are visited, and the trade handed to the consumer is reused
+ * for the next one.
+ */
+public interface RecentTrades {
+
+    int size();
+
+    void forEach(Consumer<Trade> consumer);
+
+    static RecentTrades of(List<Trade> trades) {
+        return new RecentTrades() {
+            @Override
+            public int size() {
+                return trades.size();
+            }
+
+            @Override
+            public void forEach(Consumer<Trade> consumer) {
+                trades.forEach(consumer);
+            }
+        };
+    }
+}
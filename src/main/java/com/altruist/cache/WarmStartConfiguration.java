@@ -0,0 +1,30 @@
+package com.altruist.cache;
+
+import com.altruist.repository.WarmStartRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.nio.file.Paths;
+
+@Configuration
+@ConditionalOnProperty(name = "warm-start.enabled", havingValue = "true")
+public class WarmStartConfiguration {
+
+    /**
+     * Started with the context so the snapshot is loaded while the rest of it starts, and
+     * stopped before the data source, which the last snapshot reads its watermark from.
+     */
+    @Lazy(false)
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public WarmStartService warmStartService(AccountReadCache accountReadCache,
+                                             WarmStartRepository warmStartRepository,
+                                             @Value("${warm-start.path:build/warm-start/cache.snapshot}") String path,
+                                             @Value("${warm-start.validation-margin-seconds:60}") long validationMarginSeconds,
+                                             @Value("${warm-start.batch-size:1000}") int batchSize) {
+        return new WarmStartService(accountReadCache, warmStartRepository, Paths.get(path), validationMarginSeconds,
+            batchSize);
+    }
+}
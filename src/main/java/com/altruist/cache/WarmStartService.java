@@ -0,0 +1,151 @@
+package com.altruist.cache;
+
+import com.altruist.model.Account;
+import com.altruist.model.Address;
+import com.altruist.model.Trade;
+import com.altruist.repository.WarmStartRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Saves the entries of the {@link AccountReadCache} to a local snapshot every so often and on
+ * shutdown, and loads them back in the background after a restart so the first requests don't
+ * all go to the database.
+ * <p>
+ * A snapshot carries the database time read before its entries. On load, only the entries
+ * whose rows were not updated since that time, less a margin for the transactions that were
+ * running, make it back into the cache. Requests served in the mean time win over the
+ * snapshot: an entry is only added while absent and while its account wasn't written since it
+ * was checked.
+ */
+@Slf4j
+public class WarmStartService {
+
+    private final AccountReadCache cache;
+    private final WarmStartRepository repository;
+    private final Path path;
+    private final long validationMarginSeconds;
+    private final int batchSize;
+    private Thread loader;
+    private volatile boolean loaded;
+
+    public WarmStartService(AccountReadCache cache, WarmStartRepository repository, Path path,
+                            long validationMarginSeconds, int batchSize) {
+        this.cache = cache;
+        this.repository = repository;
+        this.path = path;
+        this.validationMarginSeconds = validationMarginSeconds;
+        this.batchSize = batchSize;
+    }
+
+    public synchronized void start() {
+        loader = new Thread(this::load, "warm-start-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Waits for the load and writes a last snapshot.
+     */
+    public void stop() throws InterruptedException {
+        Thread running;
+        synchronized (this) {
+            running = loader;
+        }
+        if (running != null) {
+            running.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        snapshot();
+    }
+
+    /**
+     * Nothing is written until the previous snapshot was loaded, it would be overwritten with
+     * a cache still cold.
+     */
+    @Scheduled(fixedDelayString = "${warm-start.interval-millis:60000}",
+        initialDelayString = "${warm-start.interval-millis:60000}")
+    public synchronized void snapshot() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            WarmStartSnapshot snapshot = WarmStartSnapshot.of(repository.currentTimestamp(), cache);
+            snapshot.write(path);
+            log.debug("Wrote {} warm start entries to {}.", snapshot.size(), path);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to write the warm start snapshot {}.", path, ex);
+        }
+    }
+
+    /**
+     * @return the number of entries added to the cache
+     */
+    public int load() {
+        long start = System.nanoTime();
+        try {
+            Optional<WarmStartSnapshot> read = WarmStartSnapshot.read(path);
+            if (read.isEmpty()) {
+                log.info("No warm start snapshot at {}, starting cold.", path);
+                return 0;
+            }
+            WarmStartSnapshot snapshot = read.get();
+            LocalDateTime since = snapshot.getWatermark().minusSeconds(validationMarginSeconds);
+            List<Map.Entry<UUID, Account>> accounts = new ArrayList<>(snapshot.getAccounts().entrySet());
+            List<Map.Entry<UUID, Address>> addresses = new ArrayList<>(snapshot.getAddresses().entrySet());
+            int added = warm(accounts, Map.Entry::getKey, Map.Entry::getKey,
+                (uuids) -> repository.unchangedAccounts(uuids, since),
+                (entry, generation) -> cache.warmAccount(entry.getKey(), entry.getValue(), generation));
+            added += warm(addresses, Map.Entry::getKey, Map.Entry::getKey,
+                (uuids) -> repository.unchangedAddresses(uuids, since),
+                (entry, generation) -> cache.warmAddress(entry.getKey(), entry.getValue(), generation));
+            added += warm(snapshot.getTrades(), Trade::getUuid, Trade::getAccountUuid,
+                (uuids) -> repository.unchangedTrades(uuids, since),
+                cache::warmTrade);
+            log.info("Warm started {} of {} cache entries from {} in {} ms.", added, snapshot.size(), path,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return added;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to load the warm start snapshot {}, starting cold.", path, ex);
+            return 0;
+        } finally {
+            loaded = true;
+        }
+    }
+
+    /**
+     * Checks the entries a batch at a time, the generations of their accounts are read before
+     * the check so writes made while it runs keep them out.
+     */
+    private <T> int warm(List<T> entries, Function<T, UUID> idOf, Function<T, UUID> accountOf,
+                         Function<Collection<UUID>, Set<UUID>> unchanged, Warmer<T> warm) {
+        int added = 0;
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            List<T> batch = entries.subList(from, Math.min(from + batchSize, entries.size()));
+            long[] generations = new long[batch.size()];
+            List<UUID> uuids = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                generations[i] = cache.generation(accountOf.apply(batch.get(i)));
+                uuids.add(idOf.apply(batch.get(i)));
+            }
+            Set<UUID> current = unchanged.apply(uuids);
+            for (int i = 0; i < batch.size(); i++) {
+                if (current.contains(uuids.get(i)) && warm.warm(batch.get(i), generations[i])) {
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    private interface Warmer<T> {
+
+        boolean warm(T entry, long generation);
+    }
+}
@@ -0,0 +1,246 @@
+package com.altruist.cache;
+
+import com.altruist.model.Account;
+import com.altruist.model.Address;
+import com.altruist.model.State;
+import com.altruist.model.TimeInForce;
+import com.altruist.model.Trade;
+import com.altruist.model.TradeSide;
+import com.altruist.model.TradeStatus;
+import lombok.Getter;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Entries of the {@link AccountReadCache} saved to a local file, with the database time they
+ * were taken at. The file is binary and big endian:
+ * <pre>
+ * header    magic (int), version (int), watermark in epoch micros (long)
+ * accounts  count (int), then uuid, address uuid?, username, email
+ * addresses count (int), then account uuid, uuid, name, street, city, state, zipcode (int)
+ * trades    count (int), then uuid, account uuid, symbol, quantity (int), side (byte), price,
+ *           status (byte), total amount?, version (int), time in force (byte), expires at?
+ * </pre>
+ * A uuid is two longs, a nullable one starts with a presence byte. Strings are a short length,
+ * -1 for null, and the UTF-8 bytes; decimals and timestamps are written as strings. Enums are
+ * their ordinal, plus one where they are optional. Entries are in least to most recently used
+ * order, so loading them in order keeps the hottest ones last to go.
+ */
+@Getter
+public class WarmStartSnapshot {
+
+    static final int MAGIC = 0x57534331;
+    static final int VERSION = 1;
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final TradeSide[] SIDES = TradeSide.values();
+    private static final TradeStatus[] STATUSES = TradeStatus.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+    private static final State[] STATES = State.values();
+
+    private final LocalDateTime watermark;
+    private final Map<UUID, Account> accounts;
+    private final Map<UUID, Address> addresses;
+    private final List<Trade> trades;
+
+    public WarmStartSnapshot(LocalDateTime watermark, Map<UUID, Account> accounts, Map<UUID, Address> addresses,
+                             List<Trade> trades) {
+        this.watermark = watermark;
+        this.accounts = accounts;
+        this.addresses = addresses;
+        this.trades = trades;
+    }
+
+    /**
+     * The entries of the cache; the watermark must be read before them.
+     */
+    public static WarmStartSnapshot of(LocalDateTime watermark, AccountReadCache cache) {
+        Map<UUID, Account> accounts = new LinkedHashMap<>();
+        Map<UUID, Address> addresses = new LinkedHashMap<>();
+        List<Trade> trades = new ArrayList<>();
+        cache.forEachAccount(accounts::put);
+        cache.forEachAddress(addresses::put);
+        cache.forEachTrade((uuid, trade) -> trades.add(trade));
+        return new WarmStartSnapshot(watermark, accounts, addresses, trades);
+    }
+
+    public int size() {
+        return accounts.size() + addresses.size() + trades.size();
+    }
+
+    /**
+     * Writes the snapshot next to the file and moves it over, a crash never leaves half a file.
+     */
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(ChronoUnit.MICROS.between(EPOCH, watermark));
+            out.writeInt(accounts.size());
+            for (Map.Entry<UUID, Account> entry : accounts.entrySet()) {
+                Account account = entry.getValue();
+                writeUuid(out, entry.getKey());
+                writeOptionalUuid(out, account.getAddressUuid());
+                writeString(out, account.getUsername());
+                writeString(out, account.getEmail());
+            }
+            out.writeInt(addresses.size());
+            for (Map.Entry<UUID, Address> entry : addresses.entrySet()) {
+                Address address = entry.getValue();
+                writeUuid(out, entry.getKey());
+                writeUuid(out, address.getUuid());
+                writeString(out, address.getName());
+                writeString(out, address.getStreet());
+                writeString(out, address.getCity());
+                out.writeByte(address.getState().ordinal());
+                out.writeInt(address.getZipcode());
+            }
+            out.writeInt(trades.size());
+            for (Trade trade : trades) {
+                writeUuid(out, trade.getUuid());
+                writeUuid(out, trade.getAccountUuid());
+                writeString(out, trade.getSymbol());
+                out.writeInt(trade.getQuantity());
+                out.writeByte(trade.getSide().ordinal());
+                writeString(out, trade.getPrice().toPlainString());
+                out.writeByte(trade.getStatus().ordinal());
+                writeString(out, trade.getTotalAmount() == null ? null : trade.getTotalAmount().toPlainString());
+                out.writeInt(trade.getVersion());
+                out.writeByte(trade.getTimeInForce() == null ? 0 : trade.getTimeInForce().ordinal() + 1);
+                writeString(out, trade.getExpiresAt() == null ? null : trade.getExpiresAt().toString());
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(temp);
+            throw ex;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps the file read only and decodes it.
+     *
+     * @return empty when there is no snapshot
+     * @throws IOException when the file can't be read or isn't a snapshot of this version
+     */
+    public static Optional<WarmStartSnapshot> read(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException(String.format("%s is not a warm start snapshot of version %d", path, VERSION));
+            }
+            LocalDateTime watermark = EPOCH.plus(in.getLong(), ChronoUnit.MICROS);
+            int accountCount = in.getInt();
+            Map<UUID, Account> accounts = new LinkedHashMap<>(accountCount * 2);
+            for (int i = 0; i < accountCount; i++) {
+                UUID uuid = readUuid(in);
+                accounts.put(uuid, Account.builder()
+                    .uuid(uuid)
+                    .addressUuid(readOptionalUuid(in))
+                    .username(readString(in))
+                    .email(readString(in))
+                    .build());
+            }
+            int addressCount = in.getInt();
+            Map<UUID, Address> addresses = new LinkedHashMap<>(addressCount * 2);
+            for (int i = 0; i < addressCount; i++) {
+                UUID accountUuid = readUuid(in);
+                addresses.put(accountUuid, Address.builder()
+                    .uuid(readUuid(in))
+                    .name(readString(in))
+                    .street(readString(in))
+                    .city(readString(in))
+                    .state(STATES[in.get()])
+                    .zipcode(in.getInt())
+                    .build());
+            }
+            int tradeCount = in.getInt();
+            List<Trade> trades = new ArrayList<>(tradeCount);
+            for (int i = 0; i < tradeCount; i++) {
+                trades.add(Trade.builder()
+                    .uuid(readUuid(in))
+                    .accountUuid(readUuid(in))
+                    .symbol(readString(in))
+                    .quantity(in.getInt())
+                    .side(SIDES[in.get()])
+                    .price(new BigDecimal(readString(in)))
+                    .status(STATUSES[in.get()])
+                    .totalAmount(Optional.ofNullable(readString(in)).map(BigDecimal::new).orElse(null))
+                    .version(in.getInt())
+                    .timeInForce(timeInForceOf(in.get()))
+                    .expiresAt(Optional.ofNullable(readString(in)).map(OffsetDateTime::parse).orElse(null))
+                    .build());
+            }
+            return Optional.of(new WarmStartSnapshot(watermark, accounts, addresses, trades));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new IOException(String.format("%s is truncated or corrupt", path), ex);
+        }
+    }
+
+    private static TimeInForce timeInForceOf(byte timeInForce) {
+        return timeInForce == 0 ? null : TIMES_IN_FORCE[timeInForce - 1];
+    }
+
+    private static void writeUuid(DataOutput out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static void writeOptionalUuid(DataOutput out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            writeUuid(out, uuid);
+        }
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value too long for a warm start snapshot: " + bytes.length + " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static UUID readUuid(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static UUID readOptionalUuid(ByteBuffer in) {
+        return in.get() == 0 ? null : readUuid(in);
+    }
+
+    private static String readString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package com.altruist.cluster;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Splits the accounts between the nodes of the cluster when {@code cluster.enabled} is set,
+ * otherwise this node owns every account.
+ */
+@Configuration
+public class ClusterConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+    public ClusterMembership clusterMembership(@Value("${cluster.node-id}") String nodeId,
+                                               @Value("${cluster.members-file}") Resource membersFile,
+                                               @Value("${cluster.virtual-nodes:128}") int virtualNodes)
+        throws IOException {
+        return ClusterMembership.load(nodeId, membersFile, virtualNodes);
+    }
+
+    /**
+     * Runs before the admission control, requests of other nodes don't use this node's limits.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+    public FilterRegistrationBean<ShardRoutingFilter> shardRoutingFilter(
+        ClusterMembership clusterMembership,
+        @Value("${cluster.routing:forward}") String routing,
+        @Value("${cluster.forward-timeout-millis:5000}") long forwardTimeoutMillis) {
+        FilterRegistrationBean<ShardRoutingFilter> registration = new FilterRegistrationBean<>(new ShardRoutingFilter(
+            clusterMembership, ShardRoutingFilter.Mode.valueOf(routing.toUpperCase()),
+            Duration.ofMillis(forwardTimeoutMillis)));
+        registration.addUrlPatterns("/accounts/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    public ShardOwnership shardOwnership(ObjectProvider<ClusterMembership> clusterMembership) {
+        ClusterMembership membership = clusterMembership.getIfAvailable();
+        return membership == null ? ShardOwnership.ALL : membership::owns;
+    }
+}
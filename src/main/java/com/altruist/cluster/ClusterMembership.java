@@ -0,0 +1,59 @@
+package com.altruist.cluster;
+
+import lombok.Getter;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Static membership of the cluster, read from a properties file mapping each node id to the
+ * base url other nodes reach it at:
+ * <pre>
+ * node-1=http://localhost:8081
+ * node-2=http://localhost:8082
+ * </pre>
+ * Every node must be started with the same file.
+ */
+public class ClusterMembership {
+
+    @Getter
+    private final String nodeId;
+    private final Map<String, URI> members;
+    private final ConsistentHashRing ring;
+
+    public ClusterMembership(String nodeId, Map<String, URI> members, int virtualNodes) {
+        if (!members.containsKey(nodeId)) {
+            throw new IllegalArgumentException(String.format("Node [%s] is not a member of the cluster %s",
+                nodeId, members.keySet()));
+        }
+        this.nodeId = nodeId;
+        this.members = Map.copyOf(members);
+        this.ring = new ConsistentHashRing(members.keySet(), virtualNodes);
+    }
+
+    public static ClusterMembership load(String nodeId, Resource membersFile, int virtualNodes) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = membersFile.getInputStream()) {
+            properties.load(in);
+        }
+        Map<String, URI> members = new HashMap<>();
+        properties.stringPropertyNames().forEach((member) ->
+            members.put(member, URI.create(properties.getProperty(member).trim())));
+        return new ClusterMembership(nodeId, members, virtualNodes);
+    }
+
+    public String ownerOf(UUID accountUuid) {
+        return ring.ownerOf(accountUuid);
+    }
+
+    public boolean owns(UUID accountUuid) {
+        return nodeId.equals(ring.ownerOf(accountUuid));
+    }
+
+    public URI baseUriOf(String member) {
+        return members.get(member);
+    }
+}
@@ -0,0 +1,14 @@
+package com.altruist.cluster;
+
+import java.util.*;
+
+/**
+ * Tells whether this node owns the in-memory state of an account.
+ */
+@FunctionalInterface
+public interface ShardOwnership {
+
+    ShardOwnership ALL = (accountUuid) -> true;
+
+    boolean owns(UUID accountUuid);
+}
@@ -0,0 +1,140 @@
+package com.altruist.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends the requests of accounts owned by another node to it, either by forwarding them and
+ * relaying the response or by answering with a 307 redirect that keeps the method and body.
+ * Requests without an account on the path are served by any node.
+ */
+@Slf4j
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    public static final String FORWARDED_BY_HEADER = "X-Shard-Forwarded-By";
+
+    private static final Pattern ACCOUNT_PATH = Pattern.compile("^/accounts/([0-9a-fA-F-]{36})(/.*)?$");
+    private static final int MISDIRECTED_REQUEST = 421;
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+        "connection", "content-length", "expect", "host", "keep-alive", "proxy-connection",
+        "te", "trailer", "transfer-encoding", "upgrade");
+    /**
+     * Headers the JDK client sets itself and refuses to take from the caller.
+     */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of(
+        "date", "from", "origin", "referer", "via", "warning");
+
+    public enum Mode {
+        FORWARD, REDIRECT
+    }
+
+    private final ClusterMembership membership;
+    private final Mode mode;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+
+    public ShardRoutingFilter(ClusterMembership membership, Mode mode, Duration timeout) {
+        this.membership = membership;
+        this.mode = mode;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        UUID accountUuid = accountOf(path);
+        if (accountUuid == null || membership.owns(accountUuid)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String owner = membership.ownerOf(accountUuid);
+        if (request.getHeader(FORWARDED_BY_HEADER) != null) {
+            // the nodes disagree on the membership, don't bounce the request around
+            log.warn("Request for account {} forwarded by {} but owned by {}.",
+                accountUuid, request.getHeader(FORWARDED_BY_HEADER), owner);
+            response.sendError(MISDIRECTED_REQUEST, "Account owned by " + owner);
+            return;
+        }
+        URI target = membership.baseUriOf(owner).resolve(request.getRequestURI()
+            + (request.getQueryString() == null ? "" : "?" + request.getQueryString()));
+        if (mode == Mode.REDIRECT) {
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, target.toString());
+            return;
+        }
+        forward(request, response, target);
+    }
+
+    static UUID accountOf(String path) {
+        Matcher matcher = ACCOUNT_PATH.matcher(path);
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(matcher.group(1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void forward(HttpServletRequest request, HttpServletResponse response, URI target) throws IOException {
+        byte[] body = request.getInputStream().readAllBytes();
+        HttpRequest.Builder forwarded = HttpRequest.newBuilder(target)
+            .timeout(timeout)
+            .method(request.getMethod(), body.length == 0
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofByteArray(body))
+            .header(FORWARDED_BY_HEADER, membership.getNodeId());
+        for (String name : Collections.list(request.getHeaderNames())) {
+            String lowerCaseName = name.toLowerCase(Locale.ROOT);
+            if (!HOP_BY_HOP_HEADERS.contains(lowerCaseName) && !RESTRICTED_HEADERS.contains(lowerCaseName)) {
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    forwarded.header(name, value);
+                }
+            }
+        }
+        HttpResponse<InputStream> relayed;
+        try {
+            relayed = httpClient.send(forwarded.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            log.warn("Forward of {} {} to {} failed.", request.getMethod(), request.getRequestURI(), target, e);
+            response.sendError(HttpStatus.BAD_GATEWAY.value());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        response.setStatus(relayed.statusCode());
+        relayed.headers().map().forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT)) && !name.startsWith(":")) {
+                values.forEach((value) -> response.addHeader(name, value));
+            }
+        });
+        try (InputStream in = relayed.body()) {
+            in.transferTo(response.getOutputStream());
+        }
+    }
+}
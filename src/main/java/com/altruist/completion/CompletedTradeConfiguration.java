@@ -0,0 +1,28 @@
+package com.altruist.completion;
+
+import com.altruist.repository.CompletedTradeRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * Every {@link CompletedTradeListener} bean receives the trades completed while the node runs.
+ */
+@Configuration
+public class CompletedTradeConfiguration {
+
+    /**
+     * Started before the ledger and the analytics are loaded up to {@link CompletedTradeFeed#getSince()},
+     * its listeners are only looked up on the first poll.
+     */
+    @Lazy(false)
+    @Bean(initMethod = "start")
+    public CompletedTradeFeed completedTradeFeed(CompletedTradeRepository completedTradeRepository,
+                                                 ObjectProvider<CompletedTradeListener> listeners,
+                                                 @Value("${completed-trades.commit-margin-millis:5000}") long commitMarginMillis,
+                                                 @Value("${completed-trades.batch-size:500}") int batchSize) {
+        return new CompletedTradeFeed(completedTradeRepository, listeners, commitMarginMillis, batchSize);
+    }
+}
@@ -0,0 +1,128 @@
+package com.altruist.completion;
+
+import com.altruist.model.TradeCompletion;
+import com.altruist.repository.CompletedTradeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Polls the trades completed by other processes, which write no outbox event, and hands them to
+ * every {@link CompletedTradeListener} bean. Every node polls, so each keeps its own ledger and
+ * caches current.
+ * <p>
+ * The watermark is the completion time of the newest trade delivered. updated_date is the start
+ * of the completing transaction, so a trade can commit after newer ones were read: each poll
+ * reads again from the watermark less the commit margin and skips the trades it already
+ * delivered. Trades completed before {@link #getSince()} are left to the loads made on start up.
+ */
+@Slf4j
+public class CompletedTradeFeed {
+
+    private final CompletedTradeRepository repository;
+    private final ObjectProvider<CompletedTradeListener> listenerProvider;
+    private final long commitMarginMillis;
+    private final int batchSize;
+    private final Map<UUID, LocalDateTime> delivered = new HashMap<>();
+    private List<CompletedTradeListener> listeners;
+    private LocalDateTime since;
+    private LocalDateTime watermark;
+
+    public CompletedTradeFeed(CompletedTradeRepository repository,
+                              ObjectProvider<CompletedTradeListener> listenerProvider,
+                              long commitMarginMillis, int batchSize) {
+        this.repository = repository;
+        this.listenerProvider = listenerProvider;
+        this.commitMarginMillis = commitMarginMillis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts the feed a commit margin before the database clock.
+     */
+    public synchronized void start() {
+        watermark = repository.currentTimestamp();
+        since = watermark.minus(commitMarginMillis, ChronoUnit.MILLIS);
+        log.info("Following the trades completed since {}.", since);
+    }
+
+    /**
+     * Time the feed starts from: trades completed before it are not delivered, the ones
+     * completed at or after it are.
+     */
+    public synchronized LocalDateTime getSince() {
+        return since;
+    }
+
+    @Scheduled(fixedDelayString = "${completed-trades.poll-interval-millis:500}")
+    public void run() {
+        try {
+            poll();
+        } catch (RuntimeException ex) {
+            log.warn("Poll of the completed trades failed, it will be retried.", ex);
+        }
+    }
+
+    /**
+     * Delivers the trades completed since the last poll.
+     *
+     * @return the number of trades delivered
+     */
+    public synchronized int poll() {
+        if (listeners == null) {
+            listeners = listenerProvider.orderedStream().collect(Collectors.toList());
+        }
+        LocalDateTime from = watermark.minus(commitMarginMillis, ChronoUnit.MILLIS);
+        if (from.isBefore(since)) {
+            from = since;
+        }
+        LocalDateTime horizon = from;
+        delivered.values().removeIf((completedAt) -> completedAt.isBefore(horizon));
+        int count = 0;
+        LocalDateTime pageFrom = from;
+        UUID after = null;
+        while (true) {
+            List<TradeCompletion> page = repository.findCompleted(pageFrom, after, batchSize);
+            if (page.isEmpty()) {
+                return count;
+            }
+            List<TradeCompletion> completions = page.stream()
+                .filter((completion) -> delivered.putIfAbsent(completion.getTrade().getUuid(),
+                    completion.getCompletedAt()) == null)
+                .collect(Collectors.toList());
+            if (!completions.isEmpty()) {
+                deliver(completions);
+                count += completions.size();
+            }
+            TradeCompletion last = page.get(page.size() - 1);
+            if (last.getCompletedAt().isAfter(watermark)) {
+                watermark = last.getCompletedAt();
+            }
+            if (page.size() < batchSize) {
+                return count;
+            }
+            pageFrom = last.getCompletedAt();
+            after = last.getTrade().getUuid();
+        }
+    }
+
+    /**
+     * A failing listener is not retried, so it can't hold the others back or get a trade twice.
+     */
+    private void deliver(List<TradeCompletion> completions) {
+        for (CompletedTradeListener listener : listeners) {
+            try {
+                listener.completed(completions);
+            } catch (RuntimeException ex) {
+                log.error("Listener {} failed to take {} completed trades.", listener.getClass().getSimpleName(),
+                    completions.size(), ex);
+            }
+        }
+        log.debug("Delivered {} completed trades.", completions.size());
+    }
+}
@@ -0,0 +1,14 @@
+package com.altruist.completion;
+
+import com.altruist.model.TradeCompletion;
+
+import java.util.*;
+
+/**
+ * Receives the trades completed since the {@link CompletedTradeFeed} started, once each and in
+ * completion order, on every node.
+ */
+public interface CompletedTradeListener {
+
+    void completed(List<TradeCompletion> completions);
+}
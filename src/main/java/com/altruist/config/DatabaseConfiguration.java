@@ -1,10 +1,11 @@
 package com.altruist.config;
 
-import com.opentable.db.postgres.embedded.EmbeddedPostgres;
+import java.nio.file.Paths;
 import javax.sql.DataSource;
 import lombok.SneakyThrows;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,17 +16,35 @@ public class DatabaseConfiguration implements FlywayConfigurationCustomizer {
   @Value("${embedded-db.port}")
   int port;
 
+  @Value("${embedded-db.schema}")
+  String schema;
+
+  @Value("${embedded-db.template.enabled:false}")
+  boolean templateEnabled;
+
+  @Value("${embedded-db.template.directory:build/embedded-db}")
+  String templateDirectory;
+
+  /**
+   * The embedded server is shared by every context in the JVM, see {@link EmbeddedDatabases}. Other nodes of a local
+   * cluster disable it and connect to the server of the first one through {@code spring.datasource}.
+   */
   @SneakyThrows
   @Bean
+  @ConditionalOnProperty(name = "embedded-db.enabled", havingValue = "true", matchIfMissing = true)
   public DataSource dataSource() {
-    EmbeddedPostgres embeddedPostgres = EmbeddedPostgres.builder()
-        .setPort(port)
-        .start();
-    return embeddedPostgres.getPostgresDatabase();
+    return EmbeddedDatabases.start(port, schema, templateEnabled ? Paths.get(templateDirectory) : null)
+        .getPostgresDatabase();
   }
 
+  /**
+   * Flyway already uses the {@link DataSource} bean. A restored template was migrated from these exact scripts, so
+   * their checksums are not validated again.
+   */
   @Override
   public void customize(FluentConfiguration configuration) {
-    configuration.dataSource(dataSource());
+    if (templateEnabled) {
+      configuration.validateOnMigrate(false);
+    }
   }
 }
@@ -0,0 +1,164 @@
+package com.altruist.config;
+
+import com.opentable.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * One embedded postgres per port for the whole JVM, so every Spring context importing {@link DatabaseConfiguration}
+ * (each Spock spec with its own context) shares the server instead of booting another one on the same port.
+ * <p>
+ * When a template root is given the data directory is copied from a pre-migrated template, keyed by a fingerprint of
+ * the migration scripts. Only a changed migration pays for initdb and a full Flyway run again.
+ */
+@Slf4j
+final class EmbeddedDatabases {
+
+    private static final String MIGRATIONS = "classpath*:db/migration/*.sql";
+
+    private static final Map<Integer, EmbeddedPostgres> INSTANCES = new HashMap<>();
+    private static final Map<Integer, Path> WORKING_DIRECTORIES = new HashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(EmbeddedDatabases::closeAll, "embedded-postgres-shutdown"));
+    }
+
+    private EmbeddedDatabases() {
+    }
+
+    /**
+     * @param templateRoot directory holding the migrated templates, {@code null} for a fresh initdb
+     */
+    static synchronized EmbeddedPostgres start(int port, String schema, Path templateRoot) throws IOException {
+        EmbeddedPostgres running = INSTANCES.get(port);
+        if (running != null) {
+            return running;
+        }
+        EmbeddedPostgres.Builder builder = EmbeddedPostgres.builder().setPort(port);
+        if (templateRoot != null) {
+            Path template = template(templateRoot, schema);
+            Path workingDirectory = Files.createTempDirectory(Files.createDirectories(templateRoot), "port-" + port + "-");
+            copy(template, workingDirectory);
+            WORKING_DIRECTORIES.put(port, workingDirectory);
+            builder.setDataDirectory(workingDirectory).setCleanDataDirectory(false);
+            log.info("Restoring embedded postgres on port {} from template {}", port, template);
+        }
+        EmbeddedPostgres postgres = builder.start();
+        INSTANCES.put(port, postgres);
+        return postgres;
+    }
+
+    private static Path template(Path templateRoot, String schema) throws IOException {
+        Path template = templateRoot.resolve("template-" + fingerprint());
+        if (Files.exists(template.resolve("PG_VERSION"))) {
+            return template;
+        }
+        log.info("Migrating a new embedded postgres template into {}", template);
+        Path staging = Files.createDirectories(templateRoot).resolve(template.getFileName() + "-" + UUID.randomUUID());
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+            .setDataDirectory(staging)
+            .setCleanDataDirectory(false)
+            .start()) {
+            Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .schemas(schema)
+                .mixed(true)
+                .load()
+                .migrate();
+        }
+        try {
+            Files.move(staging, template, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // another build published the same template first
+            if (!Files.exists(template.resolve("PG_VERSION"))) {
+                throw e;
+            }
+            delete(staging);
+        }
+        return template;
+    }
+
+    /**
+     * SHA-256 over the names and contents of the migration scripts, in name order.
+     */
+    static String fingerprint() throws IOException {
+        Resource[] migrations = new PathMatchingResourcePatternResolver().getResources(MIGRATIONS);
+        Arrays.sort(migrations, Comparator.comparing(Resource::getFilename));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Resource migration : migrations) {
+                digest.update(migration.getFilename().getBytes());
+                try (InputStream in = migration.getInputStream()) {
+                    byte[] buffer = new byte[8192];
+                    for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : Arrays.copyOf(digest.digest(), 8)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Path destination = target.resolve(source.relativize(path).toString());
+                if (path.getFileName().toString().equals("postmaster.pid")) {
+                    continue;
+                }
+                if (Files.isDirectory(path)) {
+                    if (!path.equals(source)) {
+                        Files.copy(path, destination, StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                } else {
+                    Files.copy(path, destination, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static synchronized void closeAll() {
+        INSTANCES.forEach((port, postgres) -> {
+            try {
+                postgres.close();
+                Path workingDirectory = WORKING_DIRECTORIES.get(port);
+                if (workingDirectory != null) {
+                    delete(workingDirectory);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to shut down embedded postgres on port {}", port, e);
+            }
+        });
+        INSTANCES.clear();
+    }
+}
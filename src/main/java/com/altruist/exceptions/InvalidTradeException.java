@@ -0,0 +1,12 @@
+package com.altruist.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class InvalidTradeException extends RuntimeException{
+
+    public InvalidTradeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,124 @@
+package com.altruist.expiry;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Level 0 has one slot per tick and every level above it has slots
+ * as wide as a whole turn of the level below; entries move down a level when their slot comes
+ * up, so adding and expiring an entry is O(1) whatever the number of entries.
+ * <p>
+ * {@link #add} can be called from any thread, entries are handed over through a queue;
+ * {@link #advance} must be called by a single thread.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final int bits;
+    private final List<Entry<T>>[][] levels;
+    private final Queue<Entry<T>> added = new ConcurrentLinkedQueue<>();
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param wheelSize slots per level, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.bits = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(2, wheelSize) - 1);
+        this.mask = (1 << bits) - 1;
+        this.levels = new List[levels][1 << bits];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    public void add(T item, long deadlineMillis) {
+        added.add(new Entry<>(item, deadlineMillis / tickMillis));
+    }
+
+    /**
+     * Moves the wheel to the time informed, handing every entry whose deadline has passed to the
+     * consumer, including the ones added with a deadline in the past.
+     */
+    public void advance(long nowMillis, Consumer<T> expired) {
+        drainAdded(expired);
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = levels.length - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    cascade(level, expired);
+                }
+            }
+            List<Entry<T>> due = takeSlot(0, (int) (currentTick & mask));
+            if (due != null) {
+                size -= due.size();
+                due.forEach((entry) -> expired.accept(entry.item));
+            }
+        }
+    }
+
+    /**
+     * Entries waiting in the wheel, not counting the ones added since the last advance.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void drainAdded(Consumer<T> expired) {
+        for (Entry<T> entry = added.poll(); entry != null; entry = added.poll()) {
+            place(entry, expired);
+        }
+    }
+
+    private void cascade(int level, Consumer<T> expired) {
+        List<Entry<T>> entries = takeSlot(level, (int) ((currentTick >>> (bits * level)) & mask));
+        if (entries != null) {
+            size -= entries.size();
+            entries.forEach((entry) -> place(entry, expired));
+        }
+    }
+
+    /**
+     * An entry goes to the lowest level whose turn covers its distance, or the top level when it
+     * is further away, where it is cascaded again once its slot comes up.
+     */
+    private void place(Entry<T> entry, Consumer<T> expired) {
+        long ticks = entry.deadlineTick - currentTick;
+        if (ticks <= 0) {
+            expired.accept(entry.item);
+            return;
+        }
+        int level = 0;
+        while (level < levels.length - 1 && ticks >= (1L << (bits * (level + 1)))) {
+            level++;
+        }
+        long slotTick = Math.min(entry.deadlineTick, currentTick + ((long) mask << (bits * level)));
+        int slot = (int) ((slotTick >>> (bits * level)) & mask);
+        List<Entry<T>> entries = levels[level][slot];
+        if (entries == null) {
+            entries = new ArrayList<>();
+            levels[level][slot] = entries;
+        }
+        entries.add(entry);
+        size++;
+    }
+
+    private List<Entry<T>> takeSlot(int level, int slot) {
+        List<Entry<T>> entries = levels[level][slot];
+        levels[level][slot] = null;
+        return entries;
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long deadlineTick;
+
+        private Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.altruist.expiry;
+
+import com.altruist.cache.AccountReadCache;
+import com.altruist.cache.RecentTradeStore;
+import com.altruist.cluster.ShardOwnership;
+import com.altruist.ledger.AccountLedgerService;
+import com.altruist.repository.TradeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+@Configuration
+public class TradeExpiryConfiguration {
+
+    /**
+     * Rebuilt while the context starts, so trades that expired while the application was down
+     * are expired on the first tick.
+     */
+    @Lazy(false)
+    @Bean(initMethod = "rebuild")
+    public TradeExpiryService tradeExpiryService(TradeRepository tradeRepository,
+                                                 AccountLedgerService accountLedgerService,
+                                                 AccountReadCache readCache,
+                                                 RecentTradeStore recentTrades,
+                                                 ShardOwnership shardOwnership,
+                                                 @Value("${trade-expiry.zone:America/New_York}") String zone,
+                                                 @Value("${trade-expiry.day-end:16:00}") String dayEnd,
+                                                 @Value("${trade-expiry.ioc-window-millis:100}") long iocWindowMillis,
+                                                 @Value("${trade-expiry.batch-size:1000}") int batchSize,
+                                                 @Value("${trade-expiry.tick-millis:10}") long tickMillis,
+                                                 @Value("${trade-expiry.wheel-size:512}") int wheelSize,
+                                                 @Value("${trade-expiry.wheel-levels:4}") int wheelLevels) {
+        return new TradeExpiryService(tradeRepository, accountLedgerService, readCache, recentTrades,
+            shardOwnership, Clock.systemUTC(), ZoneId.of(zone), LocalTime.parse(dayEnd), iocWindowMillis, batchSize,
+            tickMillis, wheelSize, wheelLevels);
+    }
+}
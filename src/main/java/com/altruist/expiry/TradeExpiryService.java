@@ -0,0 +1,159 @@
+package com.altruist.expiry;
+
+import com.altruist.cache.AccountReadCache;
+import com.altruist.cache.RecentTradeStore;
+import com.altruist.cluster.ShardOwnership;
+import com.altruist.exceptions.InvalidTradeException;
+import com.altruist.ledger.AccountLedgerService;
+import com.altruist.model.TimeInForce;
+import com.altruist.model.Trade;
+import com.altruist.repository.TradeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Expires submitted trades at the deadline of their time in force. Deadlines wait in a
+ * {@link TimingWheel} rebuilt from the database on start up; due trades are moved to the
+ * expired status of their time in force in batches, trades cancelled or completed in the mean
+ * time are left alone by the conditional update. Expired trades are forgotten by the read cache
+ * and updated in the recent trades as soon as their batch is written.
+ */
+@Slf4j
+public class TradeExpiryService {
+
+    private final TradeRepository tradeRepository;
+    private final AccountLedgerService accountLedgerService;
+    private final AccountReadCache readCache;
+    private final RecentTradeStore recentTrades;
+    private final ShardOwnership shardOwnership;
+    private final Clock clock;
+    private final ZoneId zone;
+    private final LocalTime dayEnd;
+    private final long iocWindowMillis;
+    private final int batchSize;
+    private final long tickMillis;
+    private final int wheelSize;
+    private final int wheelLevels;
+    private volatile TimingWheel<UUID> wheel;
+
+    public TradeExpiryService(TradeRepository tradeRepository, AccountLedgerService accountLedgerService,
+                              AccountReadCache readCache, RecentTradeStore recentTrades,
+                              ShardOwnership shardOwnership, Clock clock, ZoneId zone, LocalTime dayEnd,
+                              long iocWindowMillis, int batchSize, long tickMillis, int wheelSize, int wheelLevels) {
+        this.tradeRepository = tradeRepository;
+        this.accountLedgerService = accountLedgerService;
+        this.readCache = readCache;
+        this.recentTrades = recentTrades;
+        this.shardOwnership = shardOwnership;
+        this.clock = clock;
+        this.zone = zone;
+        this.dayEnd = dayEnd;
+        this.iocWindowMillis = iocWindowMillis;
+        this.batchSize = batchSize;
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.wheelLevels = wheelLevels;
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, wheelLevels, clock.millis());
+    }
+
+    /**
+     * Loads the deadline of every submitted trade that expires, of the accounts owned by this
+     * node.
+     */
+    public synchronized void rebuild() {
+        TimingWheel<UUID> rebuilt = new TimingWheel<>(tickMillis, wheelSize, wheelLevels, clock.millis());
+        long[] loaded = new long[1];
+        tradeRepository.findExpiring((trade) -> {
+            if (!shardOwnership.owns(trade.getAccountUuid())) {
+                return;
+            }
+            rebuilt.add(trade.getUuid(), trade.getExpiresAt().toInstant().toEpochMilli());
+            loaded[0]++;
+        });
+        wheel = rebuilt;
+        log.info("Loaded {} expiring trades into the expiry wheel.", loaded[0]);
+    }
+
+    /**
+     * Sets the expiry of a trade about to be submitted from its time in force.
+     */
+    public void assignDeadline(Trade trade) {
+        TimeInForce timeInForce = trade.getTimeInForce();
+        if (timeInForce == null) {
+            trade.setExpiresAt(null);
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        switch (timeInForce) {
+            case DAY:
+                ZonedDateTime close = now.atZoneSameInstant(zone).with(dayEnd);
+                if (!close.toOffsetDateTime().isAfter(now)) {
+                    close = close.plusDays(1);
+                }
+                trade.setExpiresAt(close.toOffsetDateTime());
+                break;
+            case GTD:
+                if (trade.getExpiresAt() == null || !trade.getExpiresAt().isAfter(now)) {
+                    throw new InvalidTradeException("GTD trades must inform an expiry in the future");
+                }
+                break;
+            case IOC:
+                trade.setExpiresAt(now.plusNanos(iocWindowMillis * 1_000_000));
+                break;
+        }
+    }
+
+    public void schedule(Trade trade) {
+        if (trade.getExpiresAt() != null) {
+            wheel.add(trade.getUuid(), trade.getExpiresAt().toInstant().toEpochMilli());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trade-expiry.tick-millis:10}")
+    public void run() {
+        expire();
+    }
+
+    /**
+     * Advances the wheel to now and expires the due trades.
+     *
+     * @return the number of trades expired
+     */
+    public synchronized int expire() {
+        List<UUID> uuids = new ArrayList<>();
+        wheel.advance(clock.millis(), uuids::add);
+        if (uuids.isEmpty()) {
+            return 0;
+        }
+        int expired = 0;
+        for (int from = 0; from < uuids.size(); from += batchSize) {
+            List<UUID> batch = uuids.subList(from, Math.min(uuids.size(), from + batchSize));
+            try {
+                Map<UUID, List<UUID>> expiredByAccount = new HashMap<>();
+                for (Trade trade : tradeRepository.expire(batch)) {
+                    accountLedgerService.release(trade);
+                    recentTrades.update(trade);
+                    expiredByAccount.computeIfAbsent(trade.getAccountUuid(), (key) -> new ArrayList<>())
+                        .add(trade.getUuid());
+                    expired++;
+                }
+                expiredByAccount.forEach(readCache::forgetTrades);
+            } catch (RuntimeException ex) {
+                log.warn("Expiry of {} trades failed, they will be retried.", batch.size(), ex);
+                long retryAt = clock.millis() + tickMillis;
+                batch.forEach((uuid) -> wheel.add(uuid, retryAt));
+            }
+        }
+        if (expired > 0) {
+            log.info("Expired {} trades of {} due.", expired, uuids.size());
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,165 @@
+package com.altruist.gateway;
+
+import com.altruist.bulkhead.DatabaseCompartment;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TCP order entry gateway speaking {@link GatewayProtocol}, next to the REST API. Connections
+ * are spread over a few event loops, each a thread with its own selector running the requests
+ * of its sessions one after the other, so the messages of a session are handled in order.
+ * Nagle's algorithm is turned off, acks go out as soon as they are written.
+ */
+@Slf4j
+public class BinaryGateway {
+
+    private final OrderEntryHandler handler;
+    private final String host;
+    private final int port;
+    private final int bufferSize;
+    private final EventLoop[] loops;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    public BinaryGateway(OrderEntryHandler handler, String host, int port, int eventLoops, int bufferSize) {
+        this.handler = handler;
+        this.host = host;
+        this.port = port;
+        this.bufferSize = Math.max(bufferSize, GatewayProtocol.MAXIMUM_LENGTH * 4);
+        this.loops = new EventLoop[eventLoops];
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(host, port));
+        running = true;
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(Selector.open());
+            loops[i].thread = new Thread(loops[i], "gateway-loop-" + (i + 1));
+            loops[i].thread.setDaemon(true);
+            loops[i].thread.start();
+        }
+        acceptor = new Thread(this::accept, "gateway-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Order entry gateway listening on {} with {} event loops.", serverChannel.getLocalAddress(), loops.length);
+    }
+
+    public synchronized void stop() throws IOException, InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        serverChannel.close();
+        acceptor.join(TimeUnit.SECONDS.toMillis(5));
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+            loop.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * The port bound, the one asked for unless it was 0.
+     */
+    public int getLocalPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.configureBlocking(false);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Failed to accept a gateway connection.", e);
+            }
+        }
+    }
+
+    private class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+        private Thread thread;
+
+        EventLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            registrations.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            DatabaseCompartment.enter(DatabaseCompartment.ORDER_ENTRY);
+            try {
+                while (running) {
+                    selector.select();
+                    for (SocketChannel channel = registrations.poll(); channel != null; channel = registrations.poll()) {
+                        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                        key.attach(new GatewaySession(channel, key, handler, bufferSize));
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Gateway event loop failed, its sessions are closed.", e);
+            } finally {
+                selector.keys().forEach((key) -> ((GatewaySession) key.attachment()).close());
+                registrations.forEach((channel) -> {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        log.debug("Failed to close a gateway connection.", e);
+                    }
+                });
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close a gateway selector.", e);
+                }
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            GatewaySession session = (GatewaySession) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    session.onReadable();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    session.onWritable();
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Gateway session failed, closing it.", e);
+                session.close();
+            }
+        }
+    }
+}
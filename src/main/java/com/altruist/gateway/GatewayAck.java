@@ -0,0 +1,47 @@
+package com.altruist.gateway;
+
+import lombok.Data;
+
+import java.util.*;
+
+/**
+ * An ack of the gateway, reused from message to message so acks are encoded and decoded
+ * without allocating.
+ */
+@Data
+public class GatewayAck {
+
+    private int sequence;
+    private long clientOrderId;
+    private long tradeMsb;
+    private long tradeLsb;
+    private byte status;
+    private byte reason;
+    private int ackedSequence;
+
+    public void reset(long clientOrderId, int ackedSequence) {
+        this.clientOrderId = clientOrderId;
+        this.ackedSequence = ackedSequence;
+        this.tradeMsb = 0;
+        this.tradeLsb = 0;
+        this.status = GatewayProtocol.NO_STATUS;
+        this.reason = GatewayProtocol.ACCEPTED;
+    }
+
+    public void setTrade(UUID tradeUuid) {
+        this.tradeMsb = tradeUuid.getMostSignificantBits();
+        this.tradeLsb = tradeUuid.getLeastSignificantBits();
+    }
+
+    public UUID tradeUuid() {
+        return tradeMsb == 0 && tradeLsb == 0 ? null : new UUID(tradeMsb, tradeLsb);
+    }
+
+    public boolean isAccepted() {
+        return reason == GatewayProtocol.ACCEPTED;
+    }
+
+    public void reject(byte reason) {
+        this.reason = reason;
+    }
+}
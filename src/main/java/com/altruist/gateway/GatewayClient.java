@@ -0,0 +1,97 @@
+package com.altruist.gateway;
+
+import com.altruist.marketdata.SymbolTable;
+import com.altruist.model.TimeInForce;
+import com.altruist.model.TradeSide;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+
+import static com.altruist.gateway.GatewayProtocol.*;
+
+/**
+ * Blocking client of the gateway, one request at a time, for tools, tests and benchmarks.
+ * Not thread safe. The acks are read into the instance given, so a request and its ack
+ * don't allocate once the symbol is encoded.
+ */
+public class GatewayClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(MAXIMUM_LENGTH);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(ACK_LENGTH);
+    private int sequence;
+
+    public GatewayClient(String host, int port) throws IOException {
+        this.channel = SocketChannel.open();
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.connect(new InetSocketAddress(host, port));
+    }
+
+    public void newOrder(long clientOrderId, UUID accountUuid, long symbol, TradeSide side, int quantity,
+                         long priceTicks, TimeInForce timeInForce, long expiresAtMillis, GatewayAck ack)
+        throws IOException {
+        out.clear();
+        putNewOrder(out, ++sequence, clientOrderId, accountUuid.getMostSignificantBits(),
+            accountUuid.getLeastSignificantBits(), symbol, (byte) side.ordinal(),
+            timeInForce == null ? GOOD_TILL_CANCELLED : (byte) (timeInForce.ordinal() + 1),
+            quantity, priceTicks, expiresAtMillis);
+        roundTrip(ack);
+    }
+
+    public void newOrder(long clientOrderId, UUID accountUuid, String symbol, TradeSide side, int quantity,
+                         long priceTicks, GatewayAck ack) throws IOException {
+        newOrder(clientOrderId, accountUuid, SymbolTable.encode(symbol), side, quantity, priceTicks, null, 0, ack);
+    }
+
+    public void cancel(long clientOrderId, UUID accountUuid, UUID tradeUuid, GatewayAck ack) throws IOException {
+        tradeRequest(CANCEL, clientOrderId, accountUuid, tradeUuid, ack);
+    }
+
+    public void status(long clientOrderId, UUID accountUuid, UUID tradeUuid, GatewayAck ack) throws IOException {
+        tradeRequest(STATUS, clientOrderId, accountUuid, tradeUuid, ack);
+    }
+
+    /**
+     * Sends raw bytes, to try out how the gateway deals with broken messages.
+     */
+    void sendRaw(ByteBuffer message, GatewayAck ack) throws IOException {
+        out.clear();
+        out.put(message);
+        roundTrip(ack);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void tradeRequest(byte type, long clientOrderId, UUID accountUuid, UUID tradeUuid, GatewayAck ack)
+        throws IOException {
+        out.clear();
+        putTradeRequest(out, type, ++sequence, clientOrderId, accountUuid.getMostSignificantBits(),
+            accountUuid.getLeastSignificantBits(), tradeUuid.getMostSignificantBits(),
+            tradeUuid.getLeastSignificantBits());
+        roundTrip(ack);
+    }
+
+    private void roundTrip(GatewayAck ack) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        in.clear();
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("The gateway closed the session");
+            }
+        }
+        in.flip();
+        getAck(in, ack);
+    }
+}
@@ -0,0 +1,36 @@
+package com.altruist.gateway;
+
+import com.altruist.admission.AccountRateLimiter;
+import com.altruist.cluster.ShardOwnership;
+import com.altruist.marketdata.SymbolTable;
+import com.altruist.service.TradeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+@Configuration
+@ConditionalOnProperty(name = "gateway.enabled", havingValue = "true")
+public class GatewayConfiguration {
+
+    /**
+     * Each event loop runs the service calls of its sessions itself, so the number of loops
+     * bounds the gateway's share of the connection pool.
+     */
+    @Lazy(false)
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public BinaryGateway binaryGateway(TradeService tradeService,
+                                       SymbolTable symbolTable,
+                                       ShardOwnership shardOwnership,
+                                       AccountRateLimiter accountRateLimiter,
+                                       @Value("${admission-control.enabled:true}") boolean admissionControl,
+                                       @Value("${gateway.host:127.0.0.1}") String host,
+                                       @Value("${gateway.port:9070}") int port,
+                                       @Value("${gateway.event-loops:2}") int eventLoops,
+                                       @Value("${gateway.buffer-size:65536}") int bufferSize) {
+        OrderEntryHandler handler = new OrderEntryHandler(tradeService, symbolTable, shardOwnership,
+            admissionControl ? accountRateLimiter : null);
+        return new BinaryGateway(handler, host, port, eventLoops, bufferSize);
+    }
+}
@@ -0,0 +1,172 @@
+package com.altruist.gateway;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed layout binary messages of the order entry gateway, big endian. Every message starts
+ * with the same 8 byte header and has a fixed length per type, so a message is decoded by
+ * reading its fields at known offsets, without parsing or allocating.
+ * <pre>
+ * header        0 length (short), 2 type (byte), 3 reserved (byte), 4 sequence (int)
+ * NEW_ORDER     8 client order id (long), 16 account uuid (2 longs), 32 symbol (long, see SymbolTable.encode),
+ *               40 side (byte), 41 time in force (byte), 42 reserved (short), 44 quantity (int),
+ *               48 price in ticks of one cent (long), 56 expiry in epoch millis, GTD only (long)
+ * CANCEL        8 client order id (long), 16 account uuid (2 longs), 32 trade uuid (2 longs)
+ * STATUS        same as CANCEL
+ * ACK           8 client order id (long), 16 trade uuid (2 longs), 32 trade status (byte),
+ *               33 reject reason (byte), 34 reserved (short), 36 sequence of the acknowledged message (int)
+ * </pre>
+ * Sequences start at 1 and go up by one per message in each direction of a session; a gap
+ * in the client's sequence is rejected and the session is closed.
+ */
+public final class GatewayProtocol {
+
+    public static final int HEADER_LENGTH = 8;
+
+    public static final byte NEW_ORDER = 'N';
+    public static final byte CANCEL = 'C';
+    public static final byte STATUS = 'Q';
+    public static final byte ACK = 'A';
+
+    public static final int NEW_ORDER_LENGTH = 64;
+    public static final int CANCEL_LENGTH = 48;
+    public static final int STATUS_LENGTH = 48;
+    public static final int ACK_LENGTH = 40;
+    public static final int MAXIMUM_LENGTH = NEW_ORDER_LENGTH;
+
+    static final int LENGTH_OFFSET = 0;
+    static final int TYPE_OFFSET = 2;
+    static final int SEQUENCE_OFFSET = 4;
+    static final int CLIENT_ORDER_ID_OFFSET = 8;
+    static final int ACCOUNT_OFFSET = 16;
+    static final int SYMBOL_OFFSET = 32;
+    static final int SIDE_OFFSET = 40;
+    static final int TIME_IN_FORCE_OFFSET = 41;
+    static final int QUANTITY_OFFSET = 44;
+    static final int PRICE_OFFSET = 48;
+    static final int EXPIRES_AT_OFFSET = 56;
+    static final int TRADE_OFFSET = 32;
+    static final int ACK_TRADE_OFFSET = 16;
+    static final int ACK_STATUS_OFFSET = 32;
+    static final int ACK_REASON_OFFSET = 33;
+    static final int ACK_SEQUENCE_OFFSET = 36;
+
+    /**
+     * Sides, by {@link com.altruist.model.TradeSide} ordinal.
+     */
+    public static final byte BUY = 0;
+    public static final byte SELL = 1;
+
+    /**
+     * Time in force, 0 for none, otherwise {@link com.altruist.model.TimeInForce} ordinal plus one.
+     */
+    public static final byte GOOD_TILL_CANCELLED = 0;
+
+    /**
+     * Trade status of an ack, 0 when there is no trade, otherwise
+     * {@link com.altruist.model.TradeStatus} ordinal plus one.
+     */
+    public static final byte NO_STATUS = 0;
+
+    public static final byte ACCEPTED = 0;
+    public static final byte REJECTED_INVALID = 1;
+    public static final byte REJECTED_NOT_FOUND = 2;
+    public static final byte REJECTED_STATE = 3;
+    public static final byte REJECTED_THROTTLED = 4;
+    public static final byte REJECTED_NOT_OWNER = 5;
+    public static final byte REJECTED_SEQUENCE = 6;
+    public static final byte REJECTED_MALFORMED = 7;
+    public static final byte REJECTED_INTERNAL = 8;
+    public static final byte REJECTED_UNAVAILABLE = 9;
+
+    private GatewayProtocol() {
+    }
+
+    /**
+     * @return the length of the messages of the type, 0 for an unknown type
+     */
+    public static int lengthOf(byte type) {
+        switch (type) {
+            case NEW_ORDER:
+                return NEW_ORDER_LENGTH;
+            case CANCEL:
+                return CANCEL_LENGTH;
+            case STATUS:
+                return STATUS_LENGTH;
+            case ACK:
+                return ACK_LENGTH;
+            default:
+                return 0;
+        }
+    }
+
+    public static void putNewOrder(ByteBuffer out, int sequence, long clientOrderId, long accountMsb, long accountLsb,
+                                   long symbol, byte side, byte timeInForce, int quantity, long priceTicks,
+                                   long expiresAtMillis) {
+        int start = putHeader(out, NEW_ORDER_LENGTH, NEW_ORDER, sequence);
+        out.putLong(start + CLIENT_ORDER_ID_OFFSET, clientOrderId);
+        out.putLong(start + ACCOUNT_OFFSET, accountMsb);
+        out.putLong(start + ACCOUNT_OFFSET + 8, accountLsb);
+        out.putLong(start + SYMBOL_OFFSET, symbol);
+        out.put(start + SIDE_OFFSET, side);
+        out.put(start + TIME_IN_FORCE_OFFSET, timeInForce);
+        out.putShort(start + TIME_IN_FORCE_OFFSET + 1, (short) 0);
+        out.putInt(start + QUANTITY_OFFSET, quantity);
+        out.putLong(start + PRICE_OFFSET, priceTicks);
+        out.putLong(start + EXPIRES_AT_OFFSET, expiresAtMillis);
+    }
+
+    /**
+     * Writes a {@link #CANCEL} or {@link #STATUS} message.
+     */
+    public static void putTradeRequest(ByteBuffer out, byte type, int sequence, long clientOrderId,
+                                       long accountMsb, long accountLsb, long tradeMsb, long tradeLsb) {
+        int start = putHeader(out, CANCEL_LENGTH, type, sequence);
+        out.putLong(start + CLIENT_ORDER_ID_OFFSET, clientOrderId);
+        out.putLong(start + ACCOUNT_OFFSET, accountMsb);
+        out.putLong(start + ACCOUNT_OFFSET + 8, accountLsb);
+        out.putLong(start + TRADE_OFFSET, tradeMsb);
+        out.putLong(start + TRADE_OFFSET + 8, tradeLsb);
+    }
+
+    public static void putAck(ByteBuffer out, int sequence, GatewayAck ack) {
+        int start = putHeader(out, ACK_LENGTH, ACK, sequence);
+        out.putLong(start + CLIENT_ORDER_ID_OFFSET, ack.getClientOrderId());
+        out.putLong(start + ACK_TRADE_OFFSET, ack.getTradeMsb());
+        out.putLong(start + ACK_TRADE_OFFSET + 8, ack.getTradeLsb());
+        out.put(start + ACK_STATUS_OFFSET, ack.getStatus());
+        out.put(start + ACK_REASON_OFFSET, ack.getReason());
+        out.putShort(start + ACK_REASON_OFFSET + 1, (short) 0);
+        out.putInt(start + ACK_SEQUENCE_OFFSET, ack.getAckedSequence());
+    }
+
+    /**
+     * Reads the ack starting at the position of the buffer, leaving the position after it.
+     */
+    public static void getAck(ByteBuffer in, GatewayAck ack) {
+        int start = in.position();
+        ack.setSequence(in.getInt(start + SEQUENCE_OFFSET));
+        ack.setClientOrderId(in.getLong(start + CLIENT_ORDER_ID_OFFSET));
+        ack.setTradeMsb(in.getLong(start + ACK_TRADE_OFFSET));
+        ack.setTradeLsb(in.getLong(start + ACK_TRADE_OFFSET + 8));
+        ack.setStatus(in.get(start + ACK_STATUS_OFFSET));
+        ack.setReason(in.get(start + ACK_REASON_OFFSET));
+        ack.setAckedSequence(in.getInt(start + ACK_SEQUENCE_OFFSET));
+        in.position(start + ACK_LENGTH);
+    }
+
+    /**
+     * Writes the header at the position of the buffer and moves the position past the message.
+     *
+     * @return where the message starts
+     */
+    private static int putHeader(ByteBuffer out, int length, byte type, int sequence) {
+        int start = out.position();
+        out.putShort(start + LENGTH_OFFSET, (short) length);
+        out.put(start + TYPE_OFFSET, type);
+        out.put(start + TYPE_OFFSET + 1, (byte) 0);
+        out.putInt(start + SEQUENCE_OFFSET, sequence);
+        out.position(start + length);
+        return start;
+    }
+}
@@ -0,0 +1,127 @@
+package com.altruist.gateway;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import static com.altruist.gateway.GatewayProtocol.*;
+
+/**
+ * One client connection, owned by a single event loop. Messages are decoded in place from a
+ * direct receive buffer and acks encoded into a direct send buffer, both allocated once per
+ * session. When the client doesn't read its acks and the send buffer fills up, the session
+ * stops reading until it could send them.
+ */
+@Slf4j
+class GatewaySession {
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final OrderEntryHandler handler;
+    private final ByteBuffer in;
+    private final ByteBuffer out;
+    private final GatewayAck ack = new GatewayAck();
+    private int expectedSequence = 1;
+    private int sentSequence;
+    private boolean closing;
+
+    GatewaySession(SocketChannel channel, SelectionKey key, OrderEntryHandler handler, int bufferSize) {
+        this.channel = channel;
+        this.key = key;
+        this.handler = handler;
+        this.in = ByteBuffer.allocateDirect(bufferSize);
+        this.out = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    void onReadable() throws IOException {
+        if (channel.read(in) < 0) {
+            close();
+            return;
+        }
+        process();
+        flush();
+    }
+
+    void onWritable() throws IOException {
+        flush();
+        if (out.position() == 0 && !closing) {
+            // the acks got out, carry on with what was received in the mean time
+            process();
+            flush();
+        }
+    }
+
+    /**
+     * Handles the complete messages in the receive buffer while there is room for their acks.
+     */
+    private void process() {
+        in.flip();
+        while (!closing && in.remaining() >= HEADER_LENGTH && out.remaining() >= ACK_LENGTH) {
+            int start = in.position();
+            int length = in.getShort(start + LENGTH_OFFSET);
+            byte type = in.get(start + TYPE_OFFSET);
+            if (type == ACK || length != lengthOf(type)) {
+                reject(in.getInt(start + SEQUENCE_OFFSET), REJECTED_MALFORMED);
+                break;
+            }
+            if (in.remaining() < length) {
+                break;
+            }
+            int sequence = in.getInt(start + SEQUENCE_OFFSET);
+            if (sequence != expectedSequence) {
+                log.warn("Gateway session {} expected sequence {} but got {}, closing it.",
+                    remoteAddress(), expectedSequence, sequence);
+                reject(sequence, REJECTED_SEQUENCE);
+                break;
+            }
+            expectedSequence++;
+            handler.handle(in, start, ack);
+            putAck(out, ++sentSequence, ack);
+            in.position(start + length);
+        }
+        in.compact();
+    }
+
+    /**
+     * Sends a reject and closes the session once it is out, the stream can't be trusted any more.
+     */
+    private void reject(int sequence, byte reason) {
+        ack.reset(0, sequence);
+        ack.reject(reason);
+        putAck(out, ++sentSequence, ack);
+        closing = true;
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        channel.write(out);
+        out.compact();
+        if (out.position() > 0) {
+            key.interestOps(SelectionKey.OP_WRITE);
+        } else if (closing) {
+            close();
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close gateway session {}.", remoteAddress(), e);
+        }
+    }
+
+    private Object remoteAddress() {
+        try {
+            return channel.getRemoteAddress();
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+}
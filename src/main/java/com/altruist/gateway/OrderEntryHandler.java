@@ -0,0 +1,156 @@
+package com.altruist.gateway;
+
+import com.altruist.admission.AccountRateLimiter;
+import com.altruist.cluster.ShardOwnership;
+import com.altruist.exceptions.EntityNotFoundException;
+import com.altruist.exceptions.InvalidOperationException;
+import com.altruist.exceptions.InvalidTradeException;
+import com.altruist.exceptions.InvalidTradeStatusException;
+import com.altruist.exceptions.ServiceUnavailableException;
+import com.altruist.marketdata.Prices;
+import com.altruist.marketdata.SymbolTable;
+import com.altruist.model.TimeInForce;
+import com.altruist.model.Trade;
+import com.altruist.model.TradeSide;
+import com.altruist.model.TradeStatus;
+import com.altruist.service.TradeService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static com.altruist.gateway.GatewayProtocol.*;
+
+/**
+ * Hands the gateway messages to the same {@link TradeService} as the REST API. Fields are read
+ * straight from the receive buffer and the checks Bean Validation makes on the REST payload
+ * are made on the primitives; the service errors become reject reasons.
+ */
+@Slf4j
+public class OrderEntryHandler {
+
+    private static final TradeSide[] SIDES = TradeSide.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+    private static final TradeStatus[] STATUSES = TradeStatus.values();
+
+    private final TradeService tradeService;
+    private final SymbolTable symbolTable;
+    private final ShardOwnership shardOwnership;
+    private final AccountRateLimiter accountRateLimiter;
+
+    /**
+     * @param accountRateLimiter {@code null} when admission control is off
+     */
+    public OrderEntryHandler(TradeService tradeService, SymbolTable symbolTable, ShardOwnership shardOwnership,
+                             AccountRateLimiter accountRateLimiter) {
+        this.tradeService = tradeService;
+        this.symbolTable = symbolTable;
+        this.shardOwnership = shardOwnership;
+        this.accountRateLimiter = accountRateLimiter;
+    }
+
+    /**
+     * Handles the message starting at {@code start} of the buffer, filling in the ack.
+     */
+    public void handle(ByteBuffer in, int start, GatewayAck ack) {
+        byte type = in.get(start + TYPE_OFFSET);
+        ack.reset(in.getLong(start + CLIENT_ORDER_ID_OFFSET), in.getInt(start + SEQUENCE_OFFSET));
+        UUID accountUuid = new UUID(in.getLong(start + ACCOUNT_OFFSET), in.getLong(start + ACCOUNT_OFFSET + 8));
+        if (!admit(accountUuid, ack)) {
+            return;
+        }
+        try {
+            switch (type) {
+                case NEW_ORDER:
+                    newOrder(in, start, accountUuid, ack);
+                    break;
+                case CANCEL:
+                    cancel(in, start, accountUuid, ack);
+                    break;
+                case STATUS:
+                    status(in, start, accountUuid, ack);
+                    break;
+                default:
+                    ack.reject(REJECTED_MALFORMED);
+            }
+        } catch (InvalidTradeException ex) {
+            ack.reject(REJECTED_INVALID);
+        } catch (EntityNotFoundException ex) {
+            ack.reject(REJECTED_NOT_FOUND);
+        } catch (InvalidTradeStatusException | InvalidOperationException ex) {
+            ack.reject(REJECTED_STATE);
+        } catch (ServiceUnavailableException ex) {
+            ack.reject(REJECTED_UNAVAILABLE);
+        } catch (RuntimeException ex) {
+            log.warn("Gateway message {} of account {} failed.", (char) type, accountUuid, ex);
+            ack.reject(REJECTED_INTERNAL);
+        }
+    }
+
+    private boolean admit(UUID accountUuid, GatewayAck ack) {
+        if (!shardOwnership.owns(accountUuid)) {
+            ack.reject(REJECTED_NOT_OWNER);
+            return false;
+        }
+        if (accountRateLimiter != null && accountRateLimiter.tryAcquire(accountUuid) > 0) {
+            ack.reject(REJECTED_THROTTLED);
+            return false;
+        }
+        return true;
+    }
+
+    private void newOrder(ByteBuffer in, int start, UUID accountUuid, GatewayAck ack) {
+        String symbol = symbolTable.symbolOf(symbolTable.idOf(in.getLong(start + SYMBOL_OFFSET)));
+        byte side = in.get(start + SIDE_OFFSET);
+        byte timeInForce = in.get(start + TIME_IN_FORCE_OFFSET);
+        int quantity = in.getInt(start + QUANTITY_OFFSET);
+        long price = in.getLong(start + PRICE_OFFSET);
+        long expiresAt = in.getLong(start + EXPIRES_AT_OFFSET);
+        if (symbol == null || side < 0 || side >= SIDES.length || timeInForce < 0
+            || timeInForce > TIMES_IN_FORCE.length || quantity < 1 || price < 1) {
+            ack.reject(REJECTED_INVALID);
+            return;
+        }
+        Trade trade = Trade.builder()
+            .accountUuid(accountUuid)
+            .symbol(symbol)
+            .side(SIDES[side])
+            .quantity(quantity)
+            .price(Prices.fromTicks(price))
+            .timeInForce(timeInForce == GOOD_TILL_CANCELLED ? null : TIMES_IN_FORCE[timeInForce - 1])
+            .expiresAt(expiresAt == 0 ? null : OffsetDateTime.ofInstant(Instant.ofEpochMilli(expiresAt), ZoneOffset.UTC))
+            .build();
+        Trade dbTrade = tradeService.create(trade);
+        ack.setTrade(dbTrade.getUuid());
+        ack.setStatus(statusOf(dbTrade.getStatus()));
+    }
+
+    private void cancel(ByteBuffer in, int start, UUID accountUuid, GatewayAck ack) {
+        UUID tradeUuid = new UUID(in.getLong(start + TRADE_OFFSET), in.getLong(start + TRADE_OFFSET + 8));
+        ack.setTrade(tradeUuid);
+        tradeService.cancelTrade(accountUuid, tradeUuid);
+        ack.setStatus(statusOf(TradeStatus.CANCELLED));
+    }
+
+    private void status(ByteBuffer in, int start, UUID accountUuid, GatewayAck ack) {
+        UUID tradeUuid = new UUID(in.getLong(start + TRADE_OFFSET), in.getLong(start + TRADE_OFFSET + 8));
+        ack.setTrade(tradeUuid);
+        Optional<Trade> trade = tradeService.findByIdAndAccountId(tradeUuid, accountUuid);
+        if (trade.isEmpty()) {
+            ack.reject(REJECTED_NOT_FOUND);
+            return;
+        }
+        ack.setStatus(statusOf(trade.get().getStatus()));
+    }
+
+    public static byte statusOf(TradeStatus status) {
+        return status == null ? NO_STATUS : (byte) (status.ordinal() + 1);
+    }
+
+    public static TradeStatus statusOf(byte status) {
+        return status == NO_STATUS ? null : STATUSES[status - 1];
+    }
+}
@@ -0,0 +1,76 @@
+package com.altruist.ledger;
+
+import java.util.*;
+
+/**
+ * Cash and holdings of one account, in ticks and shares. Not thread safe, the
+ * {@link AccountLedgerService} guards each ledger with the lock of its stripe.
+ * <ul>
+ *     <li>cash: initial cash plus completed sells minus completed buys</li>
+ *     <li>reserved cash: notional of the submitted buys</li>
+ *     <li>holding: completed buys minus completed sells of a symbol</li>
+ *     <li>reserved quantity: quantity of the submitted sells of a symbol</li>
+ * </ul>
+ */
+class AccountLedger {
+
+    private long cash;
+    private long reservedCash;
+    private final Map<Integer, long[]> holdings = new HashMap<>();
+
+    AccountLedger(long initialCash) {
+        this.cash = initialCash;
+    }
+
+    long buyingPower() {
+        return cash - reservedCash;
+    }
+
+    long availableQuantity(int symbolId) {
+        long[] holding = holdings.get(symbolId);
+        return holding == null ? 0 : holding[0] - holding[1];
+    }
+
+    long cash() {
+        return cash;
+    }
+
+    long holding(int symbolId) {
+        long[] holding = holdings.get(symbolId);
+        return holding == null ? 0 : holding[0];
+    }
+
+    void reserveCash(long notional) {
+        reservedCash += notional;
+    }
+
+    void reserveQuantity(int symbolId, long quantity) {
+        holding(symbolId, true)[1] += quantity;
+    }
+
+    /**
+     * Holdings of symbols no longer listed, negative ids, only move cash.
+     */
+    void settleBuy(int symbolId, long quantity, long notional) {
+        cash -= notional;
+        if (symbolId >= 0) {
+            holding(symbolId, true)[0] += quantity;
+        }
+    }
+
+    void settleSell(int symbolId, long quantity, long notional) {
+        cash += notional;
+        if (symbolId >= 0) {
+            holding(symbolId, true)[0] -= quantity;
+        }
+    }
+
+    private long[] holding(int symbolId, boolean create) {
+        long[] holding = holdings.get(symbolId);
+        if (holding == null && create) {
+            holding = new long[2];
+            holdings.put(symbolId, holding);
+        }
+        return holding;
+    }
+}
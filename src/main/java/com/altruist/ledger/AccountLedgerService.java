@@ -0,0 +1,265 @@
+package com.altruist.ledger;
+
+import com.altruist.cluster.ShardOwnership;
+import com.altruist.completion.CompletedTradeFeed;
+import com.altruist.completion.CompletedTradeListener;
+import com.altruist.exceptions.InvalidTradeException;
+import com.altruist.marketdata.Prices;
+import com.altruist.marketdata.SymbolTable;
+import com.altruist.model.Trade;
+import com.altruist.model.TradeAggregate;
+import com.altruist.model.TradeCompletion;
+import com.altruist.model.TradeSide;
+import com.altruist.model.TradeStatus;
+import com.altruist.repository.TradeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory ledger of every account, used to check buying power and holdings before a trade
+ * is accepted without querying the database.
+ * <p>
+ * Submitted trades reserve cash (buys) or shares (sells); cancelled, expired and failed trades
+ * release the reservation. Trades are completed by other processes: the ones completed before
+ * the load are settled by it, the later ones when the {@link CompletedTradeFeed} delivers them.
+ * Ledgers are guarded by striped locks, so concurrent submits of the same account are
+ * serialized while other accounts proceed.
+ */
+@Slf4j
+public class AccountLedgerService implements CompletedTradeListener {
+
+    private final ConcurrentHashMap<UUID, AccountLedger> ledgers = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final SymbolTable symbolTable;
+    private final TradeRepository tradeRepository;
+    private final long initialCash;
+    private final ShardOwnership shardOwnership;
+
+    public AccountLedgerService(SymbolTable symbolTable, TradeRepository tradeRepository,
+                                long initialCash, int stripes) {
+        this(symbolTable, tradeRepository, initialCash, stripes, ShardOwnership.ALL);
+    }
+
+    public AccountLedgerService(SymbolTable symbolTable, TradeRepository tradeRepository,
+                                long initialCash, int stripes, ShardOwnership shardOwnership) {
+        this.symbolTable = symbolTable;
+        this.tradeRepository = tradeRepository;
+        this.initialCash = initialCash;
+        this.shardOwnership = shardOwnership;
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, stripes - 1)) << 1];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Rebuilds the ledger of every account owned by this node from the submitted and completed
+     * trades. Trades completed at or after completedBefore are still reserved, they are settled
+     * when they are delivered.
+     */
+    public void load(LocalDateTime completedBefore) {
+        ledgers.clear();
+        long[] rows = new long[1];
+        tradeRepository.aggregateByAccount(completedBefore, (aggregate) -> {
+            if (!shardOwnership.owns(aggregate.getAccountUuid())) {
+                return;
+            }
+            apply(aggregate);
+            rows[0]++;
+        });
+        log.info("Loaded the ledger of {} accounts from {} trade aggregates.", ledgers.size(), rows[0]);
+    }
+
+    /**
+     * Reserves what the trade needs, or fails when the account can't afford it.
+     */
+    public void reserve(Trade trade) {
+        int symbolId = symbolTable.idOf(trade.getSymbol());
+        long quantity = trade.getQuantity();
+        long notional = notional(trade);
+        ReentrantLock lock = lockFor(trade.getAccountUuid());
+        lock.lock();
+        try {
+            AccountLedger ledger = ledgerOf(trade.getAccountUuid());
+            if (trade.getSide() == TradeSide.BUY) {
+                if (notional > ledger.buyingPower()) {
+                    throw new InvalidTradeException(String.format(
+                        "Insufficient buying power %s for a trade of %s",
+                        Prices.fromTicks(ledger.buyingPower()), Prices.fromTicks(notional)));
+                }
+                ledger.reserveCash(notional);
+            } else {
+                if (symbolId == SymbolTable.UNKNOWN || quantity > ledger.availableQuantity(symbolId)) {
+                    throw new InvalidTradeException(String.format(
+                        "Insufficient holdings of [%s] to sell %d shares", trade.getSymbol(), quantity));
+                }
+                ledger.reserveQuantity(symbolId, quantity);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the reservation of a submitted trade to its amended quantity and price, or fails
+     * when the account can't afford the difference.
+     */
+    public void amend(Trade original, Trade amended) {
+        int symbolId = symbolTable.idOf(original.getSymbol());
+        long extraNotional = notional(amended) - notional(original);
+        long extraQuantity = (long) amended.getQuantity() - original.getQuantity();
+        ReentrantLock lock = lockFor(original.getAccountUuid());
+        lock.lock();
+        try {
+            AccountLedger ledger = ledgerOf(original.getAccountUuid());
+            if (original.getSide() == TradeSide.BUY) {
+                if (extraNotional > ledger.buyingPower()) {
+                    throw new InvalidTradeException(String.format(
+                        "Insufficient buying power %s to amend the trade by %s",
+                        Prices.fromTicks(ledger.buyingPower()), Prices.fromTicks(extraNotional)));
+                }
+                ledger.reserveCash(extraNotional);
+            } else if (symbolId != SymbolTable.UNKNOWN) {
+                if (extraQuantity > ledger.availableQuantity(symbolId)) {
+                    throw new InvalidTradeException(String.format(
+                        "Insufficient holdings of [%s] to sell %d more shares", original.getSymbol(), extraQuantity));
+                }
+                ledger.reserveQuantity(symbolId, extraQuantity);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back what a submitted trade reserved, for cancelled and failed trades.
+     */
+    public void release(Trade trade) {
+        update(trade, (ledger, symbolId, quantity, notional) -> {
+            if (trade.getSide() == TradeSide.BUY) {
+                ledger.reserveCash(-notional);
+            } else if (symbolId != SymbolTable.UNKNOWN) {
+                ledger.reserveQuantity(symbolId, -quantity);
+            }
+        });
+    }
+
+    /**
+     * Releases the reservation of a submitted trade if the surrounding transaction rolls back.
+     */
+    public void releaseOnRollback(Trade trade) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(trade);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Turns the reservations of the completed trades of the accounts owned by this node into
+     * cash and holdings.
+     */
+    @Override
+    public void completed(List<TradeCompletion> completions) {
+        for (TradeCompletion completion : completions) {
+            Trade trade = completion.getTrade();
+            if (shardOwnership.owns(trade.getAccountUuid())) {
+                settle(trade);
+            }
+        }
+    }
+
+    private void settle(Trade trade) {
+        update(trade, (ledger, symbolId, quantity, notional) -> {
+            if (trade.getSide() == TradeSide.BUY) {
+                ledger.reserveCash(-notional);
+                ledger.settleBuy(symbolId, quantity, notional);
+            } else {
+                if (symbolId != SymbolTable.UNKNOWN) {
+                    ledger.reserveQuantity(symbolId, -quantity);
+                }
+                ledger.settleSell(symbolId, quantity, notional);
+            }
+        });
+    }
+
+    public long buyingPower(UUID accountUuid) {
+        return read(accountUuid, AccountLedger::buyingPower);
+    }
+
+    public long availableQuantity(UUID accountUuid, String symbol) {
+        int symbolId = symbolTable.idOf(symbol);
+        return symbolId == SymbolTable.UNKNOWN ? 0 : read(accountUuid, (ledger) -> ledger.availableQuantity(symbolId));
+    }
+
+    private void apply(TradeAggregate aggregate) {
+        int symbolId = symbolTable.idOf(aggregate.getSymbol());
+        long notional = Prices.toTicks(aggregate.getNotional());
+        AccountLedger ledger = ledgerOf(aggregate.getAccountUuid());
+        boolean buy = aggregate.getSide() == TradeSide.BUY;
+        if (aggregate.getStatus() == TradeStatus.SUBMITTED) {
+            if (buy) {
+                ledger.reserveCash(notional);
+            } else if (symbolId != SymbolTable.UNKNOWN) {
+                ledger.reserveQuantity(symbolId, aggregate.getQuantity());
+            }
+        } else if (aggregate.getStatus() == TradeStatus.COMPLETED) {
+            if (buy) {
+                ledger.settleBuy(symbolId, aggregate.getQuantity(), notional);
+            } else {
+                ledger.settleSell(symbolId, aggregate.getQuantity(), notional);
+            }
+        }
+    }
+
+    private void update(Trade trade, LedgerUpdate update) {
+        int symbolId = symbolTable.idOf(trade.getSymbol());
+        long notional = notional(trade);
+        ReentrantLock lock = lockFor(trade.getAccountUuid());
+        lock.lock();
+        try {
+            update.apply(ledgerOf(trade.getAccountUuid()), symbolId, trade.getQuantity(), notional);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long read(UUID accountUuid, ToLongFunction<AccountLedger> reader) {
+        ReentrantLock lock = lockFor(accountUuid);
+        lock.lock();
+        try {
+            return reader.applyAsLong(ledgerOf(accountUuid));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private AccountLedger ledgerOf(UUID accountUuid) {
+        return ledgers.computeIfAbsent(accountUuid, (key) -> new AccountLedger(initialCash));
+    }
+
+    private ReentrantLock lockFor(UUID accountUuid) {
+        int hash = accountUuid.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static long notional(Trade trade) {
+        return Prices.toTicks(trade.getPrice()) * trade.getQuantity();
+    }
+
+    private interface LedgerUpdate {
+        void apply(AccountLedger ledger, int symbolId, long quantity, long notional);
+    }
+}
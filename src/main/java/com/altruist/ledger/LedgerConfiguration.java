@@ -0,0 +1,35 @@
+package com.altruist.ledger;
+
+import com.altruist.cluster.ShardOwnership;
+import com.altruist.completion.CompletedTradeFeed;
+import com.altruist.marketdata.Prices;
+import com.altruist.marketdata.SymbolTable;
+import com.altruist.repository.TradeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.math.BigDecimal;
+
+@Configuration
+public class LedgerConfiguration {
+
+    /**
+     * Loaded while the context starts, before the web server accepts trades, also with lazy initialization.
+     * The trades completed from the start of the feed on are settled as it delivers them.
+     */
+    @Lazy(false)
+    @Bean
+    public AccountLedgerService accountLedgerService(SymbolTable symbolTable,
+                                                     TradeRepository tradeRepository,
+                                                     ShardOwnership shardOwnership,
+                                                     CompletedTradeFeed completedTradeFeed,
+                                                     @Value("${ledger.initial-cash:1000000.00}") BigDecimal initialCash,
+                                                     @Value("${ledger.lock-stripes:1024}") int stripes) {
+        AccountLedgerService service = new AccountLedgerService(symbolTable, tradeRepository,
+            Prices.toTicks(initialCash), stripes, shardOwnership);
+        service.load(completedTradeFeed.getSince());
+        return service;
+    }
+}
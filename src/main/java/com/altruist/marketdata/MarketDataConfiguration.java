@@ -0,0 +1,94 @@
+package com.altruist.marketdata;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.Resource;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+
+@Configuration
+@Slf4j
+public class MarketDataConfiguration {
+
+    @Value("${market-data.capacity:65536}")
+    int capacity;
+
+    @Value("${market-data.reference-data:classpath:marketdata/symbols.csv}")
+    Resource referenceData;
+
+    @Bean
+    public SymbolTable symbolTable() {
+        return new SymbolTable(capacity);
+    }
+
+    @Bean
+    public PriceCache priceCache() throws IOException {
+        PriceCache priceCache = new PriceCache(capacity);
+        loadReferenceData(symbolTable(), priceCache);
+        return priceCache;
+    }
+
+    @Bean
+    public MarketDataService marketDataService(
+        @Value("${market-data.price-band-basis-points:1000}") long priceBandBasisPoints) throws IOException {
+        return new MarketDataService(symbolTable(), priceCache(), priceBandBasisPoints);
+    }
+
+    @Lazy(false)
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public MarketDataFeed marketDataFeed(@Value("${market-data.feed:none}") String feed,
+                                         @Value("${market-data.replay-file:}") String replayFile,
+                                         @Value("${market-data.updates-per-second:1000}") long updatesPerSecond)
+        throws IOException {
+        switch (feed) {
+            case "replay":
+                return new ReplayFileMarketDataFeed(Paths.get(replayFile), symbolTable(), priceCache(), updatesPerSecond);
+            case "simulated":
+                return new SimulatedMarketDataFeed(symbolTable(), priceCache(), updatesPerSecond);
+            default:
+                return new MarketDataFeed() {
+                    @Override
+                    public void start() {
+                        log.info("No market data feed configured, prices stay at their reference value.");
+                    }
+
+                    @Override
+                    public void stop() {
+                    }
+                };
+        }
+    }
+
+    /**
+     * Reads {@code symbol,reference price} lines, the reference price seeds the last price.
+     */
+    private void loadReferenceData(SymbolTable symbolTable, PriceCache priceCache) throws IOException {
+        List<String> symbols = new ArrayList<>();
+        List<BigDecimal> prices = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(referenceData.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split(",");
+                symbols.add(columns[0].trim());
+                prices.add(new BigDecimal(columns[1].trim()));
+            }
+        }
+        int[] ids = symbolTable.registerAll(symbols);
+        for (int i = 0; i < ids.length; i++) {
+            priceCache.update(ids[i], Prices.toTicks(prices.get(i)));
+        }
+        log.info("Loaded {} symbols from {}.", ids.length, referenceData);
+    }
+}
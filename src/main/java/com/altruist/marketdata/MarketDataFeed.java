@@ -0,0 +1,11 @@
+package com.altruist.marketdata;
+
+/**
+ * Source of last prices pushed into the {@link PriceCache}.
+ */
+public interface MarketDataFeed {
+
+    void start();
+
+    void stop();
+}
@@ -0,0 +1,48 @@
+package com.altruist.marketdata;
+
+import com.altruist.exceptions.InvalidTradeException;
+import com.altruist.model.Trade;
+
+/**
+ * Pre-trade checks against reference data: the symbol must be listed and the price must
+ * be within the configured band around the last price. Both checks are O(1) memory reads.
+ */
+public class MarketDataService {
+
+    private static final long BASIS_POINTS = 10_000;
+
+    private final SymbolTable symbolTable;
+    private final PriceCache priceCache;
+    private final long priceBandBasisPoints;
+
+    public MarketDataService(SymbolTable symbolTable, PriceCache priceCache, long priceBandBasisPoints) {
+        this.symbolTable = symbolTable;
+        this.priceCache = priceCache;
+        this.priceBandBasisPoints = priceBandBasisPoints;
+    }
+
+    public void validate(Trade trade) {
+        int symbolId = symbolTable.idOf(trade.getSymbol());
+        if (symbolId == SymbolTable.UNKNOWN) {
+            throw new InvalidTradeException(String.format("Unknown symbol [%s]", trade.getSymbol()));
+        }
+        long last = priceCache.lastPrice(symbolId);
+        if (last == PriceCache.NO_PRICE) {
+            throw new InvalidTradeException(String.format("No price available for symbol [%s]", trade.getSymbol()));
+        }
+        long price = Prices.toTicks(trade.getPrice());
+        if (Math.abs(price - last) * BASIS_POINTS > last * priceBandBasisPoints) {
+            throw new InvalidTradeException(String.format(
+                "Price %s is out of the allowed band of %s%% around the last price %s of [%s]",
+                trade.getPrice(), Prices.fromTicks(priceBandBasisPoints), Prices.fromTicks(last), trade.getSymbol()));
+        }
+    }
+
+    public int symbolId(String symbol) {
+        return symbolTable.idOf(symbol);
+    }
+
+    public long lastPrice(int symbolId) {
+        return priceCache.lastPrice(symbolId);
+    }
+}
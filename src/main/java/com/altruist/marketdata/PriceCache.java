@@ -0,0 +1,26 @@
+package com.altruist.marketdata;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Last traded price per symbol id, in ticks. Each slot is written by the feed with a release
+ * store and read with an acquire load, so neither side ever locks or allocates.
+ */
+public class PriceCache {
+
+    public static final long NO_PRICE = 0;
+
+    private final AtomicLongArray prices;
+
+    public PriceCache(int capacity) {
+        this.prices = new AtomicLongArray(capacity);
+    }
+
+    public void update(int symbolId, long priceTicks) {
+        prices.setRelease(symbolId, priceTicks);
+    }
+
+    public long lastPrice(int symbolId) {
+        return prices.getAcquire(symbolId);
+    }
+}
@@ -0,0 +1,23 @@
+package com.altruist.marketdata;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Converts prices between {@link BigDecimal} and ticks of one cent, the scale of trade.price.
+ */
+public final class Prices {
+
+    public static final int SCALE = 2;
+
+    private Prices() {
+    }
+
+    public static long toTicks(BigDecimal price) {
+        return price.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromTicks(long ticks) {
+        return BigDecimal.valueOf(ticks, SCALE);
+    }
+}
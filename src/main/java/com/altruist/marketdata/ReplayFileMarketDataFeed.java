@@ -0,0 +1,94 @@
+package com.altruist.marketdata;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a file of {@code symbol,price} lines, in a loop, at a fixed rate.
+ * Unknown symbols and malformed lines are skipped.
+ */
+@Slf4j
+public class ReplayFileMarketDataFeed implements MarketDataFeed {
+
+    private final Path file;
+    private final SymbolTable symbolTable;
+    private final PriceCache priceCache;
+    private final long updatesPerSecond;
+    private volatile boolean running;
+    private Thread thread;
+
+    public ReplayFileMarketDataFeed(Path file, SymbolTable symbolTable, PriceCache priceCache,
+                                    long updatesPerSecond) {
+        this.file = file;
+        this.symbolTable = symbolTable;
+        this.priceCache = priceCache;
+        this.updatesPerSecond = updatesPerSecond;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "replay-market-data");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Replaying market data from {} at {} updates per second.", file, updatesPerSecond);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void run() {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, updatesPerSecond);
+        long next = System.nanoTime();
+        while (running) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+                String line;
+                while (running && (line = reader.readLine()) != null) {
+                    if (apply(line)) {
+                        next += intervalNanos;
+                        long wait = next - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                log.warn("Error replaying market data from {}, stopping the feed.", file, ex);
+                running = false;
+            }
+        }
+    }
+
+    private boolean apply(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+            return false;
+        }
+        int symbolId = symbolTable.idOf(line.substring(0, comma).trim());
+        if (symbolId == SymbolTable.UNKNOWN) {
+            return false;
+        }
+        try {
+            priceCache.update(symbolId, Prices.toTicks(new BigDecimal(line.substring(comma + 1).trim())));
+            return true;
+        } catch (NumberFormatException | ArithmeticException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.altruist.marketdata;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Random walk of the last price of every registered symbol, pulled back towards the price the
+ * symbol had when the feed started so it stays within the price band, published at a fixed
+ * rate from a single thread. Every update moves the price by at least one tick. Meant for
+ * local runs.
+ */
+@Slf4j
+public class SimulatedMarketDataFeed implements MarketDataFeed {
+
+    private static final int MAXIMUM_STEP_BASIS_POINTS = 5;
+    /**
+     * Share of the distance to the reference price taken back on every update.
+     */
+    private static final double REVERSION = 0.01;
+
+    private final SymbolTable symbolTable;
+    private final PriceCache priceCache;
+    private final long updatesPerSecond;
+    private volatile boolean running;
+    private Thread thread;
+    private long[] references = new long[0];
+
+    public SimulatedMarketDataFeed(SymbolTable symbolTable, PriceCache priceCache, long updatesPerSecond) {
+        this.symbolTable = symbolTable;
+        this.priceCache = priceCache;
+        this.updatesPerSecond = updatesPerSecond;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        references = new long[symbolTable.size()];
+        for (int symbolId = 0; symbolId < references.length; symbolId++) {
+            references[symbolId] = priceCache.lastPrice(symbolId);
+        }
+        thread = new Thread(this::run, "simulated-market-data");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Simulated market data feed started at {} updates per second.", updatesPerSecond);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void run() {
+        long[] references = this.references;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, updatesPerSecond);
+        long next = System.nanoTime();
+        int symbolId = 0;
+        while (running) {
+            int symbols = symbolTable.size();
+            if (symbols > 0) {
+                symbolId = (symbolId + 1) % symbols;
+                long last = priceCache.lastPrice(symbolId);
+                if (last != PriceCache.NO_PRICE) {
+                    long reference = symbolId < references.length && references[symbolId] != PriceCache.NO_PRICE
+                        ? references[symbolId]
+                        : last;
+                    priceCache.update(symbolId, nextPrice(last, reference, random.nextDouble(-1, 1)));
+                }
+            }
+            next += intervalNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    /**
+     * The price after one update, for a noise between -1 and 1. The step is rounded away from
+     * zero, so prices too low for the noise to reach a tick still move.
+     */
+    static long nextPrice(long last, long reference, double noise) {
+        double step = last * noise * MAXIMUM_STEP_BASIS_POINTS / 10_000 + (reference - last) * REVERSION;
+        long ticks = (long) (step < 0 ? Math.floor(step) : Math.ceil(step));
+        if (ticks == 0) {
+            ticks = noise < 0 ? -1 : 1;
+        }
+        return Math.max(1, last + ticks);
+    }
+}
@@ -0,0 +1,151 @@
+package com.altruist.marketdata;
+
+import java.util.*;
+
+/**
+ * Interns symbols into dense int ids. A symbol is at most 8 ASCII characters, packed into
+ * a long so lookups hash and compare primitives only.
+ * <p>
+ * Readers go through an immutable open addressing snapshot without locking; registering
+ * symbols, which only happens when reference data is loaded, publishes a new snapshot.
+ */
+public class SymbolTable {
+
+    public static final int UNKNOWN = -1;
+    public static final int MAXIMUM_SYMBOL_LENGTH = 8;
+
+    private final int capacity;
+    private volatile Snapshot snapshot;
+
+    public SymbolTable(int capacity) {
+        this.capacity = capacity;
+        this.snapshot = new Snapshot(tableSize(capacity), new String[0]);
+    }
+
+    /**
+     * @return the symbol packed in a long, or 0 when it is blank, too long or not ASCII
+     */
+    public static long encode(CharSequence symbol) {
+        int length = symbol.length();
+        if (length == 0 || length > MAXIMUM_SYMBOL_LENGTH) {
+            return 0;
+        }
+        long code = 0;
+        for (int i = 0; i < length; i++) {
+            char c = symbol.charAt(i);
+            if (c <= ' ' || c > '~') {
+                return 0;
+            }
+            code = (code << 8) | c;
+        }
+        return code;
+    }
+
+    public int idOf(String symbol) {
+        return symbol == null ? UNKNOWN : idOf(encode(symbol));
+    }
+
+    public int idOf(long code) {
+        if (code == 0) {
+            return UNKNOWN;
+        }
+        Snapshot current = snapshot;
+        int mask = current.codes.length - 1;
+        for (int slot = hash(code) & mask; ; slot = (slot + 1) & mask) {
+            long candidate = current.codes[slot];
+            if (candidate == code) {
+                return current.ids[slot];
+            }
+            if (candidate == 0) {
+                return UNKNOWN;
+            }
+        }
+    }
+
+    public String symbolOf(int id) {
+        String[] symbols = snapshot.symbols;
+        return id >= 0 && id < symbols.length ? symbols[id] : null;
+    }
+
+    public int size() {
+        return snapshot.symbols.length;
+    }
+
+    public int register(String symbol) {
+        return registerAll(Collections.singletonList(symbol))[0];
+    }
+
+    /**
+     * Registers the symbols publishing a single new snapshot.
+     *
+     * @return the id of each symbol, in the same order
+     */
+    public synchronized int[] registerAll(List<String> newSymbols) {
+        Snapshot current = snapshot;
+        int[] result = new int[newSymbols.size()];
+        List<String> symbols = new ArrayList<>(Arrays.asList(current.symbols));
+        Map<Long, Integer> added = new HashMap<>();
+        for (int i = 0; i < result.length; i++) {
+            String symbol = newSymbols.get(i);
+            long code = encode(symbol);
+            if (code == 0) {
+                throw new IllegalArgumentException(String.format("Invalid symbol [%s]", symbol));
+            }
+            int id = idOf(code);
+            if (id == UNKNOWN) {
+                id = added.computeIfAbsent(code, (key) -> {
+                    symbols.add(symbol.intern());
+                    return symbols.size() - 1;
+                });
+            }
+            result[i] = id;
+        }
+        if (symbols.size() > capacity) {
+            throw new IllegalStateException(
+                String.format("Symbol table is full, can't hold %d symbols", symbols.size()));
+        }
+        if (!added.isEmpty()) {
+            Snapshot next = new Snapshot(current, symbols.toArray(new String[0]));
+            added.forEach(next::insert);
+            snapshot = next;
+        }
+        return result;
+    }
+
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+    }
+
+    private static int hash(long code) {
+        long h = code * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static class Snapshot {
+        private final long[] codes;
+        private final int[] ids;
+        private final String[] symbols;
+
+        Snapshot(int tableSize, String[] symbols) {
+            this.codes = new long[tableSize];
+            this.ids = new int[tableSize];
+            this.symbols = symbols;
+        }
+
+        Snapshot(Snapshot previous, String[] symbols) {
+            this.codes = previous.codes.clone();
+            this.ids = previous.ids.clone();
+            this.symbols = symbols;
+        }
+
+        void insert(long code, int id) {
+            int mask = codes.length - 1;
+            int slot = hash(code) & mask;
+            while (codes[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            codes[slot] = code;
+            ids[slot] = id;
+        }
+    }
+}
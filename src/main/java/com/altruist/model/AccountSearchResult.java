@@ -0,0 +1,24 @@
+package com.altruist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.*;
+
+/**
+ * An account found by a search, with the state and city of its address when it has one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountSearchResult {
+
+    private UUID accountUuid;
+    private String username;
+    private String email;
+    private State state;
+    private String city;
+}
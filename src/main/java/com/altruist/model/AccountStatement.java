@@ -0,0 +1,31 @@
+package com.altruist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * End of day statement of an account: the trades submitted or changed during the day, the
+ * positions and cash left by the trades completed up to its end, and the notional bought and
+ * sold by the trades of the day that are completed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountStatement {
+
+    private UUID accountUuid;
+    private String username;
+    private LocalDate date;
+    private List<Trade> trades;
+    private List<Position> positions;
+    private BigDecimal cash;
+    private BigDecimal bought;
+    private BigDecimal sold;
+}
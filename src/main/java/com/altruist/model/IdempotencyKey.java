@@ -0,0 +1,22 @@
+package com.altruist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.*;
+
+/**
+ * A claimed idempotency key: the fingerprint of the request it was first used with and the trade
+ * it created, none while that request is still running.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyKey {
+
+    private UUID tradeUuid;
+    private String fingerprint;
+}
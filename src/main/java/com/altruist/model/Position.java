@@ -0,0 +1,16 @@
+package com.altruist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Position {
+
+    private String symbol;
+    private long quantity;
+}
@@ -0,0 +1,26 @@
+package com.altruist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Volume weighted average price and traded volume of a symbol since a point in time, in UTC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SymbolVwap {
+
+    private String symbol;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private long volume;
+    private BigDecimal notional;
+    private BigDecimal vwap;
+}
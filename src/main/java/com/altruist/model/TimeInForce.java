@@ -0,0 +1,13 @@
+package com.altruist.model;
+
+/**
+ * How long a submitted trade rests before it expires, trades without one are good till cancelled.
+ * <ul>
+ *     <li>DAY: cancelled at the end of the trading day</li>
+ *     <li>GTD: cancelled at the expiry informed with the trade</li>
+ *     <li>IOC: failed if it is still submitted right after it was accepted</li>
+ * </ul>
+ */
+public enum TimeInForce {
+    DAY, GTD, IOC;
+}
@@ -14,6 +14,7 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.*;
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.*;
 
 @Data
@@ -39,4 +40,7 @@ public class Trade implements Serializable {
     private BigDecimal price;
     private TradeStatus status;
     private BigDecimal totalAmount;
+    private Integer version;
+    private TimeInForce timeInForce;
+    private OffsetDateTime expiresAt;
 }
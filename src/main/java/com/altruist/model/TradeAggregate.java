@@ -0,0 +1,23 @@
+package com.altruist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TradeAggregate {
+
+    private UUID accountUuid;
+    private String symbol;
+    private TradeSide side;
+    private TradeStatus status;
+    private long quantity;
+    private BigDecimal notional;
+}
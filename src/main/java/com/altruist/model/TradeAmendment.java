@@ -0,0 +1,37 @@
+package com.altruist.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+
+/**
+ * New quantity and/or price of a submitted trade, based on the version of the trade the
+ * client last read.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TradeAmendment {
+
+    @NotNull
+    private Integer version;
+    @Min(1)
+    private Integer quantity;
+    @DecimalMin("0.01")
+    private BigDecimal price;
+
+    @JsonIgnore
+    @AssertTrue(message = "quantity or price must be informed")
+    public boolean isChangingTrade() {
+        return quantity != null || price != null;
+    }
+}
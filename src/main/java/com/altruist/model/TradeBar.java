@@ -0,0 +1,33 @@
+package com.altruist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Open, high, low and close prices and the traded volume of the trades of a symbol completed
+ * within a bar, times in UTC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TradeBar {
+
+    private String symbol;
+    private String resolution;
+    private LocalDateTime start;
+    private LocalDateTime firstTradeAt;
+    private LocalDateTime lastTradeAt;
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private long volume;
+    private BigDecimal notional;
+    private BigDecimal vwap;
+}
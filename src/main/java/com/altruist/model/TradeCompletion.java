@@ -0,0 +1,21 @@
+package com.altruist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A completed trade with the time it was completed at, the updated_date of its row. Times in UTC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TradeCompletion {
+
+    private Trade trade;
+    private LocalDateTime completedAt;
+}
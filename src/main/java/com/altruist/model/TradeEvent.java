@@ -0,0 +1,31 @@
+package com.altruist.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Change of a trade recorded in the outbox, the payload is the trade row as JSON.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TradeEvent {
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+
+    private long eventId;
+    private UUID accountUuid;
+    private UUID tradeUuid;
+    private String eventType;
+    @JsonRawValue
+    private String payload;
+    private LocalDateTime createdDate;
+}
@@ -0,0 +1,24 @@
+package com.altruist.model;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.*;
+
+/**
+ * A trade found by a lookup, with its id and account as the trades looked up can belong to any account.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TradeLookupResult {
+
+    private UUID id;
+    private UUID accountUuid;
+    @JsonUnwrapped
+    private Trade trade;
+}
@@ -0,0 +1,29 @@
+package com.altruist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * A status a trade was moved to, with the one it was in, no from status when it was
+ * submitted. Times in UTC.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TradeStatusChange {
+
+    private long historyId;
+    private UUID tradeUuid;
+    private UUID accountUuid;
+    private TradeStatus fromStatus;
+    private TradeStatus toStatus;
+    private int version;
+    private String changedBy;
+    private LocalDateTime changedDate;
+}
@@ -0,0 +1,41 @@
+package com.altruist.outbox;
+
+import com.altruist.model.TradeEvent;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bounded queue for consumers living in the same JVM. When consumers fall behind the relay
+ * stops, and the events wait in the outbox table rather than in memory.
+ */
+public class InProcessQueueSink implements OutboxSink {
+
+    private final BlockingQueue<TradeEvent> queue;
+    private final long offerTimeoutMillis;
+
+    public InProcessQueueSink(int capacity, long offerTimeoutMillis) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+
+    @Override
+    public void publish(List<TradeEvent> events) throws InterruptedException, TimeoutException {
+        for (TradeEvent event : events) {
+            if (!queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("Trade event queue is full");
+            }
+        }
+    }
+
+    public TradeEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    public int drainTo(Collection<TradeEvent> events, int maximum) {
+        return queue.drainTo(events, maximum);
+    }
+}
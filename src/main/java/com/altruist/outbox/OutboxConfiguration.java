@@ -0,0 +1,49 @@
+package com.altruist.outbox;
+
+import com.altruist.repository.OutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Paths;
+import java.util.stream.Collectors;
+
+/**
+ * Every {@link OutboxSink} bean receives the relayed events, the queue and file sinks are
+ * the built in ones.
+ */
+@Configuration
+public class OutboxConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "outbox.queue-sink.enabled", havingValue = "true")
+    public InProcessQueueSink inProcessQueueSink(@Value("${outbox.queue-sink.capacity:10000}") int capacity,
+                                                 @Value("${outbox.queue-sink.offer-timeout-millis:100}") long timeout) {
+        return new InProcessQueueSink(capacity, timeout);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "outbox.file-sink.enabled", havingValue = "true")
+    public FileOutboxSink fileOutboxSink(@Value("${outbox.file-sink.path:build/outbox/trade-events.jsonl}") String path,
+                                         ObjectMapper objectMapper) {
+        return new FileOutboxSink(Paths.get(path), objectMapper);
+    }
+
+    @Lazy(false)
+    @Bean
+    @ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+    public OutboxRelay outboxRelay(OutboxRepository outboxRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   ObjectProvider<OutboxSink> sinks,
+                                   @Value("${outbox.relay.batch-size:500}") int batchSize,
+                                   @Value("${outbox.retention.hours:72}") int retentionHours) {
+        return new OutboxRelay(outboxRepository, new TransactionTemplate(transactionManager),
+            sinks.orderedStream().collect(Collectors.toList()), batchSize, retentionHours);
+    }
+}
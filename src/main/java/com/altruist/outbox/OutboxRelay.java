@@ -0,0 +1,93 @@
+package com.altruist.outbox;
+
+import com.altruist.model.TradeEvent;
+import com.altruist.repository.OutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the trade events from the outbox table to the sinks, in batches and in event order.
+ * A batch is marked published in the same transaction that read it, only after every sink
+ * accepted it, so delivery is at least once.
+ */
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<OutboxSink> sinks;
+    private final int batchSize;
+    private final int retentionHours;
+
+    public OutboxRelay(OutboxRepository repository, TransactionTemplate transactionTemplate,
+                       List<OutboxSink> sinks, int batchSize, int retentionHours) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.sinks = sinks;
+        this.batchSize = batchSize;
+        this.retentionHours = retentionHours;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-millis:200}")
+    public void run() {
+        relay();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.retention.interval-millis:3600000}")
+    public void purge() {
+        int deleted = repository.deletePublishedBefore(retentionHours);
+        log.info("Deleted {} trade events published more than {} hours ago.", deleted, retentionHours);
+    }
+
+    /**
+     * Relays batches until the outbox is drained or a sink fails.
+     *
+     * @return the number of events relayed
+     */
+    public int relay() {
+        int relayed = 0;
+        while (true) {
+            Integer batch;
+            try {
+                batch = transactionTemplate.execute((status) -> relayBatch());
+            } catch (RuntimeException ex) {
+                log.warn("Relay of trade events failed, the batch will be retried.", ex);
+                return relayed;
+            }
+            if (batch == null || batch == 0) {
+                return relayed;
+            }
+            relayed += batch;
+            if (batch < batchSize) {
+                return relayed;
+            }
+        }
+    }
+
+    private int relayBatch() {
+        if (!repository.tryLockRelay()) {
+            log.debug("Another relay is publishing trade events.");
+            return 0;
+        }
+        List<TradeEvent> events = repository.findUnpublished(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        for (OutboxSink sink : sinks) {
+            try {
+                sink.publish(events);
+            } catch (Exception ex) {
+                throw new IllegalStateException(
+                    String.format("Sink %s failed to publish %d trade events", sink.getClass().getSimpleName(),
+                        events.size()), ex);
+            }
+        }
+        repository.markPublished(events.stream().map(TradeEvent::getEventId).collect(Collectors.toList()));
+        log.debug("Relayed {} trade events.", events.size());
+        return events.size();
+    }
+}
@@ -0,0 +1,14 @@
+package com.altruist.outbox;
+
+import com.altruist.model.TradeEvent;
+
+import java.util.*;
+
+/**
+ * Destination of the trade events relayed from the outbox. A batch is retried, with the
+ * events it already delivered, when any sink throws, so sinks must tolerate duplicates.
+ */
+public interface OutboxSink {
+
+    void publish(List<TradeEvent> events) throws Exception;
+}
@@ -0,0 +1,133 @@
+package com.altruist.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Starts a flight recording on demand ({@code POST /actuator/flightrecorder}), downloads a
+ * dump of what it recorded so far while it keeps running ({@code GET}) and stops it
+ * ({@code DELETE}). Besides the JVM events of the settings, GC pauses and lock contention
+ * among them, the recording has the trade and repository events enabled so they can be
+ * correlated.
+ * <p>
+ * Dumps hold the system properties and environment of the JVM, so the endpoint is only
+ * served on the management port, bound to loopback by default.
+ */
+@WebEndpoint(id = "flightrecorder")
+@Slf4j
+public class FlightRecorderEndpoint {
+
+    static final String RECORDING_NAME = "stock-trading";
+
+    private final String defaultSettings;
+    private final Duration defaultMaxAge;
+    private final boolean startOnBoot;
+    private Recording recording;
+
+    public FlightRecorderEndpoint(String defaultSettings, Duration defaultMaxAge, boolean startOnBoot) {
+        this.defaultSettings = defaultSettings;
+        this.defaultMaxAge = defaultMaxAge;
+        this.startOnBoot = startOnBoot;
+    }
+
+    public void init() throws IOException, ParseException {
+        if (startOnBoot) {
+            start(null, null);
+        }
+    }
+
+    /**
+     * @param settings    name of a JDK settings file, {@code default} or {@code profile}
+     * @param maxAgeSeconds how far back the recording keeps events
+     */
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable String settings, @Nullable Long maxAgeSeconds)
+        throws IOException, ParseException {
+        if (recording == null || recording.getState() == RecordingState.CLOSED) {
+            Recording started = new Recording(Configuration.getConfiguration(settings == null ? defaultSettings : settings));
+            started.setName(RECORDING_NAME);
+            started.setToDisk(true);
+            started.setMaxAge(maxAgeSeconds == null ? defaultMaxAge : Duration.ofSeconds(maxAgeSeconds));
+            started.enable(TradeOperationEvent.class);
+            started.enable(RepositoryCallEvent.class);
+            started.start();
+            recording = started;
+            log.info("Started flight recording {} with the {} settings.", started.getId(),
+                settings == null ? defaultSettings : settings);
+        }
+        return status();
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> dump() throws IOException {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path file = Files.createTempFile("flight-recording-", ".jfr");
+        recording.dump(file);
+        log.info("Dumped flight recording {} into {}.", recording.getId(), file);
+        return new WebEndpointResponse<>(new TemporaryFileResource(file));
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() {
+        if (recording != null && recording.getState() != RecordingState.CLOSED) {
+            recording.close();
+            log.info("Stopped flight recording {}.", recording.getId());
+        }
+        return status();
+    }
+
+    private Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("name", RECORDING_NAME);
+        status.put("state", recording == null ? RecordingState.CLOSED : recording.getState());
+        if (recording != null) {
+            status.put("id", recording.getId());
+            status.put("startTime", recording.getStartTime());
+            status.put("maxAgeSeconds", recording.getMaxAge() == null ? null : recording.getMaxAge().getSeconds());
+        }
+        return status;
+    }
+
+    /**
+     * Deletes the dump once it has been sent.
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        private TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+    }
+}
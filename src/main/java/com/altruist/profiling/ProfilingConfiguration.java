@@ -0,0 +1,28 @@
+package com.altruist.profiling;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.time.Duration;
+
+@Configuration
+public class ProfilingConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "flight-recorder.repository-events", havingValue = "true", matchIfMissing = true)
+    public static RepositoryCallEventPostProcessor repositoryCallEventPostProcessor() {
+        return new RepositoryCallEventPostProcessor();
+    }
+
+    @Lazy(false)
+    @Bean(initMethod = "init", destroyMethod = "stop")
+    public FlightRecorderEndpoint flightRecorderEndpoint(
+        @Value("${flight-recorder.settings:default}") String settings,
+        @Value("${flight-recorder.max-age-minutes:60}") long maxAgeMinutes,
+        @Value("${flight-recorder.start-on-boot:true}") boolean startOnBoot) {
+        return new FlightRecorderEndpoint(settings, Duration.ofMinutes(maxAgeMinutes), startOnBoot);
+    }
+}
@@ -0,0 +1,37 @@
+package com.altruist.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event around a call to a repository, see {@link RepositoryCallInterceptor}.
+ */
+@Name("com.altruist.RepositoryCall")
+@Label("Repository Call")
+@Category({"Stock Trading", "Database"})
+@Description("Call to a repository, with the rows it returned, changed or streamed")
+@StackTrace(false)
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Account")
+    String account;
+
+    @Label("Symbol")
+    String symbol;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,21 @@
+package com.altruist.profiling;
+
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Advises every {@code @Repository} bean with the {@link RepositoryCallInterceptor}, in the
+ * same proxy as the persistence exception translation, so the event also times the
+ * translation of a failure.
+ */
+public class RepositoryCallEventPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    public RepositoryCallEventPostProcessor() {
+        this.advisor = new DefaultPointcutAdvisor(
+            new AnnotationMatchingPointcut(Repository.class, true), new RepositoryCallInterceptor());
+        this.beforeExistingAdvisors = true;
+        setProxyTargetClass(true);
+    }
+}
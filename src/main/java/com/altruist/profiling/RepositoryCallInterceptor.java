@@ -0,0 +1,101 @@
+package com.altruist.profiling;
+
+import com.altruist.model.Account;
+import com.altruist.model.Trade;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Records a {@link RepositoryCallEvent} for every repository call while a recording has it
+ * enabled. The account and symbol are read from the arguments: a trade, an account, or
+ * parameters named accountUuid and symbol. The rows are the size of the result, the update
+ * count, or the rows handed to a consumer argument for streaming queries.
+ */
+public class RepositoryCallInterceptor implements MethodInterceptor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled()) {
+            return invocation.proceed();
+        }
+        long[] streamed = countStreamedRows(invocation.getArguments());
+        event.begin();
+        try {
+            Object result = invocation.proceed();
+            event.rows = streamed == null ? rowsOf(result) : streamed[0];
+            event.succeeded = true;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                describe(event, invocation);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Wraps the consumer arguments to count what they receive, the arguments of a Spring
+     * method invocation can be replaced before it proceeds.
+     */
+    @SuppressWarnings("unchecked")
+    private static long[] countStreamedRows(Object[] arguments) {
+        long[] streamed = null;
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] instanceof Consumer) {
+                Consumer<Object> consumer = (Consumer<Object>) arguments[i];
+                long[] count = streamed == null ? new long[1] : streamed;
+                arguments[i] = (Consumer<Object>) (row) -> {
+                    count[0]++;
+                    consumer.accept(row);
+                };
+                streamed = count;
+            }
+        }
+        return streamed;
+    }
+
+    private static long rowsOf(Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        } else if (result instanceof Boolean) {
+            return (Boolean) result ? 1 : 0;
+        } else if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        return 1;
+    }
+
+    private static void describe(RepositoryCallEvent event, MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        event.repository = AopUtils.getTargetClass(invocation.getThis()).getSimpleName();
+        event.method = method.getName();
+        Parameter[] parameters = method.getParameters();
+        Object[] arguments = invocation.getArguments();
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            if (argument instanceof Trade) {
+                Trade trade = (Trade) argument;
+                event.account = Objects.toString(trade.getAccountUuid(), null);
+                event.symbol = trade.getSymbol();
+            } else if (argument instanceof Account) {
+                event.account = Objects.toString(((Account) argument).getUuid(), null);
+            } else if (argument instanceof UUID && "accountUuid".equals(parameters[i].getName())) {
+                event.account = argument.toString();
+            } else if (argument instanceof String && "symbol".equals(parameters[i].getName())) {
+                event.symbol = (String) argument;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.altruist.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.*;
+
+/**
+ * Flight recorder event around a trade service operation. The fields are only filled while a
+ * recording has the event enabled, otherwise the event costs a couple of branches.
+ */
+@Name("com.altruist.TradeOperation")
+@Label("Trade Operation")
+@Category({"Stock Trading", "Service"})
+@Description("Submit, cancel or account lookup done by the trade service")
+@StackTrace(false)
+public class TradeOperationEvent extends Event {
+
+    public static final String SUBMIT = "submit";
+    public static final String CANCEL = "cancel";
+    public static final String CANCEL_ALL = "cancelAll";
+    public static final String ACCOUNT_LOOKUP = "accountLookup";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Account")
+    String account;
+
+    @Label("Symbol")
+    String symbol;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    public static TradeOperationEvent start(String operation, UUID accountUuid, String symbol) {
+        TradeOperationEvent event = new TradeOperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.account = accountUuid == null ? null : accountUuid.toString();
+            event.symbol = symbol;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void succeeded(int rows) {
+        this.rows = rows;
+        this.succeeded = true;
+    }
+
+    /**
+     * Commits the event when the operation took longer than the threshold of the recording.
+     */
+    public void finish() {
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.altruist.repository;
 
 import com.altruist.model.Account;
+import com.altruist.model.AccountSearchResult;
+import com.altruist.model.State;
 
 import java.util.*;
 
@@ -12,4 +14,6 @@ public interface AccountRepository {
     Optional<Account> findById(UUID accountUuId);
 
     List<Account> listAll();
+
+    List<AccountSearchResult> search(String query, State state, String city, String after, int limit);
 }
@@ -0,0 +1,10 @@
+package com.altruist.repository;
+
+import java.util.*;
+
+public interface AccountSnapshotRepository {
+
+    Optional<String> findSnapshot(UUID accountUuid, int recentTrades);
+
+    String findSnapshots(Collection<UUID> accountUuids, int recentTrades);
+}
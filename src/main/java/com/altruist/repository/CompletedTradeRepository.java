@@ -0,0 +1,13 @@
+package com.altruist.repository;
+
+import com.altruist.model.TradeCompletion;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+public interface CompletedTradeRepository {
+
+    LocalDateTime currentTimestamp();
+
+    List<TradeCompletion> findCompleted(LocalDateTime from, UUID after, int limit);
+}
@@ -0,0 +1,12 @@
+package com.altruist.repository;
+
+import com.altruist.model.IdempotencyKey;
+
+import java.util.*;
+
+public interface IdempotencyKeyRepository {
+
+    boolean reserve(UUID accountUuid, String idempotencyKey, String fingerprint);
+    void assign(UUID accountUuid, String idempotencyKey, UUID tradeUuid);
+    Optional<IdempotencyKey> find(UUID accountUuid, String idempotencyKey);
+}
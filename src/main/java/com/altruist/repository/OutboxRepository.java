@@ -0,0 +1,13 @@
+package com.altruist.repository;
+
+import com.altruist.model.TradeEvent;
+
+import java.util.*;
+
+public interface OutboxRepository {
+
+    boolean tryLockRelay();
+    List<TradeEvent> findUnpublished(int batchSize);
+    void markPublished(List<Long> eventIds);
+    int deletePublishedBefore(int retentionHours);
+}
@@ -0,0 +1,20 @@
+package com.altruist.repository;
+
+import com.altruist.model.Account;
+import com.altruist.model.Trade;
+import com.altruist.model.TradeAggregate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+public interface StatementRepository {
+
+    List<UUID> findPartitionBounds(int partitions);
+
+    List<Account> findAccounts(UUID from, UUID to, UUID after, int limit);
+
+    void findTrades(Collection<UUID> accountUuids, LocalDateTime from, LocalDateTime to, Consumer<Trade> consumer);
+
+    void aggregateCompleted(Collection<UUID> accountUuids, LocalDateTime until, Consumer<TradeAggregate> consumer);
+}
@@ -0,0 +1,13 @@
+package com.altruist.repository;
+
+import com.altruist.model.TradeBar;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+public interface TradeAnalyticsRepository {
+
+    LocalDateTime currentTimestamp();
+
+    void aggregateCompleted(LocalDateTime from, LocalDateTime to, Consumer<TradeBar> consumer);
+}
@@ -1,16 +1,33 @@
 package com.altruist.repository;
 
 import com.altruist.model.Trade;
+import com.altruist.model.TradeAggregate;
+import com.altruist.model.TradeAmendment;
+import com.altruist.model.TradeSide;
+import com.altruist.model.TradeStatus;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
 public interface TradeRepository {
 
     Trade save(Trade trade);
-    void update(Trade trade);
+    List<Trade> saveAll(List<Trade> trades);
+    Optional<Trade> updateStatus(UUID tradeUuid, TradeStatus expected, TradeStatus status);
+    Optional<Trade> amend(UUID tradeUuid, UUID accountUuid, TradeAmendment amendment);
     Optional<Trade> findById(UUID uuid);
     List<Trade> findByAccount(UUID accountUuid);
+    List<Trade> findRecentByAccount(UUID accountUuid, int limit);
+    void findAllByIds(Collection<UUID> tradeUuids, Consumer<Trade> consumer);
 
 
     Optional<Trade> findByIdAndAccountId(UUID tradeUuid, UUID accountUuid);
+
+    void aggregateByAccount(LocalDateTime completedBefore, Consumer<TradeAggregate> consumer);
+
+    List<Trade> cancelAll(UUID accountUuid, String symbol, TradeSide side);
+
+    void findExpiring(Consumer<Trade> consumer);
+    List<Trade> expire(List<UUID> tradeUuids);
 }
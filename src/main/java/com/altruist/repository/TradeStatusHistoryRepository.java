@@ -0,0 +1,13 @@
+package com.altruist.repository;
+
+import com.altruist.model.TradeStatusChange;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+public interface TradeStatusHistoryRepository {
+
+    List<TradeStatusChange> findByTrade(UUID tradeUuid);
+
+    List<TradeStatusChange> findBetween(LocalDateTime from, LocalDateTime to, long afterHistoryId, int limit);
+}
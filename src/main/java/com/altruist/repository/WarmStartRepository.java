@@ -0,0 +1,12 @@
+package com.altruist.repository;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+public interface WarmStartRepository {
+
+    LocalDateTime currentTimestamp();
+    Set<UUID> unchangedAccounts(Collection<UUID> accountUuids, LocalDateTime since);
+    Set<UUID> unchangedAddresses(Collection<UUID> accountUuids, LocalDateTime since);
+    Set<UUID> unchangedTrades(Collection<UUID> tradeUuids, LocalDateTime since);
+}
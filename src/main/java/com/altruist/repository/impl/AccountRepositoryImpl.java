@@ -1,15 +1,17 @@
 package com.altruist.repository.impl;
 
 import com.altruist.model.Account;
+import com.altruist.model.AccountSearchResult;
+import com.altruist.model.State;
 import com.altruist.repository.AccountRepository;
+import com.altruist.utils.UuidV7;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.sql.ResultSet;
@@ -31,16 +33,15 @@ public class AccountRepositoryImpl implements AccountRepository {
 
   @Override
   public Account save(Account account) {
+    if (account.getUuid() == null) {
+      account.setUuid(UuidV7.next());
+    }
     BeanPropertySqlParameterSource params = new BeanPropertySqlParameterSource(account);
-    KeyHolder keyHolder = new GeneratedKeyHolder();
     log.info("Saving account [{}].", account);
-    String sql = "INSERT INTO trade.account (username,email,address_uuid) VALUES (:username, :email, :addressUuid)";
-    jdbcOperations.update(sql, params, keyHolder);
-    Map<String, Object> keys = keyHolder.getKeys();
-    if (null != keys) {
-      UUID id = (UUID) keys.get("account_uuid");
-      log.info("Inserted account record {}.", id);
-      account.setUuid(id);
+    String sql = "INSERT INTO trade.account (account_uuid,username,email,address_uuid) " +
+        "VALUES (:uuid, :username, :email, :addressUuid)";
+    if (jdbcOperations.update(sql, params) == 1) {
+      log.info("Inserted account record {}.", account.getUuid());
     } else {
       log.warn("Insert of account record failed. {}", account);
       throw new RuntimeException("Insert failed for account");
@@ -55,7 +56,8 @@ public class AccountRepositoryImpl implements AccountRepository {
     String sql = "UPDATE trade.account SET " +
         "  username = :username, " +
         "  email = :email ," +
-        "  address_uuid = :addressUuid " +
+        "  address_uuid = :addressUuid, " +
+        "  updated_date = now() " +
         " WHERE account_uuid = :uuid ";
     try {
       jdbcOperations.update(sql, params);
@@ -91,6 +93,58 @@ public class AccountRepositoryImpl implements AccountRepository {
         new AccountMapper());
   }
 
+  /**
+   * Accounts whose username or email starts with the query or is similar to it, ignoring case, in username order
+   * after the one informed. Only the conditions informed make it to the statement, so each one can use its index:
+   * the text_pattern_ops btrees for the prefixes, the trigram ones for the similarity and the state and city one
+   * for the address.
+   */
+  @Override
+  public List<AccountSearchResult> search(String query, State state, String city, String after, int limit) {
+    MapSqlParameterSource params = new MapSqlParameterSource()
+        .addValue("limit", limit);
+    boolean byAddress = state != null || city != null;
+    StringBuilder sql = new StringBuilder(
+        "select account.account_uuid, account.username, account.email, address.state, address.city " +
+            "from trade.account account " +
+            (byAddress ? "join" : "left join") + " trade.address address " +
+            "on address.address_uuid = account.address_uuid " +
+            "where true ");
+    if (query != null) {
+      params.addValue("query", query.toLowerCase())
+          .addValue("prefix", escapeLike(query.toLowerCase()) + "%");
+      sql.append("and (lower(account.username) like :prefix or lower(account.email) like :prefix " +
+          "or lower(account.username) % :query or lower(account.email) % :query) ");
+    }
+    if (state != null) {
+      params.addValue("state", state.name());
+      sql.append("and address.state = :state::trade.state ");
+    }
+    if (city != null) {
+      params.addValue("city", city.toLowerCase());
+      sql.append("and lower(address.city) = :city ");
+    }
+    if (after != null) {
+      params.addValue("after", after);
+      sql.append("and account.username > :after ");
+    }
+    sql.append("order by account.username limit :limit");
+    return jdbcOperations.query(sql.toString(), params, (rs, rowNum) -> {
+      String addressState = rs.getString("state");
+      return AccountSearchResult.builder()
+          .accountUuid(UUID.fromString(rs.getString("account_uuid")))
+          .username(rs.getString("username"))
+          .email(rs.getString("email"))
+          .state(addressState == null ? null : State.valueOf(addressState))
+          .city(rs.getString("city"))
+          .build();
+    });
+  }
+
+  private static String escapeLike(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
   private class AccountMapper implements RowMapper<Account> {
 
     @Override
@@ -0,0 +1,89 @@
+package com.altruist.repository.impl;
+
+import com.altruist.repository.AccountSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Builds the JSON snapshot of accounts (account, address, most recent trades and trade counts
+ * by status) in a single statement, so a page showing an account costs one round trip.
+ */
+@Repository
+@Slf4j
+public class AccountSnapshotRepositoryImpl implements AccountSnapshotRepository {
+
+    private static final String SNAPSHOT = "json_build_object(" +
+        "  'id', account.account_uuid, " +
+        "  'username', account.username, " +
+        "  'email', account.email, " +
+        "  'address', case when address.address_uuid is null then null else json_build_object(" +
+        "    'name', address.name, " +
+        "    'street', address.street, " +
+        "    'city', address.city, " +
+        "    'state', address.state, " +
+        "    'zipcode', address.zipcode) end, " +
+        "  'recentTrades', coalesce((" +
+        "    select json_agg(json_build_object(" +
+        "      'id', recent.trade_uuid, " +
+        "      'symbol', recent.symbol, " +
+        "      'quantity', recent.quantity, " +
+        "      'side', recent.side, " +
+        "      'price', recent.price, " +
+        "      'status', recent.status, " +
+        "      'totalAmount', recent.quantity * recent.price, " +
+        "      'version', recent.version, " +
+        "      'timeInForce', recent.time_in_force, " +
+        "      'expiresAt', recent.expires_at) order by recent.created_date desc, recent.trade_uuid desc) " +
+        "    from (select * from trade.trade " +
+        "          where trade.account_uuid = account.account_uuid " +
+        "          order by created_date desc, trade_uuid desc " +
+        "          limit :recentTrades) as recent), '[]'::json), " +
+        "  'tradeCounts', coalesce((" +
+        "    select json_object_agg(counts.status, counts.trades) " +
+        "    from (select status, count(*) as trades from trade.trade " +
+        "          where trade.account_uuid = account.account_uuid " +
+        "          group by status) as counts), '{}'::json)" +
+        ")";
+
+    private static final String FROM = " from trade.account as account " +
+        " left join trade.address as address on address.address_uuid = account.address_uuid ";
+
+    private final NamedParameterJdbcOperations jdbcOperations;
+
+    public AccountSnapshotRepositoryImpl(NamedParameterJdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    @Override
+    public Optional<String> findSnapshot(UUID accountUuid, int recentTrades) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("accountUuid", accountUuid)
+            .addValue("recentTrades", recentTrades);
+        List<String> snapshots = jdbcOperations.queryForList(
+            "select " + SNAPSHOT + "::text" + FROM + " where account.account_uuid = :accountUuid",
+            params, String.class);
+        return snapshots.stream().findFirst();
+    }
+
+    /**
+     * JSON array with the snapshot of each account found, in no particular order.
+     */
+    @Override
+    public String findSnapshots(Collection<UUID> accountUuids, int recentTrades) {
+        if (accountUuids.isEmpty()) {
+            return "[]";
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("accountUuids", accountUuids)
+            .addValue("recentTrades", recentTrades);
+        return jdbcOperations.queryForObject(
+            "select coalesce(json_agg(snapshots.snapshot), '[]'::json)::text " +
+                "from (select " + SNAPSHOT + " as snapshot" + FROM +
+                "      where account.account_uuid in (:accountUuids)) as snapshots",
+            params, String.class);
+    }
+}
@@ -4,14 +4,13 @@ import com.altruist.model.Account;
 import com.altruist.model.Address;
 import com.altruist.model.State;
 import com.altruist.repository.AddressRepository;
+import com.altruist.utils.UuidV7;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.sql.ResultSet;
@@ -34,18 +33,16 @@ public class AddressRepositoryImpl implements AddressRepository {
 
   @Override
   public Address save(Address address) {
+    if (address.getUuid() == null) {
+      address.setUuid(UuidV7.next());
+    }
     BeanPropertySqlParameterSource params = new BeanPropertySqlParameterSource(address);
     params.registerSqlType("state", Types.VARCHAR);
-    KeyHolder keyHolder = new GeneratedKeyHolder();
     log.info("Saving address [{}].", address);
-    String sql = "INSERT INTO trade.address (name, street, city, state, zipcode) " +
-        "VALUES (:name, :street, :city, :state::trade.state, :zipcode)";
-    jdbcOperations.update(sql, params, keyHolder);
-    Map<String, Object> keys = keyHolder.getKeys();
-    if (null != keys) {
-      UUID id = (UUID) keys.get("address_uuid");
-      log.info("Inserted address record {}.", id);
-      address.setUuid(id);
+    String sql = "INSERT INTO trade.address (address_uuid, name, street, city, state, zipcode) " +
+        "VALUES (:uuid, :name, :street, :city, :state::trade.state, :zipcode)";
+    if (jdbcOperations.update(sql, params) == 1) {
+      log.info("Inserted address record {}.", address.getUuid());
     } else {
       log.warn("Insert of address record failed. {}", address);
       throw new RuntimeException("Insert failed for address");
@@ -63,7 +60,8 @@ public class AddressRepositoryImpl implements AddressRepository {
         "  street = :street," +
         "  city = :city," +
         "  state = :state::trade.state," +
-        "  zipcode = :zipcode " +
+        "  zipcode = :zipcode, " +
+        "  updated_date = now() " +
         " WHERE address_uuid = :uuid ";
     try {
       jdbcOperations.update(sql, params);
@@ -0,0 +1,58 @@
+package com.altruist.repository.impl;
+
+import com.altruist.model.TradeCompletion;
+import com.altruist.repository.CompletedTradeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Repository
+@Slf4j
+public class CompletedTradeRepositoryImpl implements CompletedTradeRepository {
+
+    private final NamedParameterJdbcOperations jdbcOperations;
+    private final JdbcTemplate jdbcTemplate;
+
+    public CompletedTradeRepositoryImpl(NamedParameterJdbcOperations jdbcOperations,
+                                        JdbcTemplate jdbcTemplate) {
+        this.jdbcOperations = jdbcOperations;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Time of the database clock, the one trade.updated_date is written with.
+     */
+    @Override
+    public LocalDateTime currentTimestamp() {
+        return jdbcTemplate.queryForObject("select localtimestamp", LocalDateTime.class);
+    }
+
+    /**
+     * Returns a page of the trades completed at or after from, in (completion time, trade uuid)
+     * order. With after, the page starts past that trade, the last one of the previous page
+     * completed at from. Reads the trade_completed_idx partial index.
+     */
+    @Override
+    public List<TradeCompletion> findCompleted(LocalDateTime from, UUID after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", from)
+            .addValue("after", after)
+            .addValue("limit", limit);
+        String sql = "select *, quantity * price as total_amount " +
+            "from trade.trade " +
+            "where status = 'COMPLETED' and updated_date >= :from " +
+            (after == null ? "" : "and (updated_date > :from or trade_uuid > :after) ") +
+            "order by updated_date, trade_uuid " +
+            "limit :limit";
+        TradeRepositoryImpl.TradeMapper mapper = new TradeRepositoryImpl.TradeMapper();
+        return jdbcOperations.query(sql, params, (rs, rowNum) -> TradeCompletion.builder()
+            .trade(mapper.mapRow(rs, rowNum))
+            .completedAt(rs.getObject("updated_date", LocalDateTime.class))
+            .build());
+    }
+}
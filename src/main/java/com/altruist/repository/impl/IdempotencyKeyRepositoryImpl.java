@@ -0,0 +1,65 @@
+package com.altruist.repository.impl;
+
+import com.altruist.model.IdempotencyKey;
+import com.altruist.repository.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+@Repository
+@Slf4j
+public class IdempotencyKeyRepositoryImpl implements IdempotencyKeyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claims the key for the account, together with the fingerprint of the request. A concurrent
+     * claim of the same key waits on the unique index until the first transaction finishes, so
+     * only one caller gets true.
+     */
+    @Override
+    public boolean reserve(UUID accountUuid, String idempotencyKey, String fingerprint) {
+        int rows = this.jdbcTemplate.update(
+            "INSERT INTO trade.idempotency_key (account_uuid, idempotency_key, request_fingerprint) " +
+                "VALUES (?, ?, ?) " +
+                "ON CONFLICT DO NOTHING",
+            accountUuid, idempotencyKey, fingerprint);
+        return rows == 1;
+    }
+
+    @Override
+    public void assign(UUID accountUuid, String idempotencyKey, UUID tradeUuid) {
+        log.info("Assigning idempotency key [{}] of account {} to trade {}.", idempotencyKey, accountUuid, tradeUuid);
+        this.jdbcTemplate.update(
+            "UPDATE trade.idempotency_key SET trade_uuid = ? " +
+                " WHERE account_uuid = ? and idempotency_key = ? ",
+            tradeUuid, accountUuid, idempotencyKey);
+    }
+
+    @Override
+    public Optional<IdempotencyKey> find(UUID accountUuid, String idempotencyKey) {
+        try {
+            return Optional.ofNullable(this.jdbcTemplate.queryForObject(
+                "select trade_uuid, request_fingerprint " +
+                    "from trade.idempotency_key " +
+                    "where account_uuid = ? and idempotency_key = ? ",
+                new Object[] {accountUuid, idempotencyKey},
+                (rs, rowNum) -> {
+                    String tradeUuid = rs.getString("trade_uuid");
+                    return new IdempotencyKey(tradeUuid == null ? null : UUID.fromString(tradeUuid),
+                        rs.getString("request_fingerprint"));
+                }));
+        }
+        catch (EmptyResultDataAccessException ex) {
+            log.warn("No idempotency key [{}] found for account {}", idempotencyKey, accountUuid);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.altruist.repository.impl;
+
+import com.altruist.model.TradeEvent;
+import com.altruist.repository.OutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+@Repository
+@Slf4j
+public class OutboxRepositoryImpl implements OutboxRepository {
+
+    private static final long RELAY_LOCK_ID = 2004L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OutboxRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Only one relay publishes at a time, across every instance, which keeps the events of an
+     * account in order. The lock is released with the transaction.
+     */
+    @Override
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(this.jdbcTemplate.queryForObject(
+            "select pg_try_advisory_xact_lock(?)",
+            new Object[] {RELAY_LOCK_ID},
+            Boolean.class));
+    }
+
+    @Override
+    public List<TradeEvent> findUnpublished(int batchSize) {
+        return this.jdbcTemplate.query(
+            "select event_id, account_uuid, trade_uuid, event_type, payload::text as payload, created_date " +
+                "from trade.trade_outbox " +
+                "where published_date is null " +
+                "order by event_id " +
+                "limit ? ",
+            new Object[] {batchSize},
+            new TradeEventMapper());
+    }
+
+    /**
+     * Marks the exact events read, ids are not committed in order so a range could include
+     * events that were still in flight when the batch was read.
+     */
+    @Override
+    public void markPublished(List<Long> eventIds) {
+        this.jdbcTemplate.update(
+            "update trade.trade_outbox set published_date = now() " +
+                " where event_id = any(?) ",
+            (ps) -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", eventIds.toArray())));
+    }
+
+    @Override
+    public int deletePublishedBefore(int retentionHours) {
+        return this.jdbcTemplate.update(
+            "delete from trade.trade_outbox " +
+                " where published_date < now() - make_interval(hours => ?) ",
+            retentionHours);
+    }
+
+    private class TradeEventMapper implements RowMapper<TradeEvent> {
+
+        @Override
+        public TradeEvent mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return TradeEvent.builder()
+                .eventId(rs.getLong("event_id"))
+                .accountUuid(UUID.fromString(rs.getString("account_uuid")))
+                .tradeUuid(UUID.fromString(rs.getString("trade_uuid")))
+                .eventType(rs.getString("event_type"))
+                .payload(rs.getString("payload"))
+                .createdDate(rs.getTimestamp("created_date").toLocalDateTime())
+                .build();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.altruist.repository.impl;
+
+import com.altruist.model.Account;
+import com.altruist.model.Trade;
+import com.altruist.model.TradeAggregate;
+import com.altruist.model.TradeSide;
+import com.altruist.model.TradeStatus;
+import com.altruist.repository.StatementRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+@Repository
+@Slf4j
+public class StatementRepositoryImpl implements StatementRepository {
+
+    private final NamedParameterJdbcOperations jdbcOperations;
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatementRepositoryImpl(NamedParameterJdbcOperations jdbcOperations,
+                                   JdbcTemplate jdbcTemplate) {
+        this.jdbcOperations = jdbcOperations;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * First account of each of the partitions but the first one, when the accounts are split
+     * in that many partitions of about the same number of accounts in uuid order. Fewer bounds
+     * are returned when there are fewer accounts than partitions. Reads the whole primary key.
+     */
+    @Override
+    public List<UUID> findPartitionBounds(int partitions) {
+        return this.jdbcTemplate.query(
+            "select min(account_uuid) as bound " +
+                "from (select account_uuid, ntile(?) over (order by account_uuid) as tile " +
+                "      from trade.account) as partitioned " +
+                "group by tile " +
+                "having tile > 1 " +
+                "order by tile ",
+            (ps) -> ps.setInt(1, partitions),
+            (rs, rowNum) -> UUID.fromString(rs.getString("bound")));
+    }
+
+    /**
+     * Next accounts of the range [from, to), in uuid order, after the one informed; {@code to}
+     * is {@code null} for the last range and {@code after} for the first page. The bounds are
+     * only added when informed so the primary key index is scanned over the range.
+     */
+    @Override
+    public List<Account> findAccounts(UUID from, UUID to, UUID after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", from)
+            .addValue("to", to)
+            .addValue("after", after)
+            .addValue("limit", limit);
+        StringBuilder sql = new StringBuilder(
+            "select account_uuid, address_uuid, username, email " +
+                "from trade.account " +
+                "where account_uuid >= :from ");
+        if (to != null) {
+            sql.append("and account_uuid < :to ");
+        }
+        if (after != null) {
+            sql.append("and account_uuid > :after ");
+        }
+        sql.append("order by account_uuid limit :limit");
+        return jdbcOperations.query(sql.toString(), params, (rs, rowNum) -> {
+            String addressUuid = rs.getString("address_uuid");
+            return Account.builder()
+                .uuid(UUID.fromString(rs.getString("account_uuid")))
+                .addressUuid(addressUuid == null ? null : UUID.fromString(addressUuid))
+                .username(rs.getString("username"))
+                .email(rs.getString("email"))
+                .build();
+        });
+    }
+
+    /**
+     * Streams the trades of the accounts submitted or changed in [from, to).
+     */
+    @Override
+    public void findTrades(Collection<UUID> accountUuids, LocalDateTime from, LocalDateTime to,
+                           Consumer<Trade> consumer) {
+        TradeRepositoryImpl.TradeMapper mapper = new TradeRepositoryImpl.TradeMapper();
+        this.jdbcTemplate.query(
+            "select trade.*, " +
+                "trade.quantity * trade.price as total_amount " +
+                "from trade.trade as trade " +
+                "where account_uuid = any(?) " +
+                "and ((created_date >= ? and created_date < ?) or (updated_date >= ? and updated_date < ?)) " +
+                "order by created_date, trade_uuid ",
+            (ps) -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("uuid", accountUuids.toArray()));
+                ps.setObject(2, from);
+                ps.setObject(3, to);
+                ps.setObject(4, from);
+                ps.setObject(5, to);
+            },
+            (rs) -> {
+                consumer.accept(mapper.mapRow(rs, 0));
+            });
+    }
+
+    /**
+     * Streams the quantity and notional of the trades of the accounts completed before the time,
+     * grouped by account, symbol and side.
+     */
+    @Override
+    public void aggregateCompleted(Collection<UUID> accountUuids, LocalDateTime until,
+                                   Consumer<TradeAggregate> consumer) {
+        this.jdbcTemplate.query(
+            "select account_uuid, symbol, side, " +
+                "sum(quantity) as quantity, " +
+                "sum(quantity * price) as notional " +
+                "from trade.trade " +
+                "where account_uuid = any(?) and status = 'COMPLETED' and updated_date < ? " +
+                "group by account_uuid, symbol, side ",
+            (ps) -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("uuid", accountUuids.toArray()));
+                ps.setObject(2, until);
+            },
+            (rs) -> {
+                consumer.accept(TradeAggregate.builder()
+                    .accountUuid(UUID.fromString(rs.getString("account_uuid")))
+                    .symbol(rs.getString("symbol"))
+                    .side(TradeSide.valueOf(rs.getString("side")))
+                    .status(TradeStatus.COMPLETED)
+                    .quantity(rs.getLong("quantity"))
+                    .notional(rs.getBigDecimal("notional"))
+                    .build());
+            });
+    }
+}
@@ -0,0 +1,70 @@
+package com.altruist.repository.impl;
+
+import com.altruist.model.TradeBar;
+import com.altruist.repository.TradeAnalyticsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+@Repository
+@Slf4j
+public class TradeAnalyticsRepositoryImpl implements TradeAnalyticsRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TradeAnalyticsRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Time of the database clock, the one trade.updated_date is written with.
+     */
+    @Override
+    public LocalDateTime currentTimestamp() {
+        return jdbcTemplate.queryForObject("select localtimestamp", LocalDateTime.class);
+    }
+
+    /**
+     * Streams one minute bar per symbol of the trades completed in [from, to), in bar order.
+     */
+    @Override
+    public void aggregateCompleted(LocalDateTime from, LocalDateTime to, Consumer<TradeBar> consumer) {
+        this.jdbcTemplate.query(
+            "select symbol, " +
+                "date_trunc('minute', updated_date) as start, " +
+                "min(updated_date) as first_trade_at, " +
+                "max(updated_date) as last_trade_at, " +
+                "(array_agg(price order by updated_date, trade_uuid))[1] as open, " +
+                "max(price) as high, " +
+                "min(price) as low, " +
+                "(array_agg(price order by updated_date desc, trade_uuid desc))[1] as close, " +
+                "sum(quantity) as volume, " +
+                "sum(quantity * price) as notional " +
+                "from trade.trade " +
+                "where status = 'COMPLETED' and updated_date >= ? and updated_date < ? " +
+                "group by symbol, start " +
+                "order by start ",
+            (ps) -> {
+                ps.setObject(1, from);
+                ps.setObject(2, to);
+            },
+            (rs) -> {
+                consumer.accept(TradeBar.builder()
+                    .symbol(rs.getString("symbol"))
+                    .resolution("1m")
+                    .start(rs.getObject("start", LocalDateTime.class))
+                    .firstTradeAt(rs.getObject("first_trade_at", LocalDateTime.class))
+                    .lastTradeAt(rs.getObject("last_trade_at", LocalDateTime.class))
+                    .open(rs.getBigDecimal("open"))
+                    .high(rs.getBigDecimal("high"))
+                    .low(rs.getBigDecimal("low"))
+                    .close(rs.getBigDecimal("close"))
+                    .volume(rs.getLong("volume"))
+                    .notional(rs.getBigDecimal("notional"))
+                    .build());
+            });
+    }
+}
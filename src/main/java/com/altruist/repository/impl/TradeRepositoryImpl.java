@@ -1,29 +1,43 @@
 package com.altruist.repository.impl;
 
+import com.altruist.model.TimeInForce;
 import com.altruist.model.Trade;
+import com.altruist.model.TradeAggregate;
+import com.altruist.model.TradeEvent;
 import com.altruist.model.TradeSide;
 import com.altruist.model.TradeStatus;
 import com.altruist.repository.TradeRepository;
+import com.altruist.utils.UuidV7;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Repository
 @Slf4j
 public class TradeRepositoryImpl implements TradeRepository {
 
+    /**
+     * Written to updated_by and the status history: changes asked by the account holder, through
+     * the REST API or the gateway, and expiries made by the application.
+     */
+    static final String CHANGED_BY_ACCOUNT = "account";
+    static final String CHANGED_BY_EXPIRY = "expiry";
+
     private final NamedParameterJdbcOperations jdbcOperations;
     private final JdbcTemplate jdbcTemplate;
 
@@ -35,20 +49,25 @@ public class TradeRepositoryImpl implements TradeRepository {
 
     @Override
     public Trade save(Trade trade) {
+        if (trade.getUuid() == null) {
+            trade.setUuid(UuidV7.next());
+        }
         BeanPropertySqlParameterSource params = new BeanPropertySqlParameterSource(trade);
         params.registerSqlType("side", Types.VARCHAR);
-        KeyHolder keyHolder = new GeneratedKeyHolder();
+        params.registerSqlType("timeInForce", Types.VARCHAR);
         log.info("Saving trade [{}].", trade);
-        String sql = "INSERT INTO trade.trade (account_uuid, symbol, quantity, side, price) " +
-            "VALUES (:accountUuid, :symbol, :quantity, :side::trade.trade_side, :price)";
-        jdbcOperations.update(sql, params, keyHolder);
-        Map<String, Object> keys = keyHolder.getKeys();
-        if (null != keys) {
-            UUID id = (UUID) keys.get("trade_uuid");
-            TradeStatus status = TradeStatus.valueOf(keys.get("status").toString());
-            log.info("Inserted trade record with id {} and status {}.", id, status);
-            trade.setUuid(id);
-            trade.setStatus(status);
+        String sql = "WITH changed AS (" +
+            "  INSERT INTO trade.trade (trade_uuid, account_uuid, symbol, quantity, side, price, " +
+            "    time_in_force, expires_at, created_by, updated_by) " +
+            "  VALUES (:uuid, :accountUuid, :symbol, :quantity, :side::trade.trade_side, :price, " +
+            "    :timeInForce::trade.time_in_force, :expiresAt, '" + CHANGED_BY_ACCOUNT + "', '" +
+            CHANGED_BY_ACCOUNT + "') " +
+            "  RETURNING * " +
+            "), history AS (" + historyInsert(null) + ") " + outboxInsert(TradeEvent.CREATED);
+        if (jdbcOperations.update(sql, params) == 1) {
+            log.info("Inserted trade record with id {} and status {}.", trade.getUuid(), TradeStatus.SUBMITTED);
+            trade.setStatus(TradeStatus.SUBMITTED);
+            trade.setVersion(0);
         } else {
             log.warn("Insert of trade record failed. {}", trade);
             throw new RuntimeException("Insert failed for trade");
@@ -56,27 +75,121 @@ public class TradeRepositoryImpl implements TradeRepository {
         return trade;
     }
 
+    /**
+     * Inserts the trades, and their events, with a single statement whose shape doesn't depend
+     * on the number of trades: each column is sent as an array and unnested into rows. Either
+     * every trade is inserted or none is.
+     */
     @Override
-    public void update(Trade trade) {
-        BeanPropertySqlParameterSource params = new BeanPropertySqlParameterSource(trade);
-        params.registerSqlType("side", Types.VARCHAR);
-        params.registerSqlType("status", Types.VARCHAR);
-        log.info("Saving trade [{}].", trade);
-        String sql = "UPDATE trade.trade SET " +
-            "  symbol = :symbol, " +
-            "  quantity = :quantity, " +
-            "  side = :side::trade.trade_side, " +
-            "  price = :price, " +
-            "  status = :status::trade.trade_status " +
-            " WHERE trade_uuid = :uuid ";
-        try {
-            jdbcOperations.update(sql, params);
+    public List<Trade> saveAll(List<Trade> trades) {
+        int size = trades.size();
+        UUID[] uuids = new UUID[size];
+        UUID[] accountUuids = new UUID[size];
+        String[] symbols = new String[size];
+        Integer[] quantities = new Integer[size];
+        String[] sides = new String[size];
+        BigDecimal[] prices = new BigDecimal[size];
+        String[] timesInForce = new String[size];
+        String[] expiries = new String[size];
+        for (int i = 0; i < size; i++) {
+            Trade trade = trades.get(i);
+            if (trade.getUuid() == null) {
+                trade.setUuid(UuidV7.next());
+            }
+            uuids[i] = trade.getUuid();
+            accountUuids[i] = trade.getAccountUuid();
+            symbols[i] = trade.getSymbol();
+            quantities[i] = trade.getQuantity();
+            sides[i] = trade.getSide().name();
+            prices[i] = trade.getPrice();
+            timesInForce[i] = trade.getTimeInForce() == null ? null : trade.getTimeInForce().name();
+            expiries[i] = trade.getExpiresAt() == null ? null : trade.getExpiresAt().toString();
+        }
+        log.info("Saving {} trades with one insert.", size);
+        String sql = "WITH changed AS (" +
+            "  INSERT INTO trade.trade (trade_uuid, account_uuid, symbol, quantity, side, price, " +
+            "    time_in_force, expires_at, created_by, updated_by) " +
+            "  SELECT *, '" + CHANGED_BY_ACCOUNT + "', '" + CHANGED_BY_ACCOUNT + "' " +
+            "  FROM unnest(?::uuid[], ?::uuid[], ?::text[], ?::int4[], " +
+            "    ?::text[]::trade.trade_side[], ?::numeric[], ?::text[]::trade.time_in_force[], " +
+            "    ?::text[]::timestamptz[]) " +
+            "  RETURNING * " +
+            "), history AS (" + historyInsert(null) + ") " + outboxInsert(TradeEvent.CREATED);
+        int inserted = this.jdbcTemplate.update(sql, (ps) -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("uuid", uuids));
+            ps.setArray(2, connection.createArrayOf("uuid", accountUuids));
+            ps.setArray(3, connection.createArrayOf("text", symbols));
+            ps.setArray(4, connection.createArrayOf("int4", quantities));
+            ps.setArray(5, connection.createArrayOf("text", sides));
+            ps.setArray(6, connection.createArrayOf("numeric", prices));
+            ps.setArray(7, connection.createArrayOf("text", timesInForce));
+            ps.setArray(8, connection.createArrayOf("text", expiries));
+        });
+        if (inserted != size) {
+            log.warn("Insert of {} trade records inserted {}.", size, inserted);
+            throw new RuntimeException("Insert failed for trades");
         }
-        catch (Exception ex) {
-            ex.printStackTrace();
-            log.warn("Update of trade record failed. {}", trade);
-            throw new RuntimeException("Update failed for trade", ex);
+        for (Trade trade : trades) {
+            trade.setStatus(TradeStatus.SUBMITTED);
+            trade.setVersion(0);
         }
+        return trades;
+    }
+
+    /**
+     * Moves the trade to the status only if it is still in the expected one. Returns the changed
+     * trade, empty when it wasn't in the expected status.
+     */
+    @Override
+    public Optional<Trade> updateStatus(UUID tradeUuid, TradeStatus expected, TradeStatus status) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("uuid", tradeUuid)
+            .addValue("expected", expected.name())
+            .addValue("status", status.name());
+        log.info("Updating trade {} from {} to {}.", tradeUuid, expected, status);
+        String sql = "WITH changed AS (" +
+            "  UPDATE trade.trade SET " +
+            "    status = :status::trade.trade_status, " +
+            "    version = version + 1, " +
+            "    updated_date = now(), " +
+            "    updated_by = '" + CHANGED_BY_ACCOUNT + "' " +
+            "  WHERE trade_uuid = :uuid AND status = :expected::trade.trade_status " +
+            "  RETURNING * " +
+            "), history AS (" + historyInsert(expected) + ") " +
+            ", events AS (" + outboxInsert(TradeEvent.UPDATED) + ") " +
+            "SELECT changed.*, changed.quantity * changed.price as total_amount FROM changed";
+        return jdbcOperations.query(sql, params, new TradeMapper()).stream().findFirst();
+    }
+
+    /**
+     * Changes the quantity and/or price of a submitted trade of the account, only if it is still
+     * at the version of the amendment. Returns the amended trade, empty when nothing matched.
+     */
+    @Override
+    public Optional<Trade> amend(UUID tradeUuid, UUID accountUuid, TradeAmendment amendment) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("uuid", tradeUuid)
+            .addValue("accountUuid", accountUuid)
+            .addValue("version", amendment.getVersion())
+            .addValue("quantity", amendment.getQuantity(), Types.INTEGER)
+            .addValue("price", amendment.getPrice(), Types.NUMERIC);
+        log.info("Amending trade {} with [{}].", tradeUuid, amendment);
+        String sql = "WITH changed AS (" +
+            "  UPDATE trade.trade SET " +
+            "    quantity = coalesce(:quantity, quantity), " +
+            "    price = coalesce(:price, price), " +
+            "    version = version + 1, " +
+            "    updated_date = now(), " +
+            "    updated_by = '" + CHANGED_BY_ACCOUNT + "' " +
+            "  WHERE trade_uuid = :uuid " +
+            "    AND account_uuid = :accountUuid " +
+            "    AND status = 'SUBMITTED' " +
+            "    AND version = :version " +
+            "  RETURNING * " +
+            "), events AS (" + outboxInsert(TradeEvent.UPDATED) + ") " +
+            "SELECT changed.*, changed.quantity * changed.price as total_amount FROM changed";
+        return jdbcOperations.query(sql, params, new TradeMapper()).stream().findFirst();
     }
 
     @Override
@@ -107,6 +220,43 @@ public class TradeRepositoryImpl implements TradeRepository {
             new TradeMapper());
     }
 
+    /**
+     * The newest trades of the account first.
+     */
+    @Override
+    public List<Trade> findRecentByAccount(UUID accountUuid, int limit) {
+        return this.jdbcTemplate.query(
+            "select trade.*, " +
+                "trade.quantity * trade.price as total_amount " +
+                "from trade.trade as trade " +
+                "where account_uuid = ? " +
+                "order by created_date desc, trade_uuid desc " +
+                "limit ?",
+            new Object[] {accountUuid, limit},
+            new TradeMapper());
+    }
+
+    /**
+     * Streams the trades found among the ones informed, whatever their account, with a single
+     * statement taking the ids as one array parameter.
+     */
+    @Override
+    public void findAllByIds(Collection<UUID> tradeUuids, Consumer<Trade> consumer) {
+        if (tradeUuids.isEmpty()) {
+            return;
+        }
+        TradeMapper mapper = new TradeMapper();
+        this.jdbcTemplate.query(
+            "select trade.*, " +
+                "trade.quantity * trade.price as total_amount " +
+                "from trade.trade as trade " +
+                "where trade_uuid = any(?) ",
+            (ps) -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", tradeUuids.toArray())),
+            (rs) -> {
+                consumer.accept(mapper.mapRow(rs, 0));
+            });
+    }
+
     @Override
     public Optional<Trade> findByIdAndAccountId(UUID tradeUuid, UUID accountUuid) {
         try {
@@ -124,7 +274,45 @@ public class TradeRepositoryImpl implements TradeRepository {
         }
     }
 
-    private class TradeMapper implements RowMapper<Trade> {
+    /**
+     * Streams the quantity and notional of the submitted and completed trades grouped by
+     * account, symbol, side and status. Trades completed at or after completedBefore are
+     * counted as submitted.
+     */
+    @Override
+    public void aggregateByAccount(LocalDateTime completedBefore, Consumer<TradeAggregate> consumer) {
+        this.jdbcTemplate.query(
+            "select account_uuid, symbol, side, " +
+                "case when status = 'COMPLETED' and updated_date < ? then 'COMPLETED' else 'SUBMITTED' end " +
+                "as aggregate_status, " +
+                "sum(quantity) as quantity, " +
+                "sum(quantity * price) as notional " +
+                "from trade.trade " +
+                "where status in ('SUBMITTED', 'COMPLETED') " +
+                "group by account_uuid, symbol, side, aggregate_status ",
+            (ps) -> ps.setObject(1, completedBefore),
+            (rs) -> {
+                consumer.accept(TradeAggregate.builder()
+                    .accountUuid(UUID.fromString(rs.getString("account_uuid")))
+                    .symbol(rs.getString("symbol"))
+                    .side(TradeSide.valueOf(rs.getString("side")))
+                    .status(TradeStatus.valueOf(rs.getString("aggregate_status")))
+                    .quantity(rs.getLong("quantity"))
+                    .notional(rs.getBigDecimal("notional"))
+                    .build());
+            });
+    }
+
+    /**
+     * Outbox insert to chain after a statement changing trades, exposed as the "changed" CTE,
+     * so each change and its event are written by the same statement.
+     */
+    private static String outboxInsert(String eventType) {
+        return "INSERT INTO trade.trade_outbox (account_uuid, trade_uuid, event_type, payload) " +
+            "SELECT account_uuid, trade_uuid, '" + eventType + "', to_jsonb(changed) FROM changed";
+    }
+
+    static class TradeMapper implements RowMapper<Trade> {
 
         @Override
         public Trade mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -137,6 +325,9 @@ public class TradeRepositoryImpl implements TradeRepository {
                 .price(rs.getBigDecimal("price"))
                 .status(TradeStatus.valueOf(rs.getString("status")))
                 .totalAmount(rs.getBigDecimal("total_amount"))
+                .version(rs.getInt("version"))
+                .timeInForce(Optional.ofNullable(rs.getString("time_in_force")).map(TimeInForce::valueOf).orElse(null))
+                .expiresAt(rs.getObject("expires_at", OffsetDateTime.class))
                 .build();
         }
     }
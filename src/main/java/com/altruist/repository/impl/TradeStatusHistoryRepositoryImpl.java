@@ -0,0 +1,70 @@
+package com.altruist.repository.impl;
+
+import com.altruist.model.TradeStatus;
+import com.altruist.model.TradeStatusChange;
+import com.altruist.repository.TradeStatusHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Repository
+@Slf4j
+public class TradeStatusHistoryRepositoryImpl implements TradeStatusHistoryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TradeStatusHistoryRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The status changes of the trade in the order they were made.
+     */
+    @Override
+    public List<TradeStatusChange> findByTrade(UUID tradeUuid) {
+        return this.jdbcTemplate.query(
+            "select * from trade.trade_status_history " +
+                "where trade_uuid = ? " +
+                "order by history_id",
+            new Object[] {tradeUuid},
+            new TradeStatusChangeMapper());
+    }
+
+    /**
+     * A page of the status changes of every trade made in [from, to), in the order they were
+     * made; the next page starts after the last history id of this one.
+     */
+    @Override
+    public List<TradeStatusChange> findBetween(LocalDateTime from, LocalDateTime to, long afterHistoryId, int limit) {
+        return this.jdbcTemplate.query(
+            "select * from trade.trade_status_history " +
+                "where changed_date >= ? and changed_date < ? and history_id > ? " +
+                "order by history_id " +
+                "limit ?",
+            new Object[] {from, to, afterHistoryId, limit},
+            new TradeStatusChangeMapper());
+    }
+
+    private static class TradeStatusChangeMapper implements RowMapper<TradeStatusChange> {
+
+        @Override
+        public TradeStatusChange mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return TradeStatusChange.builder()
+                .historyId(rs.getLong("history_id"))
+                .tradeUuid(UUID.fromString(rs.getString("trade_uuid")))
+                .accountUuid(UUID.fromString(rs.getString("account_uuid")))
+                .fromStatus(Optional.ofNullable(rs.getString("from_status")).map(TradeStatus::valueOf).orElse(null))
+                .toStatus(TradeStatus.valueOf(rs.getString("to_status")))
+                .version(rs.getInt("version"))
+                .changedBy(rs.getString("changed_by"))
+                .changedDate(rs.getObject("changed_date", LocalDateTime.class))
+                .build();
+        }
+    }
+}
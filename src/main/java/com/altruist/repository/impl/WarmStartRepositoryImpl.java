@@ -0,0 +1,79 @@
+package com.altruist.repository.impl;
+
+import com.altruist.repository.WarmStartRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Checks the entries of a warm start snapshot against the {@code updated_date} of their rows,
+ * one query per batch of ids. Rows gone or updated since the snapshot are left out.
+ */
+@Repository
+@Slf4j
+public class WarmStartRepositoryImpl implements WarmStartRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WarmStartRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The clock the {@code updated_date} columns are set from.
+     */
+    @Override
+    public LocalDateTime currentTimestamp() {
+        return this.jdbcTemplate.queryForObject("select localtimestamp", Timestamp.class).toLocalDateTime();
+    }
+
+    @Override
+    public Set<UUID> unchangedAccounts(Collection<UUID> accountUuids, LocalDateTime since) {
+        return unchanged(
+            "select account_uuid from trade.account " +
+                "where account_uuid = any(?) and updated_date < ? ",
+            accountUuids, since);
+    }
+
+    /**
+     * The address is keyed by its account, which points to it, so both rows must be unchanged.
+     */
+    @Override
+    public Set<UUID> unchangedAddresses(Collection<UUID> accountUuids, LocalDateTime since) {
+        return unchanged(
+            "select account.account_uuid from trade.account account " +
+                "join trade.address address on address.address_uuid = account.address_uuid " +
+                "where account.account_uuid = any(?) and account.updated_date < ? and address.updated_date < ? ",
+            accountUuids, since, since);
+    }
+
+    @Override
+    public Set<UUID> unchangedTrades(Collection<UUID> tradeUuids, LocalDateTime since) {
+        return unchanged(
+            "select trade_uuid from trade.trade " +
+                "where trade_uuid = any(?) and updated_date < ? ",
+            tradeUuids, since);
+    }
+
+    private Set<UUID> unchanged(String sql, Collection<UUID> uuids, LocalDateTime... since) {
+        Set<UUID> unchanged = new HashSet<>();
+        if (uuids.isEmpty()) {
+            return unchanged;
+        }
+        this.jdbcTemplate.query(sql,
+            (ps) -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("uuid", uuids.toArray()));
+                for (int i = 0; i < since.length; i++) {
+                    ps.setTimestamp(i + 2, Timestamp.valueOf(since[i]));
+                }
+            },
+            (rs) -> {
+                unchanged.add(UUID.fromString(rs.getString(1)));
+            });
+        return unchanged;
+    }
+}
@@ -2,6 +2,8 @@ package com.altruist.resources;
 
 import com.altruist.IdDto;
 import com.altruist.model.Account;
+import com.altruist.model.AccountSearchResult;
+import com.altruist.model.State;
 import com.altruist.service.AccountService;
 import com.altruist.utils.HttpUtils;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
@@ -11,17 +13,24 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import java.net.*;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
@@ -30,9 +39,14 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @RestController
 @RequestMapping("/accounts")
+@Validated
 @Slf4j
 public class AccountController {
 
+    private static final int MAX_RECENT_TRADES = 100;
+    private static final int MAX_SNAPSHOTS = 100;
+    private static final int MAX_SEARCH_RESULTS = 500;
+
     private final AccountService accountService;
 
     public AccountController(AccountService accountService) {
@@ -71,6 +85,29 @@ public class AccountController {
             .body(accounts);
     }
 
+    @Operation(summary = "Returns a page of the accounts whose username or email starts with q or is similar to it, " +
+        "and whose address is in the state and city informed, in username order; the next page is asked with after " +
+        "set to the last username")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Accounts found"),
+        @ApiResponse(responseCode = "204", description = "No accounts found"),
+        @ApiResponse(responseCode = "400", description = "Validation error"),
+    })
+    @GetMapping(produces = APPLICATION_JSON_VALUE, value = "/search")
+    public ResponseEntity<List<AccountSearchResult>> search(
+        @RequestParam(value = "q", required = false) @Size(min = 1, max = 255) String query,
+        @RequestParam(value = "state", required = false) State state,
+        @RequestParam(value = "city", required = false) @Size(min = 1, max = 255) String city,
+        @RequestParam(value = "after", required = false) String after,
+        @RequestParam(value = "limit", defaultValue = "50") @Min(1) @Max(MAX_SEARCH_RESULTS) int limit) {
+        log.info("Searching up to {} accounts matching [{}] in [{}, {}] after [{}].", limit, query, city, state, after);
+        List<AccountSearchResult> accounts = accountService.search(query, state, city, after, limit);
+        if (accounts.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(accounts);
+    }
+
     @Operation(summary = "Returns the account by the uuid informed on the path")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Account information"),
@@ -87,4 +124,35 @@ public class AccountController {
         return result.get();
     }
 
+    @Operation(summary = "Returns the account by the uuid informed on the path with its address, most recent " +
+        "trades and trade counts by status")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Account snapshot"),
+        @ApiResponse(responseCode = "404", description = "Account Not found"),
+    })
+    @GetMapping(produces = APPLICATION_JSON_VALUE, value = "/{accountUuid}/snapshot")
+    public ResponseEntity<String> snapshot(@PathVariable("accountUuid") UUID accountUuid,
+                                           @RequestParam(value = "trades", defaultValue = "20")
+                                           @Min(0) @Max(MAX_RECENT_TRADES) int recentTrades) {
+        log.info("Fetching snapshot of account with id[{}].", accountUuid);
+        return accountService.snapshot(accountUuid, recentTrades)
+            .map((snapshot) -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(snapshot))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Returns the snapshot of each account informed that exists")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Account snapshots"),
+        @ApiResponse(responseCode = "400", description = "Too many accounts"),
+    })
+    @PostMapping(consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE, value = "/snapshots")
+    public ResponseEntity<String> snapshots(@RequestBody @NotNull @Size(max = MAX_SNAPSHOTS) List<UUID> accountUuids,
+                                            @RequestParam(value = "trades", defaultValue = "20")
+                                            @Min(0) @Max(MAX_RECENT_TRADES) int recentTrades) {
+        log.info("Fetching snapshots of {} accounts.", accountUuids.size());
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(accountService.snapshots(accountUuids, recentTrades));
+    }
+
 }
@@ -0,0 +1,71 @@
+package com.altruist.resources;
+
+import com.altruist.analytics.BarResolution;
+import com.altruist.analytics.TradeAnalyticsService;
+import com.altruist.model.SymbolVwap;
+import com.altruist.model.TradeBar;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Pattern;
+import java.time.Duration;
+import java.util.*;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@RestController
+@RequestMapping("/analytics/symbols/{symbol}")
+@Validated
+@Slf4j
+public class AnalyticsController {
+
+    private static final int MAX_BARS = 2016;
+    private static final int MAX_VWAP_MINUTES = 30 * 24 * 60;
+
+    private final TradeAnalyticsService tradeAnalyticsService;
+
+    public AnalyticsController(TradeAnalyticsService tradeAnalyticsService) {
+        this.tradeAnalyticsService = tradeAnalyticsService;
+    }
+
+    @Operation(summary = "Returns the OHLC bars with completed trades among the last ones of the symbol, oldest first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Bars"),
+        @ApiResponse(responseCode = "400", description = "Validation error"),
+        @ApiResponse(responseCode = "404", description = "Symbol Not found"),
+    })
+    @GetMapping(produces = APPLICATION_JSON_VALUE, value = "/bars")
+    public ResponseEntity<List<TradeBar>> bars(@PathVariable("symbol") String symbol,
+                                               @RequestParam(value = "resolution", defaultValue = "1m")
+                                               @Pattern(regexp = "1m|5m|1h") String resolution,
+                                               @RequestParam(value = "count", defaultValue = "60")
+                                               @Min(1) @Max(MAX_BARS) int count) {
+        log.info("Fetching the last {} {} bars of [{}].", count, resolution, symbol);
+        return ResponseEntity.ok(tradeAnalyticsService.bars(symbol, BarResolution.ofLabel(resolution).get(), count));
+    }
+
+    @Operation(summary = "Returns the volume weighted average price and traded volume of the symbol over the last minutes")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "VWAP, no vwap when nothing was traded"),
+        @ApiResponse(responseCode = "400", description = "Validation error"),
+        @ApiResponse(responseCode = "404", description = "Symbol Not found"),
+    })
+    @GetMapping(produces = APPLICATION_JSON_VALUE, value = "/vwap")
+    public ResponseEntity<SymbolVwap> vwap(@PathVariable("symbol") String symbol,
+                                           @RequestParam(value = "minutes", defaultValue = "60")
+                                           @Min(1) @Max(MAX_VWAP_MINUTES) int minutes) {
+        log.info("Fetching the VWAP of [{}] over the last {} minutes.", symbol, minutes);
+        return ResponseEntity.ok(tradeAnalyticsService.vwap(symbol, Duration.ofMinutes(minutes)));
+    }
+}
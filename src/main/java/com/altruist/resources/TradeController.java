@@ -1,27 +1,44 @@
 package com.altruist.resources;
 
 import com.altruist.IdDto;
+import com.altruist.cache.RecentTrades;
 import com.altruist.model.Account;
 import com.altruist.model.Trade;
+import com.altruist.model.TradeAmendment;
+import com.altruist.model.TradeSide;
 import com.altruist.service.TradeService;
 import com.altruist.utils.HttpUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.*;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
@@ -30,30 +47,43 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @RestController
 @RequestMapping("/accounts/{accountUuid}/trades")
+@Validated
 @Slf4j
 public class TradeController {
 
     private final TradeService tradeService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter tradeWriter;
 
-    public TradeController(TradeService tradeService) {
+    public TradeController(TradeService tradeService, ObjectMapper objectMapper) {
         this.tradeService = tradeService;
+        this.objectMapper = objectMapper;
+        this.tradeWriter = objectMapper.writerFor(Trade.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
 
     @Operation(summary = "Creates a trade on the account with the uuid informed on the path")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "201", description = "Trade UUID"),
+        @ApiResponse(responseCode = "201", description = "Trade UUID, the original one when the Idempotency-Key was already used with the same trade"),
+        @ApiResponse(responseCode = "400", description = "Validation error"),
         @ApiResponse(responseCode = "404", description = "Account Not found"),
+        @ApiResponse(responseCode = "409", description = "The Idempotency-Key is being used by another request"),
+        @ApiResponse(responseCode = "422", description = "The Idempotency-Key was already used with a different trade"),
     })
     @PostMapping(
         consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
     @ResponseStatus(HttpStatus.CREATED)
     public ResponseEntity<IdDto> create(@PathVariable("accountUuid") UUID accountUuid,
+                                        @RequestHeader(value = "Idempotency-Key", required = false)
+                                        @Size(min = 1, max = 255) String idempotencyKey,
                                         @RequestBody @Valid Trade trade,
                                         HttpServletRequest httpServletRequest) {
-        log.info("Received Trade creation request [{}].", trade);
+        log.info("Received Trade creation request [{}] with idempotency key [{}].", trade, idempotencyKey);
         trade.setAccountUuid(accountUuid);
-        Trade dbTrade = tradeService.create(trade);
+        // without a key there is nothing to keep atomic with the insert, so it can be coalesced with others
+        Trade dbTrade = idempotencyKey == null
+            ? tradeService.create(trade)
+            : tradeService.create(trade, idempotencyKey);
         URI entityURI = HttpUtils.buildEntityUrl(httpServletRequest, dbTrade.getUuid());
         return ResponseEntity.created(entityURI)
             .body(new IdDto(dbTrade.getUuid()));
@@ -76,6 +106,40 @@ public class TradeController {
             .body(trades);
     }
 
+    @Operation(summary = "Lists the newest trades of the account with the UUID specified on path, newest first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Trade list"),
+        @ApiResponse(responseCode = "204", description = "No trades on the account"),
+        @ApiResponse(responseCode = "400", description = "Invalid number of trades"),
+        @ApiResponse(responseCode = "404", description = "Account Not found")
+    })
+    @GetMapping(produces = APPLICATION_JSON_VALUE, params = "recent")
+    public ResponseEntity<StreamingResponseBody> recent(@PathVariable("accountUuid") UUID accountUuid,
+                                                        @RequestParam("recent") @Min(1) int recent) {
+        log.info("Listing the {} most recent trades for account [{}].", recent, accountUuid);
+        RecentTrades trades = tradeService.recent(accountUuid, recent);
+        if (trades.size() == 0) {
+            return ResponseEntity.noContent().build();
+        }
+        // the trades stay encoded until they are written
+        StreamingResponseBody body = (outputStream) -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                trades.forEach((trade) -> {
+                    try {
+                        tradeWriter.writeValue(generator, trade);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+
     @Operation(summary = "Returns the trade with the UUID specified on the path on " +
         "the account with the UUID specified on the path")
     @ApiResponses(value = {
@@ -109,4 +173,50 @@ public class TradeController {
         tradeService.cancelTrade(accountId, tradeId);
     }
 
+    @Operation(summary = "Amends the quantity and/or price of a SUBMITTED trade with the UUID specified on the path " +
+        "on the account with the UUID specified on the path")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Amended trade with its new version"),
+        @ApiResponse(responseCode = "400", description = "Validation error"),
+        @ApiResponse(responseCode = "404", description = "Trade or account not found"),
+        @ApiResponse(responseCode = "409", description = "The trade was changed since the informed version"),
+        @ApiResponse(responseCode = "422", description = "The amended trade is not acceptable"),
+        @ApiResponse(responseCode = "451", description = "The trade is not in SUBMITTED status")
+    })
+    @PatchMapping(value = "/{tradeUuid}", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<Trade> amend(@PathVariable("accountUuid") UUID accountUuid,
+                                       @PathVariable("tradeUuid") UUID tradeUuid,
+                                       @RequestBody @Valid TradeAmendment amendment) {
+        log.info("Amending trade {} of account {} with [{}]", tradeUuid, accountUuid, amendment);
+        return ResponseEntity.ok(tradeService.amend(accountUuid, tradeUuid, amendment));
+    }
+
+    @Operation(summary = "Cancels every SUBMITTED trade of the account with the UUID specified on the path, " +
+        "optionally only the ones of a symbol and/or side")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Ids of the cancelled trades"),
+        @ApiResponse(responseCode = "404", description = "Account Not found")
+    })
+    @DeleteMapping(produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> cancelAll(@PathVariable("accountUuid") UUID accountUuid,
+                                                           @RequestParam(value = "symbol", required = false) String symbol,
+                                                           @RequestParam(value = "side", required = false) TradeSide side) {
+        log.info("Canceling all submitted trades of account {} for symbol [{}] and side [{}]", accountUuid, symbol, side);
+        List<UUID> cancelled = tradeService.cancelAll(accountUuid, symbol, side);
+        StreamingResponseBody body = (outputStream) -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                for (UUID uuid : cancelled) {
+                    generator.writeStartObject();
+                    generator.writeStringField("id", uuid.toString());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+
 }
@@ -0,0 +1,67 @@
+package com.altruist.resources;
+
+import com.altruist.model.TradeStatusChange;
+import com.altruist.service.TradeHistoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@RestController
+@Validated
+@Slf4j
+public class TradeHistoryController {
+
+    private static final int MAX_CHANGES = 10_000;
+
+    private final TradeHistoryService tradeHistoryService;
+
+    public TradeHistoryController(TradeHistoryService tradeHistoryService) {
+        this.tradeHistoryService = tradeHistoryService;
+    }
+
+    @Operation(summary = "Returns every status the trade went through, oldest first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Status changes"),
+        @ApiResponse(responseCode = "404", description = "Trade Not found on the account"),
+    })
+    @GetMapping(produces = APPLICATION_JSON_VALUE, value = "/accounts/{accountUuid}/trades/{tradeUuid}/history")
+    public ResponseEntity<List<TradeStatusChange>> timeline(@PathVariable("accountUuid") UUID accountUuid,
+                                                            @PathVariable("tradeUuid") UUID tradeUuid) {
+        log.info("Fetching the status history of trade [{}] of account [{}].", tradeUuid, accountUuid);
+        return ResponseEntity.ok(tradeHistoryService.timeline(accountUuid, tradeUuid));
+    }
+
+    @Operation(summary = "Returns a page of the status changes of all trades made in [from, to) UTC, in the order " +
+        "they were made; the next page is asked with after set to the last historyId")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Status changes"),
+        @ApiResponse(responseCode = "400", description = "Validation error"),
+    })
+    @GetMapping(produces = APPLICATION_JSON_VALUE, value = "/trade-history")
+    public ResponseEntity<List<TradeStatusChange>> changesBetween(
+        @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(value = "after", defaultValue = "0") @Min(0) long after,
+        @RequestParam(value = "limit", defaultValue = "1000") @Min(1) @Max(MAX_CHANGES) int limit) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Fetching up to {} trade status changes in [{}, {}) after {}.", limit, from, to, after);
+        return ResponseEntity.ok(tradeHistoryService.changesBetween(from, to, after, limit));
+    }
+}
@@ -0,0 +1,77 @@
+package com.altruist.resources;
+
+import com.altruist.model.TradeLookupResult;
+import com.altruist.service.TradeService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@RestController
+@Validated
+@Slf4j
+public class TradeLookupController {
+
+    private static final int MAX_TRADES = 5_000;
+
+    private final TradeService tradeService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter tradeWriter;
+
+    public TradeLookupController(TradeService tradeService, ObjectMapper objectMapper) {
+        this.tradeService = tradeService;
+        this.objectMapper = objectMapper;
+        this.tradeWriter = objectMapper.writerFor(TradeLookupResult.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Operation(summary = "Returns the trades with the UUIDs informed, whatever their account, in no particular " +
+        "order, each with its id and account; the UUIDs of trades that don't exist are left out")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Trades found"),
+        @ApiResponse(responseCode = "400", description = "No UUIDs or more than 5000 of them"),
+    })
+    @PostMapping(value = "/trades:lookup", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> lookup(
+        @RequestBody @Size(min = 1, max = MAX_TRADES) List<@NotNull UUID> tradeUuids) {
+        log.info("Looking up {} trades.", tradeUuids.size());
+        Set<UUID> uuids = new HashSet<>(tradeUuids);
+        // each trade is written as its row is read
+        StreamingResponseBody body = (outputStream) -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                tradeService.findAllByIds(uuids, (trade) -> {
+                    try {
+                        tradeWriter.writeValue(generator,
+                            new TradeLookupResult(trade.getUuid(), trade.getAccountUuid(), trade));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+}
@@ -1,6 +1,8 @@
 package com.altruist.service;
 
 import com.altruist.model.Account;
+import com.altruist.model.AccountSearchResult;
+import com.altruist.model.State;
 
 import java.util.*;
 
@@ -12,4 +14,10 @@ public interface AccountService {
     Optional<Account> findById(UUID accountUuid);
 
     List<Account> listAll();
+
+    List<AccountSearchResult> search(String query, State state, String city, String after, int limit);
+
+    Optional<String> snapshot(UUID accountUuid, int recentTrades);
+
+    String snapshots(Collection<UUID> accountUuids, int recentTrades);
 }
@@ -0,0 +1,10 @@
+package com.altruist.service;
+
+import java.util.*;
+
+public interface IdempotencyService {
+
+    Optional<UUID> findTradeUuid(UUID accountUuid, String idempotencyKey, String fingerprint);
+    boolean reserve(UUID accountUuid, String idempotencyKey, String fingerprint);
+    void complete(UUID accountUuid, String idempotencyKey, String fingerprint, UUID tradeUuid);
+}
@@ -0,0 +1,12 @@
+package com.altruist.service;
+
+import com.altruist.model.TradeStatusChange;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+public interface TradeHistoryService {
+
+    List<TradeStatusChange> timeline(UUID accountUuid, UUID tradeUuid);
+    List<TradeStatusChange> changesBetween(LocalDateTime from, LocalDateTime to, long afterHistoryId, int limit);
+}
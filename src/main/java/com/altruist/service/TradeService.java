@@ -1,13 +1,22 @@
 package com.altruist.service;
 
+import com.altruist.cache.RecentTrades;
 import com.altruist.model.Trade;
+import com.altruist.model.TradeAmendment;
+import com.altruist.model.TradeSide;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 public interface TradeService {
 
     Trade create(Trade trade);
+    Trade create(Trade trade, String idempotencyKey);
     List<Trade> list(UUID accountUuid);
+    RecentTrades recent(UUID accountUuid, int limit);
     void cancelTrade(UUID accountId, UUID tradeUuid);
+    Trade amend(UUID accountUuid, UUID tradeUuid, TradeAmendment amendment);
+    List<UUID> cancelAll(UUID accountUuid, String symbol, TradeSide side);
     Optional<Trade> findByIdAndAccountId(UUID tradeUuid, UUID accountUuid);
+    void findAllByIds(Collection<UUID> tradeUuids, Consumer<Trade> consumer);
 }
@@ -1,8 +1,13 @@
 package com.altruist.service.impl;
 
+import com.altruist.cache.AccountReadCache;
 import com.altruist.exceptions.InvalidOperationException;
 import com.altruist.model.Account;
+import com.altruist.model.AccountSearchResult;
+import com.altruist.model.State;
+import com.altruist.profiling.TradeOperationEvent;
 import com.altruist.repository.AccountRepository;
+import com.altruist.repository.AccountSnapshotRepository;
 import com.altruist.service.AccountService;
 import com.altruist.service.AddressService;
 import org.springframework.stereotype.Service;
@@ -13,11 +18,17 @@ import java.util.*;
 public class AccountServiceImpl implements AccountService {
   private final AccountRepository accountRepository;
   private final AddressService addressService;
+  private final AccountSnapshotRepository accountSnapshotRepository;
+  private final AccountReadCache readCache;
 
   public AccountServiceImpl(AccountRepository accountRepository,
-                            AddressService addressService) {
+                            AddressService addressService,
+                            AccountSnapshotRepository accountSnapshotRepository,
+                            AccountReadCache readCache) {
     this.accountRepository = accountRepository;
     this.addressService = addressService;
+    this.accountSnapshotRepository = accountSnapshotRepository;
+    this.readCache = readCache;
   }
 
   @Override
@@ -38,11 +49,19 @@ public class AccountServiceImpl implements AccountService {
       this.addressService.deleteAddressFromAccount(account.getUuid());
     }
     accountRepository.update(account);
+    readCache.forget(account.getUuid());
   }
 
   @Override
   public Optional<Account> findById(UUID accountUuid) {
-    return accountRepository.findById(accountUuid);
+    TradeOperationEvent event = TradeOperationEvent.start(TradeOperationEvent.ACCOUNT_LOOKUP, accountUuid, null);
+    try {
+      Optional<Account> account = readCache.account(accountUuid, () -> accountRepository.findById(accountUuid));
+      event.succeeded(account.isPresent() ? 1 : 0);
+      return account;
+    } finally {
+      event.finish();
+    }
   }
 
   @Override
@@ -50,6 +69,24 @@ public class AccountServiceImpl implements AccountService {
     return accountRepository.listAll();
   }
 
+  @Override
+  public List<AccountSearchResult> search(String query, State state, String city, String after, int limit) {
+    return accountRepository.search(query, state, city, after, limit);
+  }
+
+  /**
+   * Account, address, most recent trades and trade counts as a JSON document, empty when the account doesn't exist.
+   */
+  @Override
+  public Optional<String> snapshot(UUID accountUuid, int recentTrades) {
+    return accountSnapshotRepository.findSnapshot(accountUuid, recentTrades);
+  }
+
+  @Override
+  public String snapshots(Collection<UUID> accountUuids, int recentTrades) {
+    return accountSnapshotRepository.findSnapshots(new LinkedHashSet<>(accountUuids), recentTrades);
+  }
+
   private void persistAddressFromAccount(Account account) {
     this.addressService.findByAccountUuid(account.getUuid())
         .ifPresentOrElse(
@@ -1,5 +1,6 @@
 package com.altruist.service.impl;
 
+import com.altruist.cache.AccountReadCache;
 import com.altruist.exceptions.EntityNotFoundException;
 import com.altruist.exceptions.InvalidOperationException;
 import com.altruist.model.Account;
@@ -15,11 +16,14 @@ import java.util.*;
 public class AddressServiceImpl implements com.altruist.service.AddressService {
   private final AddressRepository addressRepository;
   private final AccountRepository accountRepository;
+  private final AccountReadCache readCache;
 
   public AddressServiceImpl(AddressRepository addressRepository,
-                            AccountRepository accountRepository) {
+                            AccountRepository accountRepository,
+                            AccountReadCache readCache) {
     this.addressRepository = addressRepository;
     this.accountRepository = accountRepository;
+    this.readCache = readCache;
   }
 
   @Override
@@ -41,6 +45,8 @@ public class AddressServiceImpl implements com.altruist.service.AddressService {
       );
     }
     addressRepository.update(address);
+    // the address doesn't tell its account
+    readCache.forgetAddresses();
   }
 
   @Override
@@ -53,8 +59,10 @@ public class AddressServiceImpl implements com.altruist.service.AddressService {
 
   @Override
   public Optional<Address> findByAccountUuid(@NonNull UUID accountUuid) {
-    assertAccountExists(accountUuid);
-    return addressRepository.findByAccountId(accountUuid);
+    return readCache.address(accountUuid, () -> {
+      assertAccountExists(accountUuid);
+      return addressRepository.findByAccountId(accountUuid);
+    });
   }
 
   @Override
@@ -64,6 +72,7 @@ public class AddressServiceImpl implements com.altruist.service.AddressService {
     account.setAddressUuid(null);
     this.accountRepository.update(account);
     addressRepository.deleteAddressFromAccount(accountUuid);
+    readCache.forget(accountUuid);
   }
 
   private UUID create(@NonNull Account account, Address address) {
@@ -72,6 +81,7 @@ public class AddressServiceImpl implements com.altruist.service.AddressService {
     UUID uuid = addressRepository.save(address).getUuid();
     account.setAddressUuid(uuid);
     this.accountRepository.update(account);
+    readCache.forget(account.getUuid());
     return uuid;
   }
 
@@ -0,0 +1,83 @@
+package com.altruist.service.impl;
+
+import com.altruist.cache.BoundedCache;
+import com.altruist.exceptions.InvalidTradeException;
+import com.altruist.model.IdempotencyKey;
+import com.altruist.repository.IdempotencyKeyRepository;
+import com.altruist.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * Keeps the most recent idempotency keys in memory, so replays are answered without
+ * touching the database. The table is the source of truth for keys evicted from the cache
+ * and for keys claimed by other instances.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private final IdempotencyKeyRepository repository;
+    private final BoundedCache<String, IdempotencyKey> cache;
+
+    public IdempotencyServiceImpl(IdempotencyKeyRepository repository,
+                                  @Value("${idempotency.cache-size:100000}") int cacheSize) {
+        this.repository = repository;
+        this.cache = new BoundedCache<>(cacheSize);
+    }
+
+    /**
+     * The trade created by the first request with the key, once that request completed. A key
+     * used before with a different request is refused instead of replayed.
+     */
+    @Override
+    public Optional<UUID> findTradeUuid(UUID accountUuid, String idempotencyKey, String fingerprint) {
+        String cacheKey = cacheKey(accountUuid, idempotencyKey);
+        IdempotencyKey key = cache.get(cacheKey);
+        if (key == null) {
+            key = repository.find(accountUuid, idempotencyKey)
+                .filter((stored) -> stored.getTradeUuid() != null)
+                .orElse(null);
+            if (key == null) {
+                return Optional.empty();
+            }
+            cache.put(cacheKey, key);
+        }
+        // keys reserved before fingerprints were stored have none and are replayed as they were
+        if (key.getFingerprint() != null && !key.getFingerprint().equals(fingerprint)) {
+            throw new InvalidTradeException(String.format(
+                "Idempotency key [%s] was already used with a different request", idempotencyKey));
+        }
+        return Optional.of(key.getTradeUuid());
+    }
+
+    @Override
+    public boolean reserve(UUID accountUuid, String idempotencyKey, String fingerprint) {
+        return repository.reserve(accountUuid, idempotencyKey, fingerprint);
+    }
+
+    @Override
+    public void complete(UUID accountUuid, String idempotencyKey, String fingerprint, UUID tradeUuid) {
+        repository.assign(accountUuid, idempotencyKey, tradeUuid);
+        String cacheKey = cacheKey(accountUuid, idempotencyKey);
+        IdempotencyKey key = new IdempotencyKey(tradeUuid, fingerprint);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // only publish the key once the trade is committed, a rollback must not be replayed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    cache.put(cacheKey, key);
+                }
+            });
+        } else {
+            cache.put(cacheKey, key);
+        }
+    }
+
+    private String cacheKey(UUID accountUuid, String idempotencyKey) {
+        return accountUuid + ":" + idempotencyKey;
+    }
+}
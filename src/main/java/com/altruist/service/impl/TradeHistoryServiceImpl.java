@@ -0,0 +1,37 @@
+package com.altruist.service.impl;
+
+import com.altruist.exceptions.EntityNotFoundException;
+import com.altruist.model.TradeStatusChange;
+import com.altruist.repository.TradeRepository;
+import com.altruist.repository.TradeStatusHistoryRepository;
+import com.altruist.service.TradeHistoryService;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+public class TradeHistoryServiceImpl implements TradeHistoryService {
+
+    private final TradeRepository tradeRepository;
+    private final TradeStatusHistoryRepository historyRepository;
+
+    public TradeHistoryServiceImpl(TradeRepository tradeRepository,
+                                   TradeStatusHistoryRepository historyRepository) {
+        this.tradeRepository = tradeRepository;
+        this.historyRepository = historyRepository;
+    }
+
+    @Override
+    public List<TradeStatusChange> timeline(UUID accountUuid, UUID tradeUuid) {
+        tradeRepository.findByIdAndAccountId(tradeUuid, accountUuid)
+            .orElseThrow(() -> new EntityNotFoundException(
+                String.format("Invalid id for trade [%s] of account [%s]", tradeUuid, accountUuid)));
+        return historyRepository.findByTrade(tradeUuid);
+    }
+
+    @Override
+    public List<TradeStatusChange> changesBetween(LocalDateTime from, LocalDateTime to, long afterHistoryId, int limit) {
+        return historyRepository.findBetween(from, to, afterHistoryId, limit);
+    }
+}
@@ -1,19 +1,34 @@
 package com.altruist.service.impl;
 
+import com.altruist.batching.CoalescingTradeWriter;
+import com.altruist.cache.AccountReadCache;
+import com.altruist.cache.RecentTradeStore;
+import com.altruist.cache.RecentTrades;
 import com.altruist.exceptions.EntityNotFoundException;
 import com.altruist.exceptions.InvalidOperationException;
 import com.altruist.exceptions.InvalidTradeStatusException;
+import com.altruist.expiry.TradeExpiryService;
+import com.altruist.ledger.AccountLedgerService;
+import com.altruist.marketdata.MarketDataService;
 import com.altruist.model.Account;
 import com.altruist.model.Trade;
+import com.altruist.model.TradeAmendment;
+import com.altruist.model.TradeSide;
 import com.altruist.model.TradeStatus;
+import com.altruist.profiling.TradeOperationEvent;
 import com.altruist.repository.AccountRepository;
 import com.altruist.repository.TradeRepository;
+import com.altruist.service.IdempotencyService;
 import com.altruist.service.TradeService;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import static java.util.Optional.*;
 
@@ -22,58 +37,297 @@ public class TradeServiceImpl implements TradeService {
 
     private final TradeRepository repository;
     private final AccountRepository accountRepository;
+    private final IdempotencyService idempotencyService;
+    private final MarketDataService marketDataService;
+    private final AccountLedgerService accountLedgerService;
+    private final TradeExpiryService tradeExpiryService;
+    private final CoalescingTradeWriter tradeWriter;
+    private final AccountReadCache readCache;
+    private final RecentTradeStore recentTrades;
 
-    public TradeServiceImpl(TradeRepository repository, AccountRepository accountRepository) {
+    public TradeServiceImpl(TradeRepository repository,
+                            AccountRepository accountRepository,
+                            IdempotencyService idempotencyService,
+                            MarketDataService marketDataService,
+                            AccountLedgerService accountLedgerService,
+                            TradeExpiryService tradeExpiryService,
+                            CoalescingTradeWriter tradeWriter,
+                            AccountReadCache readCache,
+                            RecentTradeStore recentTrades) {
         this.repository = repository;
         this.accountRepository = accountRepository;
+        this.idempotencyService = idempotencyService;
+        this.marketDataService = marketDataService;
+        this.accountLedgerService = accountLedgerService;
+        this.tradeExpiryService = tradeExpiryService;
+        this.tradeWriter = tradeWriter;
+        this.readCache = readCache;
+        this.recentTrades = recentTrades;
     }
 
     @Override
     public Trade create(Trade trade) {
-        this.assertAccountExists(trade.getAccountUuid());
-        return repository.save(trade);
+        TradeOperationEvent event = TradeOperationEvent.start(
+            TradeOperationEvent.SUBMIT, trade.getAccountUuid(), trade.getSymbol());
+        try {
+            this.assertTradeIsAcceptable(trade);
+            Trade dbTrade = this.submit(trade);
+            event.succeeded(1);
+            return dbTrade;
+        } finally {
+            event.finish();
+        }
+    }
+
+    @Override
+    @Transactional
+    public Trade create(Trade trade, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return this.create(trade);
+        }
+        UUID accountUuid = trade.getAccountUuid();
+        String fingerprint = fingerprint(trade);
+        TradeOperationEvent event = TradeOperationEvent.start(TradeOperationEvent.SUBMIT, accountUuid, trade.getSymbol());
+        try {
+            Optional<UUID> original = idempotencyService.findTradeUuid(accountUuid, idempotencyKey, fingerprint);
+            if (original.isPresent()) {
+                event.succeeded(0);
+                return replay(trade, original.get());
+            }
+            this.assertTradeIsAcceptable(trade);
+            if (!idempotencyService.reserve(accountUuid, idempotencyKey, fingerprint)) {
+                UUID winner = idempotencyService.findTradeUuid(accountUuid, idempotencyKey, fingerprint)
+                    .orElseThrow(() -> new InvalidOperationException(
+                        String.format("Idempotency key [%s] is being used by another request", idempotencyKey))
+                    );
+                event.succeeded(0);
+                return replay(trade, winner);
+            }
+            Trade dbTrade = this.submit(trade);
+            idempotencyService.complete(accountUuid, idempotencyKey, fingerprint, dbTrade.getUuid());
+            event.succeeded(1);
+            return dbTrade;
+        } finally {
+            event.finish();
+        }
     }
 
+    /**
+     * Concurrent listings of the same account share one query and its result.
+     */
     @Override
     public List<Trade> list(UUID accountUuid) {
-        this.assertAccountExists(accountUuid);
-        return this.repository.findByAccount(accountUuid);
+        return readCache.trades(accountUuid, () -> {
+            this.assertAccountExists(accountUuid);
+            return this.repository.findByAccount(accountUuid);
+        });
+    }
+
+    /**
+     * The newest trades of the account from its ring of recent trades, filled from the database
+     * on the first listing.
+     */
+    @Override
+    public RecentTrades recent(UUID accountUuid, int limit) {
+        return recentTrades.recent(accountUuid, limit, (count) -> {
+            this.assertAccountExists(accountUuid);
+            return this.repository.findRecentByAccount(accountUuid, count);
+        });
     }
 
     @Override
     public void cancelTrade(UUID accountUuid, UUID tradeUuid) {
+        TradeOperationEvent event = TradeOperationEvent.start(TradeOperationEvent.CANCEL, accountUuid, null);
+        try {
+            this.assertAccountExists(accountUuid);
+            Trade trade = assertThatTradeExistsAndBelongsToAccount(accountUuid, tradeUuid);
+            if (trade.getStatus() != TradeStatus.SUBMITTED) {
+                throw new InvalidTradeStatusException(
+                    String.format("It's not allowed to cancel trades that are not on %s state", TradeStatus.SUBMITTED)
+                );
+            }
+            // the trade read may be stale, what is released is the row the update changed
+            Trade cancelled = repository.updateStatus(tradeUuid, TradeStatus.SUBMITTED, TradeStatus.CANCELLED)
+                .orElseThrow(() -> new InvalidTradeStatusException(
+                    String.format("It's not allowed to cancel trades that are not on %s state", TradeStatus.SUBMITTED)
+                ));
+            readCache.forgetTrades(accountUuid, List.of(tradeUuid));
+            recentTrades.update(cancelled);
+            accountLedgerService.release(cancelled);
+            event.succeeded(1);
+        } finally {
+            event.finish();
+        }
+    }
+
+    /**
+     * Amends the quantity and/or price of a submitted trade with a conditional update on its
+     * version; the ledger reservation is moved first and moved back if the update loses a race.
+     */
+    @Override
+    public Trade amend(UUID accountUuid, UUID tradeUuid, TradeAmendment amendment) {
         this.assertAccountExists(accountUuid);
         Trade trade = assertThatTradeExistsAndBelongsToAccount(accountUuid, tradeUuid);
         if (trade.getStatus() != TradeStatus.SUBMITTED) {
             throw new InvalidTradeStatusException(
-                String.format("It's not allowed to cancel trades that are not on %s state", TradeStatus.SUBMITTED)
+                String.format("It's not allowed to amend trades that are not on %s state", TradeStatus.SUBMITTED)
             );
         }
-        trade.setStatus(TradeStatus.CANCELLED);
-        repository.update(trade);
+        if (!trade.getVersion().equals(amendment.getVersion())) {
+            throw staleVersion(tradeUuid, amendment);
+        }
+        Trade amended = Trade.builder()
+            .uuid(trade.getUuid())
+            .accountUuid(trade.getAccountUuid())
+            .symbol(trade.getSymbol())
+            .side(trade.getSide())
+            .quantity(ofNullable(amendment.getQuantity()).orElse(trade.getQuantity()))
+            .price(ofNullable(amendment.getPrice()).orElse(trade.getPrice()))
+            .status(trade.getStatus())
+            .build();
+        this.marketDataService.validate(amended);
+        accountLedgerService.amend(trade, amended);
+        Optional<Trade> dbTrade;
+        try {
+            dbTrade = repository.amend(tradeUuid, accountUuid, amendment);
+        } catch (RuntimeException ex) {
+            accountLedgerService.amend(amended, trade);
+            throw ex;
+        }
+        readCache.forgetTrades(accountUuid, List.of(tradeUuid));
+        if (dbTrade.isEmpty()) {
+            accountLedgerService.amend(amended, trade);
+            throw staleVersion(tradeUuid, amendment);
+        }
+        recentTrades.update(dbTrade.get());
+        return dbTrade.get();
+    }
+
+    /**
+     * Cancels the matching submitted trades with a single update instead of a read-check-update
+     * per trade, then releases what each of them had reserved in the ledger.
+     */
+    @Override
+    public List<UUID> cancelAll(UUID accountUuid, String symbol, TradeSide side) {
+        TradeOperationEvent event = TradeOperationEvent.start(TradeOperationEvent.CANCEL_ALL, accountUuid, symbol);
+        try {
+            this.assertAccountExists(accountUuid);
+            List<Trade> cancelled = repository.cancelAll(accountUuid, symbol, side);
+            List<UUID> uuids = new ArrayList<>(cancelled.size());
+            for (Trade trade : cancelled) {
+                accountLedgerService.release(trade);
+                recentTrades.update(trade);
+                uuids.add(trade.getUuid());
+            }
+            readCache.forgetTrades(accountUuid, uuids);
+            event.succeeded(uuids.size());
+            return uuids;
+        } finally {
+            event.finish();
+        }
     }
 
+    /**
+     * Read through the account read cache; the trade returned is shared and must not be modified.
+     */
     @Override
     public Optional<Trade> findByIdAndAccountId(UUID tradeUuid, UUID accountUuid) {
-        Optional<Trade> trade = this.repository.findByIdAndAccountId(tradeUuid, accountUuid);
-        AtomicReference<Optional<Trade>> result = new AtomicReference<>(empty());
-        trade.ifPresent((item) -> result.set(of(item)));
-        return result.get();
+        return readCache.trade(tradeUuid, accountUuid,
+            () -> this.repository.findByIdAndAccountId(tradeUuid, accountUuid));
+    }
+
+    /**
+     * Straight from the database, the lookups come in chunks of trades of many accounts that the
+     * read cache would mostly miss.
+     */
+    @Override
+    public void findAllByIds(Collection<UUID> tradeUuids, Consumer<Trade> consumer) {
+        this.repository.findAllByIds(tradeUuids, consumer);
     }
 
     @NotNull
     private Trade assertThatTradeExistsAndBelongsToAccount(UUID accountUuid, UUID tradeUuid) {
         Trade trade = this.assertTradeExists(tradeUuid);
-        if (trade.getAccountUuid() != accountUuid) {
+        if (!accountUuid.equals(trade.getAccountUuid())) {
             throw new InvalidOperationException(
-                "The trade you are trying to cancel doesn't belong to the informed account"
+                "The trade you are trying to change doesn't belong to the informed account"
             );
         }
         return trade;
     }
 
+    /**
+     * Reserves the cash or holdings of the trade in the ledger before saving it, the
+     * reservation is given back if the trade doesn't make it to the database. Outside of a
+     * transaction the insert may be coalesced with concurrent ones. Trades with a time in force
+     * are handed to the expiry wheel once saved.
+     */
+    private Trade submit(Trade trade) {
+        accountLedgerService.reserve(trade);
+        Trade dbTrade;
+        try {
+            dbTrade = tradeWriter.save(trade);
+        } catch (RuntimeException ex) {
+            accountLedgerService.release(trade);
+            throw ex;
+        }
+        readCache.forgetTrades(dbTrade.getAccountUuid(), List.of(dbTrade.getUuid()));
+        recentTrades.add(dbTrade);
+        accountLedgerService.releaseOnRollback(dbTrade);
+        tradeExpiryService.schedule(dbTrade);
+        return dbTrade;
+    }
+
+    private InvalidOperationException staleVersion(UUID tradeUuid, TradeAmendment amendment) {
+        return new InvalidOperationException(String.format(
+            "Version %d of trade [%s] is no longer current, read the trade again before amending it",
+            amendment.getVersion(), tradeUuid));
+    }
+
+    /**
+     * SHA-256 of the fields of the trade request, taken before the trade gets its deadline, so a
+     * replay is told apart from another request reusing the key.
+     */
+    private String fingerprint(Trade trade) {
+        String body = String.join("|",
+            String.valueOf(trade.getAccountUuid()),
+            trade.getSymbol(),
+            String.valueOf(trade.getSide()),
+            String.valueOf(trade.getQuantity()),
+            trade.getPrice() == null ? "null" : trade.getPrice().stripTrailingZeros().toPlainString(),
+            String.valueOf(trade.getTimeInForce()));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest(body.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Trade replay(Trade trade, UUID originalTradeUuid) {
+        trade.setUuid(originalTradeUuid);
+        return trade;
+    }
+
+    private void assertTradeIsAcceptable(Trade trade) {
+        this.marketDataService.validate(trade);
+        this.tradeExpiryService.assignDeadline(trade);
+        this.assertAccountExists(trade.getAccountUuid());
+    }
+
     private Account assertAccountExists(UUID accountUuid) {
-        Optional<Account> account = this.accountRepository.findById(accountUuid);
+        TradeOperationEvent event = TradeOperationEvent.start(TradeOperationEvent.ACCOUNT_LOOKUP, accountUuid, null);
+        Optional<Account> account;
+        try {
+            account = this.accountRepository.findById(accountUuid);
+            event.succeeded(account.isPresent() ? 1 : 0);
+        } finally {
+            event.finish();
+        }
         account
             .orElseThrow(() -> new EntityNotFoundException(
                 String.format("Invalid id for account [%s]", accountUuid))
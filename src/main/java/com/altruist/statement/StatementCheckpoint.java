@@ -0,0 +1,129 @@
+package com.altruist.statement;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Progress of a statement run, saved when it starts and after every chunk of accounts: for each
+ * partition its first uuid, the last account written and the length its file had then, or that
+ * the partition is done. A run of the same date over the same partitions resumes from there,
+ * with the same ranges; any other checkpoint is ignored.
+ */
+@Slf4j
+class StatementCheckpoint {
+
+    private final Path path;
+    private final LocalDate date;
+    private final UUID[] from;
+    private final UUID[] after;
+    private final long[] lengths;
+    private final boolean[] done;
+
+    private StatementCheckpoint(Path path, LocalDate date, int partitions) {
+        this.path = path;
+        this.date = date;
+        this.from = new UUID[partitions];
+        this.after = new UUID[partitions];
+        this.lengths = new long[partitions];
+        this.done = new boolean[partitions];
+    }
+
+    static StatementCheckpoint load(Path path, LocalDate date, int partitions) throws IOException {
+        StatementCheckpoint checkpoint = new StatementCheckpoint(path, date, partitions);
+        if (!Files.isRegularFile(path)) {
+            return checkpoint;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        if (!date.toString().equals(properties.getProperty("date"))
+            || !String.valueOf(partitions).equals(properties.getProperty("partitions"))
+            || properties.getProperty("0.from") == null) {
+            log.info("Ignoring the statement checkpoint {} of another run.", path);
+            return checkpoint;
+        }
+        try {
+            for (int partition = 0; partition < partitions; partition++) {
+                checkpoint.from[partition] = UUID.fromString(properties.getProperty(partition + ".from", ""));
+                String after = properties.getProperty(partition + ".after");
+                checkpoint.after[partition] = after == null ? null : UUID.fromString(after);
+                checkpoint.lengths[partition] = Long.parseLong(properties.getProperty(partition + ".length", "0"));
+                checkpoint.done[partition] = Boolean.parseBoolean(properties.getProperty(partition + ".done"));
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Corrupted statement checkpoint " + path, ex);
+        }
+        return checkpoint;
+    }
+
+    synchronized boolean started() {
+        return from[0] != null;
+    }
+
+    /**
+     * Saves the first uuid of each partition, before anything is written.
+     */
+    synchronized void start(List<UUID> lowerBounds) throws IOException {
+        lowerBounds.toArray(from);
+        save();
+    }
+
+    synchronized UUID from(int partition) {
+        return from[partition];
+    }
+
+    synchronized UUID after(int partition) {
+        return after[partition];
+    }
+
+    synchronized long length(int partition) {
+        return lengths[partition];
+    }
+
+    synchronized boolean done(int partition) {
+        return done[partition];
+    }
+
+    synchronized void advance(int partition, UUID after, long length) throws IOException {
+        this.after[partition] = after;
+        this.lengths[partition] = length;
+        save();
+    }
+
+    synchronized void complete(int partition, long length) throws IOException {
+        this.lengths[partition] = length;
+        this.done[partition] = true;
+        save();
+    }
+
+    private void save() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("date", date.toString());
+        properties.setProperty("partitions", String.valueOf(done.length));
+        for (int partition = 0; partition < done.length; partition++) {
+            properties.setProperty(partition + ".from", from[partition].toString());
+            if (after[partition] != null) {
+                properties.setProperty(partition + ".after", after[partition].toString());
+            }
+            properties.setProperty(partition + ".length", String.valueOf(lengths[partition]));
+            properties.setProperty(partition + ".done", String.valueOf(done[partition]));
+        }
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            properties.store(writer, null);
+        } catch (IOException ex) {
+            Files.deleteIfExists(temp);
+            throw ex;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,40 @@
+package com.altruist.statement;
+
+import com.altruist.cluster.ShardOwnership;
+import com.altruist.repository.StatementRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.ZoneId;
+
+@Configuration
+@ConditionalOnProperty(name = "statements.enabled", havingValue = "true")
+public class StatementConfiguration {
+
+    /**
+     * Eager so the job is scheduled with lazy initialization on. Every worker holds a database
+     * permit while it reads a chunk, so they should stay below the general bulkhead permits.
+     */
+    @Lazy(false)
+    @Bean
+    public StatementJob statementJob(StatementRepository statementRepository,
+                                     ShardOwnership shardOwnership,
+                                     ObjectMapper objectMapper,
+                                     @Value("${statements.zone:America/New_York}") String zone,
+                                     @Value("${ledger.initial-cash:1000000.00}") BigDecimal initialCash,
+                                     @Value("${statements.directory:build/statements}") String directory,
+                                     @Value("${statements.partitions:64}") int partitions,
+                                     @Value("${statements.parallelism:4}") int parallelism,
+                                     @Value("${statements.chunk-size:500}") int chunkSize,
+                                     @Value("${statements.buffer-size:65536}") int bufferSize) {
+        return new StatementJob(statementRepository, shardOwnership, objectMapper, Clock.systemUTC(), ZoneId.of(zone),
+            initialCash, Paths.get(directory), partitions, parallelism, chunkSize, bufferSize);
+    }
+}
@@ -0,0 +1,300 @@
+package com.altruist.statement;
+
+import com.altruist.cluster.ShardOwnership;
+import com.altruist.model.Account;
+import com.altruist.model.AccountStatement;
+import com.altruist.model.Position;
+import com.altruist.model.Trade;
+import com.altruist.model.TradeAggregate;
+import com.altruist.model.TradeSide;
+import com.altruist.model.TradeStatus;
+import com.altruist.repository.StatementRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the end of day {@link AccountStatement} of every account owned by this node, one JSON
+ * statement per line, under a directory per date.
+ * <p>
+ * The account uuids are split into ranges of about the same number of accounts, computed when a
+ * date is first run and kept in its checkpoint, as uuids are not spread evenly over their space:
+ * v7 ones start with their creation time. Each partition is written to its own file by scanning
+ * its range of the primary key a chunk of accounts at a time, so memory only holds a chunk and
+ * the file buffer per worker. The partitions are split in halves between the workers of a fork
+ * join pool, idle workers stealing the halves left. After every chunk the file is synced and the
+ * {@link StatementCheckpoint} saved; an interrupted run started again for the same date
+ * truncates each file back to its checkpoint and goes on from the next account.
+ */
+@Slf4j
+public class StatementJob {
+
+    private final StatementRepository repository;
+    private final ShardOwnership shardOwnership;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter statementWriter;
+    private final Clock clock;
+    private final ZoneId zone;
+    private final BigDecimal initialCash;
+    private final Path directory;
+    private final int partitions;
+    private final int parallelism;
+    private final int chunkSize;
+    private final int bufferSize;
+
+    public StatementJob(StatementRepository repository, ShardOwnership shardOwnership, ObjectMapper objectMapper,
+                        Clock clock, ZoneId zone, BigDecimal initialCash, Path directory, int partitions,
+                        int parallelism, int chunkSize, int bufferSize) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Statement partitions must be at least 1");
+        }
+        this.repository = repository;
+        this.shardOwnership = shardOwnership;
+        this.objectMapper = objectMapper;
+        this.statementWriter = objectMapper.writerFor(AccountStatement.class)
+            .without(SerializationFeature.INDENT_OUTPUT)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.clock = clock;
+        this.zone = zone;
+        this.initialCash = initialCash;
+        this.directory = directory;
+        this.partitions = partitions;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * A failed run is left to the next one, or to a manual run of the same date, to resume.
+     */
+    @Scheduled(cron = "${statements.cron:0 30 16 * * MON-FRI}", zone = "${statements.zone:America/New_York}")
+    public void generateToday() {
+        LocalDate date = LocalDate.now(clock.withZone(zone));
+        try {
+            generate(date);
+        } catch (IOException | RuntimeException ex) {
+            log.error("Statements of {} failed, the next run resumes from the checkpoint.", date, ex);
+        }
+    }
+
+    /**
+     * @return the number of statements written by this run, not counting the ones a previous
+     * run of the date already wrote
+     */
+    public long generate(LocalDate date) throws IOException {
+        Path dateDirectory = directory.resolve(date.toString());
+        Files.createDirectories(dateDirectory);
+        StatementCheckpoint checkpoint = StatementCheckpoint.load(dateDirectory.resolve("checkpoint.properties"), date,
+            partitions);
+        if (!checkpoint.started()) {
+            checkpoint.start(lowerBounds());
+        }
+        Run run = new Run(date, dateDirectory, checkpoint);
+        long started = System.nanoTime();
+        AtomicInteger threads = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(parallelism, (forkJoinPool) -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("statement-" + threads.incrementAndGet());
+            return thread;
+        }, null, false);
+        try {
+            long statements = pool.invoke(new Partitions(run, 0, partitions));
+            log.info("Wrote {} statements of {} to {} in {} ms.", statements, date, dateDirectory,
+                (System.nanoTime() - started) / 1_000_000);
+            return statements;
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * First uuid of each partition, the first one starting at the lowest uuid. With fewer
+     * accounts than partitions the extra ones start where the last one does and are empty.
+     */
+    List<UUID> lowerBounds() {
+        List<UUID> bounds = new ArrayList<>(partitions);
+        bounds.add(new UUID(0, 0));
+        bounds.addAll(repository.findPartitionBounds(partitions));
+        while (bounds.size() < partitions) {
+            bounds.add(bounds.get(bounds.size() - 1));
+        }
+        return bounds;
+    }
+
+    private long write(Run run, int partition) throws IOException {
+        if (run.checkpoint.done(partition)) {
+            return 0;
+        }
+        UUID from = run.checkpoint.from(partition);
+        UUID to = partition == partitions - 1 ? null : run.checkpoint.from(partition + 1);
+        UUID after = run.checkpoint.after(partition);
+        long length = run.checkpoint.length(partition);
+        long statements = 0;
+        Path file = run.directory.resolve(String.format("statements-%05d.jsonl", partition));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(
+                 new BufferedOutputStream(Channels.newOutputStream(channel.truncate(length).position(length)),
+                     bufferSize))) {
+            generator.setRootValueSeparator(null);
+            while (true) {
+                List<Account> accounts = repository.findAccounts(from, to, after, chunkSize);
+                if (accounts.isEmpty()) {
+                    break;
+                }
+                statements += write(run, accounts, generator);
+                generator.flush();
+                channel.force(false);
+                after = accounts.get(accounts.size() - 1).getUuid();
+                if (accounts.size() < chunkSize) {
+                    break;
+                }
+                run.checkpoint.advance(partition, after, channel.position());
+            }
+            run.checkpoint.complete(partition, channel.position());
+        }
+        return statements;
+    }
+
+    private long write(Run run, List<Account> accounts, JsonGenerator generator) throws IOException {
+        List<UUID> owned = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            if (shardOwnership.owns(account.getUuid())) {
+                owned.add(account.getUuid());
+            }
+        }
+        if (owned.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, List<Trade>> trades = new HashMap<>();
+        repository.findTrades(owned, run.from, run.to,
+            (trade) -> trades.computeIfAbsent(trade.getAccountUuid(), (key) -> new ArrayList<>()).add(trade));
+        Map<UUID, List<TradeAggregate>> completed = new HashMap<>();
+        repository.aggregateCompleted(owned, run.to,
+            (aggregate) -> completed.computeIfAbsent(aggregate.getAccountUuid(), (key) -> new ArrayList<>())
+                .add(aggregate));
+        for (Account account : accounts) {
+            if (!shardOwnership.owns(account.getUuid())) {
+                continue;
+            }
+            statementWriter.writeValue(generator, statementOf(account, run.date,
+                trades.getOrDefault(account.getUuid(), List.of()),
+                completed.getOrDefault(account.getUuid(), List.of())));
+            generator.writeRaw('\n');
+        }
+        return owned.size();
+    }
+
+    private AccountStatement statementOf(Account account, LocalDate date, List<Trade> trades,
+                                         List<TradeAggregate> completed) {
+        BigDecimal cash = initialCash;
+        Map<String, Long> holdings = new TreeMap<>();
+        for (TradeAggregate aggregate : completed) {
+            if (aggregate.getSide() == TradeSide.BUY) {
+                cash = cash.subtract(aggregate.getNotional());
+                holdings.merge(aggregate.getSymbol(), aggregate.getQuantity(), Long::sum);
+            } else {
+                cash = cash.add(aggregate.getNotional());
+                holdings.merge(aggregate.getSymbol(), -aggregate.getQuantity(), Long::sum);
+            }
+        }
+        List<Position> positions = new ArrayList<>(holdings.size());
+        holdings.forEach((symbol, quantity) -> {
+            if (quantity != 0) {
+                positions.add(new Position(symbol, quantity));
+            }
+        });
+        BigDecimal bought = BigDecimal.ZERO;
+        BigDecimal sold = BigDecimal.ZERO;
+        for (Trade trade : trades) {
+            if (trade.getStatus() == TradeStatus.COMPLETED) {
+                if (trade.getSide() == TradeSide.BUY) {
+                    bought = bought.add(trade.getTotalAmount());
+                } else {
+                    sold = sold.add(trade.getTotalAmount());
+                }
+            }
+        }
+        return AccountStatement.builder()
+            .accountUuid(account.getUuid())
+            .username(account.getUsername())
+            .date(date)
+            .trades(trades)
+            .positions(positions)
+            .cash(cash)
+            .bought(bought)
+            .sold(sold)
+            .build();
+    }
+
+    /**
+     * The day is the one of the zone, trade times are taken as UTC.
+     */
+    private class Run {
+        private final LocalDate date;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final Path directory;
+        private final StatementCheckpoint checkpoint;
+
+        Run(LocalDate date, Path directory, StatementCheckpoint checkpoint) {
+            this.date = date;
+            this.from = date.atStartOfDay(zone).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+            this.to = date.plusDays(1).atStartOfDay(zone).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+            this.directory = directory;
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    private class Partitions extends RecursiveTask<Long> {
+        private final Run run;
+        private final int first;
+        private final int last;
+
+        Partitions(Run run, int first, int last) {
+            this.run = run;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected Long compute() {
+            if (last - first == 1) {
+                try {
+                    return write(run, first);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            int middle = (first + last) >>> 1;
+            Partitions left = new Partitions(run, first, middle);
+            left.fork();
+            long right = new Partitions(run, middle, last).compute();
+            return right + left.join();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.altruist.utils;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time ordered UUIDs (version 7): 48 bits of unix epoch milliseconds, a 12 bit counter and
+ * 62 random bits. Ids generated by this JVM are strictly increasing, the counter orders ids of
+ * the same millisecond and borrows the next millisecond when it overflows.
+ */
+public class UuidV7 {
+
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    private static final AtomicLong LAST = new AtomicLong();
+
+    public static UUID next() {
+        long timestampAndCounter = nextTimestampAndCounter(System.currentTimeMillis());
+        long mostSignificantBits = ((timestampAndCounter >>> COUNTER_BITS) << 16)
+            | VERSION
+            | (timestampAndCounter & COUNTER_MASK);
+        long leastSignificantBits = (ThreadLocalRandom.current().nextLong() & RANDOM_MASK) | VARIANT;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    public static long timestampMillis(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    private static long nextTimestampAndCounter(long nowMillis) {
+        long candidate = nowMillis << COUNTER_BITS;
+        while (true) {
+            long last = LAST.get();
+            long next = Math.max(candidate, last + 1);
+            if (LAST.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS trade.idempotency_key
+(
+  account_uuid UUID NOT NULL,
+  idempotency_key TEXT NOT NULL,
+  trade_uuid UUID,
+  created_date TIMESTAMP WITHOUT TIME ZONE DEFAULT now(),
+  PRIMARY KEY(account_uuid, idempotency_key),
+  FOREIGN KEY (account_uuid) REFERENCES trade.account (account_uuid),
+  FOREIGN KEY (trade_uuid) REFERENCES trade.trade (trade_uuid)
+);
@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS trade.trade_outbox
+(
+  event_id BIGSERIAL NOT NULL,
+  account_uuid UUID NOT NULL,
+  trade_uuid UUID NOT NULL,
+  event_type TEXT NOT NULL,
+  payload JSONB NOT NULL,
+  created_date TIMESTAMP WITHOUT TIME ZONE DEFAULT now(),
+  published_date TIMESTAMP WITHOUT TIME ZONE,
+  PRIMARY KEY(event_id)
+);
+
+CREATE INDEX IF NOT EXISTS trade_outbox_unpublished_idx
+  ON trade.trade_outbox (event_id)
+  WHERE published_date IS NULL;
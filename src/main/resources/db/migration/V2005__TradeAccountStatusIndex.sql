@@ -0,0 +1,2 @@
+-- cancel-all and the account listings look trades up by account and status
+CREATE INDEX IF NOT EXISTS trade_account_status_idx ON trade.trade (account_uuid, status);
@@ -0,0 +1,2 @@
+-- bumped by every change of a trade, amendments must name the version they were based on
+ALTER TABLE trade.trade ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
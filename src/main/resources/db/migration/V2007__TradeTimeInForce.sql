@@ -0,0 +1,9 @@
+CREATE TYPE trade.time_in_force as ENUM ('DAY', 'GTD', 'IOC');
+
+ALTER TABLE trade.trade
+  ADD COLUMN IF NOT EXISTS time_in_force trade.time_in_force,
+  ADD COLUMN IF NOT EXISTS expires_at TIMESTAMP WITH TIME ZONE;
+
+-- read on start up to rebuild the expiry wheel
+CREATE INDEX IF NOT EXISTS trade_expiring_idx ON trade.trade (expires_at)
+  WHERE status = 'SUBMITTED' AND expires_at IS NOT NULL;
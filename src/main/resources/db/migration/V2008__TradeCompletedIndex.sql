@@ -0,0 +1,3 @@
+-- the analytics backfill scans the completed trades by time range on start up
+CREATE INDEX IF NOT EXISTS trade_completed_idx ON trade.trade (updated_date)
+  WHERE status = 'COMPLETED';
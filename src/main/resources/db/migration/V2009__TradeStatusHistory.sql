@@ -0,0 +1,20 @@
+-- every status a trade went through, appended by the statement changing it
+CREATE TABLE IF NOT EXISTS trade.trade_status_history
+(
+  history_id BIGSERIAL NOT NULL,
+  trade_uuid UUID NOT NULL,
+  account_uuid UUID NOT NULL,
+  from_status trade.trade_status,
+  to_status trade.trade_status NOT NULL,
+  version INTEGER NOT NULL,
+  changed_by TEXT,
+  changed_date TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now()
+);
+
+-- rows are appended in time order, so block ranges summarize the window scans in a few pages
+-- without a b-tree to maintain on every insert
+CREATE INDEX IF NOT EXISTS trade_status_history_changed_brin
+  ON trade.trade_status_history USING brin (changed_date) WITH (pages_per_range = 32);
+
+CREATE INDEX IF NOT EXISTS trade_status_history_trade_idx
+  ON trade.trade_status_history (trade_uuid, history_id);
@@ -0,0 +1,2 @@
+-- the recent listings of an account read its newest trades first
+CREATE INDEX IF NOT EXISTS trade_account_recent_idx ON trade.trade (account_uuid, created_date DESC, trade_uuid DESC);
@@ -0,0 +1,8 @@
+-- account search: prefixes through the text_pattern_ops btrees, fuzzy matches through the trigram ones
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS account_username_prefix_idx ON trade.account (lower(username) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS account_email_prefix_idx ON trade.account (lower(email) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS account_username_trgm_idx ON trade.account USING gin (lower(username) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS account_email_trgm_idx ON trade.account USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS account_address_idx ON trade.account (address_uuid);
+CREATE INDEX IF NOT EXISTS address_state_city_idx ON trade.address (state, lower(city));
@@ -0,0 +1,2 @@
+-- hash of the request a key was first used with, keys reserved before it have none
+ALTER TABLE trade.idempotency_key ADD COLUMN IF NOT EXISTS request_fingerprint TEXT;
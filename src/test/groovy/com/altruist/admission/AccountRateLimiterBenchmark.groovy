@@ -0,0 +1,54 @@
+package com.altruist.admission
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Contention benchmark, run with ./gradlew benchmark
+ */
+class AccountRateLimiterBenchmark extends Specification {
+
+    static final int THREADS = 64
+    static final long DURATION_MILLIS = 3000
+
+    @Unroll
+    def "64 threads acquiring permits over #accounts account(s)"() {
+        given: "a limiter generous enough to never reject, so only the CAS contention is measured"
+        AccountRateLimiter limiter = new AccountRateLimiter(1_000_000_000, Integer.MAX_VALUE, 60000, 1_000_000)
+        UUID[] accountUuids = (1..accounts).collect { UUID.randomUUID() } as UUID[]
+        LongAdder operations = new LongAdder()
+        CountDownLatch start = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(THREADS)
+
+        when:
+        long deadline = 0
+        THREADS.times { int thread ->
+            executor.submit {
+                start.await()
+                int index = thread
+                while (System.nanoTime() < deadline) {
+                    limiter.tryAcquire(accountUuids[index++ % accountUuids.length])
+                    operations.increment()
+                }
+            }
+        }
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS)
+        start.countDown()
+        executor.shutdown()
+        executor.awaitTermination(DURATION_MILLIS * 2, TimeUnit.MILLISECONDS)
+
+        then:
+        long total = operations.sum()
+        println String.format("accounts=%d threads=%d ops=%d throughput=%.0f ops/s",
+                accounts, THREADS, total, total * 1000d / DURATION_MILLIS)
+        total > 0
+
+        where:
+        accounts << [1, 64, 10_000]
+    }
+}
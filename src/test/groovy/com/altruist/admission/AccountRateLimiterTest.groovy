@@ -0,0 +1,68 @@
+package com.altruist.admission
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class AccountRateLimiterTest extends Specification {
+
+    def "Should admit the burst and then ask the caller to wait"() {
+        given: "a bucket of 5 permits refilled at 10 per second"
+        long now = 0
+        TokenBucket bucket = new TokenBucket(10, 5, now)
+
+        expect: "the whole burst is admitted"
+        (1..5).every { bucket.tryAcquire(now) == 0 }
+
+        and: "the next request has to wait one emission interval"
+        bucket.tryAcquire(now) == TimeUnit.MILLISECONDS.toNanos(100)
+
+        and: "a permit is available again after that interval"
+        bucket.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(100)) == 0
+    }
+
+    def "Should limit each account separately"() {
+        given: "a limiter with a burst of 2"
+        AccountRateLimiter limiter = new AccountRateLimiter(1, 2, 60000, 100)
+        UUID noisyAccount = UUID.randomUUID()
+        UUID quietAccount = UUID.randomUUID()
+
+        when: "the noisy account uses its burst"
+        limiter.tryAcquire(noisyAccount)
+        limiter.tryAcquire(noisyAccount)
+
+        then: "the noisy account is limited"
+        limiter.tryAcquire(noisyAccount) > 0
+
+        and: "the quiet account is not"
+        limiter.tryAcquire(quietAccount) == 0
+    }
+
+    def "Should evict full buckets once the limit of buckets is reached"() {
+        given: "a limiter holding at most 10 buckets"
+        AccountRateLimiter limiter = new AccountRateLimiter(1000, 10, 60000, 10)
+
+        when: "many accounts send one request each"
+        (1..100).each { limiter.tryAcquire(UUID.randomUUID()) }
+        Thread.sleep(20)
+        limiter.tryAcquire(UUID.randomUUID())
+
+        then: "the buckets that refilled were dropped"
+        limiter.size() <= 10
+    }
+
+    def "Should release the concurrency permits"() {
+        given: "a limiter of one concurrent request"
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1)
+
+        expect:
+        limiter.tryAcquire()
+        !limiter.tryAcquire()
+
+        when:
+        limiter.release()
+
+        then:
+        limiter.tryAcquire()
+    }
+}
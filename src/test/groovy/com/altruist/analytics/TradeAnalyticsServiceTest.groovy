@@ -0,0 +1,117 @@
+package com.altruist.analytics
+
+import com.altruist.exceptions.EntityNotFoundException
+import com.altruist.marketdata.SymbolTable
+import com.altruist.model.SymbolVwap
+import com.altruist.model.Trade
+import com.altruist.model.TradeBar
+import com.altruist.model.TradeCompletion
+import com.altruist.model.TradeStatus
+import com.altruist.repository.TradeAnalyticsRepository
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.LocalDateTime
+import java.time.ZoneOffset
+import java.util.function.Consumer
+
+class TradeAnalyticsServiceTest extends Specification {
+
+    TradeAnalyticsRepository repository = Mock()
+    SymbolTable symbolTable = new SymbolTable(16)
+    Clock clock = Clock.fixed(Instant.parse("2021-03-01T15:33:00Z"), ZoneOffset.UTC)
+    TradeAnalyticsService service = new TradeAnalyticsService(symbolTable, repository, clock, 16,
+            [(BarResolution.ONE_MINUTE): 60, (BarResolution.FIVE_MINUTES): 12, (BarResolution.ONE_HOUR): 24], 4)
+
+    def setup() {
+        symbolTable.registerAll(["AAPL", "MSFT"])
+    }
+
+    def "Should backfill the bars from parallel scans of the completed trades"() {
+        given: "a minute bar completed before start up"
+        TradeBar completed = new TradeBar(symbol: "AAPL", start: LocalDateTime.parse("2021-03-01T15:20:00"),
+                firstTradeAt: LocalDateTime.parse("2021-03-01T15:20:05"),
+                lastTradeAt: LocalDateTime.parse("2021-03-01T15:20:50"),
+                open: 10.00, high: 12.00, low: 9.00, close: 11.00, volume: 30, notional: 320.00)
+
+        when:
+        service.backfill(LocalDateTime.parse("2021-03-01T15:30:00"))
+
+        then: "the day up to the start of the feed is scanned by four workers over disjoint ranges"
+        4 * repository.aggregateCompleted(_, _, _) >> { LocalDateTime from, LocalDateTime to, Consumer<TradeBar> consumer ->
+            assert from.minute == 0 && from.second == 0
+            if (!completed.start.isBefore(from) && completed.start.isBefore(to)) {
+                consumer.accept(completed)
+            }
+        }
+
+        and: "the bar is served"
+        List<TradeBar> bars = service.bars("AAPL", BarResolution.ONE_MINUTE, 60)
+        bars.size() == 1
+        bars[0].start == LocalDateTime.parse("2021-03-01T15:20:00")
+        bars[0].open == 10.00
+        bars[0].high == 12.00
+        bars[0].low == 9.00
+        bars[0].close == 11.00
+        bars[0].volume == 30
+        bars[0].vwap == 10.6667
+    }
+
+    def "Should add the completed trades delivered after the backfill"() {
+        given: "a backfill up to 15:30 without trades"
+        service.backfill(LocalDateTime.parse("2021-03-01T15:30:00"))
+
+        when: "trades completed after it are delivered in two polls"
+        service.completed([
+                completed("AAPL", 10, 10.00, "2021-03-01T15:31:10"),
+                completed("AAPL", 20, 12.00, "2021-03-01T15:31:40")])
+        service.completed([
+                completed("AAPL", 10, 11.00, "2021-03-01T15:32:05")])
+
+        then: "each minute has its bar"
+        List<TradeBar> minutes = service.bars("AAPL", BarResolution.ONE_MINUTE, 5)
+        minutes*.start == [LocalDateTime.parse("2021-03-01T15:31:00"), LocalDateTime.parse("2021-03-01T15:32:00")]
+        minutes[0].open == 10.00
+        minutes[0].close == 12.00
+        minutes[0].volume == 30
+
+        and: "the five minute bar holds them all"
+        List<TradeBar> fiveMinutes = service.bars("AAPL", BarResolution.FIVE_MINUTES, 1)
+        fiveMinutes.size() == 1
+        fiveMinutes[0].open == 10.00
+        fiveMinutes[0].high == 12.00
+        fiveMinutes[0].low == 10.00
+        fiveMinutes[0].close == 11.00
+        fiveMinutes[0].volume == 40
+
+        and: "the VWAP covers the window"
+        SymbolVwap vwap = service.vwap("AAPL", Duration.ofMinutes(60))
+        vwap.volume == 40
+        vwap.vwap == 11.2500
+    }
+
+    def "Should report no VWAP for a symbol without trades"() {
+        when:
+        SymbolVwap vwap = service.vwap("MSFT", Duration.ofMinutes(5))
+
+        then:
+        vwap.volume == 0
+        vwap.vwap == null
+        service.bars("MSFT", BarResolution.ONE_HOUR, 24).empty
+    }
+
+    def "Should not report analytics of an unknown symbol"() {
+        when:
+        service.vwap("NOPE", Duration.ofMinutes(5))
+
+        then:
+        thrown(EntityNotFoundException)
+    }
+
+    private static TradeCompletion completed(String symbol, int quantity, BigDecimal price, String completedAt) {
+        new TradeCompletion(trade: new Trade(uuid: UUID.randomUUID(), symbol: symbol, quantity: quantity, price: price,
+                status: TradeStatus.COMPLETED), completedAt: LocalDateTime.parse(completedAt))
+    }
+}
@@ -0,0 +1,113 @@
+package com.altruist.batching
+
+import com.altruist.model.Trade
+import com.altruist.repository.TradeRepository
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionSynchronizationManager
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+
+class CoalescingTradeWriterTest extends Specification {
+
+    TradeRepository tradeRepository = Mock()
+    TransactionTemplate transactionTemplate = new TransactionTemplate(Mock(PlatformTransactionManager))
+
+    def "Should insert trades saved together with one statement"() {
+        given: "a single writer waiting long enough for every save"
+        CoalescingTradeWriter writer = new CoalescingTradeWriter(tradeRepository, transactionTemplate, 8, 200_000, 1, 16)
+        writer.start()
+        List<Trade> trades = (1..8).collect { new Trade(symbol: "APPL", quantity: it) }
+        CountDownLatch ready = new CountDownLatch(trades.size())
+        def executor = Executors.newFixedThreadPool(trades.size())
+
+        when: "the trades are saved from different threads"
+        List<Future<Trade>> saved = trades.collect { trade ->
+            executor.submit({ ready.countDown(); ready.await(); writer.save(trade) } as Callable<Trade>)
+        }
+        List<Trade> results = saved*.get()
+
+        then: "they are inserted as one batch"
+        1 * tradeRepository.saveAll({ it.size() == 8 }) >> { List<Trade> batch -> batch }
+        0 * tradeRepository.save(_)
+
+        and: "every caller gets its own trade back"
+        results == trades
+
+        cleanup:
+        executor.shutdown()
+        writer.stop()
+    }
+
+    def "Should write every trade saved while the writer stops"() {
+        given: "writers taking saves from several threads"
+        tradeRepository.saveAll(_) >> { List<Trade> batch -> batch }
+        tradeRepository.save(_) >> { Trade trade -> trade }
+        CoalescingTradeWriter writer = new CoalescingTradeWriter(tradeRepository, transactionTemplate, 8, 50, 2, 16)
+        writer.start()
+        def executor = Executors.newFixedThreadPool(8)
+        List<Future<Integer>> savers = (1..8).collect {
+            executor.submit({
+                (1..500).count { writer.save(new Trade(symbol: "APPL", quantity: it)) != null }
+            } as Callable<Integer>)
+        }
+
+        when: "the writer stops while they save"
+        Thread.sleep(5)
+        writer.stop()
+
+        then: "no save is left waiting"
+        savers*.get(10, TimeUnit.SECONDS) == [500] * 8
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "Should insert the trades one by one when the batch fails"() {
+        given:
+        CoalescingTradeWriter writer = new CoalescingTradeWriter(tradeRepository, transactionTemplate, 8, 0, 0, 16)
+        Trade good = new Trade(symbol: "APPL")
+        Trade bad = new Trade(symbol: "BAD")
+        def goodSave = new CoalescingTradeWriter.PendingSave(good)
+        def badSave = new CoalescingTradeWriter.PendingSave(bad)
+
+        when:
+        writer.write([goodSave, badSave])
+
+        then: "the batch insert fails"
+        1 * tradeRepository.saveAll(_) >> { throw new IllegalStateException("check constraint") }
+
+        and: "each trade is inserted on its own"
+        1 * tradeRepository.save(good) >> good
+        1 * tradeRepository.save(bad) >> { throw new IllegalStateException("check constraint") }
+
+        and: "only the faulty trade fails"
+        goodSave.future.get() == good
+        badSave.future.isCompletedExceptionally()
+    }
+
+    def "Should save straight to the repository within a transaction"() {
+        given:
+        CoalescingTradeWriter writer = new CoalescingTradeWriter(tradeRepository, transactionTemplate, 8, 200_000, 1, 16)
+        writer.start()
+        Trade trade = new Trade(symbol: "APPL")
+        TransactionSynchronizationManager.setActualTransactionActive(true)
+
+        when:
+        Trade saved = writer.save(trade)
+
+        then:
+        1 * tradeRepository.save(trade) >> trade
+        0 * tradeRepository.saveAll(_)
+        saved == trade
+
+        cleanup:
+        TransactionSynchronizationManager.setActualTransactionActive(false)
+        writer.stop()
+    }
+}
@@ -0,0 +1,66 @@
+package com.altruist.bulkhead
+
+import com.altruist.exceptions.ServiceUnavailableException
+import spock.lang.Specification
+
+import javax.sql.DataSource
+import java.sql.Connection
+import java.sql.SQLException
+import java.util.concurrent.TimeUnit
+
+class BulkheadDataSourceTest extends Specification {
+
+    DataSource target = Mock()
+    Bulkhead orderEntry = bulkhead("order entry", 1)
+    Bulkhead general = bulkhead("general", 2)
+    BulkheadDataSource dataSource = new BulkheadDataSource(target, new DatabaseBulkheads(
+            [(DatabaseCompartment.ORDER_ENTRY): orderEntry, (DatabaseCompartment.GENERAL): general]))
+
+    def cleanup() {
+        DatabaseCompartment.leave()
+    }
+
+    def "Should hold a permit of the thread's compartment while the connection is open"() {
+        given:
+        Connection connection = Mock()
+        target.getConnection() >> connection
+        DatabaseCompartment.enter(DatabaseCompartment.ORDER_ENTRY)
+
+        when: "a connection is opened"
+        Connection opened = dataSource.getConnection()
+
+        then: "order entry has no permit left"
+        orderEntry.available() == 0
+        general.available() == 2
+
+        when: "another one is asked for"
+        dataSource.getConnection()
+
+        then:
+        thrown(ServiceUnavailableException)
+
+        when: "the first one is closed twice"
+        opened.close()
+        opened.close()
+
+        then: "its permit is given back once"
+        2 * connection.close()
+        orderEntry.available() == 1
+    }
+
+    def "Should give the permit back when the connection can't be opened"() {
+        given:
+        target.getConnection() >> { throw new SQLException("connection refused") }
+
+        when:
+        dataSource.getConnection()
+
+        then:
+        thrown(SQLException)
+        general.available() == 2
+    }
+
+    private static Bulkhead bulkhead(String name, int permits) {
+        new Bulkhead(name, permits, 10, 1, new CircuitBreaker(5, TimeUnit.SECONDS.toNanos(5)))
+    }
+}
@@ -0,0 +1,73 @@
+package com.altruist.bulkhead
+
+import com.altruist.exceptions.ServiceUnavailableException
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.dao.QueryTimeoutException
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class BulkheadTest extends Specification {
+
+    def "Should reject connections once every permit is taken"() {
+        given: "a bulkhead of one permit held by a connection of another thread"
+        Bulkhead bulkhead = new Bulkhead("test", 1, 10, 1, new CircuitBreaker(5, TimeUnit.SECONDS.toNanos(5)))
+        CountDownLatch acquired = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        Thread slow = Thread.start {
+            bulkhead.acquire()
+            acquired.countDown()
+            release.await()
+            bulkhead.release()
+        }
+        acquired.await()
+
+        when: "another connection is opened"
+        bulkhead.acquire()
+
+        then: "it is rejected without waiting for the slow one"
+        ServiceUnavailableException ex = thrown()
+        ex.retryAfterSeconds == 1
+
+        cleanup:
+        release.countDown()
+        slow.join()
+    }
+
+    def "Should fail fast once the statements keep timing out"() {
+        given: "a bulkhead opening its breaker after two failures"
+        Bulkhead bulkhead = new Bulkhead("test", 2, 10, 1, new CircuitBreaker(2, TimeUnit.SECONDS.toNanos(5)))
+
+        when: "two statements time out"
+        2.times {
+            try {
+                bulkhead.call { throw new QueryTimeoutException("canceling statement due to statement timeout") }
+            } catch (ServiceUnavailableException ignored) {
+            }
+        }
+
+        and: "another call comes in"
+        int calls = 0
+        bulkhead.call { calls++ }
+
+        then: "it is rejected without reaching the database"
+        ServiceUnavailableException ex = thrown()
+        ex.retryAfterSeconds == 5
+        calls == 0
+    }
+
+    def "Should not count the errors of the statements as failures"() {
+        given: "a bulkhead opening its breaker after one failure"
+        Bulkhead bulkhead = new Bulkhead("test", 1, 10, 1, new CircuitBreaker(1, TimeUnit.SECONDS.toNanos(5)))
+
+        when: "a statement violates a constraint"
+        bulkhead.call { throw new DataIntegrityViolationException("duplicate key") }
+
+        then: "the error reaches the caller as is"
+        thrown(DataIntegrityViolationException)
+
+        and: "the next call goes through"
+        bulkhead.call { "result" } == "result"
+    }
+}
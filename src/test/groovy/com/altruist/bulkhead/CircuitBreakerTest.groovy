@@ -0,0 +1,70 @@
+package com.altruist.bulkhead
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class CircuitBreakerTest extends Specification {
+
+    long openNanos = TimeUnit.SECONDS.toNanos(5)
+    CircuitBreaker breaker = new CircuitBreaker(3, openNanos)
+
+    def "Should open after the threshold of failures in a row"() {
+        given: "two failures and a success in between"
+        breaker.failed(0)
+        breaker.failed(0)
+        breaker.succeeded()
+        breaker.failed(0)
+        breaker.failed(0)
+
+        expect: "the breaker is still closed"
+        breaker.tryAcquire(0) == 0
+
+        when: "the third failure in a row happens"
+        breaker.failed(0)
+
+        then: "calls fail fast until the open period is over"
+        breaker.state == CircuitBreaker.State.OPEN
+        breaker.tryAcquire(TimeUnit.SECONDS.toNanos(1)) == TimeUnit.SECONDS.toNanos(4)
+    }
+
+    def "Should let a single trial call through once the open period is over"() {
+        given: "an open breaker"
+        3.times { breaker.failed(0) }
+
+        expect: "a trial call is let through and the next ones wait for it"
+        breaker.tryAcquire(openNanos) == 0
+        breaker.state == CircuitBreaker.State.HALF_OPEN
+        breaker.tryAcquire(openNanos) > 0
+    }
+
+    def "Should #outcome the breaker after the trial call #description"() {
+        given: "a breaker letting a trial call through"
+        3.times { breaker.failed(0) }
+        breaker.tryAcquire(openNanos)
+
+        when: "the trial call ends"
+        trial(breaker, openNanos)
+
+        then:
+        breaker.state == state
+
+        where:
+        description | trial                                  || outcome | state
+        "succeeded" | { CircuitBreaker b, long now -> b.succeeded() } || "close" | CircuitBreaker.State.CLOSED
+        "failed"    | { CircuitBreaker b, long now -> b.failed(now) } || "open"  | CircuitBreaker.State.OPEN
+    }
+
+    def "Should let the next call be the trial when the trial call never reached the database"() {
+        given: "a breaker letting a trial call through"
+        3.times { breaker.failed(0) }
+        breaker.tryAcquire(openNanos)
+
+        when: "the trial call gets no connection"
+        breaker.abandoned(openNanos)
+
+        then: "the next call is let through"
+        breaker.tryAcquire(openNanos) == 0
+        breaker.state == CircuitBreaker.State.HALF_OPEN
+    }
+}
@@ -0,0 +1,61 @@
+package com.altruist.cache
+
+import com.altruist.model.Trade
+import com.altruist.model.TradeCompletion
+import com.altruist.model.TradeStatus
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+class AccountReadCacheTest extends Specification {
+
+    AccountReadCache cache = new AccountReadCache(10, 10, 10)
+    UUID accountUuid = UUID.randomUUID()
+    Trade trade = new Trade(uuid: UUID.randomUUID(), accountUuid: accountUuid, status: TradeStatus.SUBMITTED)
+
+    def "Should read a trade once until it is forgotten"() {
+        given:
+        int loads = 0
+        def loader = { loads++; Optional.of(trade) }
+
+        when:
+        cache.trade(trade.uuid, accountUuid, loader)
+        cache.trade(trade.uuid, accountUuid, loader)
+
+        then:
+        loads == 1
+
+        and: "another account doesn't see it"
+        cache.trade(trade.uuid, UUID.randomUUID(), loader).isEmpty()
+
+        when:
+        cache.forgetTrades(accountUuid, [trade.uuid])
+        cache.trade(trade.uuid, accountUuid, loader)
+
+        then:
+        loads == 2
+    }
+
+    def "Should forget the trades completed by someone else once they are delivered"() {
+        given:
+        cache.trade(trade.uuid, accountUuid, { Optional.of(trade) })
+
+        when:
+        cache.completed([new TradeCompletion(trade: new Trade(uuid: trade.uuid, accountUuid: accountUuid,
+                status: TradeStatus.COMPLETED), completedAt: LocalDateTime.now())])
+
+        then:
+        cache.trade(trade.uuid, accountUuid, { Optional.empty() }).isEmpty()
+    }
+
+    def "Should not keep what was read while the account was written"() {
+        when: "the trade is cancelled while it is being read"
+        cache.trade(trade.uuid, accountUuid, {
+            cache.forgetTrades(accountUuid, [trade.uuid])
+            Optional.of(trade)
+        })
+
+        then: "the next read goes to the database"
+        cache.trade(trade.uuid, accountUuid, { Optional.empty() }).isEmpty()
+    }
+}
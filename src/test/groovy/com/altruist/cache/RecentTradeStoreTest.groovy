@@ -0,0 +1,147 @@
+package com.altruist.cache
+
+import com.altruist.marketdata.SymbolTable
+import com.altruist.model.TimeInForce
+import com.altruist.model.Trade
+import com.altruist.model.TradeCompletion
+import com.altruist.model.TradeSide
+import com.altruist.model.TradeStatus
+import com.altruist.utils.TestHelper
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+import java.time.OffsetDateTime
+import java.time.ZoneOffset
+
+class RecentTradeStoreTest extends Specification {
+
+    SymbolTable symbolTable = new SymbolTable(16)
+    RecentTradeStore store
+    UUID accountUuid = UUID.randomUUID()
+
+    def setup() {
+        symbolTable.registerAll(["AAPL", "MSFT"])
+        store = new RecentTradeStore(symbolTable, 8, 3)
+    }
+
+    def "Should keep the newest trades of an account once filled"() {
+        given: "an account with two trades in the database"
+        Trade older = trade("AAPL", 0)
+        Trade newer = trade("MSFT", 0)
+        int loads = 0
+        def loader = { int count -> loads++; [newer, older].take(count) }
+
+        when:
+        store.recent(accountUuid, 3, loader)
+        List<UUID> filled = uuids(store.recent(accountUuid, 3, loader))
+
+        then:
+        loads == 1
+        filled == [newer.uuid, older.uuid]
+
+        when: "two more are submitted, more than the ring holds"
+        Trade third = trade("AAPL", 0)
+        Trade fourth = trade("MSFT", 0)
+        store.add(third)
+        store.add(fourth)
+
+        then: "the oldest one is out"
+        uuids(store.recent(accountUuid, 3, loader)) == [fourth.uuid, third.uuid, newer.uuid]
+        uuids(store.recent(accountUuid, 1, loader)) == [fourth.uuid]
+        loads == 1
+    }
+
+    def "Should decode every field of a trade"() {
+        given:
+        Trade trade = trade("AAPL", 2)
+        trade.timeInForce = TimeInForce.GTD
+        trade.expiresAt = OffsetDateTime.of(2020, 8, 3, 20, 0, 0, 123456000, ZoneOffset.UTC)
+        store.recent(accountUuid, 1, { [trade] })
+
+        when:
+        List<Trade> decoded = []
+        store.recent(accountUuid, 1, { [] }).forEach { decoded << TestHelper.deepCopy(it) }
+
+        then:
+        with(decoded.first()) {
+            uuid == trade.uuid
+            accountUuid == this.accountUuid
+            symbol == "AAPL"
+            quantity == 10
+            side == TradeSide.BUY
+            price == 10.25
+            totalAmount == 102.50
+            status == TradeStatus.SUBMITTED
+            version == 2
+            timeInForce == TimeInForce.GTD
+            expiresAt == trade.expiresAt
+        }
+    }
+
+    def "Should apply the newer versions of a trade only"() {
+        given:
+        Trade trade = trade("AAPL", 1)
+        store.recent(accountUuid, 1, { [trade] })
+
+        when: "a completion is delivered, then an older change of the trade"
+        store.completed([new TradeCompletion(trade: new Trade(uuid: trade.uuid, accountUuid: accountUuid, symbol: "AAPL",
+                quantity: 10, side: TradeSide.BUY, price: 10.25, status: TradeStatus.COMPLETED, version: 2),
+                completedAt: LocalDateTime.now())])
+        store.update(new Trade(uuid: trade.uuid, accountUuid: accountUuid, quantity: 5, price: 9.00,
+                status: TradeStatus.SUBMITTED, version: 1))
+
+        then:
+        statuses(store.recent(accountUuid, 1, { [] })) == [TradeStatus.COMPLETED]
+    }
+
+    def "Should not fill the ring with what was read while a trade of the account was written"() {
+        given:
+        Trade trade = trade("AAPL", 0)
+        Trade submitted = trade("MSFT", 0)
+
+        when: "a trade is submitted while the ring is being filled"
+        store.recent(accountUuid, 3, { store.add(submitted); [trade] })
+
+        then: "the next listing reads the database again"
+        uuids(store.recent(accountUuid, 3, { [submitted, trade] })) == [submitted.uuid, trade.uuid]
+        uuids(store.recent(accountUuid, 3, { throw new AssertionError("loaded") })) == [submitted.uuid, trade.uuid]
+    }
+
+    def "Should give the slot of the least recently listed account to a new one"() {
+        given: "a store of a single set"
+        RecentTradeStore small = new RecentTradeStore(symbolTable, 2, 3)
+        UUID first = UUID.randomUUID()
+        UUID second = UUID.randomUUID()
+        UUID third = UUID.randomUUID()
+        int loads = 0
+        def loader = { int count -> loads++; [] }
+
+        when:
+        small.recent(first, 1, loader)
+        small.recent(second, 1, loader)
+        small.recent(first, 1, loader)
+        small.recent(third, 1, loader)
+        small.recent(first, 1, loader)
+        small.recent(second, 1, loader)
+
+        then: "second was the least recently used when third came in"
+        loads == 4
+    }
+
+    private Trade trade(String symbol, int version) {
+        new Trade(uuid: UUID.randomUUID(), accountUuid: accountUuid, symbol: symbol, quantity: 10,
+                side: TradeSide.BUY, price: 10.25, status: TradeStatus.SUBMITTED, version: version)
+    }
+
+    private static List<UUID> uuids(RecentTrades trades) {
+        List<UUID> uuids = []
+        trades.forEach { uuids << it.uuid }
+        return uuids
+    }
+
+    private static List<TradeStatus> statuses(RecentTrades trades) {
+        List<TradeStatus> statuses = []
+        trades.forEach { statuses << it.status }
+        return statuses
+    }
+}
@@ -0,0 +1,99 @@
+package com.altruist.cache
+
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class SingleFlightTest extends Specification {
+
+    SingleFlight<String, String> flights = new SingleFlight<>()
+    def executor = Executors.newFixedThreadPool(8)
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "Should share one call between concurrent callers of the same key"() {
+        given: "a call that waits until every caller asked for the key"
+        AtomicInteger calls = new AtomicInteger()
+        CountDownLatch release = new CountDownLatch(1)
+        CountDownLatch leaderStarted = new CountDownLatch(1)
+
+        when:
+        def leader = executor.submit({
+            flights.execute("account", { leaderStarted.countDown(); release.await(); calls.incrementAndGet(); "trades" })
+        } as Callable<String>)
+        leaderStarted.await()
+        def followers = (1..7).collect {
+            executor.submit({ flights.execute("account", { calls.incrementAndGet(); "other" }) } as Callable<String>)
+        }
+        Thread.sleep(50)
+        release.countDown()
+
+        then: "everyone gets the result of the single call"
+        leader.get() == "trades"
+        followers*.get() == ["trades"] * 7
+        calls.get() == 1
+    }
+
+    def "Should hand the failure of the call to every caller"() {
+        given:
+        CountDownLatch release = new CountDownLatch(1)
+        CountDownLatch leaderStarted = new CountDownLatch(1)
+
+        when:
+        def leader = executor.submit({
+            flights.execute("account", { leaderStarted.countDown(); release.await(); throw new IllegalStateException("down") })
+        } as Callable<String>)
+        leaderStarted.await()
+        def follower = executor.submit({ flights.execute("account", { "other" }) } as Callable<String>)
+        Thread.sleep(50)
+        release.countDown()
+        follower.get()
+
+        then:
+        ExecutionException ex = thrown()
+        ex.cause instanceof IllegalStateException
+
+        when:
+        leader.get()
+
+        then:
+        ex = thrown()
+        ex.cause instanceof IllegalStateException
+    }
+
+    def "Should start a new call after the key is forgotten"() {
+        given: "a call in flight"
+        CountDownLatch release = new CountDownLatch(1)
+        CountDownLatch leaderStarted = new CountDownLatch(1)
+        def leader = executor.submit({
+            flights.execute("account", { leaderStarted.countDown(); release.await(); "before" })
+        } as Callable<String>)
+        leaderStarted.await()
+
+        when: "the account is written and read again"
+        flights.forget("account")
+        String after = flights.execute("account", { "after" })
+        release.countDown()
+
+        then: "the later read doesn't get the result read before the write"
+        after == "after"
+        leader.get() == "before"
+    }
+
+    def "Should not keep results once the call returns"() {
+        given:
+        AtomicInteger calls = new AtomicInteger()
+
+        when:
+        2.times { flights.execute("account", { calls.incrementAndGet(); "trades" }) }
+
+        then:
+        calls.get() == 2
+    }
+}
@@ -0,0 +1,167 @@
+package com.altruist.cache
+
+import com.altruist.model.Account
+import com.altruist.model.Address
+import com.altruist.model.State
+import com.altruist.model.TimeInForce
+import com.altruist.model.Trade
+import com.altruist.model.TradeSide
+import com.altruist.model.TradeStatus
+import com.altruist.repository.WarmStartRepository
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.LocalDateTime
+import java.time.OffsetDateTime
+import java.time.ZoneOffset
+
+class WarmStartServiceTest extends Specification {
+
+    static final LocalDateTime WATERMARK = LocalDateTime.of(2020, 8, 1, 10, 30, 15, 123456000)
+
+    WarmStartRepository repository = Mock()
+    Path directory
+    Path path
+
+    UUID accountUuid = UUID.randomUUID()
+    Account account = new Account(uuid: accountUuid, addressUuid: UUID.randomUUID(), username: "warm-user",
+            email: "warm@email.com")
+    Address address = new Address(uuid: account.addressUuid, name: "Warm", street: "Main St", city: "São Paulo",
+            state: State.CA, zipcode: 95814)
+    Trade trade = new Trade(uuid: UUID.randomUUID(), accountUuid: accountUuid, symbol: "WARM", quantity: 10,
+            side: TradeSide.SELL, price: 10.25, status: TradeStatus.SUBMITTED, totalAmount: 102.50, version: 2,
+            timeInForce: TimeInForce.DAY, expiresAt: OffsetDateTime.of(2020, 8, 1, 20, 0, 0, 0, ZoneOffset.UTC))
+
+    def setup() {
+        directory = Files.createTempDirectory("warm-start")
+        path = directory.resolve("cache.snapshot")
+    }
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "Should write and read back every entry of the cache"() {
+        given:
+        AccountReadCache cache = cacheWithEntries()
+
+        when:
+        WarmStartSnapshot.of(WATERMARK, cache).write(path)
+        WarmStartSnapshot snapshot = WarmStartSnapshot.read(path).get()
+
+        then:
+        snapshot.watermark == WATERMARK
+        snapshot.accounts == [(accountUuid): account]
+        with(snapshot.accounts[accountUuid]) {
+            addressUuid == account.addressUuid
+            username == account.username
+            email == account.email
+        }
+        with(snapshot.addresses[accountUuid]) {
+            uuid == address.uuid
+            city == "São Paulo"
+            state == State.CA
+            zipcode == 95814
+        }
+        with(snapshot.trades.first()) {
+            uuid == trade.uuid
+            accountUuid == this.accountUuid
+            side == TradeSide.SELL
+            price == 10.25
+            status == TradeStatus.SUBMITTED
+            totalAmount == 102.50
+            version == 2
+            timeInForce == TimeInForce.DAY
+            expiresAt == trade.expiresAt
+        }
+        Files.list(directory).count() == 1
+    }
+
+    def "Should start cold without a snapshot or with one that isn't"() {
+        given:
+        AccountReadCache cache = new AccountReadCache(10, 10, 10)
+        WarmStartService service = new WarmStartService(cache, repository, path, 60, 1000)
+
+        expect:
+        service.load() == 0
+
+        when:
+        Files.write(path, [1, 2, 3] as byte[])
+
+        then:
+        service.load() == 0
+    }
+
+    def "Should load only the entries unchanged since the watermark less the margin"() {
+        given: "a snapshot of the account, its address and a trade"
+        WarmStartSnapshot.of(WATERMARK, cacheWithEntries()).write(path)
+        AccountReadCache cache = new AccountReadCache(10, 10, 10)
+        WarmStartService service = new WarmStartService(cache, repository, path, 60, 1000)
+        LocalDateTime since = WATERMARK.minusSeconds(60)
+
+        when:
+        int added = service.load()
+
+        then: "the trade was updated since"
+        1 * repository.unchangedAccounts([accountUuid], since) >> ([accountUuid] as Set)
+        1 * repository.unchangedAddresses([accountUuid], since) >> ([accountUuid] as Set)
+        1 * repository.unchangedTrades([trade.uuid], since) >> ([] as Set)
+        added == 2
+
+        and: "the rest is served without a query"
+        cache.account(accountUuid, { throw new AssertionError("loaded") }).get().username == "warm-user"
+        cache.address(accountUuid, { throw new AssertionError("loaded") }).get().city == "São Paulo"
+        cache.trade(trade.uuid, accountUuid, { Optional.empty() }).isEmpty()
+    }
+
+    def "Should keep out the entries of accounts written while they were checked"() {
+        given:
+        WarmStartSnapshot.of(WATERMARK, cacheWithEntries()).write(path)
+        AccountReadCache cache = new AccountReadCache(10, 10, 10)
+        WarmStartService service = new WarmStartService(cache, repository, path, 60, 1000)
+
+        when:
+        int added = service.load()
+
+        then: "the account is updated while the accounts are checked"
+        1 * repository.unchangedAccounts(_, _) >> {
+            cache.forget(accountUuid)
+            [accountUuid] as Set
+        }
+        1 * repository.unchangedAddresses(_, _) >> ([accountUuid] as Set)
+        1 * repository.unchangedTrades(_, _) >> ([trade.uuid] as Set)
+        added == 2
+
+        and:
+        cache.account(accountUuid, { Optional.empty() }).isEmpty()
+    }
+
+    def "Should not write a snapshot before the previous one was loaded"() {
+        given:
+        WarmStartService service = new WarmStartService(cacheWithEntries(), repository, path, 60, 1000)
+
+        when:
+        service.snapshot()
+
+        then:
+        0 * repository.currentTimestamp()
+        !Files.exists(path)
+
+        when:
+        service.load()
+        service.snapshot()
+
+        then:
+        1 * repository.currentTimestamp() >> WATERMARK
+        WarmStartSnapshot.read(path).get().size() == 3
+    }
+
+    private AccountReadCache cacheWithEntries() {
+        AccountReadCache cache = new AccountReadCache(10, 10, 10)
+        cache.account(accountUuid, { Optional.of(account) })
+        cache.address(accountUuid, { Optional.of(address) })
+        cache.trade(trade.uuid, accountUuid, { Optional.of(trade) })
+        return cache
+    }
+}
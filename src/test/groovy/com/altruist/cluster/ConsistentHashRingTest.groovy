@@ -0,0 +1,35 @@
+package com.altruist.cluster
+
+import com.altruist.utils.UuidV7
+import spock.lang.Specification
+
+class ConsistentHashRingTest extends Specification {
+
+    def "Should spread the accounts evenly between the nodes"() {
+        given: "a ring of four nodes"
+        ConsistentHashRing ring = new ConsistentHashRing(["node-1", "node-2", "node-3", "node-4"], 128)
+
+        when: "time ordered account uuids are placed"
+        Map<String, Integer> counts = (1..40_000).collect { ring.ownerOf(UuidV7.next()) }.countBy { it }
+
+        then: "each node owns about a quarter of them"
+        counts.size() == 4
+        counts.values().every { it > 7_000 && it < 13_000 }
+    }
+
+    def "Should only move the accounts of a new node"() {
+        given: "a ring of three nodes and the same ring with a fourth one"
+        ConsistentHashRing three = new ConsistentHashRing(["node-1", "node-2", "node-3"], 128)
+        ConsistentHashRing four = new ConsistentHashRing(["node-1", "node-2", "node-3", "node-4"], 128)
+        List<UUID> accounts = (1..10_000).collect { UUID.randomUUID() }
+
+        when:
+        List<UUID> moved = accounts.findAll { three.ownerOf(it) != four.ownerOf(it) }
+
+        then: "every account that moved went to the new node"
+        moved.every { four.ownerOf(it) == "node-4" }
+
+        and: "about a quarter of them moved"
+        moved.size() > 1_500 && moved.size() < 3_500
+    }
+}
@@ -0,0 +1,81 @@
+package com.altruist.cluster
+
+import org.springframework.mock.web.MockFilterChain
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import spock.lang.Specification
+
+import java.time.Duration
+
+class ShardRoutingFilterTest extends Specification {
+
+    ClusterMembership membership = new ClusterMembership("node-1", [
+            "node-1": URI.create("http://localhost:8081"),
+            "node-2": URI.create("http://localhost:8082")
+    ], 128)
+    ShardRoutingFilter filter = new ShardRoutingFilter(membership, ShardRoutingFilter.Mode.REDIRECT, Duration.ofSeconds(1))
+
+    def "Should serve the requests of the accounts it owns"() {
+        given:
+        UUID account = accountOwnedBy("node-1")
+        MockFilterChain chain = new MockFilterChain()
+
+        when:
+        filter.doFilter(new MockHttpServletRequest("POST", "/accounts/$account/trades"), new MockHttpServletResponse(), chain)
+
+        then:
+        chain.request != null
+    }
+
+    def "Should serve the requests without an account"() {
+        given:
+        MockFilterChain chain = new MockFilterChain()
+
+        when:
+        filter.doFilter(new MockHttpServletRequest("GET", "/accounts"), new MockHttpServletResponse(), chain)
+
+        then:
+        chain.request != null
+    }
+
+    def "Should redirect the requests of accounts owned by another node"() {
+        given:
+        UUID account = accountOwnedBy("node-2")
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/accounts/$account/trades")
+        request.queryString = "symbol=AAPL"
+        MockHttpServletResponse response = new MockHttpServletResponse()
+        MockFilterChain chain = new MockFilterChain()
+
+        when:
+        filter.doFilter(request, response, chain)
+
+        then: "the method and body are kept by a temporary redirect to the owner"
+        response.status == 307
+        response.getHeader("Location") == "http://localhost:8082/accounts/$account/trades?symbol=AAPL"
+
+        and:
+        chain.request == null
+    }
+
+    def "Should not route a request forwarded by another node again"() {
+        given:
+        UUID account = accountOwnedBy("node-2")
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/accounts/$account")
+        request.addHeader(ShardRoutingFilter.FORWARDED_BY_HEADER, "node-2")
+        MockHttpServletResponse response = new MockHttpServletResponse()
+
+        when:
+        filter.doFilter(request, response, new MockFilterChain())
+
+        then:
+        response.status == 421
+    }
+
+    private UUID accountOwnedBy(String nodeId) {
+        UUID account = UUID.randomUUID()
+        while (membership.ownerOf(account) != nodeId) {
+            account = UUID.randomUUID()
+        }
+        account
+    }
+}
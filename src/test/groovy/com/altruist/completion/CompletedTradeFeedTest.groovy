@@ -0,0 +1,95 @@
+package com.altruist.completion
+
+import com.altruist.model.Trade
+import com.altruist.model.TradeCompletion
+import com.altruist.repository.CompletedTradeRepository
+import org.springframework.beans.factory.ObjectProvider
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+import java.util.stream.Stream
+
+class CompletedTradeFeedTest extends Specification {
+
+    static final LocalDateTime NOW = LocalDateTime.parse("2021-03-01T15:30:00")
+
+    CompletedTradeRepository repository = Mock()
+    List<List<TradeCompletion>> delivered = []
+    CompletedTradeListener listener = { delivered << it } as CompletedTradeListener
+    ObjectProvider<CompletedTradeListener> listeners = Mock() {
+        orderedStream() >> { Stream.of(listener) }
+    }
+    CompletedTradeFeed feed = new CompletedTradeFeed(repository, listeners, 5000, 2)
+
+    def setup() {
+        repository.currentTimestamp() >> NOW
+        feed.start()
+    }
+
+    def "Should start a commit margin before the database clock"() {
+        expect:
+        feed.since == NOW.minusSeconds(5)
+    }
+
+    def "Should page through the completed trades and deliver them"() {
+        given:
+        TradeCompletion first = completion(NOW.plusSeconds(1))
+        TradeCompletion second = completion(NOW.plusSeconds(2))
+        TradeCompletion third = completion(NOW.plusSeconds(3))
+
+        when:
+        int count = feed.poll()
+
+        then: "the first page starts at the start of the feed, the next one past the last trade read"
+        1 * repository.findCompleted(NOW.minusSeconds(5), null, 2) >> [first, second]
+        1 * repository.findCompleted(second.completedAt, second.trade.uuid, 2) >> [third]
+
+        and:
+        count == 3
+        delivered == [[first, second], [third]]
+    }
+
+    def "Should read again the commit margin and skip the trades already delivered"() {
+        given: "a trade delivered by the previous poll"
+        TradeCompletion first = completion(NOW.plusSeconds(10))
+        repository.findCompleted(NOW.minusSeconds(5), null, 2) >> [first]
+        feed.poll()
+        delivered.clear()
+
+        and: "a trade committed late, with a completion time before the last one"
+        TradeCompletion late = completion(NOW.plusSeconds(8))
+
+        when:
+        int count = feed.poll()
+
+        then: "the poll reads from the watermark less the margin"
+        1 * repository.findCompleted(NOW.plusSeconds(5), null, 2) >> [late, first]
+        1 * repository.findCompleted(first.completedAt, first.trade.uuid, 2) >> []
+
+        and: "only the late trade is delivered"
+        count == 1
+        delivered == [[late]]
+    }
+
+    def "Should keep delivering to the other listeners when one fails"() {
+        given:
+        CompletedTradeListener failing = { throw new IllegalStateException("failed") } as CompletedTradeListener
+        CompletedTradeFeed feed = new CompletedTradeFeed(repository, Mock(ObjectProvider) {
+            orderedStream() >> { Stream.of(failing, listener) }
+        }, 5000, 2)
+        feed.start()
+        TradeCompletion completion = completion(NOW)
+        repository.findCompleted(_, null, 2) >> [completion]
+
+        when:
+        feed.poll()
+
+        then:
+        delivered == [[completion]]
+    }
+
+    private static TradeCompletion completion(LocalDateTime completedAt) {
+        new TradeCompletion(trade: new Trade(uuid: UUID.randomUUID(), accountUuid: UUID.randomUUID()),
+                completedAt: completedAt)
+    }
+}
@@ -0,0 +1,16 @@
+package com.altruist.config
+
+import spock.lang.Specification
+
+class EmbeddedDatabasesTest extends Specification {
+
+    def "The migration fingerprint is stable between calls"() {
+        when:
+        String first = EmbeddedDatabases.fingerprint()
+        String second = EmbeddedDatabases.fingerprint()
+
+        then:
+        first == second
+        first ==~ /[0-9a-f]{16}/
+    }
+}
@@ -9,6 +9,10 @@ import org.springframework.context.annotation.Profile
 import javax.sql.DataSource
 import java.sql.SQLException
 
+/**
+ * Specs importing this together with {@link DatabaseConfiguration} share one embedded postgres per JVM, restored
+ * from the migrated template configured in application-test.yml.
+ */
 @Configuration
 class RepositoryConfiguration {
 
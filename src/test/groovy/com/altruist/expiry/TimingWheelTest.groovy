@@ -0,0 +1,59 @@
+package com.altruist.expiry
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class TimingWheelTest extends Specification {
+
+    @Unroll
+    def "Should expire an entry #delay ms away exactly at its tick"() {
+        given: "a wheel with 10ms ticks and 8 slots per level"
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 3, 0)
+        wheel.add("trade", delay)
+        List<String> expired = []
+
+        when: "the wheel is advanced to just before the deadline"
+        wheel.advance(delay - 10, { expired << it })
+
+        then: "nothing expired"
+        expired.isEmpty()
+
+        when: "the wheel reaches the deadline"
+        wheel.advance(delay, { expired << it })
+
+        then: "the entry expired once"
+        expired == ["trade"]
+        wheel.size() == 0
+
+        where:
+        delay << [10, 70, 80, 640, 650, 5110, 5120, 40_000]
+    }
+
+    def "Should expire entries in deadline order"() {
+        given: "a wheel with entries on several levels"
+        TimingWheel<Integer> wheel = new TimingWheel<>(1, 4, 3, 1_000)
+        Random random = new Random(42)
+        List<Integer> deadlines = (1..500).collect { 1_000 + random.nextInt(200) + 1 }
+        deadlines.each { wheel.add(it, it) }
+        List<Integer> expired = []
+
+        when:
+        (1_000..1_200).each { now -> wheel.advance(now, { expired << it }) }
+
+        then:
+        expired == deadlines.sort(false)
+    }
+
+    def "Should expire entries added with a deadline in the past on the next advance"() {
+        given:
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 2, 1_000)
+        wheel.add("late", 500)
+        List<String> expired = []
+
+        when:
+        wheel.advance(1_000, { expired << it })
+
+        then:
+        expired == ["late"]
+    }
+}
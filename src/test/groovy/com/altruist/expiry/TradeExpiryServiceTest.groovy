@@ -0,0 +1,131 @@
+package com.altruist.expiry
+
+import com.altruist.cache.AccountReadCache
+import com.altruist.cache.RecentTradeStore
+import com.altruist.cluster.ShardOwnership
+import com.altruist.exceptions.InvalidTradeException
+import com.altruist.ledger.AccountLedgerService
+import com.altruist.model.TimeInForce
+import com.altruist.model.Trade
+import com.altruist.repository.TradeRepository
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Instant
+import java.time.LocalTime
+import java.time.OffsetDateTime
+import java.time.ZoneId
+import java.time.ZoneOffset
+
+class TradeExpiryServiceTest extends Specification {
+
+    TradeRepository tradeRepository = Mock()
+    AccountLedgerService accountLedgerService = Mock()
+    AccountReadCache readCache = Mock()
+    RecentTradeStore recentTrades = Mock()
+    MutableClock clock = new MutableClock(Instant.parse("2021-03-01T15:00:00Z"))
+    TradeExpiryService service = new TradeExpiryService(tradeRepository, accountLedgerService, readCache,
+            recentTrades, ShardOwnership.ALL, clock, ZoneId.of("America/New_York"), LocalTime.of(16, 0), 100, 2, 10, 8, 4)
+
+    def "Should expire day trades at the end of the day"() {
+        given: "a day trade submitted at 10:00 in New York"
+        Trade trade = new Trade(uuid: UUID.randomUUID(), timeInForce: TimeInForce.DAY)
+
+        when:
+        service.assignDeadline(trade)
+
+        then: "it expires at 16:00 in New York"
+        trade.expiresAt.toInstant() == Instant.parse("2021-03-01T21:00:00Z")
+    }
+
+    def "Should not accept a GTD trade expiring in the past"() {
+        given:
+        Trade trade = new Trade(timeInForce: TimeInForce.GTD,
+                expiresAt: OffsetDateTime.of(2021, 3, 1, 14, 0, 0, 0, ZoneOffset.UTC))
+
+        when:
+        service.assignDeadline(trade)
+
+        then:
+        thrown(InvalidTradeException)
+    }
+
+    def "Should expire the due trades in batches and release their reservations"() {
+        given: "three IOC trades of an account scheduled"
+        UUID accountUuid = UUID.randomUUID()
+        List<Trade> trades = (1..3).collect {
+            new Trade(uuid: UUID.randomUUID(), accountUuid: accountUuid, timeInForce: TimeInForce.IOC)
+        }
+        trades.each {
+            service.assignDeadline(it)
+            service.schedule(it)
+        }
+
+        when: "the window is not over yet"
+        int expired = service.expire()
+
+        then: "nothing is expired"
+        expired == 0
+        0 * tradeRepository.expire(_)
+
+        when: "the IOC window is over"
+        clock.advance(100)
+        expired = service.expire()
+
+        then: "the trades are expired in batches of two"
+        1 * tradeRepository.expire([trades[0].uuid, trades[1].uuid]) >> [trades[0], trades[1]]
+        1 * tradeRepository.expire([trades[2].uuid]) >> []
+
+        and: "only the ones still submitted are released, updated in the recent trades and forgotten by the read cache"
+        1 * accountLedgerService.release(trades[0])
+        1 * accountLedgerService.release(trades[1])
+        1 * recentTrades.update(trades[0])
+        1 * recentTrades.update(trades[1])
+        0 * recentTrades._
+        1 * readCache.forgetTrades(accountUuid, [trades[0].uuid, trades[1].uuid])
+        0 * readCache._
+        expired == 2
+    }
+
+    def "Should rebuild the wheel from the expiring trades"() {
+        given: "an expiring trade in the database"
+        Trade trade = new Trade(uuid: UUID.randomUUID(), timeInForce: TimeInForce.GTD,
+                expiresAt: OffsetDateTime.ofInstant(clock.instant().plusMillis(50), ZoneOffset.UTC))
+        tradeRepository.findExpiring(_) >> { args -> args[0].accept(trade) }
+
+        when:
+        service.rebuild()
+        clock.advance(50)
+        service.expire()
+
+        then:
+        1 * tradeRepository.expire([trade.uuid]) >> [trade]
+    }
+
+    static class MutableClock extends Clock {
+        Instant now
+
+        MutableClock(Instant now) {
+            this.now = now
+        }
+
+        void advance(long millis) {
+            now = now.plusMillis(millis)
+        }
+
+        @Override
+        ZoneId getZone() {
+            ZoneOffset.UTC
+        }
+
+        @Override
+        Clock withZone(ZoneId zone) {
+            this
+        }
+
+        @Override
+        Instant instant() {
+            now
+        }
+    }
+}
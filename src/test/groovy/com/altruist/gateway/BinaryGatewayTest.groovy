@@ -0,0 +1,122 @@
+package com.altruist.gateway
+
+import com.altruist.cluster.ShardOwnership
+import com.altruist.exceptions.InvalidTradeStatusException
+import com.altruist.marketdata.SymbolTable
+import com.altruist.model.TimeInForce
+import com.altruist.model.Trade
+import com.altruist.model.TradeSide
+import com.altruist.model.TradeStatus
+import com.altruist.service.TradeService
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+class BinaryGatewayTest extends Specification {
+
+    TradeService tradeService = Mock()
+    SymbolTable symbolTable = new SymbolTable(16)
+    BinaryGateway gateway
+    GatewayClient client
+    GatewayAck ack = new GatewayAck()
+    UUID accountUuid = UUID.randomUUID()
+
+    def setup() {
+        symbolTable.register("AAPL")
+        gateway = new BinaryGateway(new OrderEntryHandler(tradeService, symbolTable, ShardOwnership.ALL, null),
+                "127.0.0.1", 0, 1, 4096)
+        gateway.start()
+        client = new GatewayClient("127.0.0.1", gateway.localPort)
+    }
+
+    def cleanup() {
+        client.close()
+        gateway.stop()
+    }
+
+    def "Should submit a new order to the trade service and ack it"() {
+        given:
+        UUID tradeUuid = UUID.randomUUID()
+
+        when:
+        client.newOrder(42, accountUuid, SymbolTable.encode("AAPL"), TradeSide.SELL, 100, 13205, TimeInForce.DAY, 0, ack)
+
+        then: "the trade is decoded from the message"
+        1 * tradeService.create({ Trade trade ->
+            trade.accountUuid == accountUuid && trade.symbol == "AAPL" && trade.side == TradeSide.SELL &&
+                    trade.quantity == 100 && trade.price == 132.05 && trade.timeInForce == TimeInForce.DAY &&
+                    trade.expiresAt == null
+        }) >> { Trade trade -> trade.uuid = tradeUuid; trade.status = TradeStatus.SUBMITTED; trade }
+
+        and: "the ack carries the trade"
+        ack.accepted
+        ack.clientOrderId == 42
+        ack.tradeUuid() == tradeUuid
+        OrderEntryHandler.statusOf(ack.status) == TradeStatus.SUBMITTED
+        ack.sequence == 1
+        ack.ackedSequence == 1
+    }
+
+    def "Should reject orders failing the payload checks without calling the service"() {
+        when:
+        client.newOrder(1, accountUuid, symbol, TradeSide.BUY, quantity, price, ack)
+
+        then:
+        0 * tradeService.create(_)
+        ack.reason == GatewayProtocol.REJECTED_INVALID
+
+        where:
+        symbol | quantity | price
+        "NOPE" | 100      | 13205
+        "AAPL" | 0        | 13205
+        "AAPL" | 100      | 0
+    }
+
+    def "Should turn service errors into reject reasons"() {
+        given:
+        UUID tradeUuid = UUID.randomUUID()
+
+        when:
+        client.cancel(7, accountUuid, tradeUuid, ack)
+
+        then:
+        1 * tradeService.cancelTrade(accountUuid, tradeUuid) >> { throw new InvalidTradeStatusException("completed") }
+        ack.reason == GatewayProtocol.REJECTED_STATE
+        ack.tradeUuid() == tradeUuid
+    }
+
+    def "Should answer the status of a trade"() {
+        given:
+        UUID tradeUuid = UUID.randomUUID()
+
+        when:
+        client.status(8, accountUuid, tradeUuid, ack)
+
+        then:
+        1 * tradeService.findByIdAndAccountId(tradeUuid, accountUuid) >>
+                Optional.of(new Trade(uuid: tradeUuid, status: TradeStatus.COMPLETED))
+        ack.accepted
+        OrderEntryHandler.statusOf(ack.status) == TradeStatus.COMPLETED
+    }
+
+    def "Should close the session on a sequence gap"() {
+        given: "a status request skipping a sequence number"
+        ByteBuffer message = ByteBuffer.allocate(GatewayProtocol.STATUS_LENGTH)
+        GatewayProtocol.putTradeRequest(message, GatewayProtocol.STATUS, 5, 9, 1, 1, 1, 1)
+        message.flip()
+
+        when:
+        client.sendRaw(message, ack)
+
+        then: "it is rejected"
+        0 * tradeService._
+        ack.reason == GatewayProtocol.REJECTED_SEQUENCE
+        ack.ackedSequence == 5
+
+        when:
+        client.status(10, accountUuid, UUID.randomUUID(), ack)
+
+        then: "the session is gone"
+        thrown(IOException)
+    }
+}
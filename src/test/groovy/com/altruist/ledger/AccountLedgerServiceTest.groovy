@@ -0,0 +1,194 @@
+package com.altruist.ledger
+
+import com.altruist.cluster.ShardOwnership
+import com.altruist.exceptions.InvalidTradeException
+import com.altruist.marketdata.SymbolTable
+import com.altruist.model.Trade
+import com.altruist.model.TradeAggregate
+import com.altruist.model.TradeCompletion
+import com.altruist.model.TradeSide
+import com.altruist.model.TradeStatus
+import com.altruist.repository.TradeRepository
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Consumer
+
+class AccountLedgerServiceTest extends Specification {
+
+    static final LocalDateTime SINCE = LocalDateTime.parse("2021-03-01T15:30:00")
+
+    SymbolTable symbolTable = new SymbolTable(16)
+    TradeRepository tradeRepository = Mock()
+    // 10,000.00 of initial cash
+    AccountLedgerService service = new AccountLedgerService(symbolTable, tradeRepository, 1_000_000, 16)
+    UUID accountUuid = UUID.randomUUID()
+
+    def setup() {
+        symbolTable.registerAll(["AAPL", "MSFT"])
+    }
+
+    def "Should reserve buying power for buys"() {
+        when:
+        service.reserve(trade(TradeSide.BUY, 10, "100.00"))
+
+        then:
+        service.buyingPower(accountUuid) == 900_000
+    }
+
+    def "Should reject buys above the buying power"() {
+        when:
+        service.reserve(trade(TradeSide.BUY, 101, "100.00"))
+
+        then:
+        thrown(InvalidTradeException)
+        service.buyingPower(accountUuid) == 1_000_000
+    }
+
+    def "Should reject sells of shares the account doesn't hold"() {
+        when:
+        service.reserve(trade(TradeSide.SELL, 1, "100.00"))
+
+        then:
+        thrown(InvalidTradeException)
+        service.availableQuantity(accountUuid, "AAPL") == 0
+    }
+
+    def "Should settle the trades completed since the ledger was loaded"() {
+        given: "a buy submitted after the load"
+        Trade buy = trade(TradeSide.BUY, 10, "100.00")
+        service.reserve(buy)
+
+        when: "it is completed by another process and delivered"
+        service.completed([new TradeCompletion(trade: buy, completedAt: LocalDateTime.now())])
+
+        then: "its cash is spent and its shares are held"
+        service.buyingPower(accountUuid) == 900_000
+        service.availableQuantity(accountUuid, "AAPL") == 10
+
+        when: "they are sold and the sell is completed"
+        Trade sell = trade(TradeSide.SELL, 10, "110.00")
+        service.reserve(sell)
+        service.completed([new TradeCompletion(trade: sell, completedAt: LocalDateTime.now())])
+
+        then: "the proceeds are buying power again"
+        service.buyingPower(accountUuid) == 1_010_000
+        service.availableQuantity(accountUuid, "AAPL") == 0
+    }
+
+    def "Should not settle the completed trades of accounts owned by other nodes"() {
+        given:
+        AccountLedgerService owned = new AccountLedgerService(symbolTable, tradeRepository, 1_000_000, 16,
+                { it != accountUuid } as ShardOwnership)
+
+        when:
+        owned.completed([new TradeCompletion(trade: trade(TradeSide.BUY, 10, "100.00"), completedAt: LocalDateTime.now())])
+
+        then:
+        owned.availableQuantity(accountUuid, "AAPL") == 0
+    }
+
+    def "Should give back the reservation of cancelled trades"() {
+        given:
+        Trade buy = trade(TradeSide.BUY, 10, "100.00")
+        service.reserve(buy)
+
+        when:
+        service.release(buy)
+
+        then:
+        service.buyingPower(accountUuid) == 1_000_000
+    }
+
+    def "Should accept sells of shares of completed buys"() {
+        given: "a completed buy"
+        tradeRepository.aggregateByAccount(_, _) >> { LocalDateTime completedBefore, Consumer<TradeAggregate> consumer ->
+            consumer.accept(new TradeAggregate(accountUuid: accountUuid, symbol: "AAPL", side: TradeSide.BUY,
+                    status: TradeStatus.COMPLETED, quantity: 10, notional: 1000.00))
+        }
+        service.load(SINCE)
+
+        when: "part of its shares are sold"
+        service.reserve(trade(TradeSide.SELL, 4, "100.00"))
+
+        then: "the sold shares are reserved"
+        service.availableQuantity(accountUuid, "AAPL") == 6
+        service.buyingPower(accountUuid) == 900_000
+    }
+
+    def "Should load the ledgers from the trade aggregates"() {
+        when:
+        service.load(SINCE)
+
+        then:
+        1 * tradeRepository.aggregateByAccount(SINCE, _) >> { LocalDateTime completedBefore, Consumer<TradeAggregate> consumer ->
+            consumer.accept(new TradeAggregate(accountUuid: accountUuid, symbol: "AAPL", side: TradeSide.BUY,
+                    status: TradeStatus.COMPLETED, quantity: 20, notional: 2000.00))
+            consumer.accept(new TradeAggregate(accountUuid: accountUuid, symbol: "AAPL", side: TradeSide.SELL,
+                    status: TradeStatus.SUBMITTED, quantity: 5, notional: 500.00))
+            consumer.accept(new TradeAggregate(accountUuid: accountUuid, symbol: "MSFT", side: TradeSide.BUY,
+                    status: TradeStatus.SUBMITTED, quantity: 10, notional: 1000.00))
+        }
+
+        and:
+        service.availableQuantity(accountUuid, "AAPL") == 15
+        service.buyingPower(accountUuid) == 1_000_000 - 200_000 - 100_000
+    }
+
+    def "Should not overspend under concurrent submits"() {
+        given:
+        AtomicInteger accepted = new AtomicInteger()
+        def executor = Executors.newFixedThreadPool(16)
+
+        when: "1000 buys of 100.00 are submitted concurrently"
+        1000.times {
+            executor.submit {
+                try {
+                    service.reserve(trade(TradeSide.BUY, 1, "100.00"))
+                    accepted.incrementAndGet()
+                } catch (InvalidTradeException ignored) {
+                }
+            }
+        }
+        executor.shutdown()
+        executor.awaitTermination(10, TimeUnit.SECONDS)
+
+        then: "exactly the initial cash is spent"
+        accepted.get() == 100
+        service.buyingPower(accountUuid) == 0
+    }
+
+    def "Should not oversell under concurrent submits"() {
+        given: "100 shares held"
+        Trade buy = trade(TradeSide.BUY, 100, "10.00")
+        service.reserve(buy)
+        service.completed([new TradeCompletion(trade: buy, completedAt: LocalDateTime.now())])
+        AtomicInteger accepted = new AtomicInteger()
+        def executor = Executors.newFixedThreadPool(16)
+
+        when: "1000 sells of one share are submitted concurrently"
+        1000.times {
+            executor.submit {
+                try {
+                    service.reserve(trade(TradeSide.SELL, 1, "10.00"))
+                    accepted.incrementAndGet()
+                } catch (InvalidTradeException ignored) {
+                }
+            }
+        }
+        executor.shutdown()
+        executor.awaitTermination(10, TimeUnit.SECONDS)
+
+        then: "exactly the held shares are sold"
+        accepted.get() == 100
+        service.availableQuantity(accountUuid, "AAPL") == 0
+    }
+
+    private Trade trade(TradeSide side, int quantity, String price) {
+        new Trade(accountUuid: accountUuid, symbol: "AAPL", quantity: quantity, side: side,
+                price: new BigDecimal(price))
+    }
+}
@@ -0,0 +1,78 @@
+package com.altruist.marketdata
+
+import com.altruist.exceptions.InvalidTradeException
+import com.altruist.model.Trade
+import com.altruist.model.TradeSide
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class MarketDataServiceTest extends Specification {
+
+    SymbolTable symbolTable = new SymbolTable(16)
+    PriceCache priceCache = new PriceCache(16)
+    MarketDataService service = new MarketDataService(symbolTable, priceCache, 1000)
+
+    def setup() {
+        priceCache.update(symbolTable.register("AAPL"), Prices.toTicks(new BigDecimal("100.00")))
+    }
+
+    def "Should intern symbols into stable ids"() {
+        when:
+        int[] ids = symbolTable.registerAll(["MSFT", "AAPL", "GOOGL", "MSFT"])
+
+        then: "known symbols keep their id"
+        ids[1] == symbolTable.idOf("AAPL")
+
+        and: "repeated symbols get the same id"
+        ids[0] == ids[3]
+
+        and: "ids map back to the symbol"
+        symbolTable.symbolOf(ids[2]) == "GOOGL"
+        symbolTable.size() == 3
+    }
+
+    @Unroll
+    def "Should not accept symbol [#symbol]"() {
+        expect:
+        symbolTable.idOf(symbol) == SymbolTable.UNKNOWN
+
+        where:
+        symbol << [null, "", "TSLA", "TOOLONGSYMBOL", "AA PL"]
+    }
+
+    @Unroll
+    def "Should accept price #price within the band"() {
+        when:
+        service.validate(trade("AAPL", price))
+
+        then:
+        noExceptionThrown()
+
+        where:
+        price << ["90.00", "100.00", "110.00"]
+    }
+
+    @Unroll
+    def "Should reject price #price out of the band"() {
+        when:
+        service.validate(trade("AAPL", price))
+
+        then:
+        thrown(InvalidTradeException)
+
+        where:
+        price << ["0.01", "89.99", "110.01"]
+    }
+
+    def "Should reject unknown symbols"() {
+        when:
+        service.validate(trade("TSLA", "100.00"))
+
+        then:
+        thrown(InvalidTradeException)
+    }
+
+    private static Trade trade(String symbol, String price) {
+        new Trade(symbol: symbol, quantity: 10, side: TradeSide.BUY, price: new BigDecimal(price))
+    }
+}
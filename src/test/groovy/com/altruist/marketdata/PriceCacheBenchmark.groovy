@@ -0,0 +1,65 @@
+package com.altruist.marketdata
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * One writer publishing prices as fast as it can while readers spin on lookups,
+ * run with ./gradlew benchmark
+ */
+class PriceCacheBenchmark extends Specification {
+
+    static final int SYMBOLS = 5000
+    static final long DURATION_MILLIS = 3000
+
+    def "One writer and all cores reading last prices"() {
+        given: "a cache of 5000 symbols"
+        SymbolTable symbolTable = new SymbolTable(SYMBOLS)
+        PriceCache priceCache = new PriceCache(SYMBOLS)
+        symbolTable.registerAll((0..<SYMBOLS).collect { "S" + it })
+        int readers = Math.max(1, Runtime.runtime.availableProcessors() - 1)
+        LongAdder reads = new LongAdder()
+        LongAdder writes = new LongAdder()
+        CountDownLatch start = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(readers + 1)
+
+        when:
+        long deadline = 0
+        executor.submit {
+            start.await()
+            long price = 1
+            int symbolId = 0
+            while (System.nanoTime() < deadline) {
+                priceCache.update(symbolId, price++)
+                symbolId = symbolId + 1 == SYMBOLS ? 0 : symbolId + 1
+                writes.increment()
+            }
+        }
+        readers.times { int reader ->
+            executor.submit {
+                start.await()
+                long checksum = 0
+                long count = 0
+                while (System.nanoTime() < deadline) {
+                    checksum += priceCache.lastPrice(symbolTable.idOf("S" + (count % SYMBOLS)))
+                    count++
+                }
+                reads.add(count)
+                checksum
+            }
+        }
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS)
+        start.countDown()
+        executor.shutdown()
+        executor.awaitTermination(DURATION_MILLIS * 2, TimeUnit.MILLISECONDS)
+
+        then:
+        println String.format("readers=%d updates=%.0f/s lookups=%.0f/s",
+                readers, writes.sum() * 1000d / DURATION_MILLIS, reads.sum() * 1000d / DURATION_MILLIS)
+        writes.sum() * 1000d / DURATION_MILLIS >= 1_000_000
+    }
+}
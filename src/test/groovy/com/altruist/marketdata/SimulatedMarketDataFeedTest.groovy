@@ -0,0 +1,34 @@
+package com.altruist.marketdata
+
+import spock.lang.Specification
+
+class SimulatedMarketDataFeedTest extends Specification {
+
+    def "Should move prices too low for the noise to reach a tick"() {
+        expect:
+        SimulatedMarketDataFeed.nextPrice(1_999, 1_999, noise) == expected
+
+        where:
+        noise | expected
+        0.3   | 2_000
+        -0.3  | 1_998
+        0.0   | 2_000
+    }
+
+    def "Should pull prices back towards the reference"() {
+        given: "a price 10% above its reference"
+        long price = 11_000
+
+        when: "it is updated many times with noise"
+        Random random = new Random(42)
+        10_000.times { price = SimulatedMarketDataFeed.nextPrice(price, 10_000, random.nextDouble() * 2 - 1) }
+
+        then: "it stays close to the reference"
+        Math.abs(price - 10_000) < 500
+    }
+
+    def "Should never go below one tick"() {
+        expect:
+        SimulatedMarketDataFeed.nextPrice(1, 1, -1.0) == 1
+    }
+}
@@ -0,0 +1,96 @@
+package com.altruist.outbox
+
+import com.altruist.model.TradeEvent
+import com.altruist.repository.OutboxRepository
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.TimeUnit
+
+class OutboxRelayTest extends Specification {
+
+    OutboxRepository repository = Mock()
+    PlatformTransactionManager transactionManager = Mock()
+    InProcessQueueSink queueSink = new InProcessQueueSink(10, 0)
+
+    def "Should publish the events to every sink and mark them published"() {
+        given: "a file sink and a queue sink"
+        Path file = Files.createTempFile("trade-events", ".jsonl")
+        OutboxRelay relay = new OutboxRelay(repository, new TransactionTemplate(transactionManager),
+                [queueSink, new FileOutboxSink(file, new ObjectMapper())], 100, 72)
+
+        and: "two unpublished events"
+        List<TradeEvent> events = [event(1), event(2)]
+
+        when:
+        int relayed = relay.relay()
+
+        then: "the batch is read under the relay lock"
+        1 * repository.tryLockRelay() >> true
+        1 * repository.findUnpublished(100) >> events
+
+        and: "the events are marked published"
+        1 * repository.markPublished([1L, 2L])
+        relayed == 2
+
+        and: "the queue received the events in order"
+        queueSink.poll(0, TimeUnit.MILLISECONDS).eventId == 1
+        queueSink.poll(0, TimeUnit.MILLISECONDS).eventId == 2
+
+        and: "the file has one JSON line per event"
+        List<String> lines = Files.readAllLines(file)
+        lines.size() == 2
+        lines[0].contains('"payload":{"status":"SUBMITTED"}')
+
+        cleanup:
+        Files.deleteIfExists(file)
+    }
+
+    def "Should not mark the events published when a sink fails"() {
+        given: "a sink that always fails"
+        OutboxSink failingSink = Mock() {
+            publish(_) >> { throw new IOException("disk full") }
+        }
+        OutboxRelay relay = new OutboxRelay(repository, new TransactionTemplate(transactionManager),
+                [failingSink], 100, 72)
+
+        when:
+        int relayed = relay.relay()
+
+        then: "the batch is read"
+        1 * repository.tryLockRelay() >> true
+        1 * repository.findUnpublished(100) >> [event(1)]
+
+        and: "nothing is marked published"
+        0 * repository.markPublished(_)
+        relayed == 0
+    }
+
+    def "Should skip the batch when another relay holds the lock"() {
+        given:
+        OutboxRelay relay = new OutboxRelay(repository, new TransactionTemplate(transactionManager),
+                [queueSink], 100, 72)
+
+        when:
+        int relayed = relay.relay()
+
+        then:
+        1 * repository.tryLockRelay() >> false
+        0 * repository.findUnpublished(_)
+        relayed == 0
+    }
+
+    private static TradeEvent event(long eventId) {
+        new TradeEvent(
+                eventId: eventId,
+                accountUuid: UUID.randomUUID(),
+                tradeUuid: UUID.randomUUID(),
+                eventType: TradeEvent.CREATED,
+                payload: '{"status":"SUBMITTED"}'
+        )
+    }
+}
@@ -0,0 +1,78 @@
+package com.altruist.profiling
+
+import com.altruist.model.Trade
+import com.altruist.model.TradeSide
+import com.altruist.repository.TradeRepository
+import jdk.jfr.RecordingState
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordingFile
+import org.springframework.aop.framework.ProxyFactory
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse
+import org.springframework.core.io.Resource
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+
+class FlightRecorderEndpointTest extends Specification {
+
+    FlightRecorderEndpoint endpoint = new FlightRecorderEndpoint("default", Duration.ofMinutes(5), false)
+
+    def cleanup() {
+        endpoint.stop()
+    }
+
+    def "Should record the trade operations and repository calls until dumped"() {
+        given: "a repository advised with the interceptor"
+        TradeRepository target = Mock() {
+            cancelAll(_, _, _) >> [new Trade(), new Trade()]
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(target)
+        proxyFactory.addAdvice(new RepositoryCallInterceptor())
+        TradeRepository repository = (TradeRepository) proxyFactory.getProxy()
+        UUID accountUuid = UUID.randomUUID()
+
+        when: "a recording is started"
+        Map<String, Object> status = endpoint.start(null, null)
+
+        and: "a trade operation calls the repository"
+        TradeOperationEvent event = TradeOperationEvent.start(TradeOperationEvent.CANCEL_ALL, accountUuid, "AAPL")
+        repository.save(new Trade(accountUuid: accountUuid, symbol: "AAPL", side: TradeSide.BUY))
+        repository.cancelAll(accountUuid, "AAPL", null)
+        event.succeeded(2)
+        event.finish()
+
+        and: "the recording is dumped"
+        WebEndpointResponse<Resource> response = endpoint.dump()
+        Path dump = response.body.file.toPath()
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump)
+
+        then: "the recording is running"
+        status.state == RecordingState.RUNNING
+        response.status == 200
+
+        and: "the trade operation was recorded with its account, symbol and rows"
+        RecordedEvent operation = events.find { it.eventType.name == "com.altruist.TradeOperation" }
+        operation.getString("operation") == "cancelAll"
+        operation.getString("account") == accountUuid.toString()
+        operation.getString("symbol") == "AAPL"
+        operation.getInt("rows") == 2
+        operation.getBoolean("succeeded")
+
+        and: "so were both repository calls"
+        List<RecordedEvent> calls = events.findAll { it.eventType.name == "com.altruist.RepositoryCall" }
+        calls*.getString("method") as Set == ["save", "cancelAll"] as Set
+        calls.find { it.getString("method") == "save" }.getString("account") == accountUuid.toString()
+        calls.find { it.getString("method") == "save" }.getString("symbol") == "AAPL"
+        calls.find { it.getString("method") == "cancelAll" }.getLong("rows") == 2
+
+        cleanup:
+        Files.deleteIfExists(dump)
+    }
+
+    def "Should not dump without a running recording"() {
+        expect:
+        endpoint.dump().status == 404
+    }
+}
@@ -3,6 +3,9 @@ package com.altruist.repository
 import com.altruist.config.DatabaseConfiguration
 import com.altruist.config.RepositoryConfiguration
 import com.altruist.model.Account
+import com.altruist.model.AccountSearchResult
+import com.altruist.model.Address
+import com.altruist.model.State
 import com.altruist.repository.impl.AccountRepositoryImpl
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest
@@ -26,6 +29,8 @@ import spock.lang.Stepwise
 class AccountRepositoryTest extends Specification {
     @Autowired
     AccountRepository repo
+    @Autowired
+    AddressRepository addressRepo
 
     @Shared
     Account account
@@ -92,6 +97,36 @@ class AccountRepositoryTest extends Specification {
 
     }
 
+    def "Searches accounts by username, email and address"() {
+        given: "accounts with an address in California, in New York and without one"
+        Address sacramento = addressRepo.save(new Address(name: "home", street: "Main St", city: "Sacramento",
+                state: State.CA, zipcode: 95814))
+        Address newYork = addressRepo.save(new Address(name: "home", street: "Broadway", city: "New York",
+                state: State.NY, zipcode: 10001))
+        repo.save(new Account(username: "zq-alice", email: "alice@zq.com", addressUuid: sacramento.uuid))
+        repo.save(new Account(username: "zq-alicia", email: "alicia@zq.com", addressUuid: newYork.uuid))
+        repo.save(new Account(username: "zq-bob", email: "bob@example.com"))
+
+        expect: "prefixes of the username or email match whatever their case"
+        repo.search("ZQ-ALI", null, null, null, 10)*.username == ["zq-alice", "zq-alicia"]
+        repo.search("bob@", null, null, null, 10)*.username == ["zq-bob"]
+
+        and: "misspelt usernames match the similar ones"
+        List<String> similar = repo.search("zq-alise", null, null, null, 10)*.username
+        "zq-alice" in similar
+        !("zq-bob" in similar)
+
+        and: "the address filters leave out the accounts elsewhere or without an address"
+        List<AccountSearchResult> californians = repo.search("zq-", State.CA, null, null, 10)
+        californians*.username == ["zq-alice"]
+        californians[0].city == "Sacramento"
+        repo.search("zq-", null, "new york", null, 10)*.username == ["zq-alicia"]
+
+        and: "pages follow the username of the last account of the previous one"
+        repo.search("zq-", null, null, null, 2)*.username == ["zq-alice", "zq-alicia"]
+        repo.search("zq-", null, null, "zq-alicia", 2)*.username == ["zq-bob"]
+    }
+
     def "A blank list should not cause an exception "() {
         when:
         Account[] accounts = repo.listAll()
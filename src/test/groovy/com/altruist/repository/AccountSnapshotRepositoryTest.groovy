@@ -0,0 +1,88 @@
+package com.altruist.repository
+
+import com.altruist.config.DatabaseConfiguration
+import com.altruist.config.RepositoryConfiguration
+import com.altruist.model.Account
+import com.altruist.model.Address
+import com.altruist.model.State
+import com.altruist.model.Trade
+import com.altruist.model.TradeSide
+import com.altruist.model.TradeStatus
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.context.annotation.ComponentScan
+import org.springframework.context.annotation.FilterType
+import org.springframework.context.annotation.Import
+import org.springframework.stereotype.Repository
+import org.springframework.test.annotation.Rollback
+import org.springframework.test.context.ActiveProfiles
+import spock.lang.Specification
+
+@ActiveProfiles("test")
+@DataJdbcTest(includeFilters = [@ComponentScan.Filter(type = FilterType.ANNOTATION, value = [Repository])])
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(value = [DatabaseConfiguration, RepositoryConfiguration])
+@Rollback(true)
+class AccountSnapshotRepositoryTest extends Specification {
+    @Autowired
+    AccountSnapshotRepository repository
+    @Autowired
+    AccountRepository accountRepository
+    @Autowired
+    AddressRepository addressRepository
+    @Autowired
+    TradeRepository tradeRepository
+
+    ObjectMapper objectMapper = new ObjectMapper()
+
+    def "Builds the snapshot of an account in one statement"() {
+        given: "an account with an address and three trades, one of them cancelled"
+        Address address = addressRepository.save(new Address(name: "Home", street: "Main St", city: "Austin",
+                state: State.TX, zipcode: 73301))
+        Account account = accountRepository.save(new Account(username: "snapshot-user", email: "snapshot@email.com",
+                addressUuid: address.uuid))
+        List<Trade> trades = (1..3).collect {
+            tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "AAPL", quantity: it,
+                    side: TradeSide.BUY, price: BigDecimal.valueOf(10.00)))
+        }
+        tradeRepository.updateStatus(trades[0].uuid, TradeStatus.SUBMITTED, TradeStatus.CANCELLED)
+
+        when: "the snapshot with the two most recent trades is read"
+        Map snapshot = objectMapper.readValue(repository.findSnapshot(account.uuid, 2).get(), Map)
+
+        then: "the account and its address are there"
+        snapshot.id == account.uuid.toString()
+        snapshot.username == "snapshot-user"
+        snapshot.address.city == "Austin"
+        snapshot.address.state == "TX"
+
+        and: "the most recent trades come first"
+        snapshot.recentTrades*.id == [trades[2].uuid.toString(), trades[1].uuid.toString()]
+
+        and: "the counts cover every trade"
+        snapshot.tradeCounts == [SUBMITTED: 2, CANCELLED: 1]
+    }
+
+    def "Returns no snapshot of an unknown account"() {
+        expect:
+        !repository.findSnapshot(UUID.randomUUID(), 20).present
+    }
+
+    def "Builds the snapshots of the accounts found"() {
+        given: "an account without trades or address"
+        Account account = accountRepository.save(new Account(username: "snapshots-user", email: "snapshots@email.com"))
+
+        when:
+        List snapshots = objectMapper.readValue(
+                repository.findSnapshots([account.uuid, UUID.randomUUID()], 20), List)
+
+        then: "only the existing account is returned"
+        snapshots.size() == 1
+        snapshots[0].id == account.uuid.toString()
+        snapshots[0].address == null
+        snapshots[0].recentTrades == []
+        snapshots[0].tradeCounts == [:]
+    }
+}
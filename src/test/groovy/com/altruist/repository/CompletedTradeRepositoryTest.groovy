@@ -0,0 +1,71 @@
+package com.altruist.repository
+
+import com.altruist.config.DatabaseConfiguration
+import com.altruist.config.RepositoryConfiguration
+import com.altruist.model.Account
+import com.altruist.model.Trade
+import com.altruist.model.TradeCompletion
+import com.altruist.model.TradeSide
+import com.altruist.model.TradeStatus
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.context.annotation.ComponentScan
+import org.springframework.context.annotation.FilterType
+import org.springframework.context.annotation.Import
+import org.springframework.stereotype.Repository
+import org.springframework.test.annotation.Rollback
+import org.springframework.test.context.ActiveProfiles
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+@ActiveProfiles("test")
+@DataJdbcTest(includeFilters = [@ComponentScan.Filter(type = FilterType.ANNOTATION, value = [Repository])])
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(value = [DatabaseConfiguration, RepositoryConfiguration])
+@Rollback(true)
+class CompletedTradeRepositoryTest extends Specification {
+    @Autowired
+    CompletedTradeRepository repository
+    @Autowired
+    AccountRepository accountRepository
+    @Autowired
+    TradeRepository tradeRepository
+
+    def "Pages through the completed trades in completion order"() {
+        given: "three completed trades and a submitted one"
+        Account account = accountRepository.save(new Account(username: "completed-user", email: "completed@email.com"))
+        List<Trade> trades = (1..4).collect {
+            tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "CMPL", quantity: it * 10,
+                    side: TradeSide.BUY, price: BigDecimal.valueOf(10.00)))
+        }
+        trades.take(3).each { tradeRepository.updateStatus(it.uuid, TradeStatus.SUBMITTED, TradeStatus.COMPLETED) }
+        LocalDateTime now = repository.currentTimestamp()
+
+        when: "the first page of two is read"
+        List<TradeCompletion> first = repository.findCompleted(now, null, 2)
+                .findAll { it.trade.accountUuid == account.uuid }
+
+        then: "the trades are completed at the database clock, in uuid order within it"
+        first.size() == 2
+        first*.completedAt.every { it == now }
+        first*.trade*.status.every { it == TradeStatus.COMPLETED }
+        first[0].trade.totalAmount == first[0].trade.price * first[0].trade.quantity
+
+        when: "the next page is read past its last trade"
+        List<TradeCompletion> next = repository.findCompleted(now, first[1].trade.uuid, 2)
+                .findAll { it.trade.accountUuid == account.uuid }
+
+        then: "it holds the third completed trade only"
+        next*.trade*.uuid == (trades.take(3)*.uuid - first*.trade*.uuid)
+    }
+
+    def "Leaves out the trades completed before from"() {
+        given:
+        LocalDateTime now = repository.currentTimestamp()
+
+        expect:
+        repository.findCompleted(now.plusHours(1), null, 10).empty
+    }
+}
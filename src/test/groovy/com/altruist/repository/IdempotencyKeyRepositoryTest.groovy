@@ -0,0 +1,91 @@
+package com.altruist.repository
+
+import com.altruist.config.DatabaseConfiguration
+import com.altruist.config.RepositoryConfiguration
+import com.altruist.model.Account
+import com.altruist.model.IdempotencyKey
+import com.altruist.model.Trade
+import com.altruist.model.TradeSide
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.context.annotation.ComponentScan
+import org.springframework.context.annotation.FilterType
+import org.springframework.context.annotation.Import
+import org.springframework.stereotype.Repository
+import org.springframework.test.annotation.Rollback
+import org.springframework.test.context.ActiveProfiles
+import spock.lang.Shared
+import spock.lang.Specification
+
+@ActiveProfiles("test")
+@DataJdbcTest(includeFilters = [@ComponentScan.Filter(type = FilterType.ANNOTATION, value = [Repository])])
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(value = [DatabaseConfiguration, RepositoryConfiguration])
+@Rollback(true)
+class IdempotencyKeyRepositoryTest extends Specification {
+    @Autowired
+    IdempotencyKeyRepository repository
+    @Autowired
+    AccountRepository accountRepository
+    @Autowired
+    TradeRepository tradeRepository
+
+    @Shared
+    Account account
+
+    def setup() {
+        account = accountRepository.save(new Account(
+                username: "idempotentuser",
+                email: "idempotent@email.com"
+        ))
+    }
+
+    def "Reserves a key only once"() {
+        expect: "the first reservation wins"
+        repository.reserve(account.uuid, "key-1", "fingerprint")
+
+        and: "the second reservation of the same key is refused"
+        !repository.reserve(account.uuid, "key-1", "another fingerprint")
+
+        and: "the same key is free on another account"
+        repository.reserve(accountRepository.save(new Account(
+                username: "anotheruser",
+                email: "another@email.com"
+        )).uuid, "key-1", "fingerprint")
+    }
+
+    def "Keeps the fingerprint of the first reservation"() {
+        given: "a key reserved twice"
+        repository.reserve(account.uuid, "key-1", "fingerprint")
+        repository.reserve(account.uuid, "key-1", "another fingerprint")
+
+        expect: "the key has the first fingerprint and no trade yet"
+        repository.find(account.uuid, "key-1").get() == new IdempotencyKey(null, "fingerprint")
+    }
+
+    def "Assigns the trade to a reserved key"() {
+        given: "a reserved key"
+        repository.reserve(account.uuid, "key-1", "fingerprint")
+
+        and: "a trade"
+        Trade trade = tradeRepository.save(new Trade(
+                accountUuid: account.uuid,
+                symbol: "APPL",
+                quantity: 100,
+                side: TradeSide.BUY,
+                price: BigDecimal.valueOf(100.50)
+        ))
+
+        when:
+        repository.assign(account.uuid, "key-1", trade.uuid)
+
+        then: "the trade is found by the key"
+        repository.find(account.uuid, "key-1").get() == new IdempotencyKey(trade.uuid, "fingerprint")
+    }
+
+    def "An unknown key should not cause an exception"() {
+        expect:
+        !repository.find(account.uuid, "unknown").isPresent()
+    }
+}
@@ -0,0 +1,104 @@
+package com.altruist.repository
+
+import com.altruist.config.DatabaseConfiguration
+import com.altruist.config.RepositoryConfiguration
+import com.altruist.model.Account
+import com.altruist.model.Trade
+import com.altruist.model.TradeAggregate
+import com.altruist.model.TradeSide
+import com.altruist.model.TradeStatus
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.context.annotation.ComponentScan
+import org.springframework.context.annotation.FilterType
+import org.springframework.context.annotation.Import
+import org.springframework.stereotype.Repository
+import org.springframework.test.annotation.Rollback
+import org.springframework.test.context.ActiveProfiles
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+@ActiveProfiles("test")
+@DataJdbcTest(includeFilters = [@ComponentScan.Filter(type = FilterType.ANNOTATION, value = [Repository])])
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(value = [DatabaseConfiguration, RepositoryConfiguration])
+@Rollback(true)
+class StatementRepositoryTest extends Specification {
+    @Autowired
+    StatementRepository repository
+    @Autowired
+    AccountRepository accountRepository
+    @Autowired
+    TradeRepository tradeRepository
+    @Autowired
+    WarmStartRepository warmStartRepository
+
+    def "Pages through the accounts of a range of uuids"() {
+        given: "an account"
+        Account account = accountRepository.save(new Account(username: "statement-user", email: "statement@email.com"))
+
+        expect: "it is the first account of a range starting at its uuid"
+        repository.findAccounts(account.uuid, null, null, 1)*.uuid == [account.uuid]
+
+        and: "it is left out of the next page and of the ranges ending at it"
+        !(account.uuid in repository.findAccounts(account.uuid, null, account.uuid, 10)*.uuid)
+        !(account.uuid in repository.findAccounts(new UUID(0, 0), account.uuid, null, 10)*.uuid)
+    }
+
+    def "Splits the accounts into partitions of about the same size"() {
+        given: "a few accounts more"
+        (0..<4).each {
+            accountRepository.save(new Account(username: "statement-partition$it", email: "partition$it@email.com"))
+        }
+
+        when:
+        List<UUID> bounds = repository.findPartitionBounds(2)
+
+        then: "the second partition starts halfway through the accounts"
+        bounds.size() == 1
+        int below = repository.findAccounts(new UUID(0, 0), bounds[0], null, 100_000).size()
+        int above = repository.findAccounts(bounds[0], null, null, 100_000).size()
+        below - above in [0, 1]
+    }
+
+    def "Reads the trades and the completed totals of the accounts"() {
+        given: "a completed buy, a submitted sell and a completed sell of the account"
+        Account account = accountRepository.save(new Account(username: "statement-trader", email: "trader@email.com"))
+        Trade buy = tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "STMT", quantity: 10,
+                side: TradeSide.BUY, price: 10.00))
+        Trade submitted = tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "STMT", quantity: 5,
+                side: TradeSide.SELL, price: 12.00))
+        Trade sell = tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "STMT", quantity: 4,
+                side: TradeSide.SELL, price: 11.00))
+        tradeRepository.updateStatus(buy.uuid, TradeStatus.SUBMITTED, TradeStatus.COMPLETED)
+        tradeRepository.updateStatus(sell.uuid, TradeStatus.SUBMITTED, TradeStatus.COMPLETED)
+        LocalDateTime now = warmStartRepository.currentTimestamp()
+
+        when:
+        List<Trade> trades = []
+        repository.findTrades([account.uuid], now.minusSeconds(1), now.plusSeconds(1)) { trades << it }
+        List<TradeAggregate> completed = []
+        repository.aggregateCompleted([account.uuid], now.plusSeconds(1)) { completed << it }
+
+        then: "the trades of the day are all found"
+        trades*.uuid as Set == [buy.uuid, submitted.uuid, sell.uuid] as Set
+
+        and: "only the completed ones are totalled, by side"
+        completed.size() == 2
+        with(completed.find { it.side == TradeSide.BUY }) {
+            quantity == 10
+            notional == 100.00
+        }
+        with(completed.find { it.side == TradeSide.SELL }) {
+            quantity == 4
+            notional == 44.00
+        }
+
+        and: "nothing was completed before the trades were"
+        List<TradeAggregate> earlier = []
+        repository.aggregateCompleted([account.uuid], now.minusSeconds(1)) { earlier << it }
+        earlier.isEmpty()
+    }
+}
@@ -0,0 +1,73 @@
+package com.altruist.repository
+
+import com.altruist.config.DatabaseConfiguration
+import com.altruist.config.RepositoryConfiguration
+import com.altruist.model.Account
+import com.altruist.model.Trade
+import com.altruist.model.TradeBar
+import com.altruist.model.TradeSide
+import com.altruist.model.TradeStatus
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.context.annotation.ComponentScan
+import org.springframework.context.annotation.FilterType
+import org.springframework.context.annotation.Import
+import org.springframework.stereotype.Repository
+import org.springframework.test.annotation.Rollback
+import org.springframework.test.context.ActiveProfiles
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+@ActiveProfiles("test")
+@DataJdbcTest(includeFilters = [@ComponentScan.Filter(type = FilterType.ANNOTATION, value = [Repository])])
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(value = [DatabaseConfiguration, RepositoryConfiguration])
+@Rollback(true)
+class TradeAnalyticsRepositoryTest extends Specification {
+    @Autowired
+    TradeAnalyticsRepository repository
+    @Autowired
+    AccountRepository accountRepository
+    @Autowired
+    TradeRepository tradeRepository
+
+    def "Aggregates the completed trades into minute bars"() {
+        given: "three completed trades and a submitted one"
+        Account account = accountRepository.save(new Account(username: "analytics-user", email: "analytics@email.com"))
+        List<Trade> trades = [[10, 10.00], [20, 12.00], [10, 11.00], [50, 50.00]].collect {
+            tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "ANLT", quantity: it[0],
+                    side: TradeSide.BUY, price: it[1]))
+        }
+        trades.take(3).each { tradeRepository.updateStatus(it.uuid, TradeStatus.SUBMITTED, TradeStatus.COMPLETED) }
+        LocalDateTime now = repository.currentTimestamp()
+
+        when:
+        List<TradeBar> bars = []
+        repository.aggregateCompleted(now.minusHours(1), now.plusHours(1), { bars << it })
+        bars = bars.findAll { it.symbol == "ANLT" }
+
+        then: "the completed trades make one bar, opened and closed by the first and last trade"
+        bars.size() == 1
+        bars[0].start == now.withSecond(0).withNano(0)
+        bars[0].open == 10.00
+        bars[0].high == 12.00
+        bars[0].low == 10.00
+        bars[0].close == 11.00
+        bars[0].volume == 40
+        bars[0].notional == 450.00
+    }
+
+    def "Leaves out the trades completed outside of the range"() {
+        given:
+        LocalDateTime now = repository.currentTimestamp()
+
+        when:
+        List<TradeBar> bars = []
+        repository.aggregateCompleted(now.plusHours(1), now.plusHours(2), { bars << it })
+
+        then:
+        bars.empty
+    }
+}
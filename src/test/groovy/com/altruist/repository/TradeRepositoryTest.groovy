@@ -4,7 +4,11 @@ package com.altruist.repository
 import com.altruist.config.DatabaseConfiguration
 import com.altruist.config.RepositoryConfiguration
 import com.altruist.model.Account
+import com.altruist.model.TimeInForce
 import com.altruist.model.Trade
+import com.altruist.model.TradeAggregate
+import com.altruist.model.TradeAmendment
+import com.altruist.model.TradeEvent
 import com.altruist.model.TradeSide
 import com.altruist.model.TradeStatus
 import com.altruist.repository.impl.AccountRepositoryImpl
@@ -22,6 +26,10 @@ import spock.lang.Shared
 import spock.lang.Specification
 import spock.lang.Stepwise
 
+import java.time.LocalDateTime
+import java.time.OffsetDateTime
+import java.time.ZoneOffset
+
 @ActiveProfiles("test")
 @DataJdbcTest(includeFilters = [@ComponentScan.Filter(type = FilterType.ANNOTATION, value = [Repository])])
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -33,6 +41,10 @@ class TradeRepositoryTest extends Specification {
     TradeRepository repository
     @Autowired
     AccountRepositoryImpl accountRepository
+    @Autowired
+    OutboxRepository outboxRepository
+    @Autowired
+    CompletedTradeRepository completedTradeRepository
 
     @Shared
     Account account
@@ -79,32 +91,66 @@ class TradeRepositoryTest extends Specification {
         insertedTrade.totalAmount == trade.price * trade.quantity
     }
 
-    def "Updates a trade"() {
+    def "Updates the status of a trade only from the expected one"() {
         given: "an trade"
-        Trade trade = new Trade(
+        Trade trade = repository.save(new Trade(
                 accountUuid: account.uuid,
                 symbol: "APPL",
                 quantity: 100,
                 side: TradeSide.BUY,
                 price: BigDecimal.valueOf(100.50)
-        )
-        trade = repository.save(trade)
-        trade.quantity = 150
-        trade.symbol = "GOOGL"
-        trade.price = BigDecimal.valueOf(800.65)
+        ))
 
         when:
-        repository.update(trade)
+        Optional<Trade> cancelled = repository.updateStatus(trade.uuid, TradeStatus.SUBMITTED, TradeStatus.CANCELLED)
+        Optional<Trade> cancelledAgain = repository.updateStatus(trade.uuid, TradeStatus.SUBMITTED, TradeStatus.CANCELLED)
         Trade upToDateTrade = repository.findById(trade.uuid).get()
 
-        then: "the trade is returned"
-        upToDateTrade
+        then: "only the first update applies"
+        cancelled.isPresent()
+        !cancelledAgain.isPresent()
 
-        and: "the trade information is up to date"
-        upToDateTrade.quantity == trade.quantity
-        upToDateTrade.symbol == trade.symbol
-        upToDateTrade.price == trade.price
+        and: "the changed row is returned"
+        cancelled.get() == trade
+        cancelled.get().status == TradeStatus.CANCELLED
+        cancelled.get().version == 1
+        cancelled.get().quantity == 100
+        cancelled.get().totalAmount == 10050.00
 
+        and: "the trade is cancelled with a new version"
+        upToDateTrade.status == TradeStatus.CANCELLED
+        upToDateTrade.version == 1
+    }
+
+    def "Amends a trade at its current version"() {
+        given: "an trade"
+        Trade trade = repository.save(new Trade(
+                accountUuid: account.uuid,
+                symbol: "APPL",
+                quantity: 100,
+                side: TradeSide.BUY,
+                price: BigDecimal.valueOf(100.50)
+        ))
+
+        when: "the price is amended"
+        Optional<Trade> amended = repository.amend(trade.uuid, account.uuid,
+                new TradeAmendment(version: 0, price: BigDecimal.valueOf(99.25)))
+
+        then: "only the price changes and the version is bumped"
+        amended.present
+        amended.get().price == BigDecimal.valueOf(99.25)
+        amended.get().quantity == trade.quantity
+        amended.get().symbol == trade.symbol
+        amended.get().version == 1
+        amended.get().totalAmount == BigDecimal.valueOf(99.25) * trade.quantity
+
+        when: "the same version is amended again"
+        Optional<Trade> stale = repository.amend(trade.uuid, account.uuid,
+                new TradeAmendment(version: 0, quantity: 10))
+
+        then: "nothing is changed"
+        !stale.present
+        repository.findById(trade.uuid).get().quantity == trade.quantity
     }
 
     def "Inserts a list of trades"() {
@@ -141,6 +187,195 @@ class TradeRepositoryTest extends Specification {
         dbTrades.each {item -> item.totalAmount == item.price * item.quantity }
     }
 
+    def "Records an outbox event for each change of a trade"() {
+        given: "an trade"
+        Trade trade = new Trade(
+                accountUuid: account.uuid,
+                symbol: "APPL",
+                quantity: 100,
+                side: TradeSide.BUY,
+                price: BigDecimal.valueOf(100.50)
+        )
+
+        when: "the trade is saved and cancelled"
+        trade = repository.save(trade)
+        repository.updateStatus(trade.uuid, TradeStatus.SUBMITTED, TradeStatus.CANCELLED)
+        List<TradeEvent> events = outboxRepository.findUnpublished(100)
+                .findAll { it.tradeUuid == trade.uuid }
+
+        then: "both changes are recorded in order"
+        events*.eventType == [TradeEvent.CREATED, TradeEvent.UPDATED]
+        events.every { it.accountUuid == account.uuid }
+
+        and: "the payload holds the trade row"
+        events[1].payload.contains('"status": "CANCELLED"')
+
+        when: "the events are published"
+        outboxRepository.markPublished(events*.eventId)
+
+        then: "they are not relayed again"
+        !outboxRepository.findUnpublished(100).any { it.tradeUuid == trade.uuid }
+    }
+
+    def "Inserts a batch of trades with one statement"() {
+        given: "three trades of the account"
+        List<Trade> trades = [100, 200, 300].collect { quantity ->
+            new Trade(
+                    accountUuid: account.uuid,
+                    symbol: "MSFT",
+                    quantity: quantity,
+                    side: TradeSide.SELL,
+                    price: BigDecimal.valueOf(10.25),
+                    timeInForce: TimeInForce.DAY,
+                    expiresAt: OffsetDateTime.of(2030, 1, 1, 21, 0, 0, 0, ZoneOffset.UTC)
+            )
+        }
+
+        when:
+        repository.saveAll(trades)
+
+        then: "every trade gets an id and the default status"
+        trades.every { it.uuid && it.status == TradeStatus.SUBMITTED }
+
+        and: "they are found as inserted"
+        trades.every { trade ->
+            Trade inserted = repository.findById(trade.uuid).get()
+            inserted.quantity == trade.quantity && inserted.timeInForce == TimeInForce.DAY
+        }
+
+        and: "a created event is recorded for each of them"
+        outboxRepository.findUnpublished(100)
+                .findAll { it.eventType == TradeEvent.CREATED && it.tradeUuid in trades*.uuid }
+                .size() == 3
+    }
+
+    def "Aggregates submitted trades by account"() {
+        given: "two buys and a sell of the same symbol"
+        [[TradeSide.BUY, 100], [TradeSide.BUY, 50], [TradeSide.SELL, 10]].each { side, quantity ->
+            repository.save(new Trade(
+                    accountUuid: account.uuid,
+                    symbol: "MSFT",
+                    quantity: quantity,
+                    side: side,
+                    price: BigDecimal.valueOf(10.00)
+            ))
+        }
+
+        when:
+        List<TradeAggregate> aggregates = []
+        repository.aggregateByAccount(completedTradeRepository.currentTimestamp()) { aggregate ->
+            if (aggregate.accountUuid == account.uuid) {
+                aggregates << aggregate
+            }
+        }
+
+        then: "there is one aggregate per side"
+        aggregates.size() == 2
+
+        and: "the quantities and notionals are summed"
+        TradeAggregate buys = aggregates.find { it.side == TradeSide.BUY }
+        buys.status == TradeStatus.SUBMITTED
+        buys.quantity == 150
+        buys.notional == 1500.00
+    }
+
+    def "Aggregates the trades completed from the cutoff on as submitted"() {
+        given: "a completed buy"
+        Trade buy = repository.save(new Trade(accountUuid: account.uuid, symbol: "NFLX", quantity: 10,
+                side: TradeSide.BUY, price: BigDecimal.valueOf(10.00)))
+        repository.updateStatus(buy.uuid, TradeStatus.SUBMITTED, TradeStatus.COMPLETED)
+        LocalDateTime now = completedTradeRepository.currentTimestamp()
+
+        expect: "it is still submitted at a cutoff up to its completion and completed after it"
+        aggregate("NFLX", now).status == TradeStatus.SUBMITTED
+        aggregate("NFLX", now.plusSeconds(1)).status == TradeStatus.COMPLETED
+    }
+
+    def "Cancels the submitted trades of a symbol and side in one statement"() {
+        given: "submitted trades of two symbols and a completed one"
+        Trade buy = repository.save(new Trade(accountUuid: account.uuid, symbol: "TSLA", quantity: 10,
+                side: TradeSide.BUY, price: BigDecimal.valueOf(10.00)))
+        Trade sell = repository.save(new Trade(accountUuid: account.uuid, symbol: "TSLA", quantity: 10,
+                side: TradeSide.SELL, price: BigDecimal.valueOf(10.00)))
+        Trade other = repository.save(new Trade(accountUuid: account.uuid, symbol: "AMZN", quantity: 10,
+                side: TradeSide.BUY, price: BigDecimal.valueOf(10.00)))
+        Trade completed = repository.save(new Trade(accountUuid: account.uuid, symbol: "TSLA", quantity: 10,
+                side: TradeSide.BUY, price: BigDecimal.valueOf(10.00)))
+        repository.updateStatus(completed.uuid, TradeStatus.SUBMITTED, TradeStatus.COMPLETED)
+
+        when:
+        List<Trade> cancelled = repository.cancelAll(account.uuid, "TSLA", TradeSide.BUY)
+
+        then: "only the submitted buy of the symbol is cancelled"
+        cancelled*.uuid == [buy.uuid]
+        cancelled[0].status == TradeStatus.CANCELLED
+        repository.findById(sell.uuid).get().status == TradeStatus.SUBMITTED
+        repository.findById(other.uuid).get().status == TradeStatus.SUBMITTED
+
+        when: "no filter is given"
+        cancelled = repository.cancelAll(account.uuid, null, null)
+
+        then: "the remaining submitted trades are cancelled"
+        cancelled*.uuid as Set == [sell.uuid, other.uuid] as Set
+
+        and: "each cancel is recorded in the outbox"
+        outboxRepository.findUnpublished(100)
+                .findAll { it.tradeUuid == other.uuid }*.eventType == [TradeEvent.CREATED, TradeEvent.UPDATED]
+    }
+
+    def "Expires the submitted trades with a time in force"() {
+        given: "a submitted IOC trade, a submitted GTD trade and a cancelled GTD trade"
+        OffsetDateTime expiresAt = OffsetDateTime.now(ZoneOffset.UTC).plusHours(1)
+        Trade ioc = repository.save(new Trade(accountUuid: account.uuid, symbol: "NFLX", quantity: 10,
+                side: TradeSide.BUY, price: BigDecimal.valueOf(10.00), timeInForce: TimeInForce.IOC, expiresAt: expiresAt))
+        Trade gtd = repository.save(new Trade(accountUuid: account.uuid, symbol: "NFLX", quantity: 10,
+                side: TradeSide.BUY, price: BigDecimal.valueOf(10.00), timeInForce: TimeInForce.GTD, expiresAt: expiresAt))
+        Trade cancelled = repository.save(new Trade(accountUuid: account.uuid, symbol: "NFLX", quantity: 10,
+                side: TradeSide.BUY, price: BigDecimal.valueOf(10.00), timeInForce: TimeInForce.GTD, expiresAt: expiresAt))
+        repository.updateStatus(cancelled.uuid, TradeStatus.SUBMITTED, TradeStatus.CANCELLED)
+
+        when: "the expiring trades are read"
+        List<Trade> expiring = []
+        repository.findExpiring { if (it.accountUuid == account.uuid) expiring << it }
+
+        then: "only the submitted ones are found with their expiry"
+        expiring*.uuid as Set == [ioc.uuid, gtd.uuid] as Set
+        expiring.every { it.expiresAt.toInstant() == expiresAt.toInstant() }
+
+        when:
+        List<Trade> expired = repository.expire([ioc.uuid, gtd.uuid, cancelled.uuid])
+
+        then: "the IOC trade failed and the GTD trade was cancelled"
+        expired*.uuid as Set == [ioc.uuid, gtd.uuid] as Set
+        repository.findById(ioc.uuid).get().status == TradeStatus.FAILED
+        repository.findById(gtd.uuid).get().status == TradeStatus.CANCELLED
+    }
+
+    def "Finds the trades of a list of ids whatever their account"() {
+        given: "trades of two accounts"
+        Account other = accountRepository.save(new Account(username: "otherusername", email: "othermail@email.com"))
+        Trade mine = repository.save(new Trade(accountUuid: account.uuid, symbol: "ORCL", quantity: 10,
+                side: TradeSide.BUY, price: BigDecimal.valueOf(10.00)))
+        Trade theirs = repository.save(new Trade(accountUuid: other.uuid, symbol: "ORCL", quantity: 20,
+                side: TradeSide.SELL, price: BigDecimal.valueOf(10.00)))
+
+        when: "they are looked up with an id that matches no trade"
+        List<Trade> found = []
+        repository.findAllByIds([mine.uuid, theirs.uuid, UUID.randomUUID()]) { found << it }
+
+        then: "both trades are found"
+        found*.uuid as Set == [mine.uuid, theirs.uuid] as Set
+        found.find { it.uuid == theirs.uuid }.accountUuid == other.uuid
+        found.find { it.uuid == theirs.uuid }.totalAmount == BigDecimal.valueOf(200.00)
+
+        when: "no ids are given"
+        found.clear()
+        repository.findAllByIds([]) { found << it }
+
+        then: "nothing is found"
+        found.isEmpty()
+    }
+
     def "A blank list should not cause an exception "() {
         when:
         Trade[] trades = repository.findByAccount(UUID.randomUUID());
@@ -148,4 +383,14 @@ class TradeRepositoryTest extends Specification {
         then: "the list is empty"
         trades.length == 0
     }
+
+    private TradeAggregate aggregate(String symbol, LocalDateTime completedBefore) {
+        List<TradeAggregate> aggregates = []
+        repository.aggregateByAccount(completedBefore) { aggregate ->
+            if (aggregate.accountUuid == account.uuid && aggregate.symbol == symbol) {
+                aggregates << aggregate
+            }
+        }
+        aggregates.size() == 1 ? aggregates[0] : null
+    }
 }
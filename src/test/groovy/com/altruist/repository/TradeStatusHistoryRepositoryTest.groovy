@@ -0,0 +1,103 @@
+package com.altruist.repository
+
+import com.altruist.config.DatabaseConfiguration
+import com.altruist.config.RepositoryConfiguration
+import com.altruist.model.Account
+import com.altruist.model.TimeInForce
+import com.altruist.model.Trade
+import com.altruist.model.TradeSide
+import com.altruist.model.TradeStatus
+import com.altruist.model.TradeStatusChange
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.context.annotation.ComponentScan
+import org.springframework.context.annotation.FilterType
+import org.springframework.context.annotation.Import
+import org.springframework.stereotype.Repository
+import org.springframework.test.annotation.Rollback
+import org.springframework.test.context.ActiveProfiles
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+import java.time.OffsetDateTime
+
+@ActiveProfiles("test")
+@DataJdbcTest(includeFilters = [@ComponentScan.Filter(type = FilterType.ANNOTATION, value = [Repository])])
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(value = [DatabaseConfiguration, RepositoryConfiguration])
+@Rollback(true)
+class TradeStatusHistoryRepositoryTest extends Specification {
+    @Autowired
+    TradeStatusHistoryRepository repository
+    @Autowired
+    AccountRepository accountRepository
+    @Autowired
+    TradeRepository tradeRepository
+    @Autowired
+    TradeAnalyticsRepository tradeAnalyticsRepository
+
+    def "Records every status a trade goes through"() {
+        given: "a trade submitted and cancelled"
+        Account account = accountRepository.save(new Account(username: "history-user", email: "history@email.com"))
+        Trade trade = tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "HIST", quantity: 10,
+                side: TradeSide.BUY, price: 10.00))
+        tradeRepository.updateStatus(trade.uuid, TradeStatus.SUBMITTED, TradeStatus.CANCELLED)
+
+        when:
+        List<TradeStatusChange> timeline = repository.findByTrade(trade.uuid)
+
+        then: "both changes are there in order"
+        timeline*.fromStatus == [null, TradeStatus.SUBMITTED]
+        timeline*.toStatus == [TradeStatus.SUBMITTED, TradeStatus.CANCELLED]
+        timeline*.version == [0, 1]
+        timeline.every { it.accountUuid == account.uuid && it.changedBy == "account" && it.changedDate }
+    }
+
+    def "Records the trades expired and cancelled in bulk"() {
+        given:
+        Account account = accountRepository.save(new Account(username: "history-bulk", email: "history-bulk@email.com"))
+        Trade expiring = tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "HIST", quantity: 10,
+                side: TradeSide.BUY, price: 10.00, timeInForce: TimeInForce.IOC, expiresAt: OffsetDateTime.now()))
+        Trade resting = tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "HIST", quantity: 10,
+                side: TradeSide.SELL, price: 10.00))
+
+        when:
+        tradeRepository.expire([expiring.uuid])
+        tradeRepository.cancelAll(account.uuid, null, null)
+
+        TradeStatusChange expired = repository.findByTrade(expiring.uuid).last()
+        TradeStatusChange cancelled = repository.findByTrade(resting.uuid).last()
+
+        then: "the IOC trade failed by the expiry"
+        expired.fromStatus == TradeStatus.SUBMITTED
+        expired.toStatus == TradeStatus.FAILED
+        expired.changedBy == "expiry"
+
+        and: "the other one cancelled by the account"
+        cancelled.fromStatus == TradeStatus.SUBMITTED
+        cancelled.toStatus == TradeStatus.CANCELLED
+        cancelled.changedBy == "account"
+    }
+
+    def "Pages through the changes of a time window"() {
+        given: "three trades submitted"
+        Account account = accountRepository.save(new Account(username: "history-window", email: "history-window@email.com"))
+        List<UUID> uuids = (1..3).collect {
+            tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "HIST", quantity: it,
+                    side: TradeSide.BUY, price: 10.00)).uuid
+        }
+        LocalDateTime now = tradeAnalyticsRepository.currentTimestamp()
+
+        when: "the window is read from after the change of the second trade"
+        long last = repository.findBetween(now.minusMinutes(1), now.plusMinutes(1), 0, Integer.MAX_VALUE)
+                .find { it.tradeUuid == uuids[1] }.historyId
+        List<TradeStatusChange> next = repository.findBetween(now.minusMinutes(1), now.plusMinutes(1), last, 2)
+
+        then: "the next page starts after the last change read"
+        next.first().tradeUuid == uuids[2]
+
+        and: "nothing is found outside of the window"
+        repository.findBetween(now.plusMinutes(1), now.plusMinutes(2), 0, 10).isEmpty()
+    }
+}
@@ -0,0 +1,79 @@
+package com.altruist.repository
+
+import com.altruist.config.DatabaseConfiguration
+import com.altruist.config.RepositoryConfiguration
+import com.altruist.utils.UuidV7
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.context.annotation.ComponentScan
+import org.springframework.context.annotation.FilterType
+import org.springframework.context.annotation.Import
+import org.springframework.jdbc.core.BatchPreparedStatementSetter
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.stereotype.Repository
+import org.springframework.test.context.ActiveProfiles
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.sql.PreparedStatement
+import java.sql.SQLException
+
+/**
+ * Insert throughput and primary key index size of random (v4) and time ordered (v7) keys,
+ * run with ./gradlew benchmark
+ */
+@ActiveProfiles("test")
+@DataJdbcTest(includeFilters = [@ComponentScan.Filter(type = FilterType.ANNOTATION, value = [Repository])])
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(value = [DatabaseConfiguration, RepositoryConfiguration])
+class UuidKeyBenchmark extends Specification {
+
+    static final int ROWS = 500_000
+    static final int BATCH = 1_000
+
+    @Autowired
+    JdbcTemplate jdbcTemplate
+
+    @Unroll
+    def "Inserts rows keyed by #version uuids"() {
+        given: "a table shaped like trade.trade"
+        String table = "trade.uuid_benchmark_" + version
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table)
+        jdbcTemplate.execute("CREATE TABLE " + table + " (id UUID PRIMARY KEY, symbol TEXT, quantity NUMERIC(9))")
+
+        when:
+        long start = System.nanoTime()
+        for (int offset = 0; offset < ROWS; offset += BATCH) {
+            jdbcTemplate.batchUpdate("INSERT INTO " + table + " (id, symbol, quantity) VALUES (?, 'AAPL', 100)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setObject(1, generator.call())
+                        }
+
+                        @Override
+                        int getBatchSize() {
+                            return BATCH
+                        }
+                    })
+        }
+        long elapsedMillis = (System.nanoTime() - start).intdiv(1_000_000)
+        long indexBytes = jdbcTemplate.queryForObject(
+                "select pg_relation_size('" + table + "_pkey')", Long)
+
+        then:
+        println String.format("%s: %d rows in %d ms (%.0f rows/s), primary key index %d kB (%.1f bytes/row)",
+                version, ROWS, elapsedMillis, ROWS * 1000d / Math.max(1, elapsedMillis),
+                indexBytes.intdiv(1024), indexBytes / (double) ROWS)
+        indexBytes > 0
+
+        cleanup:
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table)
+
+        where:
+        version | generator
+        "v4"    | { UUID.randomUUID() }
+        "v7"    | { UuidV7.next() }
+    }
+}
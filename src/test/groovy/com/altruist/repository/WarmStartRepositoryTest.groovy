@@ -0,0 +1,60 @@
+package com.altruist.repository
+
+import com.altruist.config.DatabaseConfiguration
+import com.altruist.config.RepositoryConfiguration
+import com.altruist.model.Account
+import com.altruist.model.Address
+import com.altruist.model.State
+import com.altruist.model.Trade
+import com.altruist.model.TradeSide
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase
+import org.springframework.context.annotation.ComponentScan
+import org.springframework.context.annotation.FilterType
+import org.springframework.context.annotation.Import
+import org.springframework.stereotype.Repository
+import org.springframework.test.annotation.Rollback
+import org.springframework.test.context.ActiveProfiles
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+@ActiveProfiles("test")
+@DataJdbcTest(includeFilters = [@ComponentScan.Filter(type = FilterType.ANNOTATION, value = [Repository])])
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(value = [DatabaseConfiguration, RepositoryConfiguration])
+@Rollback(true)
+class WarmStartRepositoryTest extends Specification {
+    @Autowired
+    WarmStartRepository repository
+    @Autowired
+    AccountRepository accountRepository
+    @Autowired
+    AddressRepository addressRepository
+    @Autowired
+    TradeRepository tradeRepository
+
+    def "Keeps only the rows not updated since the watermark"() {
+        given: "an account with an address and a trade, written within this transaction"
+        Address address = addressRepository.save(new Address(name: "warm", street: "Main St", city: "Sacramento",
+                state: State.CA, zipcode: 95814))
+        Account account = accountRepository.save(new Account(username: "warm-user", email: "warm@email.com",
+                addressUuid: address.uuid))
+        Trade trade = tradeRepository.save(new Trade(accountUuid: account.uuid, symbol: "WARM", quantity: 10,
+                side: TradeSide.BUY, price: 10.00))
+        UUID unknown = UUID.randomUUID()
+        LocalDateTime now = repository.currentTimestamp()
+
+        expect: "rows written before the watermark are unchanged, unknown ones are left out"
+        repository.unchangedAccounts([account.uuid, unknown], now.plusSeconds(1)) == [account.uuid] as Set
+        repository.unchangedAddresses([account.uuid, unknown], now.plusSeconds(1)) == [account.uuid] as Set
+        repository.unchangedTrades([trade.uuid, unknown], now.plusSeconds(1)) == [trade.uuid] as Set
+
+        and: "none of them is when the watermark is older than the writes"
+        repository.unchangedAccounts([account.uuid], now.minusSeconds(1)).isEmpty()
+        repository.unchangedAddresses([account.uuid], now.minusSeconds(1)).isEmpty()
+        repository.unchangedTrades([trade.uuid], now.minusSeconds(1)).isEmpty()
+        repository.unchangedTrades([], now).isEmpty()
+    }
+}
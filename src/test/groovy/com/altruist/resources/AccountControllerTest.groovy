@@ -2,6 +2,7 @@ package com.altruist.resources
 
 import com.altruist.config.ApplicationConfiguration
 import com.altruist.model.Account
+import com.altruist.model.AccountSearchResult
 import com.altruist.model.Address
 import com.altruist.model.State
 import com.altruist.service.AccountService
@@ -21,6 +22,7 @@ import spock.mock.DetachedMockFactory
 
 import static org.hamcrest.Matchers.containsString
 import static org.springframework.http.MediaType.APPLICATION_JSON
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*
 
@@ -171,6 +173,106 @@ class AccountControllerTest extends Specification {
         field << ["name", "street", "city", "state", "zipcode"]
     }
 
+    def "Should return the snapshot of an account"() {
+        given: "an account snapshot"
+        UUID accountUuid = UUID.randomUUID()
+        String snapshot = """{"id":"$accountUuid","username":"username123","recentTrades":[],"tradeCounts":{}}"""
+
+        when: "the request is submitted"
+        ResultActions results = mvc.perform(
+                get("/accounts/$accountUuid/snapshot")
+                        .param("trades", "5")
+                        .accept(APPLICATION_JSON)
+        )
+
+        then: "the snapshot is read with a single call"
+        1 * mockAccountService.snapshot(accountUuid, 5) >> Optional.of(snapshot)
+
+        and: "it is returned as is"
+        results.andExpect(status().isOk())
+        results.andExpect(content().json(snapshot))
+    }
+
+    def "Should not find the snapshot of an unknown account"() {
+        given:
+        UUID accountUuid = UUID.randomUUID()
+
+        when:
+        ResultActions results = mvc.perform(get("/accounts/$accountUuid/snapshot").accept(APPLICATION_JSON))
+
+        then:
+        1 * mockAccountService.snapshot(accountUuid, 20) >> Optional.empty()
+        results.andExpect(status().isNotFound())
+    }
+
+    def "Should return the snapshots of several accounts"() {
+        given:
+        List<UUID> accountUuids = [UUID.randomUUID(), UUID.randomUUID()]
+
+        when:
+        ResultActions results = mvc.perform(
+                post("/accounts/snapshots")
+                        .accept(APPLICATION_JSON)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(accountUuids))
+        )
+
+        then:
+        1 * mockAccountService.snapshots(accountUuids, 20) >> "[]"
+        results.andExpect(status().isOk())
+        results.andExpect(content().json("[]"))
+    }
+
+    def "Should not return the snapshots of too many accounts"() {
+        when:
+        ResultActions results = mvc.perform(
+                post("/accounts/snapshots")
+                        .accept(APPLICATION_JSON)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString((1..101).collect { UUID.randomUUID() }))
+        )
+
+        then:
+        0 * mockAccountService.snapshots(_, _)
+        results.andExpect(status().isBadRequest())
+    }
+
+    def "Should search accounts"() {
+        given:
+        UUID accountUuid = UUID.randomUUID()
+
+        when:
+        ResultActions results = mvc.perform(
+                get("/accounts/search")
+                        .param("q", "alice")
+                        .param("state", "CA")
+                        .param("city", "Sacramento")
+                        .param("after", "al")
+                        .param("limit", "10")
+                        .accept(APPLICATION_JSON)
+        )
+
+        then: "the criteria are passed as they are"
+        1 * mockAccountService.search("alice", State.CA, "Sacramento", "al", 10) >> [
+                new AccountSearchResult(accountUuid: accountUuid, username: "alice", email: "alice@example.com",
+                        state: State.CA, city: "Sacramento")
+        ]
+
+        and: "the accounts are returned with their uuid"
+        results.andExpect(status().isOk())
+        results.andExpect(jsonPath('$[0].accountUuid').value(accountUuid.toString()))
+        results.andExpect(jsonPath('$[0].state').value("CA"))
+    }
+
+    def "Should not search more than 500 accounts at once"() {
+        when:
+        ResultActions results = mvc.perform(get("/accounts/search").param("limit", "501").accept(APPLICATION_JSON))
+
+        then:
+        0 * mockAccountService.search(_, _, _, _, _)
+        results.andExpect(status().isBadRequest())
+    }
+
     @TestConfiguration
     static class TestConfig {
         DetachedMockFactory factory = new DetachedMockFactory()
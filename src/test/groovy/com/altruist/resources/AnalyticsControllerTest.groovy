@@ -0,0 +1,97 @@
+package com.altruist.resources
+
+import com.altruist.analytics.BarResolution
+import com.altruist.analytics.TradeAnalyticsService
+import com.altruist.config.ApplicationConfiguration
+import com.altruist.exceptions.EntityNotFoundException
+import com.altruist.model.SymbolVwap
+import com.altruist.model.TradeBar
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest
+import org.springframework.boot.test.context.TestConfiguration
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Import
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.ResultActions
+import spock.lang.Specification
+import spock.mock.DetachedMockFactory
+
+import java.time.Duration
+import java.time.LocalDateTime
+
+import static org.springframework.http.MediaType.APPLICATION_JSON
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*
+
+@WebMvcTest(controllers = [AnalyticsController])
+@Import(value = [ApplicationConfiguration])
+class AnalyticsControllerTest extends Specification {
+    @Autowired
+    MockMvc mvc
+
+    @Autowired
+    TradeAnalyticsService mockTradeAnalyticsService
+
+    def "Should return the bars of a symbol"() {
+        given:
+        TradeBar bar = new TradeBar(symbol: "AAPL", resolution: "5m", start: LocalDateTime.parse("2021-03-01T15:30:00"),
+                open: 10.00, high: 12.00, low: 10.00, close: 11.00, volume: 40, notional: 450.00, vwap: 11.25)
+
+        when:
+        ResultActions results = mvc.perform(get("/analytics/symbols/AAPL/bars")
+                .param("resolution", "5m")
+                .param("count", "12")
+                .accept(APPLICATION_JSON))
+
+        then:
+        1 * mockTradeAnalyticsService.bars("AAPL", BarResolution.FIVE_MINUTES, 12) >> [bar]
+        results.andExpect(status().isOk())
+        results.andExpect(jsonPath('$[0].close').value(11.00d))
+        results.andExpect(jsonPath('$[0].volume').value(40))
+    }
+
+    def "Should not accept an unknown resolution"() {
+        when:
+        ResultActions results = mvc.perform(get("/analytics/symbols/AAPL/bars")
+                .param("resolution", "2m")
+                .accept(APPLICATION_JSON))
+
+        then:
+        0 * mockTradeAnalyticsService.bars(_, _, _)
+        results.andExpect(status().isBadRequest())
+    }
+
+    def "Should return the VWAP of a symbol"() {
+        when:
+        ResultActions results = mvc.perform(get("/analytics/symbols/AAPL/vwap")
+                .param("minutes", "15")
+                .accept(APPLICATION_JSON))
+
+        then:
+        1 * mockTradeAnalyticsService.vwap("AAPL", Duration.ofMinutes(15)) >>
+                new SymbolVwap(symbol: "AAPL", volume: 40, notional: 450.00, vwap: 11.25)
+        results.andExpect(status().isOk())
+        results.andExpect(jsonPath('$.vwap').value(11.25d))
+    }
+
+    def "Should not find the VWAP of an unknown symbol"() {
+        when:
+        ResultActions results = mvc.perform(get("/analytics/symbols/NOPE/vwap").accept(APPLICATION_JSON))
+
+        then:
+        1 * mockTradeAnalyticsService.vwap("NOPE", Duration.ofMinutes(60)) >> {
+            throw new EntityNotFoundException("Unknown symbol [NOPE]")
+        }
+        results.andExpect(status().isNotFound())
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        DetachedMockFactory factory = new DetachedMockFactory()
+
+        @Bean
+        TradeAnalyticsService tradeAnalyticsService() {
+            factory.Mock(TradeAnalyticsService)
+        }
+    }
+}
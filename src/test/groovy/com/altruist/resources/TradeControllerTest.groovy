@@ -1,9 +1,12 @@
 package com.altruist.resources
 
+import com.altruist.cache.RecentTrades
 import com.altruist.config.ApplicationConfiguration
 import com.altruist.exceptions.InvalidOperationException
 import com.altruist.exceptions.InvalidTradeStatusException
+import com.altruist.exceptions.ServiceUnavailableException
 import com.altruist.model.Trade
+import com.altruist.model.TradeAmendment
 import com.altruist.model.TradeSide
 import com.altruist.model.TradeStatus
 import com.altruist.service.TradeService
@@ -15,6 +18,7 @@ import org.springframework.boot.test.context.TestConfiguration
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Import
 import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.MvcResult
 import org.springframework.test.web.servlet.ResultActions
 import spock.lang.Shared
 import spock.lang.Specification
@@ -24,8 +28,10 @@ import spock.mock.DetachedMockFactory
 import static org.hamcrest.Matchers.containsString
 import static org.hamcrest.Matchers.hasSize
 import static org.springframework.http.MediaType.APPLICATION_JSON
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*
 
@@ -91,6 +97,48 @@ class TradeControllerTest extends Specification {
         results.andExpect(content().json("""{"id":"$expectedId"}"""))
     }
 
+    def "Should forward the idempotency key of the trade request"() {
+        given: "a trade request with an idempotency key"
+        UUID originalId = UUID.randomUUID()
+        String idempotencyKey = "order-123"
+
+        when: "the request is submitted"
+        ResultActions results = mvc.perform(
+                post("/accounts/$trade.accountUuid/trades")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .accept(APPLICATION_JSON)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(trade))
+        )
+
+        then: "the key is handed to the service which returns the original trade"
+        1 * mockTradeService.create(trade, idempotencyKey) >> { Trade arg, String key ->
+            arg.uuid = originalId
+            arg
+        }
+
+        and: "the original id is returned"
+        results.andExpect(status().isCreated())
+        results.andExpect(content().json("""{"id":"$originalId"}"""))
+    }
+
+    def "Should not accept an idempotency key longer than 255 characters"() {
+        when: "the request is submitted"
+        ResultActions results = mvc.perform(
+                post("/accounts/$trade.accountUuid/trades")
+                        .header("Idempotency-Key", "k" * 256)
+                        .accept(APPLICATION_JSON)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(trade))
+        )
+
+        then: "the service is not called"
+        0 * mockTradeService.create(_, _)
+
+        and: "a BadRequest response is returned"
+        results.andExpect(status().isBadRequest())
+    }
+
     @Unroll
     def "Should not accept trade without required field #field"() {
         given: "a trade request"
@@ -213,6 +261,152 @@ class TradeControllerTest extends Specification {
     }
 
 
+    def "should amend a trade"() {
+        given: "an amendment of the price"
+        trade.uuid = UUID.randomUUID()
+        TradeAmendment amendment = new TradeAmendment(version: 2, price: BigDecimal.valueOf(99.50))
+
+        when: "the request is submitted"
+        ResultActions results = mvc.perform(
+                patch("/accounts/$trade.accountUuid/trades/$trade.uuid")
+                        .accept(APPLICATION_JSON)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(amendment))
+        )
+
+        then: "the service amends the trade"
+        1 * mockTradeService.amend(trade.accountUuid, trade.uuid, amendment) >> { UUID accountUuid, UUID tradeUuid, TradeAmendment arg ->
+            trade.price = arg.price
+            trade.version = 3
+            trade
+        }
+
+        and: "the amended trade is returned with its new version"
+        results.andExpect(status().isOk())
+        results.andExpect(jsonPath("\$.price").value(99.5d))
+        results.andExpect(jsonPath("\$.version").value(3))
+    }
+
+    @Unroll
+    def "should not accept an amendment #description"() {
+        when: "the request is submitted"
+        ResultActions results = mvc.perform(
+                patch("/accounts/${UUID.randomUUID()}/trades/${UUID.randomUUID()}")
+                        .accept(APPLICATION_JSON)
+                        .contentType(APPLICATION_JSON)
+                        .content(body)
+        )
+
+        then: "the service is not called"
+        0 * mockTradeService.amend(_, _, _)
+
+        and: "a BadRequest response is returned"
+        results.andExpect(status().isBadRequest())
+
+        where:
+        description                  | body
+        "without a version"          | '{"price": 10.00}'
+        "without quantity and price" | '{"version": 1}'
+        "with a zero quantity"       | '{"version": 1, "quantity": 0}'
+    }
+
+    def "should not amend a trade at a stale version"() {
+        given: "an amendment"
+        trade.uuid = UUID.randomUUID()
+        TradeAmendment amendment = new TradeAmendment(version: 1, quantity: 10)
+
+        when: "the request is submitted"
+        ResultActions results = mvc.perform(
+                patch("/accounts/$trade.accountUuid/trades/$trade.uuid")
+                        .accept(APPLICATION_JSON)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(amendment))
+        )
+
+        then: "the service rejects the version"
+        1 * mockTradeService.amend(trade.accountUuid, trade.uuid, amendment) >> {
+            throw new InvalidOperationException("stale")
+        }
+
+        and: "request status is conflict"
+        results.andExpect(status().isConflict())
+    }
+
+    def "should cancel all trades of a symbol and side"() {
+        given: "cancelled trade ids"
+        UUID accountId = trade.accountUuid
+        List<UUID> cancelled = [UUID.randomUUID(), UUID.randomUUID()]
+
+        when: "the request is submitted"
+        MvcResult started = mvc.perform(
+                delete("/accounts/$accountId/trades")
+                        .param("symbol", "GOGL")
+                        .param("side", "BUY")
+        ).andReturn()
+        ResultActions results = mvc.perform(asyncDispatch(started))
+
+        then: "the service cancels them at once"
+        1 * mockTradeService.cancelAll(accountId, "GOGL", TradeSide.BUY) >> cancelled
+
+        and: "the ids are streamed back"
+        results.andExpect(status().isOk())
+        results.andExpect(content().json("""[{"id":"${cancelled[0]}"},{"id":"${cancelled[1]}"}]"""))
+    }
+
+    def "Should stream the recent trades of the account"() {
+        given:
+        UUID accountId = trade.accountUuid
+        trade.status = TradeStatus.SUBMITTED
+
+        when: "the request is submitted"
+        MvcResult started = mvc.perform(
+                get("/accounts/$accountId/trades")
+                        .param("recent", "2")
+                        .accept(APPLICATION_JSON)
+        ).andReturn()
+        ResultActions results = mvc.perform(asyncDispatch(started))
+
+        then: "the service lists them"
+        1 * mockTradeService.recent(accountId, 2) >> RecentTrades.of([trade, TestHelper.deepCopy(trade)])
+
+        and: "they are written as the trades of the full listing"
+        results.andExpect(status().isOk())
+        results.andExpect(jsonPath("\$", hasSize(2)))
+        results.andExpect(jsonPath("\$[0].symbol").value("GOGL"))
+        results.andExpect(jsonPath("\$[1].status").value("SUBMITTED"))
+    }
+
+    def "Should not list less than one recent trade"() {
+        when:
+        ResultActions results = mvc.perform(
+                get("/accounts/${trade.accountUuid}/trades")
+                        .param("recent", "0")
+                        .accept(APPLICATION_JSON)
+        )
+
+        then:
+        0 * mockTradeService.recent(_, _)
+        results.andExpect(status().isBadRequest())
+    }
+
+    def "Should ask to retry a trade request while the database is unavailable"() {
+        when: "the request is submitted"
+        ResultActions results = mvc.perform(
+                post("/accounts/$trade.accountUuid/trades")
+                    .accept(APPLICATION_JSON)
+                    .contentType(APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(trade))
+        )
+
+        then: "the database calls are failing fast"
+        1 * mockTradeService.create(_) >> {
+            throw new ServiceUnavailableException("The order entry database calls are failing, please retry", 3)
+        }
+
+        and: "the client is told when to retry"
+        results.andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"))
+    }
 
     @TestConfiguration
     static class TestConfig {
@@ -0,0 +1,100 @@
+package com.altruist.resources
+
+import com.altruist.config.ApplicationConfiguration
+import com.altruist.exceptions.EntityNotFoundException
+import com.altruist.model.TradeStatus
+import com.altruist.model.TradeStatusChange
+import com.altruist.service.TradeHistoryService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest
+import org.springframework.boot.test.context.TestConfiguration
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Import
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.ResultActions
+import spock.lang.Specification
+import spock.mock.DetachedMockFactory
+
+import java.time.LocalDateTime
+
+import static org.springframework.http.MediaType.APPLICATION_JSON
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*
+
+@WebMvcTest(controllers = [TradeHistoryController])
+@Import(value = [ApplicationConfiguration])
+class TradeHistoryControllerTest extends Specification {
+    @Autowired
+    MockMvc mvc
+
+    @Autowired
+    TradeHistoryService mockTradeHistoryService
+
+    UUID accountUuid = UUID.randomUUID()
+    UUID tradeUuid = UUID.randomUUID()
+
+    def "Should return the status timeline of a trade"() {
+        when:
+        ResultActions results = mvc.perform(get("/accounts/{accountUuid}/trades/{tradeUuid}/history", accountUuid, tradeUuid)
+                .accept(APPLICATION_JSON))
+
+        then:
+        1 * mockTradeHistoryService.timeline(accountUuid, tradeUuid) >> [
+                new TradeStatusChange(historyId: 1, tradeUuid: tradeUuid, toStatus: TradeStatus.SUBMITTED, version: 0),
+                new TradeStatusChange(historyId: 2, tradeUuid: tradeUuid, fromStatus: TradeStatus.SUBMITTED,
+                        toStatus: TradeStatus.CANCELLED, version: 1)
+        ]
+        results.andExpect(status().isOk())
+        results.andExpect(jsonPath('$[1].fromStatus').value("SUBMITTED"))
+        results.andExpect(jsonPath('$[1].toStatus').value("CANCELLED"))
+    }
+
+    def "Should not find the timeline of a trade of another account"() {
+        when:
+        ResultActions results = mvc.perform(get("/accounts/{accountUuid}/trades/{tradeUuid}/history", accountUuid, tradeUuid)
+                .accept(APPLICATION_JSON))
+
+        then:
+        1 * mockTradeHistoryService.timeline(accountUuid, tradeUuid) >> { throw new EntityNotFoundException("Invalid id") }
+        results.andExpect(status().isNotFound())
+    }
+
+    def "Should return the status changes of a time window"() {
+        when:
+        ResultActions results = mvc.perform(get("/trade-history")
+                .param("from", "2021-03-01T14:00:00")
+                .param("to", "2021-03-01T15:00:00")
+                .param("after", "10")
+                .param("limit", "2")
+                .accept(APPLICATION_JSON))
+
+        then:
+        1 * mockTradeHistoryService.changesBetween(LocalDateTime.parse("2021-03-01T14:00:00"),
+                LocalDateTime.parse("2021-03-01T15:00:00"), 10, 2) >>
+                [new TradeStatusChange(historyId: 11, tradeUuid: tradeUuid, toStatus: TradeStatus.SUBMITTED)]
+        results.andExpect(status().isOk())
+        results.andExpect(jsonPath('$[0].historyId').value(11))
+    }
+
+    def "Should not accept an empty window"() {
+        when:
+        ResultActions results = mvc.perform(get("/trade-history")
+                .param("from", "2021-03-01T15:00:00")
+                .param("to", "2021-03-01T14:00:00")
+                .accept(APPLICATION_JSON))
+
+        then:
+        0 * mockTradeHistoryService.changesBetween(_, _, _, _)
+        results.andExpect(status().isBadRequest())
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        DetachedMockFactory factory = new DetachedMockFactory()
+
+        @Bean
+        TradeHistoryService tradeHistoryService() {
+            factory.Mock(TradeHistoryService)
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.altruist.resources
+
+import com.altruist.config.ApplicationConfiguration
+import com.altruist.model.Trade
+import com.altruist.model.TradeSide
+import com.altruist.service.TradeService
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest
+import org.springframework.boot.test.context.TestConfiguration
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Import
+import org.springframework.test.web.servlet.MockMvc
+import org.springframework.test.web.servlet.MvcResult
+import org.springframework.test.web.servlet.ResultActions
+import spock.lang.Specification
+import spock.mock.DetachedMockFactory
+
+import java.util.function.Consumer
+
+import static org.hamcrest.Matchers.hasSize
+import static org.springframework.http.MediaType.APPLICATION_JSON
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*
+
+@WebMvcTest(controllers = [TradeLookupController])
+@Import(value = [ApplicationConfiguration])
+class TradeLookupControllerTest extends Specification {
+    @Autowired
+    MockMvc mvc
+
+    @Autowired
+    ObjectMapper objectMapper
+
+    @Autowired
+    TradeService mockTradeService
+
+    def "Should stream the trades found among the ones looked up"() {
+        given: "two trades of different accounts and an id that matches no trade"
+        Trade first = new Trade(uuid: UUID.randomUUID(), accountUuid: UUID.randomUUID(), symbol: "GOGL",
+                quantity: 100, side: TradeSide.BUY, price: BigDecimal.valueOf(100.50))
+        Trade second = new Trade(uuid: UUID.randomUUID(), accountUuid: UUID.randomUUID(), symbol: "AMZN",
+                quantity: 10, side: TradeSide.SELL, price: BigDecimal.valueOf(20.00))
+        List<UUID> uuids = [first.uuid, second.uuid, UUID.randomUUID(), first.uuid]
+
+        when: "they are looked up"
+        MvcResult started = mvc.perform(
+                post("/trades:lookup")
+                        .accept(APPLICATION_JSON)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(uuids))
+        ).andReturn()
+        ResultActions results = mvc.perform(asyncDispatch(started))
+
+        then: "the service is asked once for each distinct id"
+        1 * mockTradeService.findAllByIds(uuids as Set, _) >> { Collection<UUID> ids, Consumer<Trade> consumer ->
+            consumer.accept(first)
+            consumer.accept(second)
+        }
+
+        and: "the trades found are returned"
+        results.andExpect(status().isOk())
+        results.andExpect(jsonPath("\$", hasSize(2)))
+        results.andExpect(jsonPath("\$[0].id").value(first.uuid.toString()))
+        results.andExpect(jsonPath("\$[0].symbol").value("GOGL"))
+        results.andExpect(jsonPath("\$[1].id").value(second.uuid.toString()))
+        results.andExpect(jsonPath("\$[1].accountUuid").value(second.accountUuid.toString()))
+    }
+
+    def "Should not look up #description"() {
+        when:
+        ResultActions results = mvc.perform(
+                post("/trades:lookup")
+                        .accept(APPLICATION_JSON)
+                        .contentType(APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(uuids))
+        )
+
+        then:
+        0 * mockTradeService.findAllByIds(_, _)
+        results.andExpect(status().isBadRequest())
+
+        where:
+        description             | uuids
+        "an empty list of ids"  | []
+        "more than 5000 ids"    | (0..5000).collect { UUID.randomUUID() }
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        DetachedMockFactory factory = new DetachedMockFactory()
+
+        @Bean
+        TradeService tradeService() {
+            factory.Mock(TradeService)
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.altruist.service
 
+import com.altruist.cache.AccountReadCache
 import com.altruist.exceptions.InvalidOperationException
 import com.altruist.model.Account
 import com.altruist.model.Address
 import com.altruist.model.State
+import com.altruist.repository.AccountSnapshotRepository
 import com.altruist.repository.impl.AccountRepositoryImpl
 import com.altruist.service.impl.AccountServiceImpl
 import com.altruist.service.impl.AddressServiceImpl
@@ -164,9 +166,15 @@ class AccountServiceTest extends Specification {
             factory.Mock(AddressServiceImpl)
         }
 
+        @Bean
+        AccountSnapshotRepository accountSnapshotRepository() {
+            factory.Mock(AccountSnapshotRepository)
+        }
+
         @Bean
         AccountServiceImpl accountService() {
-            return new AccountServiceImpl(accountRepository(), addressService())
+            return new AccountServiceImpl(accountRepository(), addressService(), accountSnapshotRepository(),
+                    new AccountReadCache(100, 100, 100))
         }
     }
 }
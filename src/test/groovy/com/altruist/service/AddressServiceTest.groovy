@@ -1,5 +1,6 @@
 package com.altruist.service
 
+import com.altruist.cache.AccountReadCache
 import com.altruist.exceptions.EntityNotFoundException
 import com.altruist.exceptions.InvalidOperationException
 import com.altruist.model.Account
@@ -204,7 +205,7 @@ class AddressServiceTest extends Specification {
         @Bean
         AddressService addressService(AddressRepository addressRepository,
                                           AccountRepository accountRepository) {
-            return new AddressServiceImpl(addressRepository, accountRepository)
+            return new AddressServiceImpl(addressRepository, accountRepository, new AccountReadCache(100, 100, 100))
         }
 
     }
@@ -0,0 +1,108 @@
+package com.altruist.service
+
+import com.altruist.exceptions.InvalidTradeException
+import com.altruist.model.IdempotencyKey
+import com.altruist.repository.IdempotencyKeyRepository
+import com.altruist.repository.impl.IdempotencyKeyRepositoryImpl
+import com.altruist.service.impl.IdempotencyServiceImpl
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.TestConfiguration
+import org.springframework.context.annotation.Bean
+import org.springframework.test.context.ContextConfiguration
+import spock.lang.Specification
+import spock.mock.DetachedMockFactory
+
+@ContextConfiguration(classes = [TestConfig])
+class IdempotencyServiceTest extends Specification {
+    @Autowired
+    IdempotencyKeyRepository mockRepository
+
+    @Autowired
+    IdempotencyService service
+
+    def "Should answer a completed key from memory"() {
+        given: "a completed key"
+        UUID accountUuid = UUID.randomUUID()
+        UUID tradeUuid = UUID.randomUUID()
+        service.complete(accountUuid, "key-1", "fingerprint", tradeUuid)
+
+        when:
+        Optional<UUID> result = service.findTradeUuid(accountUuid, "key-1", "fingerprint")
+
+        then: "the database is not queried"
+        0 * mockRepository.find(_, _)
+
+        and: "the trade uuid is returned"
+        result.get() == tradeUuid
+    }
+
+    def "Should fall back to the database for unknown keys"() {
+        given: "a key only known by the database"
+        UUID accountUuid = UUID.randomUUID()
+        UUID tradeUuid = UUID.randomUUID()
+
+        when:
+        Optional<UUID> first = service.findTradeUuid(accountUuid, "key-2", "fingerprint")
+        Optional<UUID> second = service.findTradeUuid(accountUuid, "key-2", "fingerprint")
+
+        then: "the database is queried only once"
+        1 * mockRepository.find(accountUuid, "key-2") >> Optional.of(new IdempotencyKey(tradeUuid, "fingerprint"))
+
+        and: "both lookups return the trade uuid"
+        first.get() == tradeUuid
+        second.get() == tradeUuid
+    }
+
+    def "Should not answer a key still being used by its first request"() {
+        given: "a key reserved without a trade yet"
+        UUID accountUuid = UUID.randomUUID()
+
+        when:
+        Optional<UUID> first = service.findTradeUuid(accountUuid, "key-3", "fingerprint")
+        Optional<UUID> second = service.findTradeUuid(accountUuid, "key-3", "fingerprint")
+
+        then: "the database is queried every time"
+        2 * mockRepository.find(accountUuid, "key-3") >> Optional.of(new IdempotencyKey(null, "fingerprint"))
+
+        and: "no trade is returned"
+        !first.isPresent()
+        !second.isPresent()
+    }
+
+    def "Should refuse a key used before with a different request"() {
+        given: "a completed key"
+        UUID accountUuid = UUID.randomUUID()
+        service.complete(accountUuid, "key-4", "fingerprint", UUID.randomUUID())
+
+        when:
+        service.findTradeUuid(accountUuid, "key-4", "another fingerprint")
+
+        then:
+        thrown(InvalidTradeException)
+    }
+
+    def "Should replay a key reserved before fingerprints were stored"() {
+        given: "a key without a fingerprint"
+        UUID accountUuid = UUID.randomUUID()
+        UUID tradeUuid = UUID.randomUUID()
+        1 * mockRepository.find(accountUuid, "key-5") >> Optional.of(new IdempotencyKey(tradeUuid, null))
+
+        expect:
+        service.findTradeUuid(accountUuid, "key-5", "fingerprint").get() == tradeUuid
+    }
+
+    @TestConfiguration
+    static class TestConfig {
+        DetachedMockFactory factory = new DetachedMockFactory()
+
+        @Bean
+        IdempotencyKeyRepository idempotencyKeyRepository() {
+            factory.Mock(IdempotencyKeyRepositoryImpl)
+        }
+
+        @Bean
+        IdempotencyService idempotencyService(IdempotencyKeyRepository idempotencyKeyRepository) {
+            return new IdempotencyServiceImpl(idempotencyKeyRepository, 1000)
+        }
+    }
+}
@@ -1,16 +1,28 @@
 package com.altruist.service
 
+import com.altruist.batching.CoalescingTradeWriter
+import com.altruist.cache.AccountReadCache
+import com.altruist.cache.RecentTradeStore
+import com.altruist.cache.RecentTrades
 import com.altruist.exceptions.EntityNotFoundException
 import com.altruist.exceptions.InvalidOperationException
+import com.altruist.exceptions.InvalidTradeException
 import com.altruist.exceptions.InvalidTradeStatusException
+import com.altruist.expiry.TradeExpiryService
+import com.altruist.ledger.AccountLedgerService
+import com.altruist.marketdata.MarketDataService
+import com.altruist.marketdata.SymbolTable
 import com.altruist.model.Account
+import com.altruist.model.TimeInForce
 import com.altruist.model.Trade
+import com.altruist.model.TradeAmendment
 import com.altruist.model.TradeSide
 import com.altruist.model.TradeStatus
 import com.altruist.repository.AccountRepository
 import com.altruist.repository.impl.AccountRepositoryImpl
 import com.altruist.repository.TradeRepository
 import com.altruist.repository.impl.TradeRepositoryImpl
+import com.altruist.service.impl.IdempotencyServiceImpl
 import com.altruist.service.impl.TradeServiceImpl
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.context.TestConfiguration
@@ -20,6 +32,8 @@ import spock.lang.Shared
 import spock.lang.Specification
 import spock.mock.DetachedMockFactory
 
+import java.time.OffsetDateTime
+
 @ContextConfiguration(classes = [TestConfig])
 class TradeServiceTest extends Specification {
     @Autowired
@@ -28,6 +42,18 @@ class TradeServiceTest extends Specification {
     @Autowired
     AccountRepository mockAccountRepository
 
+    @Autowired
+    IdempotencyService mockIdempotencyService
+
+    @Autowired
+    MarketDataService mockMarketDataService
+
+    @Autowired
+    AccountLedgerService mockAccountLedgerService
+
+    @Autowired
+    TradeExpiryService mockTradeExpiryService
+
     @Autowired
     TradeService service
 
@@ -48,7 +74,8 @@ class TradeServiceTest extends Specification {
                 symbol: "SYMBOL",
                 quantity : 100,
                 side: TradeSide.BUY,
-                price : BigDecimal.valueOf(150.00)
+                price : BigDecimal.valueOf(150.00),
+                version: 0
         )
 
     }
@@ -86,6 +113,24 @@ class TradeServiceTest extends Specification {
         trade.uuid == expectedUuid
     }
 
+    def "Should hand a trade with a time in force to the expiry wheel"() {
+        given: "a day trade"
+        trade.timeInForce = TimeInForce.DAY
+
+        and: "an account repository able to find the account for the trade"
+        1 * mockAccountRepository.findById(trade.accountUuid) >> Optional.of(account)
+
+        when:
+        service.create(trade)
+
+        then: "its deadline is set before it is saved"
+        1 * mockTradeExpiryService.assignDeadline(trade)
+
+        then: "it is saved and scheduled"
+        1 * mockTradeRepository.save(trade) >> trade
+        1 * mockTradeExpiryService.schedule(trade)
+    }
+
     def "Should not save trade for unknown account"() {
         given: "an account repository that can't to find the account for the trade"
         1 * mockAccountRepository.findById(trade.accountUuid) >> Optional.empty()
@@ -98,6 +143,58 @@ class TradeServiceTest extends Specification {
     }
 
 
+    def "Should not save trade rejected by the market data checks"() {
+        given: "a trade with an unknown symbol"
+        1 * mockMarketDataService.validate(trade) >> { throw new InvalidTradeException("Unknown symbol") }
+
+        when:
+        service.create(trade)
+
+        then: "nothing is saved"
+        0 * mockTradeRepository.save(_)
+
+        and: "the account is not even looked up"
+        0 * mockAccountRepository.findById(_)
+
+        and: "an exception is thrown"
+        thrown(InvalidTradeException)
+    }
+
+    def "Should not save trade the account can't afford"() {
+        given: "an account repository able to find the account for the trade"
+        1 * mockAccountRepository.findById(trade.accountUuid) >> Optional.of(account)
+
+        and: "a ledger without enough buying power"
+        1 * mockAccountLedgerService.reserve(trade) >> { throw new InvalidTradeException("Insufficient buying power") }
+
+        when:
+        service.create(trade)
+
+        then: "nothing is saved"
+        0 * mockTradeRepository.save(_)
+
+        and: "an exception is thrown"
+        thrown(InvalidTradeException)
+    }
+
+    def "Should release the ledger reservation when the trade is not saved"() {
+        given: "an account repository able to find the account for the trade"
+        1 * mockAccountRepository.findById(trade.accountUuid) >> Optional.of(account)
+
+        and: "a repository failing to save the trade"
+        1 * mockTradeRepository.save(_) >> { throw new RuntimeException("Insert failed for trade") }
+
+        when:
+        service.create(trade)
+
+        then: "the reservation is released"
+        1 * mockAccountLedgerService.reserve(trade)
+        1 * mockAccountLedgerService.release(trade)
+
+        and: "the exception is propagated"
+        thrown(RuntimeException)
+    }
+
     def "Should cancel trade"() {
         given: "an trade uuid"
         UUID expectedUuid = UUID.randomUUID()
@@ -112,23 +209,104 @@ class TradeServiceTest extends Specification {
         and: "a repository that finds the account by id"
         1 * mockAccountRepository.findById(account.uuid) >> Optional.of(account)
 
+        and: "the row changed by the cancel, amended since the trade was read"
+        Trade cancelled = new Trade(uuid: expectedUuid, accountUuid: account.uuid, symbol: "SYMBOL", quantity: 50,
+                side: TradeSide.BUY, price: BigDecimal.valueOf(150.00), status: TradeStatus.CANCELLED, version: 2)
+
         when:
-        trade = service.cancelTrade(account.uuid, trade.uuid)
+        service.cancelTrade(account.uuid, trade.uuid)
 
-        then: "the trade is cancelled"
-        1 * mockTradeRepository.update(_) >>  { Trade arg ->
-            with(arg){
-                uuid: expectedUuid
-                accountUuid: trade.accountUuid
-                symbol: trade.symbol
-                quantity: trade.quantity
-                side: trade.side
-                price: trade.price
-                status: TradeStatus.CANCELLED
-            }
+        then: "the trade is cancelled only if it is still submitted"
+        1 * mockTradeRepository.updateStatus(expectedUuid, TradeStatus.SUBMITTED, TradeStatus.CANCELLED) >>
+                Optional.of(cancelled)
 
-            arg
-        }
+        and: "the reservation of the changed row is released"
+        1 * mockAccountLedgerService.release({ it.is(cancelled) })
+
+        and: "the trade read is left as it was"
+        trade.status == TradeStatus.SUBMITTED
+    }
+
+    def "Should not release the reservation of a trade cancelled concurrently"() {
+        given: "a submitted trade"
+        trade.uuid = UUID.randomUUID()
+        trade.status = TradeStatus.SUBMITTED
+        1 * mockTradeRepository.findById(trade.uuid) >> Optional.of(trade)
+        1 * mockAccountRepository.findById(account.uuid) >> Optional.of(account)
+
+        and: "a concurrent request changing its status first"
+        1 * mockTradeRepository.updateStatus(trade.uuid, TradeStatus.SUBMITTED, TradeStatus.CANCELLED) >>
+                Optional.empty()
+
+        when:
+        service.cancelTrade(account.uuid, trade.uuid)
+
+        then:
+        thrown(InvalidTradeStatusException)
+        0 * mockAccountLedgerService.release(_)
+    }
+
+    def "Should amend a submitted trade at its current version"() {
+        given: "a submitted trade"
+        trade.uuid = UUID.randomUUID()
+        trade.status = TradeStatus.SUBMITTED
+        trade.version = 3
+        1 * mockTradeRepository.findById(trade.uuid) >> Optional.of(trade)
+        1 * mockAccountRepository.findById(account.uuid) >> Optional.of(account)
+
+        and: "an amendment of its price"
+        TradeAmendment amendment = new TradeAmendment(version: 3, price: BigDecimal.valueOf(151.00))
+        Trade dbTrade = new Trade(uuid: trade.uuid, accountUuid: account.uuid, price: amendment.price, version: 4)
+
+        when:
+        Trade amended = service.amend(account.uuid, trade.uuid, amendment)
+
+        then: "the amended trade is validated and its reservation moved"
+        1 * mockMarketDataService.validate({ it.price == amendment.price && it.quantity == trade.quantity })
+        1 * mockAccountLedgerService.amend(trade, { it.price == amendment.price })
+
+        and: "the trade is amended with a conditional update"
+        1 * mockTradeRepository.amend(trade.uuid, account.uuid, amendment) >> Optional.of(dbTrade)
+        amended == dbTrade
+    }
+
+    def "Should not amend a trade at a stale version"() {
+        given: "a submitted trade changed since it was read"
+        trade.uuid = UUID.randomUUID()
+        trade.status = TradeStatus.SUBMITTED
+        trade.version = 3
+        1 * mockTradeRepository.findById(trade.uuid) >> Optional.of(trade)
+        1 * mockAccountRepository.findById(account.uuid) >> Optional.of(account)
+
+        when:
+        service.amend(account.uuid, trade.uuid, new TradeAmendment(version: 2, quantity: 10))
+
+        then:
+        thrown(InvalidOperationException)
+        0 * mockTradeRepository.amend(_, _, _)
+        0 * mockAccountLedgerService.amend(_, _)
+    }
+
+    def "Should move the reservation back when the amendment loses a race"() {
+        given: "a submitted trade"
+        trade.uuid = UUID.randomUUID()
+        trade.status = TradeStatus.SUBMITTED
+        trade.version = 0
+        1 * mockTradeRepository.findById(trade.uuid) >> Optional.of(trade)
+        1 * mockAccountRepository.findById(account.uuid) >> Optional.of(account)
+
+        and: "a concurrent change of the trade"
+        1 * mockTradeRepository.amend(trade.uuid, account.uuid, _) >> Optional.empty()
+
+        when:
+        service.amend(account.uuid, trade.uuid, new TradeAmendment(version: 0, quantity: 10))
+
+        then: "the reservation is moved to the amendment and back"
+        1 * mockAccountLedgerService.amend(trade, { it.quantity == 10 })
+        1 * mockAccountLedgerService.amend({ it.quantity == 10 }, trade)
+
+        and:
+        thrown(InvalidOperationException)
     }
 
 
@@ -196,6 +374,179 @@ class TradeServiceTest extends Specification {
         thrown(InvalidOperationException)
     }
 
+    def "Should cancel all trades and release their reservations"() {
+        given: "two submitted trades of the account"
+        Trade first = new Trade(uuid: UUID.randomUUID(), accountUuid: account.uuid, symbol: "SYMBOL",
+                quantity: 10, side: TradeSide.BUY, price: BigDecimal.TEN, status: TradeStatus.CANCELLED)
+        Trade second = new Trade(uuid: UUID.randomUUID(), accountUuid: account.uuid, symbol: "SYMBOL",
+                quantity: 5, side: TradeSide.BUY, price: BigDecimal.TEN, status: TradeStatus.CANCELLED)
+
+        and: "a repository that finds the account by id"
+        1 * mockAccountRepository.findById(account.uuid) >> Optional.of(account)
+
+        when:
+        List<UUID> cancelled = service.cancelAll(account.uuid, "SYMBOL", TradeSide.BUY)
+
+        then: "the trades are cancelled in a single call"
+        1 * mockTradeRepository.cancelAll(account.uuid, "SYMBOL", TradeSide.BUY) >> [first, second]
+        0 * mockTradeRepository.updateStatus(_, _, _)
+
+        and: "each reservation is released"
+        1 * mockAccountLedgerService.release(first)
+        1 * mockAccountLedgerService.release(second)
+
+        and: "the ids are returned"
+        cancelled == [first.uuid, second.uuid]
+    }
+
+    def "Should not cancel all trades of an unknown account"() {
+        given: "a repository that can't find the account"
+        1 * mockAccountRepository.findById(account.uuid) >> Optional.empty()
+
+        when:
+        service.cancelAll(account.uuid, null, null)
+
+        then:
+        thrown(EntityNotFoundException)
+        0 * mockTradeRepository.cancelAll(_, _, _)
+    }
+
+    def "Should save trade with a new idempotency key"() {
+        given: "a trade uuid"
+        UUID expectedUuid = UUID.randomUUID()
+
+        and: "an idempotency key never used before"
+        1 * mockIdempotencyService.findTradeUuid(account.uuid, "key-1", _) >> Optional.empty()
+        1 * mockIdempotencyService.reserve(account.uuid, "key-1", _) >> true
+
+        and: "an account repository able to find the account for the trade"
+        1 * mockAccountRepository.findById(trade.accountUuid) >> Optional.of(account)
+
+        when:
+        trade = service.create(trade, "key-1")
+
+        then: "the trade is saved"
+        1 * mockTradeRepository.save(_) >> { Trade arg ->
+            arg.uuid = expectedUuid
+            arg
+        }
+
+        and: "the key is assigned to the trade"
+        1 * mockIdempotencyService.complete(account.uuid, "key-1", _, expectedUuid)
+
+        and: "the uuid is returned"
+        trade.uuid == expectedUuid
+    }
+
+    def "Should replay trade for a known idempotency key"() {
+        given: "an idempotency key already assigned to a trade"
+        UUID originalUuid = UUID.randomUUID()
+        1 * mockIdempotencyService.findTradeUuid(account.uuid, "key-1", _) >> Optional.of(originalUuid)
+
+        when:
+        trade = service.create(trade, "key-1")
+
+        then: "nothing is saved"
+        0 * mockTradeRepository.save(_)
+        0 * mockIdempotencyService.reserve(_, _, _)
+
+        and: "the original uuid is returned"
+        trade.uuid == originalUuid
+    }
+
+    def "Should replay trade when a concurrent request claimed the idempotency key"() {
+        given: "an idempotency key claimed by a concurrent request"
+        UUID originalUuid = UUID.randomUUID()
+        2 * mockIdempotencyService.findTradeUuid(account.uuid, "key-1", _) >>> [Optional.empty(), Optional.of(originalUuid)]
+        1 * mockIdempotencyService.reserve(account.uuid, "key-1", _) >> false
+
+        and: "an account repository able to find the account for the trade"
+        1 * mockAccountRepository.findById(trade.accountUuid) >> Optional.of(account)
+
+        when:
+        trade = service.create(trade, "key-1")
+
+        then: "nothing is saved"
+        0 * mockTradeRepository.save(_)
+
+        and: "the uuid of the concurrent request is returned"
+        trade.uuid == originalUuid
+    }
+
+    def "Should fingerprint the trade request and not its deadline"() {
+        given: "the fingerprints the idempotency key is looked up with"
+        List<String> fingerprints = []
+        3 * mockIdempotencyService.findTradeUuid(account.uuid, "key-1", _) >> { UUID accountUuid, String key, String fingerprint ->
+            fingerprints << fingerprint
+            Optional.of(UUID.randomUUID())
+        }
+
+        when: "the same request is sent twice, the second one with another price scale and a deadline"
+        service.create(new Trade(accountUuid: account.uuid, symbol: "APPL", quantity: 100,
+                side: TradeSide.BUY, price: new BigDecimal("100.50")), "key-1")
+        service.create(new Trade(accountUuid: account.uuid, symbol: "APPL", quantity: 100,
+                side: TradeSide.BUY, price: new BigDecimal("100.500"),
+                expiresAt: OffsetDateTime.now()), "key-1")
+
+        and: "a different request reuses the key"
+        service.create(new Trade(accountUuid: account.uuid, symbol: "APPL", quantity: 200,
+                side: TradeSide.BUY, price: new BigDecimal("100.50")), "key-1")
+
+        then: "the same request has the same fingerprint"
+        fingerprints[0] == fingerprints[1]
+
+        and: "the different request has another one"
+        fingerprints[2] != fingerprints[0]
+    }
+
+    def "Should list the recent trades from the database once and then from the ring"() {
+        given: "an account with a submitted trade"
+        trade.uuid = UUID.randomUUID()
+        trade.status = TradeStatus.SUBMITTED
+
+        when: "its recent trades are listed twice"
+        List<List> first = listing(service.recent(account.uuid, 5))
+        List<List> second = listing(service.recent(account.uuid, 5))
+
+        then: "the database fills the ring of the account the first time only"
+        1 * mockAccountRepository.findById(account.uuid) >> Optional.of(account)
+        1 * mockTradeRepository.findRecentByAccount(account.uuid, 8) >> [trade]
+        first == [[trade.uuid, "SYMBOL", 100, 150.00, TradeStatus.SUBMITTED, 0]]
+        second == first
+
+        when: "a newer trade is submitted and the first one cancelled"
+        Trade newer = new Trade(accountUuid: account.uuid, symbol: "SYMBOL", quantity: 10, side: TradeSide.SELL,
+                price: 151.00)
+        service.create(newer)
+        service.cancelTrade(account.uuid, trade.uuid)
+
+        then:
+        _ * mockAccountRepository.findById(account.uuid) >> Optional.of(account)
+        1 * mockTradeRepository.save(_) >> { Trade arg ->
+            arg.uuid = UUID.randomUUID()
+            arg.status = TradeStatus.SUBMITTED
+            arg.version = 0
+            arg
+        }
+        1 * mockTradeRepository.findById(trade.uuid) >> Optional.of(trade)
+        1 * mockTradeRepository.updateStatus(trade.uuid, TradeStatus.SUBMITTED, TradeStatus.CANCELLED) >>
+                Optional.of(new Trade(uuid: trade.uuid, accountUuid: account.uuid, symbol: "SYMBOL", quantity: 100,
+                        side: TradeSide.BUY, price: 150.00, status: TradeStatus.CANCELLED, version: 1))
+
+        when:
+        List<List> third = listing(service.recent(account.uuid, 5))
+
+        then: "the ring has both, newest first, without reading the database"
+        0 * mockTradeRepository.findRecentByAccount(_, _)
+        third == [[newer.uuid, "SYMBOL", 10, 151.00, TradeStatus.SUBMITTED, 0],
+                  [trade.uuid, "SYMBOL", 100, 150.00, TradeStatus.CANCELLED, 1]]
+    }
+
+    private static List<List> listing(RecentTrades trades) {
+        List<List> rows = []
+        trades.forEach { rows << [it.uuid, it.symbol, it.quantity, it.price, it.status, it.version] }
+        return rows
+    }
 
     @TestConfiguration
     static class TestConfig {
@@ -212,8 +563,43 @@ class TradeServiceTest extends Specification {
         }
 
         @Bean
-        TradeService tradeService(TradeRepository tradeRepository, AccountRepositoryImpl accountRepository) {
-            return new TradeServiceImpl(tradeRepository, accountRepository)
+        IdempotencyService idempotencyService() {
+            factory.Mock(IdempotencyServiceImpl)
+        }
+
+        @Bean
+        MarketDataService marketDataService() {
+            factory.Mock(MarketDataService)
+        }
+
+        @Bean
+        AccountLedgerService accountLedgerService() {
+            factory.Mock(AccountLedgerService)
+        }
+
+        @Bean
+        TradeExpiryService tradeExpiryService() {
+            factory.Mock(TradeExpiryService)
+        }
+
+        @Bean
+        TradeService tradeService(TradeRepository tradeRepository,
+                                  AccountRepositoryImpl accountRepository,
+                                  IdempotencyService idempotencyService,
+                                  MarketDataService marketDataService,
+                                  AccountLedgerService accountLedgerService,
+                                  TradeExpiryService tradeExpiryService) {
+            return new TradeServiceImpl(tradeRepository, accountRepository, idempotencyService,
+                    marketDataService, accountLedgerService, tradeExpiryService,
+                    new CoalescingTradeWriter(tradeRepository), new AccountReadCache(100, 100, 100),
+                    new RecentTradeStore(symbolTable(), 16, 8))
+        }
+
+        @Bean
+        SymbolTable symbolTable() {
+            SymbolTable symbolTable = new SymbolTable(16)
+            symbolTable.register("SYMBOL")
+            return symbolTable
         }
     }
 }
@@ -0,0 +1,211 @@
+package com.altruist.statement
+
+import com.altruist.cluster.ShardOwnership
+import com.altruist.model.Account
+import com.altruist.model.Trade
+import com.altruist.model.TradeAggregate
+import com.altruist.model.TradeSide
+import com.altruist.model.TradeStatus
+import com.altruist.repository.StatementRepository
+import com.altruist.utils.UuidV7
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Clock
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.time.ZoneOffset
+import java.util.function.Consumer
+
+class StatementJobTest extends Specification {
+
+    LocalDate date = LocalDate.of(2021, 3, 1)
+    ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+    Path directory = Files.createTempDirectory("statements")
+    InMemoryStatements repository = new InMemoryStatements()
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "Should write the statement of every account once"() {
+        given: "accounts spread over the uuid space, one of them with trades"
+        List<Account> accounts = (0..<20).collect { account(it * 3271) }
+        repository.accounts.addAll(accounts)
+        UUID trader = accounts[7].uuid
+        repository.trades << trade(trader, TradeSide.BUY, TradeStatus.COMPLETED, 10, 10.00)
+        repository.trades << trade(trader, TradeSide.SELL, TradeStatus.SUBMITTED, 5, 11.00)
+        repository.completed << new TradeAggregate(accountUuid: trader, symbol: "AAPL", side: TradeSide.BUY,
+                status: TradeStatus.COMPLETED, quantity: 30, notional: 300.00)
+        repository.completed << new TradeAggregate(accountUuid: trader, symbol: "AAPL", side: TradeSide.SELL,
+                status: TradeStatus.COMPLETED, quantity: 30, notional: 360.00)
+        repository.completed << new TradeAggregate(accountUuid: trader, symbol: "MSFT", side: TradeSide.BUY,
+                status: TradeStatus.COMPLETED, quantity: 10, notional: 100.00)
+
+        when:
+        long written = job(4, 3).generate(date)
+
+        then: "each account has a single statement"
+        written == 20
+        Map<String, Map> statements = statements()
+        statements.keySet() == accounts*.uuid*.toString() as Set
+
+        and: "the trader's statement has its trades, positions and totals"
+        Map statement = statements[trader.toString()]
+        statement.trades.size() == 2
+        statement.positions == [[symbol: "MSFT", quantity: 10]]
+        statement.cash == 1000.00 - 300.00 + 360.00 - 100.00
+        statement.bought == 100.00
+        statement.sold == 0
+    }
+
+    def "Should resume a failed run from its checkpoint"() {
+        given: "accounts of a single partition"
+        List<Account> accounts = (0..<10).collect { account(it) }
+        repository.accounts.addAll(accounts)
+        StatementJob job = job(1, 2)
+
+        when: "the run fails on the third chunk"
+        repository.failAfter = 2
+        job.generate(date)
+
+        then:
+        thrown(IllegalStateException)
+        statements().size() == 4
+
+        when: "the date is run again"
+        repository.failAfter = Integer.MAX_VALUE
+        long written = job.generate(date)
+
+        then: "only the accounts left are written, in the ranges of the first run"
+        written == 6
+        repository.boundsCalls == 1
+        statements().keySet() == accounts*.uuid*.toString() as Set
+        lines().size() == 10
+
+        when: "the date is run once more"
+        written = job.generate(date)
+
+        then: "there is nothing left to write"
+        written == 0
+        lines().size() == 10
+    }
+
+    def "Should split time ordered uuids into partitions of about the same number of accounts"() {
+        given: "accounts created in a row, their uuids sharing the leading bits"
+        List<Account> accounts = (0..<22).collect {
+            new Account(uuid: UuidV7.next(), username: "user$it", email: "user$it@email.com")
+        }
+        repository.accounts.addAll(accounts)
+
+        when:
+        long written = job(4, 2).generate(date)
+
+        then: "every partition gets its share of the accounts"
+        written == 22
+        partitionSizes() == [6, 6, 5, 5]
+        statements().keySet() == accounts*.uuid*.toString() as Set
+    }
+
+    def "Should leave partitions empty when there are fewer accounts than partitions"() {
+        given:
+        repository.accounts.addAll((0..<2).collect { account(it) })
+
+        when:
+        long written = job(4, 10).generate(date)
+
+        then:
+        written == 2
+        partitionSizes() == [1, 0, 0, 1]
+    }
+
+    private StatementJob job(int partitions, int chunkSize) {
+        new StatementJob(repository, ShardOwnership.ALL, objectMapper, Clock.systemUTC(), ZoneOffset.UTC,
+                BigDecimal.valueOf(1000.00), directory, partitions, 2, chunkSize, 1024)
+    }
+
+    private List<String> lines() {
+        directory.resolve(date.toString()).toFile().listFiles()
+                .findAll { it.name.endsWith(".jsonl") }
+                .collectMany { it.readLines() }
+    }
+
+    private List<Integer> partitionSizes() {
+        directory.resolve(date.toString()).toFile().listFiles()
+                .findAll { it.name.endsWith(".jsonl") }
+                .sort { it.name }
+                .collect { it.readLines().size() }
+    }
+
+    private Map<String, Map> statements() {
+        lines().collectEntries {
+            Map statement = objectMapper.readValue(it, Map)
+            [(statement.accountUuid): statement]
+        }
+    }
+
+    private static Account account(int prefix) {
+        new Account(uuid: new UUID(((long) prefix) << 48 | 1, 1), username: "user$prefix", email: "user$prefix@email.com")
+    }
+
+    private static Trade trade(UUID accountUuid, TradeSide side, TradeStatus status, int quantity, BigDecimal price) {
+        new Trade(uuid: UUID.randomUUID(), accountUuid: accountUuid, symbol: "MSFT", side: side, status: status,
+                quantity: quantity, price: price, totalAmount: price * quantity, version: 0)
+    }
+
+    /**
+     * Orders the uuids as postgres does, by their unsigned bytes.
+     */
+    static class InMemoryStatements implements StatementRepository {
+        List<Account> accounts = []
+        List<Trade> trades = []
+        List<TradeAggregate> completed = []
+        int failAfter = Integer.MAX_VALUE
+        int calls
+        int boundsCalls
+
+        /**
+         * Splits the accounts as ntile does, the first partitions taking one more when they don't
+         * split evenly.
+         */
+        @Override
+        synchronized List<UUID> findPartitionBounds(int partitions) {
+            boundsCalls++
+            List<UUID> sorted = accounts*.uuid.sort { it.toString() }
+            List<UUID> bounds = []
+            int start = 0
+            for (int partition = 0; partition < Math.min(partitions, sorted.size()); partition++) {
+                if (partition > 0) {
+                    bounds << sorted[start]
+                }
+                start += sorted.size().intdiv(partitions) + (partition < sorted.size() % partitions ? 1 : 0)
+            }
+            bounds
+        }
+
+        @Override
+        synchronized List<Account> findAccounts(UUID from, UUID to, UUID after, int limit) {
+            if (calls++ >= failAfter) {
+                throw new IllegalStateException("connection lost")
+            }
+            accounts.findAll {
+                String uuid = it.uuid.toString()
+                uuid >= from.toString() && (to == null || uuid < to.toString()) &&
+                        (after == null || uuid > after.toString())
+            }.sort { it.uuid.toString() }.take(limit)
+        }
+
+        @Override
+        void findTrades(Collection<UUID> accountUuids, LocalDateTime from, LocalDateTime to, Consumer<Trade> consumer) {
+            trades.findAll { it.accountUuid in accountUuids }.each { consumer.accept(it) }
+        }
+
+        @Override
+        void aggregateCompleted(Collection<UUID> accountUuids, LocalDateTime until, Consumer<TradeAggregate> consumer) {
+            completed.findAll { it.accountUuid in accountUuids }.each { consumer.accept(it) }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.altruist.utils
+
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class UuidV7Test extends Specification {
+
+    def "Should generate version 7 uuids carrying the current time"() {
+        given:
+        long before = System.currentTimeMillis()
+
+        when:
+        UUID uuid = UuidV7.next()
+
+        then: "version and variant follow RFC 9562"
+        uuid.version() == 7
+        uuid.variant() == 2
+
+        and: "the timestamp is the generation time"
+        UuidV7.timestampMillis(uuid) >= before
+        UuidV7.timestampMillis(uuid) <= System.currentTimeMillis() + 1
+    }
+
+    def "Should generate strictly increasing uuids"() {
+        when:
+        List<UUID> uuids = (1..10_000).collect { UuidV7.next() }
+
+        then: "each uuid sorts after the previous one, as postgres compares them"
+        (1..<uuids.size()).every { int i ->
+            Long.compareUnsigned(uuids[i].mostSignificantBits, uuids[i - 1].mostSignificantBits) > 0
+        }
+    }
+
+    def "Should not repeat uuids across threads"() {
+        given:
+        ConcurrentLinkedQueue<UUID> uuids = new ConcurrentLinkedQueue<>()
+        def executor = Executors.newFixedThreadPool(8)
+
+        when:
+        8.times {
+            executor.submit {
+                10_000.times { uuids.add(UuidV7.next()) }
+            }
+        }
+        executor.shutdown()
+        executor.awaitTermination(10, TimeUnit.SECONDS)
+
+        then:
+        uuids.size() == 80_000
+        new HashSet<>(uuids).size() == 80_000
+    }
+}